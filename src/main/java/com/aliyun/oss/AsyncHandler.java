@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+/**
+ * 异步请求完成时的回调接口，由{@link OSSAsync}的回调线程调用，实现中不应执行长时间的阻塞操作，
+ * 如读取较大的响应内容，应交给其他线程进行。
+ * 
+ * @param <T> 请求结果类型。
+ */
+public interface AsyncHandler<T> {
+    
+    /**
+     * 请求成功完成。
+     * @param result 请求结果。
+     */
+    public void onSuccess(T result);
+    
+    /**
+     * 请求失败，异常为{@link OSSException}或{@link ClientException}。
+     * @param exception 失败原因。
+     */
+    public void onError(Exception exception);
+    
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
+import static com.aliyun.oss.internal.RequestParameters.OSS_ACCESS_KEY_ID;
+import static com.aliyun.oss.internal.RequestParameters.SECURITY_TOKEN;
+import static com.aliyun.oss.internal.RequestParameters.SIGNATURE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.aliyun.oss.common.auth.Credentials;
+import com.aliyun.oss.common.auth.ServiceSignature;
+import com.aliyun.oss.common.utils.HttpHeaders;
+import com.aliyun.oss.common.utils.HttpUtil;
+import com.aliyun.oss.internal.OSSUtils;
+
+/**
+ * 批量生成同一个Bucket下Object的GET签名URL，由{@link OSSClient#createBatchPresigner}创建。
+ * <p>
+ * Presigner绑定Bucket、URL的超时时间及创建时的访问凭证，Endpoint前缀、签名字符串模板和URL参数只在创建时计算一次，
+ * 每个Object只需计算一次签名，生成的URL与{@link OSSClient#generatePresignedUrl(String, String, Date)}相同。
+ * 访问凭证更新后需要重新创建Presigner。
+ * </p>
+ * <p>
+ * 此类是线程安全的。可以通过{@link #enableCache(int)}缓存最近生成的URL，缓存的URL在超时时间之前一直有效。
+ * </p>
+ */
+public class BatchPresigner {
+    
+    private final String bucketName;
+    private final Date expiration;
+    private final boolean sldEnabled;
+    private final String secretAccessKey;
+    private final ServiceSignature signature = ServiceSignature.create();
+    
+    /* Scheme, host and path of the bucket endpoint, ending with a slash. */
+    private final String endpointPrefix;
+    
+    /* The parts of the canonical string before and after the object key. */
+    private final String canonicalPrefix;
+    private final String canonicalSuffix;
+    
+    /* The parameters of the URL before and after the signature. */
+    private final String queryPrefix;
+    private final String querySuffix;
+    
+    private Map<String, String> cache;
+    
+    BatchPresigner(String endpointPrefix, String bucketName, Date expiration, Credentials creds, 
+            boolean sldEnabled) {
+        this.endpointPrefix = endpointPrefix.endsWith("/") ? endpointPrefix : endpointPrefix + "/";
+        this.bucketName = bucketName;
+        this.expiration = new Date(expiration.getTime());
+        this.sldEnabled = sldEnabled;
+        this.secretAccessKey = creds.getSecretAccessKey();
+        
+        String expires = String.valueOf(expiration.getTime() / 1000L);
+        this.canonicalPrefix = "GET\n\n\n" + expires + "\n/" + bucketName + "/";
+        this.queryPrefix = "?" + HttpHeaders.EXPIRES + "=" + expires 
+                + "&" + OSS_ACCESS_KEY_ID + "=" + HttpUtil.urlEncode(creds.getAccessKeyId(), DEFAULT_CHARSET_NAME)
+                + "&" + SIGNATURE + "=";
+        if (creds.useSecurityToken()) {
+            this.canonicalSuffix = "?" + SECURITY_TOKEN + "=" + creds.getSecurityToken();
+            this.querySuffix = "&" + SECURITY_TOKEN + "=" 
+                    + HttpUtil.urlEncode(creds.getSecurityToken(), DEFAULT_CHARSET_NAME);
+        } else {
+            this.canonicalSuffix = "";
+            this.querySuffix = "";
+        }
+    }
+    
+    /**
+     * 缓存最近生成的URL，同一个Object再次生成URL时不再计算签名。
+     * @param maxEntries 最多缓存的URL个数，为0时关闭缓存。
+     */
+    public synchronized void enableCache(final int maxEntries) {
+        if (maxEntries <= 0) {
+            cache = null;
+            return;
+        }
+        cache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * 生成访问Object的签名URL。
+     * @param key Object Key。
+     * @return 签名URL。
+     */
+    public String presign(String key) {
+        Map<String, String> currentCache = getCache();
+        if (currentCache != null) {
+            synchronized (currentCache) {
+                String url = currentCache.get(key);
+                if (url != null) {
+                    return url;
+                }
+            }
+        }
+        
+        StringBuilder builder = new StringBuilder(endpointPrefix.length() + key.length() * 2 + 128);
+        String url = presign(key, builder).toString();
+        if (currentCache != null) {
+            synchronized (currentCache) {
+                currentCache.put(key, url);
+            }
+        }
+        return url;
+    }
+    
+    /**
+     * 生成访问Object的签名URL并追加到调用者提供的缓冲区中，不使用缓存。
+     * @param key Object Key。
+     * @param url 用于追加签名URL的缓冲区。
+     * @return 传入的缓冲区。
+     */
+    public StringBuilder presign(String key, StringBuilder url) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+        
+        String canonicalString = canonicalPrefix + key + canonicalSuffix;
+        String sign = signature.computeSignature(secretAccessKey, canonicalString);
+        
+        url.append(endpointPrefix).append(OSSUtils.determineResourcePath(bucketName, key, sldEnabled));
+        url.append(queryPrefix).append(HttpUtil.urlEncode(sign, DEFAULT_CHARSET_NAME));
+        url.append(querySuffix);
+        return url;
+    }
+    
+    /**
+     * 批量生成访问Object的签名URL。
+     * @param keys Object Key列表。
+     * @return 签名URL列表，与Object Key的顺序一致。
+     */
+    public List<String> presign(Collection<String> keys) {
+        List<String> urls = new ArrayList<String>(keys.size());
+        for (String key : keys) {
+            urls.add(presign(key));
+        }
+        return urls;
+    }
+    
+    public String getBucketName() {
+        return bucketName;
+    }
+    
+    public Date getExpiration() {
+        return new Date(expiration.getTime());
+    }
+    
+    private synchronized Map<String, String> getCache() {
+        return cache;
+    }
+}
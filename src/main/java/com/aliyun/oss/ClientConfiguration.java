@@ -24,9 +24,12 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import com.aliyun.oss.common.comm.CircuitBreaker;
+import com.aliyun.oss.common.comm.HedgingPolicy;
 import com.aliyun.oss.common.comm.IdleConnectionReaper;
 import com.aliyun.oss.common.comm.Protocol;
 import com.aliyun.oss.common.utils.ResourceManager;
@@ -51,6 +54,17 @@ public class ClientConfiguration {
     public static final int DEFAULT_VALIDATE_AFTER_INACTIVITY = 2 * 1000;
     public static final int DEFAULT_THREAD_POOL_WAIT_TIME = 60 * 1000;
     public static final int DEFAULT_REQUEST_TIMEOUT = 5 * 60 * 1000;
+    public static final long DEFAULT_REQUEST_DEADLINE = -1;
+    public static final int DEFAULT_RETRY_BUDGET_CAPACITY = 500;
+    public static final long DEFAULT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT = 60 * 1000;
+    public static final int DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = 50;
+    public static final int DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE = 20;
+    public static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = 30 * 1000;
+    public static final long DEFAULT_DNS_CACHE_TTL = 60 * 1000;
+    public static final long DEFAULT_CONNECT_FALLBACK_DELAY = 250;
+    public static final int DEFAULT_REPEATABLE_STREAM_MEMORY_LIMIT = 512 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+    public static final int DEFAULT_MAX_TRANSFER_CONCURRENCY = 64;
     public static final long DEFAULT_SLOW_REQUESTS_THRESHOLD = 5 * 60 * 1000;
 
     public static final boolean DEFAULT_USE_REAPER = true;
@@ -84,6 +98,24 @@ public class ClientConfiguration {
     
     private int requestTimeout = DEFAULT_REQUEST_TIMEOUT;
     private boolean requestTimeoutEnabled = false;
+    private long requestDeadline = DEFAULT_REQUEST_DEADLINE;
+    private int retryBudgetCapacity = DEFAULT_RETRY_BUDGET_CAPACITY;
+    private boolean concurrencyLimitEnabled = false;
+    private long concurrencyLimitQueueTimeout = DEFAULT_CONCURRENCY_LIMIT_QUEUE_TIMEOUT;
+    private HedgingPolicy hedgingPolicy = null;
+    private boolean circuitBreakerEnabled = false;
+    private int circuitBreakerFailureRateThreshold = DEFAULT_CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD;
+    private int circuitBreakerWindowSize = DEFAULT_CIRCUIT_BREAKER_WINDOW_SIZE;
+    private long circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+    private CircuitBreaker.StateListener circuitBreakerListener = null;
+    private boolean dnsCacheEnabled = false;
+    private long dnsCacheTTL = DEFAULT_DNS_CACHE_TTL;
+    private long connectFallbackDelay = DEFAULT_CONNECT_FALLBACK_DELAY;
+    private boolean zeroCopyEnabled = true;
+    private int repeatableStreamMemoryLimit = DEFAULT_REPEATABLE_STREAM_MEMORY_LIMIT;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxTransferConcurrency = DEFAULT_MAX_TRANSFER_CONCURRENCY;
+    private ThreadFactory transferThreadFactory = null;
     private long slowRequestsThreshold = DEFAULT_SLOW_REQUESTS_THRESHOLD;
     
     private Map<String, String> defaultHeaders = new LinkedHashMap<String, String>();
@@ -483,6 +515,309 @@ public class ClientConfiguration {
         return requestTimeout;
     }
     
+    /**
+     * 获取请求的默认总耗时上限，单位毫秒。该上限涵盖所有重试及重试间隔，
+     * 每次重试的连接超时与Socket超时不会超过剩余时间，剩余时间不足时不再重试。
+     * 小于等于0表示不限制，默认不限制。
+     */
+    public long getRequestDeadline() {
+        return requestDeadline;
+    }
+
+    /**
+     * 设置请求的默认总耗时上限，单位毫秒，小于等于0表示不限制。
+     * 可通过{@link com.aliyun.oss.model.WebServiceRequest#setRequestDeadline(long)}为单个请求单独设置。
+     * @param requestDeadline 请求的总耗时上限
+     */
+    public void setRequestDeadline(long requestDeadline) {
+        this.requestDeadline = requestDeadline;
+    }
+    
+    /**
+     * 获取重试预算的容量，默认500。同一个客户端的所有请求共享该预算，每次实际发生的重试消耗5个令牌，
+     * 每个成功的请求归还1个令牌，预算耗尽后不再重试，直到成功请求将其补充。请求自定义的重试策略同样受该预算限制。
+     * @return 重试预算的容量，小于等于0表示不限制
+     */
+    public int getRetryBudgetCapacity() {
+        return retryBudgetCapacity;
+    }
+
+    /**
+     * 设置重试预算的容量，小于等于0表示不限制重试次数的总量。
+     * @param retryBudgetCapacity 重试预算的容量
+     */
+    public void setRetryBudgetCapacity(int retryBudgetCapacity) {
+        this.retryBudgetCapacity = retryBudgetCapacity;
+    }
+    
+    /**
+     * 获取是否开启了自适应并发限制，默认关闭。开启后，发往同一服务端的并发请求数根据
+     * 503响应、超时及响应时间自动调整，上限为最大连接数。
+     * @return true 开启， false 关闭
+     */
+    public boolean isConcurrencyLimitEnabled() {
+        return concurrencyLimitEnabled;
+    }
+
+    /**
+     * 设置是否开启自适应并发限制。
+     * @param concurrencyLimitEnabled 是否开启自适应并发限制
+     */
+    public void setConcurrencyLimitEnabled(boolean concurrencyLimitEnabled) {
+        this.concurrencyLimitEnabled = concurrencyLimitEnabled;
+    }
+    
+    /**
+     * 获取并发数达到限制时请求的最长排队时间，单位毫秒，默认1分钟。
+     * 超时后请求失败，错误码为{@link ClientErrorCode#CONCURRENCY_LIMIT_EXCEEDED}。
+     * @return 最长排队时间
+     */
+    public long getConcurrencyLimitQueueTimeout() {
+        return concurrencyLimitQueueTimeout;
+    }
+
+    /**
+     * 设置并发数达到限制时请求的最长排队时间，单位毫秒，0表示不排队立即失败。
+     * @param concurrencyLimitQueueTimeout 最长排队时间
+     */
+    public void setConcurrencyLimitQueueTimeout(long concurrencyLimitQueueTimeout) {
+        this.concurrencyLimitQueueTimeout = concurrencyLimitQueueTimeout;
+    }
+    
+    /**
+     * 获取GetObject及GetObjectMetadata请求的默认对冲策略，默认为null，即不发送对冲请求。
+     * @return 对冲策略
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * 设置GetObject及GetObjectMetadata请求的默认对冲策略。请求在对冲延迟内未收到响应头时，
+     * 发送一个相同的请求，先返回的响应被采用，另一个请求被中止。对冲请求数受策略的预算限制。
+     * @param hedgingPolicy 对冲策略，null表示不对冲
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+    
+    /**
+     * 获取是否开启了熔断器，默认关闭。开启后每个服务端域名有一个熔断器，最近的请求中失败比例
+     * 达到阈值时熔断器打开，之后的请求立即失败，错误码为{@link ClientErrorCode#CIRCUIT_BREAKER_OPEN}。
+     * 打开一段时间后放行一个探测请求，探测成功则熔断器关闭。网络错误和5xx响应视为失败。
+     * @return true 开启， false 关闭
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerEnabled;
+    }
+
+    /**
+     * 设置是否开启熔断器。
+     * @param circuitBreakerEnabled 是否开启熔断器
+     */
+    public void setCircuitBreakerEnabled(boolean circuitBreakerEnabled) {
+        this.circuitBreakerEnabled = circuitBreakerEnabled;
+    }
+    
+    /**
+     * 获取打开熔断器的失败比例，单位百分比，默认50。
+     * @return 失败比例
+     */
+    public int getCircuitBreakerFailureRateThreshold() {
+        return circuitBreakerFailureRateThreshold;
+    }
+
+    /**
+     * 设置打开熔断器的失败比例，单位百分比，取值范围[1, 100]。
+     * @param circuitBreakerFailureRateThreshold 失败比例
+     */
+    public void setCircuitBreakerFailureRateThreshold(int circuitBreakerFailureRateThreshold) {
+        this.circuitBreakerFailureRateThreshold = circuitBreakerFailureRateThreshold;
+    }
+    
+    /**
+     * 获取计算失败比例的最近请求数，默认20。
+     * @return 最近请求数
+     */
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    /**
+     * 设置计算失败比例的最近请求数，请求数不足时熔断器不会打开。
+     * @param circuitBreakerWindowSize 最近请求数
+     */
+    public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+    }
+    
+    /**
+     * 获取熔断器打开后放行探测请求前的等待时间，单位毫秒，默认30秒。
+     * @return 等待时间
+     */
+    public long getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    /**
+     * 设置熔断器打开后放行探测请求前的等待时间，单位毫秒。
+     * @param circuitBreakerOpenDuration 等待时间
+     */
+    public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+    
+    /**
+     * 获取熔断器状态变化的监听器。
+     * @return 监听器
+     */
+    public CircuitBreaker.StateListener getCircuitBreakerListener() {
+        return circuitBreakerListener;
+    }
+
+    /**
+     * 设置熔断器状态变化的监听器，状态变化时在请求线程中调用，不应阻塞。
+     * @param circuitBreakerListener 监听器
+     */
+    public void setCircuitBreakerListener(CircuitBreaker.StateListener circuitBreakerListener) {
+        this.circuitBreakerListener = circuitBreakerListener;
+    }
+    
+    /**
+     * 获取是否开启了DNS缓存，默认关闭。开启后服务端域名的所有IP地址被缓存，新建连接时轮流使用
+     * 各个地址，连接失败的地址在一段时间内不再使用；连接某个地址在回退延迟内未完成时，
+     * 同时尝试连接下一个地址，先建立的连接被采用。
+     * @return true 开启， false 关闭
+     */
+    public boolean isDnsCacheEnabled() {
+        return dnsCacheEnabled;
+    }
+
+    /**
+     * 设置是否开启DNS缓存。
+     * @param dnsCacheEnabled true 开启， false 关闭
+     */
+    public void setDnsCacheEnabled(boolean dnsCacheEnabled) {
+        this.dnsCacheEnabled = dnsCacheEnabled;
+    }
+
+    /**
+     * 获取DNS缓存的有效时间，单位毫秒，默认60秒。设置了JVM的networkaddress.cache.ttl时，
+     * 不超过该值。
+     * @return DNS缓存的有效时间
+     */
+    public long getDnsCacheTTL() {
+        return dnsCacheTTL;
+    }
+
+    /**
+     * 设置DNS缓存的有效时间，单位毫秒。
+     * @param dnsCacheTTL DNS缓存的有效时间
+     */
+    public void setDnsCacheTTL(long dnsCacheTTL) {
+        this.dnsCacheTTL = dnsCacheTTL;
+    }
+
+    /**
+     * 获取开始连接下一个地址前等待当前连接的时间，单位毫秒，默认250毫秒。仅在开启DNS缓存时有效。
+     * @return 回退延迟
+     */
+    public long getConnectFallbackDelay() {
+        return connectFallbackDelay;
+    }
+
+    /**
+     * 设置开始连接下一个地址前等待当前连接的时间，单位毫秒。
+     * @param connectFallbackDelay 回退延迟
+     */
+    public void setConnectFallbackDelay(long connectFallbackDelay) {
+        this.connectFallbackDelay = connectFallbackDelay;
+    }
+    
+    /**
+     * 获取是否开启了零拷贝上传，默认开启。开启后HTTP连接上传文件时，文件内容由操作系统直接
+     * 发送到网络（sendfile），不经过JVM堆；HTTPS连接不受影响。
+     * @return true 开启， false 关闭
+     */
+    public boolean isZeroCopyEnabled() {
+        return zeroCopyEnabled;
+    }
+
+    /**
+     * 设置是否开启零拷贝上传。
+     * @param zeroCopyEnabled true 开启， false 关闭
+     */
+    public void setZeroCopyEnabled(boolean zeroCopyEnabled) {
+        this.zeroCopyEnabled = zeroCopyEnabled;
+    }
+    
+    /**
+     * 获取上传非文件输入流时，为重试而缓存在内存中的最大字节数，默认512KB。
+     * 超出的部分写入临时文件，上传结束后删除，因此任意大小的输入流都可以重试。
+     * @return 内存中缓存的最大字节数
+     */
+    public int getRepeatableStreamMemoryLimit() {
+        return repeatableStreamMemoryLimit;
+    }
+
+    /**
+     * 设置上传非文件输入流时，为重试而缓存在内存中的最大字节数。
+     * @param repeatableStreamMemoryLimit 内存中缓存的最大字节数
+     */
+    public void setRepeatableStreamMemoryLimit(int repeatableStreamMemoryLimit) {
+        this.repeatableStreamMemoryLimit = repeatableStreamMemoryLimit;
+    }
+    
+    /**
+     * 获取采用chunked编码上传时每个块的大小（含块头及块尾），单位字节，默认128KB。
+     * @return 块大小
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 设置采用chunked编码上传时每个块的大小（含块头及块尾），单位字节，最小1KB。
+     * @param chunkSize 块大小
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * 获取断点续传上传、下载（uploadFile、downloadFile）同时执行的最大分片数，默认64。
+     * 同一OSSClient的所有断点续传任务共享这些分片线程，每个任务同时执行的分片数仍不超过其taskNum。
+     * @return 同时执行的最大分片数
+     */
+    public int getMaxTransferConcurrency() {
+        return maxTransferConcurrency;
+    }
+
+    /**
+     * 设置断点续传上传、下载同时执行的最大分片数，创建OSSClient后修改无效。
+     * @param maxTransferConcurrency 同时执行的最大分片数
+     */
+    public void setMaxTransferConcurrency(int maxTransferConcurrency) {
+        this.maxTransferConcurrency = maxTransferConcurrency;
+    }
+
+    /**
+     * 获取创建分片线程的线程工厂，默认为null，即使用名为oss-transfer-N的守护线程。
+     * @return 线程工厂
+     */
+    public ThreadFactory getTransferThreadFactory() {
+        return transferThreadFactory;
+    }
+
+    /**
+     * 设置创建分片线程的线程工厂。运行时支持虚拟线程时，可以设置为
+     * {@link com.aliyun.oss.internal.TransferScheduler#newVirtualThreadFactory()}的返回值。
+     * @param transferThreadFactory 线程工厂
+     */
+    public void setTransferThreadFactory(ThreadFactory transferThreadFactory) {
+        this.transferThreadFactory = transferThreadFactory;
+    }
+    
     /**
      * 设置慢请求阈值，用时超过该阈值的请求将打印到日志中，单位毫秒，默认5分钟。
      */
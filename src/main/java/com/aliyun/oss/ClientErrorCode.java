@@ -56,4 +56,19 @@ public interface ClientErrorCode {
      */
     static final String NONREPEATABLE_REQUEST = "NonRepeatableRequest";
     
+    /**
+     * 发往同一服务端的并发请求数超过了客户端的自适应限制。
+     */
+    static final String CONCURRENCY_LIMIT_EXCEEDED = "ConcurrencyLimitExceeded";
+    
+    /**
+     * 服务端的熔断器处于打开状态，请求未发送即失败。
+     */
+    static final String CIRCUIT_BREAKER_OPEN = "CircuitBreakerOpen";
+    
+    /**
+     * 请求已被取消。
+     */
+    static final String REQUEST_CANCELLED = "RequestCancelled";
+    
 }
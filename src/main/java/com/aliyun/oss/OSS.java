@@ -408,6 +408,26 @@ public interface OSS {
     public ObjectListing listObjects(ListObjectsRequest listObjectsRequest)
             throws OSSException, ClientException;
     
+    /**
+     * 自动分页列举指定{@link Bucket}下的{@link OSSObject}，在后台预先取回下一页。
+     * 同{@link #iterateObjects(ListObjectsRequest, int)}，最多预先取回一页。
+     * @param listObjectsRequest
+     *          请求信息，其中的Marker为列举的起点，MaxKeys为每页的Object数。
+     * @return 可以依次列举所有Object及公共前缀的{@link ObjectListingIterable}。
+     */
+    public ObjectListingIterable iterateObjects(ListObjectsRequest listObjectsRequest);
+    
+    /**
+     * 自动分页列举指定{@link Bucket}下的{@link OSSObject}。调用者处理当前页时，
+     * 后台会按NextMarker继续请求之后的页，最多预先取回prefetchDepth页。
+     * @param listObjectsRequest
+     *          请求信息，其中的Marker为列举的起点，MaxKeys为每页的Object数。
+     * @param prefetchDepth
+     *          最多预先取回的页数，为0时不预先取回。
+     * @return 可以依次列举所有Object及公共前缀的{@link ObjectListingIterable}。
+     */
+    public ObjectListingIterable iterateObjects(ListObjectsRequest listObjectsRequest, int prefetchDepth);
+    
     /**
      * 上传指定的{@link OSSObject}到OSS中指定的{@link Bucket}。
      * @param bucketName
@@ -771,6 +791,20 @@ public interface OSS {
      */
     public URL generatePresignedUrl(GeneratePresignedUrlRequest request)
             throws ClientException;
+    
+    /**
+     * 创建批量生成指定{@link Bucket}下Object的GET签名URL的{@link BatchPresigner}。
+     * 生成的URL与{@link #generatePresignedUrl(String, String, Date)}相同，
+     * 但Endpoint、签名字符串模板和当前的访问凭证只在创建时计算一次，适合大量生成签名URL的场景。
+     * @param bucketName
+     *          Bucket名称。
+     * @param expiration
+     *          URL的超时时间。
+     * @return {@link BatchPresigner}实例。
+     * @throws ClientException
+     */
+    public BatchPresigner createBatchPresigner(String bucketName, Date expiration)
+            throws ClientException;
     /**
      * 开通{@link Bucket} 图片处理功能
      * @param request
@@ -1432,6 +1466,28 @@ public interface OSS {
      */
     public DownloadFileResult downloadFile(DownloadFileRequest downloadFileRequest) throws Throwable;
     
+    /**
+     * 在后台线程中开始文件上传，上传方式同{@link #uploadFile(UploadFileRequest)}。
+     * 
+     * 通过返回的{@link TransferHandle}可以等待上传结束，也可以暂停、从checkpoint恢复或取消上传。
+     * 取消时会中止分片上传并删除checkpoint文件。
+     * 
+     * @param uploadFileRequest 上传文件请求。
+     * @return 上传任务的句柄。
+     */
+    public TransferHandle<UploadFileResult> startUploadFile(UploadFileRequest uploadFileRequest);
+    
+    /**
+     * 在后台线程中开始文件下载，下载方式同{@link #downloadFile(DownloadFileRequest)}。
+     * 
+     * 通过返回的{@link TransferHandle}可以等待下载结束，也可以暂停、从checkpoint恢复或取消下载。
+     * 取消时会删除checkpoint文件及未下载完成的本地文件。
+     * 
+     * @param downloadFileRequest 分片下载请求。
+     * @return 下载任务的句柄。
+     */
+    public TransferHandle<DownloadFileResult> startDownloadFile(DownloadFileRequest downloadFileRequest);
+    
     /**
      * 创建Live Channel。
      * 
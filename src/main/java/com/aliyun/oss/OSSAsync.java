@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.common.comm.ResponseMessage;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+
+/**
+ * 阿里云对象存储服务（Object Storage Service， OSS）的异步访问接口。
+ * <p>
+ * 与{@link OSS}相对应，所有方法立即返回{@link Future}，请求由少量I/O线程以非阻塞方式发送，
+ * 签名、错误处理及重试策略与同步接口一致。请求完成后，结果可以通过{@link Future#get()}获取，
+ * 也可以通过{@link AsyncHandler}回调获取；取消{@link Future}会中止正在进行的请求。
+ * </p>
+ * <p>
+ * 请求内容以流的方式发送，文件内容直接从文件发送到连接；收到响应头后{@link Future}即完成，
+ * 响应内容（如{@link OSSObject#getObjectContent()}）在读取时以流的方式接收，不会整体读入内存。
+ * 响应内容需及时读取并关闭，读取暂停超过Socket超时时间会导致请求失败。
+ * 响应的解析及{@link AsyncHandler}回调在少量回调线程中执行，不占用I/O线程。
+ * </p>
+ */
+public interface OSSAsync {
+    
+    /**
+     * 异步从OSS指定的{@link Bucket}中导出指定的{@link OSSObject}。
+     * @param getObjectRequest
+     *          请求参数{@link GetObjectRequest}。
+     * @return 异步请求结果。
+     */
+    public Future<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest) 
+            throws ClientException;
+    
+    /**
+     * 异步从OSS指定的{@link Bucket}中导出指定的{@link OSSObject}。
+     * @param getObjectRequest
+     *          请求参数{@link GetObjectRequest}。
+     * @param handler
+     *          请求完成时的回调，可以为null。
+     * @return 异步请求结果。
+     */
+    public Future<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest, 
+            AsyncHandler<OSSObject> handler) throws ClientException;
+    
+    /**
+     * 异步返回{@link OSSObject}的元数据。
+     * @param genericRequest
+     *          请求信息。
+     * @return 异步请求结果。
+     */
+    public Future<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest) 
+            throws ClientException;
+    
+    /**
+     * 异步返回{@link OSSObject}的元数据。
+     * @param genericRequest
+     *          请求信息。
+     * @param handler
+     *          请求完成时的回调，可以为null。
+     * @return 异步请求结果。
+     */
+    public Future<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest, 
+            AsyncHandler<ObjectMetadata> handler) throws ClientException;
+    
+    /**
+     * 异步上传指定的{@link OSSObject}到OSS中指定的{@link Bucket}。
+     * @param putObjectRequest
+     *          请求参数{@link PutObjectRequest}。
+     * @return 异步请求结果。
+     */
+    public Future<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest) 
+            throws ClientException;
+    
+    /**
+     * 异步上传指定的{@link OSSObject}到OSS中指定的{@link Bucket}。
+     * @param putObjectRequest
+     *          请求参数{@link PutObjectRequest}。
+     * @param handler
+     *          请求完成时的回调，可以为null。
+     * @return 异步请求结果。
+     */
+    public Future<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest, 
+            AsyncHandler<PutObjectResult> handler) throws ClientException;
+    
+    /**
+     * 异步删除指定的{@link OSSObject}。
+     * @param genericRequest
+     *          请求信息。
+     * @return 异步请求结果。
+     */
+    public Future<ResponseMessage> deleteObjectAsync(GenericRequest genericRequest) 
+            throws ClientException;
+    
+    /**
+     * 异步删除指定的{@link OSSObject}。
+     * @param genericRequest
+     *          请求信息。
+     * @param handler
+     *          请求完成时的回调，可以为null。
+     * @return 异步请求结果。
+     */
+    public Future<ResponseMessage> deleteObjectAsync(GenericRequest genericRequest, 
+            AsyncHandler<ResponseMessage> handler) throws ClientException;
+    
+    /**
+     * 关闭Client实例，并释放所有正在使用的资源。
+     */
+    public void shutdown();
+    
+}
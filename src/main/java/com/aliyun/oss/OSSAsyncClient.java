@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import java.net.URI;
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.common.auth.CredentialsProvider;
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.common.comm.AsyncServiceClient;
+import com.aliyun.oss.common.comm.ResponseMessage;
+import com.aliyun.oss.internal.OSSObjectOperation;
+import com.aliyun.oss.internal.OSSUtils;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.WarmUpResult;
+
+/**
+ * 同时提供同步（{@link OSS}）与异步（{@link OSSAsync}）访问方式的入口类。
+ * 同步方法与{@link OSSClient}相同，使用阻塞式的连接池；异步方法通过基于事件驱动的
+ * {@link AsyncServiceClient}发送，使用单独的连接池。异步请求的内容以流的方式发送和读取，
+ * 不会整体读入内存。
+ */
+public class OSSAsyncClient extends OSSClient implements OSSAsync {
+    
+    private AsyncServiceClient asyncServiceClient;
+    private OSSObjectOperation asyncObjectOperation;
+    
+    /**
+     * 使用指定的OSS Endpoint、阿里云颁发的Access Id/Access Key构造一个新的{@link OSSAsyncClient}对象。
+     * 
+     * @param endpoint
+     *            OSS服务的Endpoint。
+     * @param accessKeyId
+     *            访问OSS的Access Key ID。
+     * @param secretAccessKey
+     *            访问OSS的Secret Access Key。
+     */
+    public OSSAsyncClient(String endpoint, String accessKeyId, String secretAccessKey) {
+        this(endpoint, new DefaultCredentialProvider(accessKeyId, secretAccessKey), null);
+    }
+    
+    /**
+     * 使用指定的{@link CredentialsProvider}、配置及Endpoint构造一个新的{@link OSSAsyncClient}对象。
+     * @param endpoint OSS services的Endpoint。
+     * @param credsProvider Credentials提供者。
+     * @param config client配置，最大连接数决定了同时进行的异步请求数上限。
+     */
+    public OSSAsyncClient(String endpoint, CredentialsProvider credsProvider, ClientConfiguration config) {
+        super(endpoint, credsProvider, config);
+        this.asyncServiceClient = new AsyncServiceClient(getClientConfiguration());
+        this.asyncObjectOperation = new OSSObjectOperation(this.asyncServiceClient, getCredentialsProvider());
+        this.asyncObjectOperation.setEndpoint(getEndpoint());
+    }
+    
+    @Override
+    public synchronized void setEndpoint(String endpoint) {
+        super.setEndpoint(endpoint);
+        // Called by the constructor of OSSClient before the asynchronous operation exists.
+        if (this.asyncObjectOperation != null) {
+            this.asyncObjectOperation.setEndpoint(getEndpoint());
+        }
+    }
+    
+    /**
+     * 预热到指定Bucket所在域名的连接，同步与异步方法的连接池各预热connections个连接，
+     * 返回两者合计的结果。
+     * @param bucketName Bucket名称，为null时预热到Endpoint的连接
+     * @param connections 每个连接池的连接数，不超过最大连接数
+     * @return 两个连接池合计的预热结果
+     */
+    @Override
+    public WarmUpResult warmUp(String bucketName, int connections) {
+        WarmUpResult result = super.warmUp(bucketName, connections);
+        URI finalEndpoint = OSSUtils.determineFinalEndpoint(getEndpoint(), bucketName, getClientConfiguration());
+        WarmUpResult asyncResult = asyncServiceClient.warmUp(finalEndpoint, connections);
+        return new WarmUpResult(result.getHost(), 
+                result.getRequestedConnections() + asyncResult.getRequestedConnections(), 
+                result.getSucceededConnections() + asyncResult.getSucceededConnections(), 
+                result.getOpenedConnections() + asyncResult.getOpenedConnections(), 
+                result.getElapsedTime() + asyncResult.getElapsedTime());
+    }
+    
+    @Override
+    public Future<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest) 
+            throws ClientException {
+        return getObjectAsync(getObjectRequest, null);
+    }
+    
+    @Override
+    public Future<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest, 
+            AsyncHandler<OSSObject> handler) throws ClientException {
+        return asyncObjectOperation.getObjectAsync(getObjectRequest, handler);
+    }
+    
+    @Override
+    public Future<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest) 
+            throws ClientException {
+        return getObjectMetadataAsync(genericRequest, null);
+    }
+    
+    @Override
+    public Future<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest, 
+            AsyncHandler<ObjectMetadata> handler) throws ClientException {
+        return asyncObjectOperation.getObjectMetadataAsync(genericRequest, handler);
+    }
+    
+    @Override
+    public Future<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest) 
+            throws ClientException {
+        return putObjectAsync(putObjectRequest, null);
+    }
+    
+    @Override
+    public Future<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest, 
+            AsyncHandler<PutObjectResult> handler) throws ClientException {
+        return asyncObjectOperation.putObjectAsync(putObjectRequest, handler);
+    }
+    
+    @Override
+    public Future<ResponseMessage> deleteObjectAsync(GenericRequest genericRequest) 
+            throws ClientException {
+        return deleteObjectAsync(genericRequest, null);
+    }
+    
+    @Override
+    public Future<ResponseMessage> deleteObjectAsync(GenericRequest genericRequest, 
+            AsyncHandler<ResponseMessage> handler) throws ClientException {
+        return asyncObjectOperation.deleteObjectAsync(genericRequest, handler);
+    }
+    
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        asyncServiceClient.shutdown();
+    }
+    
+}
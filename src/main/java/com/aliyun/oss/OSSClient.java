@@ -21,6 +21,7 @@ package com.aliyun.oss;
 
 import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.aliyun.oss.common.utils.IOUtils.checkFile;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
 import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
 import static com.aliyun.oss.internal.OSSConstants.DEFAULT_OSS_ENDPOINT;
 import static com.aliyun.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
@@ -47,6 +48,11 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.aliyun.oss.common.auth.Credentials;
 import com.aliyun.oss.common.auth.CredentialsProvider;
@@ -55,6 +61,7 @@ import com.aliyun.oss.common.auth.ServiceSignature;
 import com.aliyun.oss.common.comm.DefaultServiceClient;
 import com.aliyun.oss.common.comm.RequestMessage;
 import com.aliyun.oss.common.comm.ResponseMessage;
+import com.aliyun.oss.common.comm.RetryMetrics;
 import com.aliyun.oss.common.comm.ServiceClient;
 import com.aliyun.oss.common.comm.TimeoutServiceClient;
 import com.aliyun.oss.common.utils.BinaryUtil;
@@ -71,6 +78,7 @@ import com.aliyun.oss.internal.OSSObjectOperation;
 import com.aliyun.oss.internal.OSSUploadOperation;
 import com.aliyun.oss.internal.OSSUtils;
 import com.aliyun.oss.internal.SignUtils;
+import com.aliyun.oss.internal.TransferScheduler;
 import com.aliyun.oss.model.AbortMultipartUploadRequest;
 import com.aliyun.oss.model.AccessControlList;
 import com.aliyun.oss.model.AppendObjectRequest;
@@ -157,6 +165,7 @@ import com.aliyun.oss.model.UploadPartCopyResult;
 import com.aliyun.oss.model.UploadPartRequest;
 import com.aliyun.oss.model.UploadPartResult;
 import com.aliyun.oss.model.UserQos;
+import com.aliyun.oss.model.WarmUpResult;
 
 /**
  * 访问阿里云对象存储服务（Object Storage Service， OSS）的入口类。
@@ -171,6 +180,13 @@ public class OSSClient implements OSS {
 
     /* The default service client */
     private ServiceClient serviceClient;
+    
+    /* The transport shared with other clients, null if the client owns its service client */
+    private SharedTransport sharedTransport;
+    private boolean isShutdown = false;
+    
+    /* Runs periodic connection warm-ups, created on first use */
+    private ScheduledExecutorService warmUpScheduler;
 
     /* The miscellaneous OSS operations */
     private OSSBucketOperation bucketOperation;
@@ -179,6 +195,7 @@ public class OSSClient implements OSS {
     private CORSOperation corsOperation;
     private OSSUploadOperation uploadOperation;
     private OSSDownloadOperation downloadOperation;
+    private TransferScheduler transferScheduler;
     private LiveChannelOperation liveChannelOperation;
 
     /**
@@ -282,13 +299,39 @@ public class OSSClient implements OSS {
     public OSSClient(String endpoint, CredentialsProvider credsProvider, ClientConfiguration config) {
         this.credsProvider = credsProvider;
         config = config == null ? new ClientConfiguration() : config;
+        this.serviceClient = createServiceClient(config);
+        initOperations();
+        setEndpoint(endpoint);
+    }
+    
+    /**
+     * 使用共享的传输层、指定的{@link CredentialsProvider}及Endpoint构造一个新的{@link OSSClient}对象。
+     * 多个{@link OSSClient}可以共享同一个传输层，各自使用不同的Endpoint和访问凭证，
+     * 连接池等资源由所有{@link OSSClient}共享。
+     * @param transport 共享的传输层，其配置由所有共享的{@link OSSClient}使用。
+     * @param endpoint OSS services的Endpoint。
+     * @param credsProvider Credentials提供者。
+     */
+    public OSSClient(SharedTransport transport, String endpoint, CredentialsProvider credsProvider) {
+        assertParameterNotNull(transport, "transport");
+        this.credsProvider = credsProvider;
+        this.sharedTransport = transport;
+        this.serviceClient = transport.acquire();
+        initOperations();
+        setEndpoint(endpoint);
+    }
+    
+    /**
+     * 根据客户端配置创建发送请求的{@link ServiceClient}。
+     * @param config client配置。
+     * @return {@link ServiceClient}实例。
+     */
+    protected ServiceClient createServiceClient(ClientConfiguration config) {
         if (config.isRequestTimeoutEnabled()) {
-            this.serviceClient = new TimeoutServiceClient(config);
+            return new TimeoutServiceClient(config);
         } else {
-            this.serviceClient = new DefaultServiceClient(config);
+            return new DefaultServiceClient(config);
         }
-        initOperations();
-        setEndpoint(endpoint);
     }
     
     /**
@@ -359,8 +402,11 @@ public class OSSClient implements OSS {
         this.objectOperation = new OSSObjectOperation(this.serviceClient, this.credsProvider);
         this.multipartOperation = new OSSMultipartOperation(this.serviceClient, this.credsProvider);
         this.corsOperation = new CORSOperation(this.serviceClient, this.credsProvider);
-        this.uploadOperation = new OSSUploadOperation(this.multipartOperation);
-        this.downloadOperation = new OSSDownloadOperation(objectOperation);
+        ClientConfiguration config = this.serviceClient.getClientConfiguration();
+        this.transferScheduler = new TransferScheduler(config.getMaxTransferConcurrency(), 
+                config.getTransferThreadFactory());
+        this.uploadOperation = new OSSUploadOperation(this.multipartOperation, this.transferScheduler);
+        this.downloadOperation = new OSSDownloadOperation(objectOperation, this.transferScheduler);
         this.liveChannelOperation = new LiveChannelOperation(this.serviceClient, this.credsProvider);
     }
     
@@ -380,6 +426,73 @@ public class OSSClient implements OSS {
     public ClientConfiguration getClientConfiguration() {
         return serviceClient.getClientConfiguration();
     }
+    
+    /**
+     * 获取重试相关的统计信息，包括重试次数、重试等待总时长以及重试预算的使用情况。
+     * @return 重试统计信息
+     */
+    public RetryMetrics getRetryMetrics() {
+        return serviceClient.getRetryMetrics();
+    }
+    
+    /**
+     * 预热到指定Bucket所在域名的连接：并行建立（包括TLS握手）并验证最多connections个连接，
+     * 放回连接池供后续请求使用。连接池中已有的空闲连接会被验证并计入结果。
+     * 使用代理访问HTTPS域名时不预热。
+     * @param bucketName Bucket名称，为null时预热到Endpoint的连接
+     * @param connections 连接数，不超过最大连接数
+     * @return 预热结果，包括成功的连接数和用时
+     */
+    public WarmUpResult warmUp(String bucketName, int connections) {
+        if (bucketName != null) {
+            ensureBucketNameValid(bucketName);
+        }
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections must be greater than 0: " + connections);
+        }
+        URI finalEndpoint = OSSUtils.determineFinalEndpoint(getEndpoint(), bucketName, 
+                serviceClient.getClientConfiguration());
+        return serviceClient.warmUp(finalEndpoint, connections);
+    }
+    
+    /**
+     * 周期性地预热到指定Bucket所在域名的连接，使连接池中的空闲连接被回收后及时补充，
+     * 第一次预热立即执行。调用{@link #shutdown()}或取消返回的{@link Future}后停止。
+     * @param bucketName Bucket名称，为null时预热到Endpoint的连接
+     * @param connections 连接数，不超过最大连接数
+     * @param period 预热间隔，单位毫秒
+     * @return 用于停止预热的{@link Future}
+     */
+    public Future<?> warmUpPeriodically(final String bucketName, final int connections, long period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be greater than 0: " + period);
+        }
+        warmUp(bucketName, connections);
+        return getWarmUpScheduler().scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    warmUp(bucketName, connections);
+                } catch (RuntimeException e) {
+                    logException("Failed to warm up connections: ", e);
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    private synchronized ScheduledExecutorService getWarmUpScheduler() {
+        if (warmUpScheduler == null) {
+            warmUpScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "oss-warmup-scheduler");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return warmUpScheduler;
+    }
 
     @Override
     public Bucket createBucket(String bucketName) 
@@ -521,6 +634,17 @@ public class OSSClient implements OSS {
         return bucketOperation.listObjects(listObjectsRequest);
     }
     
+    @Override
+    public ObjectListingIterable iterateObjects(ListObjectsRequest listObjectsRequest) {
+        return iterateObjects(listObjectsRequest, 1);
+    }
+    
+    @Override
+    public ObjectListingIterable iterateObjects(ListObjectsRequest listObjectsRequest, int prefetchDepth) {
+        assertParameterNotNull(listObjectsRequest, "listObjectsRequest");
+        return new ObjectListingIterable(this, listObjectsRequest, prefetchDepth, transferScheduler);
+    }
+    
     @Override
     public PutObjectResult putObject(String bucketName, String key, InputStream input) 
             throws OSSException, ClientException {
@@ -835,6 +959,20 @@ public class OSSClient implements OSS {
         }
     }
 
+    @Override
+    public BatchPresigner createBatchPresigner(String bucketName, Date expiration) throws ClientException {
+        assertParameterNotNull(bucketName, "bucketName");
+        ensureBucketNameValid(bucketName);
+        if (expiration == null) {
+            throw new IllegalArgumentException(OSS_RESOURCE_MANAGER.getString("MustSetExpiration"));
+        }
+        
+        ClientConfiguration config = serviceClient.getClientConfiguration();
+        String endpointPrefix = OSSUtils.determineFinalEndpoint(endpoint, bucketName, config).toString();
+        return new BatchPresigner(endpointPrefix, bucketName, expiration, credsProvider.getCredentials(), 
+                config.isSLDEnabled());
+    }
+
     @Override
     public void abortMultipartUpload(AbortMultipartUploadRequest request) 
             throws OSSException, ClientException {
@@ -1276,6 +1414,40 @@ public class OSSClient implements OSS {
         return downloadOperation.downloadFile(downloadFileRequest);
     }
     
+    @Override
+    public TransferHandle<UploadFileResult> startUploadFile(final UploadFileRequest uploadFileRequest) {
+        TransferHandle<UploadFileResult> handle = new TransferHandle<UploadFileResult>(uploadFileRequest) {
+            @Override
+            protected UploadFileResult transfer() throws Throwable {
+                return uploadOperation.uploadFile(uploadFileRequest);
+            }
+            
+            @Override
+            protected void discard() {
+                uploadOperation.discardUploadFile(uploadFileRequest);
+            }
+        };
+        handle.start();
+        return handle;
+    }
+    
+    @Override
+    public TransferHandle<DownloadFileResult> startDownloadFile(final DownloadFileRequest downloadFileRequest) {
+        TransferHandle<DownloadFileResult> handle = new TransferHandle<DownloadFileResult>(downloadFileRequest) {
+            @Override
+            protected DownloadFileResult transfer() throws Throwable {
+                return downloadOperation.downloadFile(downloadFileRequest);
+            }
+            
+            @Override
+            protected void discard() {
+                downloadOperation.discardDownloadFile(downloadFileRequest);
+            }
+        };
+        handle.start();
+        return handle;
+    }
+    
     @Override
     public CreateLiveChannelResult createLiveChannel(CreateLiveChannelRequest createLiveChannelRequest) 
             throws OSSException, ClientException {
@@ -1388,7 +1560,20 @@ public class OSSClient implements OSS {
     
     @Override
     public void shutdown() {
-        serviceClient.shutdown();
+        boolean releaseTransport;
+        synchronized (this) {
+            if (warmUpScheduler != null) {
+                warmUpScheduler.shutdownNow();
+            }
+            transferScheduler.shutdown();
+            releaseTransport = !isShutdown;
+            isShutdown = true;
+        }
+        if (sharedTransport == null) {
+            serviceClient.shutdown();
+        } else if (releaseTransport) {
+            sharedTransport.release();
+        }
     }
     
 }
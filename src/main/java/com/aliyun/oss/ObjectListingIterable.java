@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.common.utils.HttpUtil;
+import com.aliyun.oss.internal.TransferScheduler;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+
+/**
+ * 自动分页列举Bucket下的Object，由{@link OSSClient#iterateObjects(ListObjectsRequest)}返回。
+ * <p>
+ * 每次调用{@link #iterator()}、{@link #commonPrefixes()}或{@link #pages()}的迭代器都会从请求中的Marker开始
+ * 重新列举，按{@link ObjectListing#getNextMarker()}依次请求后续的页。调用者处理当前页时，后台会继续请求之后的页，
+ * 最多预先取回prefetchDepth页；prefetchDepth为0时只在需要时才请求下一页。
+ * </p>
+ * <p>
+ * 请求失败时，迭代器的{@link Iterator#hasNext()}或{@link Iterator#next()}抛出该请求的{@link OSSException}或
+ * {@link ClientException}。迭代器不是线程安全的。
+ * </p>
+ */
+public class ObjectListingIterable implements Iterable<OSSObjectSummary> {
+    
+    private final OSS client;
+    private final ListObjectsRequest request;
+    private final int prefetchDepth;
+    private final TransferScheduler scheduler;
+    
+    ObjectListingIterable(OSS client, ListObjectsRequest request, int prefetchDepth, 
+            TransferScheduler scheduler) {
+        this.client = client;
+        this.request = request;
+        this.prefetchDepth = Math.max(prefetchDepth, 0);
+        this.scheduler = scheduler;
+    }
+    
+    /**
+     * 返回依次列举所有Object的迭代器。
+     */
+    @Override
+    public Iterator<OSSObjectSummary> iterator() {
+        return new ElementIterator<OSSObjectSummary>() {
+            @Override
+            protected List<OSSObjectSummary> elementsOf(ObjectListing page) {
+                return page.getObjectSummaries();
+            }
+        };
+    }
+    
+    /**
+     * 返回依次列举所有公共前缀（CommonPrefixes）的{@link Iterable}，请求中设置了Delimiter时有效。
+     */
+    public Iterable<String> commonPrefixes() {
+        return new Iterable<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new ElementIterator<String>() {
+                    @Override
+                    protected List<String> elementsOf(ObjectListing page) {
+                        return page.getCommonPrefixes();
+                    }
+                };
+            }
+        };
+    }
+    
+    /**
+     * 返回依次列举每一页{@link ObjectListing}的{@link Iterable}。
+     */
+    public Iterable<ObjectListing> pages() {
+        return new Iterable<ObjectListing>() {
+            @Override
+            public Iterator<ObjectListing> iterator() {
+                return new PageIterator();
+            }
+        };
+    }
+    
+    public int getPrefetchDepth() {
+        return prefetchDepth;
+    }
+    
+    /**
+     * Fetches the pages in order, up to prefetchDepth of them ahead of the
+     * caller on the transfer scheduler of the client. A prefetch still queued
+     * behind other transfers when the caller needs its page is taken over by
+     * the caller.
+     */
+    private class PageIterator implements Iterator<ObjectListing> {
+        
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition pageFetched = lock.newCondition();
+        private final TransferScheduler.Transfer transfer = 
+                prefetchDepth > 0 ? scheduler.newTransfer(1, 0) : null;
+        
+        /* Guarded by lock. */
+        private final LinkedList<ObjectListing> fetchedPages = new LinkedList<ObjectListing>();
+        private String nextMarker = request.getMarker();
+        private boolean exhausted = false;
+        private boolean fetching = false;
+        /* Whether the current fetch is a prefetch that has not started yet. */
+        private boolean prefetchQueued = false;
+        private Throwable failure;
+        
+        @Override
+        public boolean hasNext() {
+            lock.lock();
+            try {
+                boolean fetchHere = false;
+                if (fetchedPages.isEmpty() && !exhausted && !fetching && failure == null) {
+                    // Nothing fetched ahead, so fetch on the calling thread.
+                    fetching = true;
+                    fetchHere = true;
+                } else if (fetchedPages.isEmpty() && prefetchQueued) {
+                    // The prefetch waits for a transfer thread; rather than wait behind it, fetch here.
+                    prefetchQueued = false;
+                    fetchHere = true;
+                }
+                if (fetchHere) {
+                    lock.unlock();
+                    try {
+                        fetchNextPage();
+                    } finally {
+                        lock.lock();
+                    }
+                }
+                while (fetchedPages.isEmpty() && fetching) {
+                    pageFetched.awaitUninterruptibly();
+                }
+                if (!fetchedPages.isEmpty()) {
+                    return true;
+                }
+                if (failure != null) {
+                    Throwable e = failure;
+                    failure = null;
+                    if (e instanceof Error) {
+                        throw (Error) e;
+                    }
+                    throw e instanceof RuntimeException ? (RuntimeException) e : new ClientException(e);
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public ObjectListing next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lock.lock();
+            try {
+                ObjectListing page = fetchedPages.removeFirst();
+                prefetch();
+                return page;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        /* Called with the lock held. */
+        private void prefetch() {
+            if (transfer == null || fetching || exhausted || failure != null 
+                    || fetchedPages.size() >= prefetchDepth) {
+                return;
+            }
+            fetching = true;
+            prefetchQueued = true;
+            try {
+                transfer.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        if (claimPrefetch()) {
+                            fetchNextPage();
+                        }
+                        return null;
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // The client has been shut down; fetch on the calling thread instead.
+                fetching = false;
+                prefetchQueued = false;
+            }
+        }
+        
+        /* Whether the prefetch is still to be done by the transfer thread, not taken over by the caller. */
+        private boolean claimPrefetch() {
+            lock.lock();
+            try {
+                boolean claimed = prefetchQueued;
+                prefetchQueued = false;
+                return claimed;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        /* 
+         * Called by the thread that owns the fetch, without the lock. Whatever
+         * happens, fetching is reset and the waiters are woken up, otherwise
+         * hasNext() would wait forever.
+         */
+        private void fetchNextPage() {
+            ObjectListing page = null;
+            Throwable error = null;
+            try {
+                page = client.listObjects(pageRequest(nextMarker));
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                lock.lock();
+                try {
+                    fetching = false;
+                    if (page != null) {
+                        fetchedPages.addLast(page);
+                        exhausted = !page.isTruncated() || page.getNextMarker() == null;
+                        nextMarker = decodeMarker(page.getNextMarker());
+                        prefetch();
+                    } else if (error != null) {
+                        failure = error;
+                    } else {
+                        exhausted = true;
+                    }
+                    pageFetched.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+    
+    private abstract class ElementIterator<T> implements Iterator<T> {
+        
+        private final PageIterator pages = new PageIterator();
+        private Iterator<T> current = Collections.<T>emptyList().iterator();
+        
+        protected abstract List<T> elementsOf(ObjectListing page);
+        
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (!pages.hasNext()) {
+                    return false;
+                }
+                current = elementsOf(pages.next()).iterator();
+            }
+            return true;
+        }
+        
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    /* Same as the caller's request, headers, parameters and deadline included, but from the given marker. */
+    private ListObjectsRequest pageRequest(String marker) {
+        ListObjectsRequest pageRequest = new ListObjectsRequest(request.getBucketName(), request.getPrefix(), 
+                marker, request.getDelimiter(), request.getMaxKeys());
+        pageRequest.setEncodingType(request.getEncodingType());
+        pageRequest.setHeaders(new LinkedHashMap<String, String>(request.getHeaders()));
+        pageRequest.setParameters(new LinkedHashMap<String, String>(request.getParameters()));
+        pageRequest.setRequestDeadline(request.getRequestDeadline());
+        pageRequest.setProgressListener(request.getProgressListener());
+        pageRequest.setCancellationToken(request.getCancellationToken());
+        return pageRequest;
+    }
+    
+    /* With URL encoding, the next marker comes encoded but is sent decoded like any parameter. */
+    private String decodeMarker(String marker) {
+        if (marker != null && "url".equalsIgnoreCase(request.getEncodingType())) {
+            return HttpUtil.urlDecode(marker, DEFAULT_CHARSET_NAME);
+        }
+        return marker;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import com.aliyun.oss.common.comm.DefaultServiceClient;
+import com.aliyun.oss.common.comm.ServiceClient;
+import com.aliyun.oss.common.comm.TimeoutServiceClient;
+
+/**
+ * 可被多个{@link OSSClient}共享的传输层，包括连接池、SSL上下文、重试预算、并发限制及熔断器。
+ * 
+ * <p>每个{@link OSSClient}可以使用各自的Endpoint及{@link com.aliyun.oss.common.auth.CredentialsProvider}，
+ * 例如每个租户一个{@link OSSClient}，而连接数等限制对所有{@link OSSClient}整体生效，
+ * TLS会话也在所有{@link OSSClient}之间缓存和复用。</p>
+ * 
+ * <p>{@link OSSClient#shutdown()}不会关闭共享的传输层；调用{@link #shutdown()}后，
+ * 传输层在所有使用它的{@link OSSClient}都关闭后才被关闭。</p>
+ */
+public class SharedTransport {
+
+    private final ServiceClient serviceClient;
+    
+    private int clientCount = 0;
+    private boolean shutdownRequested = false;
+    private boolean closed = false;
+
+    /**
+     * 使用默认配置构造一个新的{@link SharedTransport}对象。
+     */
+    public SharedTransport() {
+        this(null);
+    }
+
+    /**
+     * 使用指定的配置构造一个新的{@link SharedTransport}对象。
+     * @param config 客户端配置 {@link ClientConfiguration}。 如果为null则会使用默认配置。
+     */
+    public SharedTransport(ClientConfiguration config) {
+        config = config == null ? new ClientConfiguration() : config;
+        this.serviceClient = createServiceClient(config);
+    }
+
+    /**
+     * 根据客户端配置创建发送请求的{@link ServiceClient}。
+     * @param config client配置。
+     * @return {@link ServiceClient}实例。
+     */
+    protected ServiceClient createServiceClient(ClientConfiguration config) {
+        if (config.isRequestTimeoutEnabled()) {
+            return new TimeoutServiceClient(config);
+        } else {
+            return new DefaultServiceClient(config);
+        }
+    }
+
+    /**
+     * 获取传输层的配置，该配置由所有使用该传输层的{@link OSSClient}共享。
+     * @return 客户端配置
+     */
+    public ClientConfiguration getClientConfiguration() {
+        return serviceClient.getClientConfiguration();
+    }
+
+    /**
+     * 获取正在使用该传输层的{@link OSSClient}数量。
+     * @return {@link OSSClient}数量
+     */
+    public synchronized int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * 关闭传输层。仍有{@link OSSClient}在使用时，在最后一个{@link OSSClient}关闭后再关闭。
+     */
+    public void shutdown() {
+        boolean close;
+        synchronized (this) {
+            shutdownRequested = true;
+            close = clientCount == 0 && !closed;
+            closed |= close;
+        }
+        if (close) {
+            serviceClient.shutdown();
+        }
+    }
+
+    synchronized ServiceClient acquire() {
+        if (shutdownRequested) {
+            throw new IllegalStateException("The shared transport has been shut down.");
+        }
+        clientCount++;
+        return serviceClient;
+    }
+
+    void release() {
+        boolean close;
+        synchronized (this) {
+            clientCount--;
+            close = clientCount == 0 && shutdownRequested && !closed;
+            closed |= close;
+        }
+        if (close) {
+            serviceClient.shutdown();
+        }
+    }
+}
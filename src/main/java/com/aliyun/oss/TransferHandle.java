@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.oss.common.comm.CancellationToken;
+import com.aliyun.oss.model.TransferState;
+import com.aliyun.oss.model.WebServiceRequest;
+
+/**
+ * 在后台线程中执行的断点续传上传/下载任务的句柄，由{@link OSSClient#startUploadFile}和
+ * {@link OSSClient#startDownloadFile}返回。
+ * <p>
+ * {@link #pause()}中止正在传输的分片并保留checkpoint文件，之后可以调用{@link #resume()}从checkpoint继续传输；
+ * {@link #cancel()}中止传输并清理checkpoint文件及未完成的数据。未开启断点续传时，恢复会从头开始传输。
+ * </p>
+ * 
+ * @param <T> 传输结果类型。
+ */
+public abstract class TransferHandle<T> {
+    
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    
+    private final WebServiceRequest request;
+    
+    private TransferState state;
+    private boolean pauseRequested;
+    private boolean cancelRequested;
+    private CancellationToken token;
+    private T result;
+    private Throwable exception;
+    
+    protected TransferHandle(WebServiceRequest request) {
+        this.request = request;
+    }
+    
+    /**
+     * 执行一次传输，被暂停或取消时抛出{@link ClientErrorCode#REQUEST_CANCELLED}异常。
+     */
+    protected abstract T transfer() throws Throwable;
+    
+    /**
+     * 清理被取消的传输留下的checkpoint文件及未完成的数据。
+     */
+    protected abstract void discard();
+    
+    /**
+     * 暂停正在进行的传输。已完成的分片记录在checkpoint文件中。
+     */
+    public void pause() {
+        CancellationToken runningToken;
+        synchronized (this) {
+            if (state != TransferState.Running || cancelRequested) {
+                return;
+            }
+            pauseRequested = true;
+            runningToken = token;
+        }
+        runningToken.cancel();
+    }
+    
+    /**
+     * 从checkpoint继续已暂停或已失败的传输。
+     */
+    public synchronized void resume() {
+        if (state == TransferState.Paused || state == TransferState.Failed) {
+            start();
+        }
+    }
+    
+    /**
+     * 取消传输。正在进行的传输被中止后，checkpoint文件及未完成的数据被清理；上传时同时中止分片上传。
+     */
+    public void cancel() {
+        CancellationToken runningToken = null;
+        synchronized (this) {
+            if (state == TransferState.Running) {
+                cancelRequested = true;
+                runningToken = token;
+            } else if (state == TransferState.Paused || state == TransferState.Failed) {
+                state = TransferState.Cancelled;
+            } else {
+                return;
+            }
+        }
+        
+        if (runningToken != null) {
+            runningToken.cancel();
+        } else {
+            discard();
+        }
+    }
+    
+    /**
+     * 获取传输的状态。
+     * @return 传输的状态。
+     */
+    public synchronized TransferState getState() {
+        return state;
+    }
+    
+    /**
+     * 等待本次传输结束。
+     * @return 传输结果。
+     * @throws Throwable 传输失败的异常；传输被暂停或取消时为{@link ClientErrorCode#REQUEST_CANCELLED}异常。
+     */
+    public synchronized T waitForCompletion() throws Throwable {
+        while (state == TransferState.Running) {
+            wait();
+        }
+        if (state == TransferState.Completed) {
+            return result;
+        }
+        throw exception;
+    }
+    
+    synchronized void start() {
+        token = new CancellationToken();
+        request.setCancellationToken(token);
+        state = TransferState.Running;
+        pauseRequested = false;
+        cancelRequested = false;
+        result = null;
+        exception = null;
+        
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                execute();
+            }
+        }, "oss-transfer-handle-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void execute() {
+        T r = null;
+        Throwable t = null;
+        try {
+            r = transfer();
+        } catch (Throwable e) {
+            t = e;
+        }
+        
+        boolean discarded = false;
+        while (true) {
+            synchronized (this) {
+                if (t == null || !cancelRequested || discarded) {
+                    result = r;
+                    exception = t;
+                    if (t == null) {
+                        state = TransferState.Completed;
+                    } else if (cancelRequested) {
+                        state = TransferState.Cancelled;
+                    } else if (pauseRequested) {
+                        state = TransferState.Paused;
+                    } else {
+                        state = TransferState.Failed;
+                    }
+                    notifyAll();
+                    return;
+                }
+            }
+            
+            // Clean up outside the lock, as it may call the service; the state stays Running meanwhile.
+            try {
+                discard();
+            } catch (RuntimeException e) {
+                logException("Failed to discard the cancelled transfer: ", e);
+            }
+            discarded = true;
+        }
+    }
+}
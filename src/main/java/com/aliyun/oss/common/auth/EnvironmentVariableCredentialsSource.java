@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import java.util.Map;
+
+/**
+ * Loads credentials from the OSS_ACCESS_KEY_ID, OSS_ACCESS_KEY_SECRET and,
+ * optionally, OSS_SESSION_TOKEN environment variables.
+ */
+public class EnvironmentVariableCredentialsSource implements CredentialsSource {
+
+    public static final String ACCESS_KEY_ID = "OSS_ACCESS_KEY_ID";
+    public static final String ACCESS_KEY_SECRET = "OSS_ACCESS_KEY_SECRET";
+    public static final String SESSION_TOKEN = "OSS_SESSION_TOKEN";
+
+    private final Map<String, String> environment;
+
+    public EnvironmentVariableCredentialsSource() {
+        this(null);
+    }
+
+    /**
+     * @param environment variables to read instead of those of the process, for tests.
+     */
+    EnvironmentVariableCredentialsSource(Map<String, String> environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public ExpiringCredentials fetchCredentials() {
+        Map<String, String> env = environment != null ? environment : System.getenv();
+        String accessKeyId = env.get(ACCESS_KEY_ID);
+        String secretAccessKey = env.get(ACCESS_KEY_SECRET);
+        if (accessKeyId == null || secretAccessKey == null) {
+            throw new InvalidCredentialsException(ACCESS_KEY_ID + " and " + ACCESS_KEY_SECRET 
+                    + " environment variables should be set.");
+        }
+        String securityToken = env.get(SESSION_TOKEN);
+        if (securityToken != null && securityToken.length() == 0) {
+            securityToken = null;
+        }
+        return new ExpiringCredentials(accessKeyId.trim(), secretAccessKey.trim(), securityToken, null);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import java.util.Date;
+
+/**
+ * Credentials that stop being valid at a given time, such as those issued
+ * by STS. Instances are immutable.
+ */
+public class ExpiringCredentials extends DefaultCredentials {
+
+    /* Expiration time in milliseconds, or Long.MAX_VALUE if they never expire. */
+    private final long expiration;
+
+    /**
+     * @param expiration time the credentials expire at, or null if they never expire.
+     */
+    public ExpiringCredentials(String accessKeyId, String secretAccessKey, String securityToken, 
+            Date expiration) {
+        super(accessKeyId, secretAccessKey, securityToken);
+        this.expiration = expiration != null ? expiration.getTime() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the time the credentials expire at, or null if they never expire.
+     */
+    public Date getExpiration() {
+        return expiration != Long.MAX_VALUE ? new Date(expiration) : null;
+    }
+
+    /**
+     * Returns the time in milliseconds until the credentials expire at the
+     * given time, negative once they have expired.
+     */
+    public long getRemainingTime(long now) {
+        return expiration != Long.MAX_VALUE ? expiration - now : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiration;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Properties;
+
+import com.aliyun.oss.common.utils.DateUtil;
+import com.aliyun.oss.common.utils.IOUtils;
+
+/**
+ * Loads credentials from a properties file, read again on every refresh so
+ * that another process can rotate them. The file has the keys accessKeyId,
+ * accessKeySecret and, optionally, securityToken and expiration, the latter
+ * in ISO 8601 format.
+ */
+public class FileCredentialsSource implements CredentialsSource {
+
+    public static final String ACCESS_KEY_ID = "accessKeyId";
+    public static final String ACCESS_KEY_SECRET = "accessKeySecret";
+    public static final String SECURITY_TOKEN = "securityToken";
+    public static final String EXPIRATION = "expiration";
+
+    private final File file;
+
+    public FileCredentialsSource(File file) {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        this.file = file;
+    }
+
+    @Override
+    public ExpiringCredentials fetchCredentials() throws Exception {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            properties.load(in);
+        } finally {
+            IOUtils.safeClose(in);
+        }
+
+        String expiration = properties.getProperty(EXPIRATION);
+        Date expirationDate = expiration != null ? DateUtil.parseIso8601Date(expiration.trim()) : null;
+        return new ExpiringCredentials(trim(properties.getProperty(ACCESS_KEY_ID)), 
+                trim(properties.getProperty(ACCESS_KEY_SECRET)), trim(properties.getProperty(SECURITY_TOKEN)), 
+                expirationDate);
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+}
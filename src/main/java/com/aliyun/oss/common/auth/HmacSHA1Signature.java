@@ -19,7 +19,7 @@
 
 package com.aliyun.oss.common.auth;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
@@ -30,11 +30,15 @@ import com.aliyun.oss.common.utils.BinaryUtil;
 
 /**
  * Used for computing Hmac-SHA1 signature.
+ *
+ * <p>Each thread keeps its own Mac, initialized with the last key it signed
+ * with, so signing takes no lock and a key is only set up again when the
+ * thread signs with another one.</p>
  */
 public class HmacSHA1Signature extends ServiceSignature {
     
     /* The default encoding. */
-    private static final String DEFAULT_ENCODING = "UTF-8";
+    private static final Charset DEFAULT_ENCODING = Charset.forName("UTF-8");
     
     /* Signature method. */
     private static final String ALGORITHM = "HmacSHA1";
@@ -42,10 +46,8 @@ public class HmacSHA1Signature extends ServiceSignature {
     /* Signature version. */
     private static final String VERSION = "1";
     
-    private static final Object LOCK = new Object();
-    
-    /* Prototype of the Mac instance. */
-    private static Mac macInstance;
+    /* Mac of the current thread and the key it was initialized with. */
+    private static final ThreadLocal<KeyedMac> threadMac = new ThreadLocal<KeyedMac>();
 
     public String getAlgorithm() {
         return ALGORITHM;
@@ -56,43 +58,42 @@ public class HmacSHA1Signature extends ServiceSignature {
     }
 
     public String computeSignature(String key, String data) {
-        try {
-            byte[] signData = sign(key.getBytes(DEFAULT_ENCODING), data.getBytes(DEFAULT_ENCODING));
-            return BinaryUtil.toBase64String(signData);
-        }
-        catch(UnsupportedEncodingException ex) {
-            throw new RuntimeException("Unsupported algorithm: " + DEFAULT_ENCODING, ex);
-        }
+        byte[] signData = sign(key, data.getBytes(DEFAULT_ENCODING));
+        return BinaryUtil.toBase64String(signData);
     }
 
-
-    private byte[] sign(byte[] key, byte[] data) {
+    private byte[] sign(String key, byte[] data) {
         try {
-            // Because Mac.getInstance(String) calls a synchronized method, it could block on 
-            // invoked concurrently, so use prototype pattern to improve perf.
-            if (macInstance == null) {
-                synchronized (LOCK) {
-                    if (macInstance == null) {
-                        macInstance = Mac.getInstance(ALGORITHM);
-                    }
-                }
+            KeyedMac keyedMac = threadMac.get();
+            if (keyedMac == null) {
+                keyedMac = new KeyedMac(Mac.getInstance(ALGORITHM));
+                threadMac.set(keyedMac);
             }
-
-            Mac mac = null;
-            try {
-                mac = (Mac)macInstance.clone();
-            } catch (CloneNotSupportedException e) {
-                // If it is not clonable, create a new one.
-                mac = Mac.getInstance(ALGORITHM);
+            
+            Mac mac = keyedMac.mac;
+            if (!key.equals(keyedMac.key)) {
+                // Forget the old key first, in case the new one is rejected.
+                keyedMac.key = null;
+                mac.init(new SecretKeySpec(key.getBytes(DEFAULT_ENCODING), ALGORITHM));
+                keyedMac.key = key;
             }
-            mac.init(new SecretKeySpec(key, ALGORITHM));
+            // doFinal resets the Mac for the next signature with the same key.
             return mac.doFinal(data);
         }
         catch(NoSuchAlgorithmException ex) {
             throw new RuntimeException("Unsupported algorithm: " + ALGORITHM, ex);
         }
         catch(InvalidKeyException ex) {
-            throw new RuntimeException("Invalid key: " + key, ex);
+            throw new RuntimeException("Invalid key for algorithm: " + ALGORITHM, ex);
+        }
+    }
+    
+    private static final class KeyedMac {
+        private final Mac mac;
+        private String key;
+        
+        KeyedMac(Mac mac) {
+            this.mac = mac;
         }
     }
-}
\ No newline at end of file
+}
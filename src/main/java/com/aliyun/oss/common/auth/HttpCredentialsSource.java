@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Date;
+
+import net.sf.json.JSONObject;
+
+import com.aliyun.oss.common.utils.DateUtil;
+import com.aliyun.oss.common.utils.IOUtils;
+
+/**
+ * Loads credentials with a GET request to an HTTP endpoint that answers in
+ * the JSON format of STS, such as the ECS instance metadata service or a
+ * local credentials server:
+ *
+ * <pre>
+ * {"AccessKeyId": "...", "AccessKeySecret": "...", "SecurityToken": "...",
+ *  "Expiration": "2017-11-01T09:00:00Z"}
+ * </pre>
+ *
+ * <p>The fields may also be nested in a "Credentials" object, as in the
+ * response of AssumeRole. A "Code" field other than "Success" is an
+ * error.</p>
+ */
+public class HttpCredentialsSource implements CredentialsSource {
+
+    public static final int DEFAULT_TIMEOUT = 5 * 1000;
+
+    private final URL url;
+    private final int timeout;
+
+    public HttpCredentialsSource(URL url) {
+        this(url, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param timeout connection and read timeout in milliseconds.
+     */
+    public HttpCredentialsSource(URL url, int timeout) {
+        if (url == null) {
+            throw new NullPointerException("url");
+        }
+        this.url = url;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public ExpiringCredentials fetchCredentials() throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(timeout);
+        connection.setReadTimeout(timeout);
+        connection.setRequestMethod("GET");
+        
+        String body;
+        InputStream in = null;
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Failed to get credentials from " + url + ", status " + status);
+            }
+            in = connection.getInputStream();
+            body = IOUtils.readStreamAsString(in, "UTF-8");
+        } finally {
+            IOUtils.safeClose(in);
+            connection.disconnect();
+        }
+
+        JSONObject json = JSONObject.fromObject(body);
+        if (json.has("Code") && !"Success".equals(json.getString("Code"))) {
+            throw new InvalidCredentialsException("Failed to get credentials from " + url + ", code " 
+                    + json.getString("Code"));
+        }
+        if (json.has("Credentials")) {
+            json = json.getJSONObject("Credentials");
+        }
+        
+        String securityToken = json.has("SecurityToken") ? json.getString("SecurityToken") : null;
+        Date expiration = json.has("Expiration") ? DateUtil.parseIso8601Date(json.getString("Expiration")) : null;
+        return new ExpiringCredentials(json.optString("AccessKeyId", null), json.optString("AccessKeySecret", null), 
+                securityToken, expiration);
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CredentialsProvider} that loads credentials from a
+ * {@link CredentialsSource} and refreshes them on a background thread before
+ * they expire, such as STS tokens.
+ *
+ * <p>The current credentials are an immutable snapshot held in a volatile
+ * field, so request threads never wait on a refresh. Credentials with an
+ * expiration are refreshed {@link #getRefreshAheadTime()} before it, or half
+ * way through their remaining time if they are shorter lived; those without
+ * are loaded again every {@link #getRefreshInterval()}. A failed refresh
+ * keeps the previous credentials and is retried with backoff.</p>
+ *
+ * <p>Once the credentials have expired without being refreshed,
+ * {@link #getCredentials()} throws {@link InvalidCredentialsException}
+ * unless {@link #setUseExpiredCredentials(boolean)} has been enabled, in
+ * which case the stale credentials are still returned and a warning is
+ * logged.</p>
+ *
+ * <p>All providers share one daemon refresh thread, which stops once no
+ * refresh has been scheduled for a minute. A provider keeps refreshing until
+ * {@link #shutdown()} is called. The clients using it do not call it, since
+ * a provider may be shared by several clients, so whoever creates the
+ * provider should shut it down once done with it.</p>
+ */
+public class RefreshingCredentialsProvider implements CredentialsProvider {
+
+    public static final long DEFAULT_REFRESH_AHEAD_TIME = 5 * 60 * 1000;
+    public static final long DEFAULT_REFRESH_INTERVAL = 5 * 60 * 1000;
+
+    static final long MIN_REFRESH_DELAY = 100;
+    static final long MIN_RETRY_DELAY = 1000;
+    static final long MAX_RETRY_DELAY = 60 * 1000;
+
+    private static final ScheduledThreadPoolExecutor refresher = createRefresher();
+
+    private final CredentialsSource source;
+    private final long refreshAheadTime;
+    private final long refreshInterval;
+
+    private volatile ExpiringCredentials creds;
+    private volatile boolean useExpiredCredentials = false;
+    private volatile boolean expiredWarned = false;
+
+    /* Accessed by the refresh thread only. */
+    private int failures = 0;
+
+    /* Guarded by this. */
+    private ScheduledFuture<?> refreshTask;
+    private boolean shutdown = false;
+
+    public RefreshingCredentialsProvider(CredentialsSource source) {
+        this(source, DEFAULT_REFRESH_AHEAD_TIME, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Loads the first credentials on the calling thread and schedules their refresh.
+     *
+     * @param refreshAheadTime how long before expiring the credentials are refreshed, in milliseconds.
+     * @param refreshInterval how often credentials without expiration are loaded again, in milliseconds.
+     * @throws InvalidCredentialsException if the first credentials cannot be loaded.
+     */
+    public RefreshingCredentialsProvider(CredentialsSource source, long refreshAheadTime, long refreshInterval) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+        this.source = source;
+        this.refreshAheadTime = Math.max(refreshAheadTime, 0);
+        this.refreshInterval = Math.max(refreshInterval, MIN_REFRESH_DELAY);
+
+        try {
+            this.creds = fetch();
+        } catch (Exception e) {
+            throw new InvalidCredentialsException("Failed to load credentials: " + e.getMessage(), e);
+        }
+
+        scheduleRefresh(nextRefreshDelay(creds));
+    }
+
+    /**
+     * Replaces the current credentials until the next refresh.
+     */
+    @Override
+    public void setCredentials(Credentials creds) {
+        if (creds == null) {
+            throw new InvalidCredentialsException("creds should not be null.");
+        }
+        
+        this.creds = creds instanceof ExpiringCredentials ? (ExpiringCredentials) creds 
+                : new ExpiringCredentials(creds.getAccessKeyId(), creds.getSecretAccessKey(), 
+                        creds.getSecurityToken(), null);
+    }
+
+    @Override
+    public Credentials getCredentials() {
+        ExpiringCredentials current = creds;
+        if (current.isExpired(System.currentTimeMillis())) {
+            if (!useExpiredCredentials) {
+                throw new InvalidCredentialsException("Credentials expired at " + current.getExpiration() 
+                        + " and could not be refreshed.");
+            }
+            if (!expiredWarned) {
+                expiredWarned = true;
+                getLog().warn("Using credentials that expired at " + current.getExpiration() 
+                        + " as they could not be refreshed.");
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Sets whether expired credentials that could not be refreshed are still
+     * returned, rather than failing the request at once. Disabled by default.
+     */
+    public void setUseExpiredCredentials(boolean useExpiredCredentials) {
+        this.useExpiredCredentials = useExpiredCredentials;
+    }
+
+    public boolean isUseExpiredCredentials() {
+        return useExpiredCredentials;
+    }
+
+    public long getRefreshAheadTime() {
+        return refreshAheadTime;
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    /**
+     * Stops refreshing the credentials. The current ones are kept.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            if (refreshTask != null) {
+                refreshTask.cancel(true);
+            }
+        }
+        refresher.purge();
+    }
+
+    private ExpiringCredentials fetch() throws Exception {
+        ExpiringCredentials fetched = source.fetchCredentials();
+        if (fetched == null) {
+            throw new InvalidCredentialsException("Credentials source returned no credentials.");
+        }
+        return fetched;
+    }
+
+    private void refresh() {
+        long delay;
+        try {
+            ExpiringCredentials fetched = fetch();
+            creds = fetched;
+            expiredWarned = false;
+            failures = 0;
+            delay = nextRefreshDelay(fetched);
+        } catch (Throwable t) {
+            // Errors too, since nothing would schedule the next refresh otherwise.
+            failures++;
+            delay = Math.min(MIN_RETRY_DELAY << Math.min(failures - 1, 16), MAX_RETRY_DELAY);
+            getLog().warn("Failed to refresh credentials, retrying in " + delay + " ms: " + t);
+        }
+        scheduleRefresh(delay);
+    }
+
+    private long nextRefreshDelay(ExpiringCredentials current) {
+        long remaining = current.getRemainingTime(System.currentTimeMillis());
+        if (remaining == Long.MAX_VALUE) {
+            return refreshInterval;
+        }
+        long delay = remaining > 2 * refreshAheadTime ? remaining - refreshAheadTime : remaining / 2;
+        return Math.max(delay, MIN_REFRESH_DELAY);
+    }
+
+    private synchronized void scheduleRefresh(long delay) {
+        if (shutdown) {
+            return;
+        }
+        refreshTask = refresher.schedule(new Runnable() {
+            @Override
+            public void run() {
+                refresh();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledThreadPoolExecutor createRefresher() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "oss-credentials-refresher");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.conn.NHttpClientConnectionManager;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.model.WarmUpResult;
+
+/**
+ * Opens pooled connections of the event-driven client ahead of traffic. The
+ * connections are requested from the pool all at once, so each lease yields
+ * a distinct connection: idle connections already in the pool are reused, the
+ * rest are connected by the I/O reactor, and all of them are then released
+ * back to the pool. On HTTPS routes the TLS handshake of a new connection is
+ * started before it is released and completes on the reactor.
+ */
+class AsyncConnectionWarmer {
+
+    private final NHttpClientConnectionManager connectionManager;
+    private final ClientConfiguration config;
+    private final HttpHost proxy;
+
+    AsyncConnectionWarmer(NHttpClientConnectionManager connectionManager, ClientConfiguration config, 
+            HttpHost proxy) {
+        this.connectionManager = connectionManager;
+        this.config = config;
+        this.proxy = proxy;
+    }
+
+    WarmUpResult warmUp(URI endpoint, int connections) {
+        long start = System.currentTimeMillis();
+        String host = endpoint.getHost();
+        boolean secure = Protocol.HTTPS.toString().equalsIgnoreCase(endpoint.getScheme());
+        int port = endpoint.getPort() > 0 ? endpoint.getPort() : (secure ? 443 : 80);
+        HttpHost target = new HttpHost(host, port, endpoint.getScheme());
+
+        if (proxy != null && secure) {
+            getLog().warn("Connections to " + host + " go through a tunnel of the proxy and are not warmed up");
+            return new WarmUpResult(host, connections, 0, 0, System.currentTimeMillis() - start);
+        }
+        HttpRoute route = proxy != null ? new HttpRoute(target, null, proxy, secure) 
+                : new HttpRoute(target, null, secure);
+
+        long connectTimeout = Math.max(config.getConnectionTimeout(), 0);
+        long leaseTimeout = config.getConnectionRequestTimeout() > 0 ? config.getConnectionRequestTimeout()
+                : connectTimeout;
+        int count = Math.min(connections, config.getMaxConnections());
+        List<Future<NHttpClientConnection>> futures = new ArrayList<Future<NHttpClientConnection>>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(connectionManager.requestConnection(route, null, connectTimeout, leaseTimeout, 
+                    TimeUnit.MILLISECONDS, null));
+        }
+
+        List<NHttpClientConnection> leases = new ArrayList<NHttpClientConnection>(count);
+        int opened = 0;
+        for (Future<NHttpClientConnection> future : futures) {
+            NHttpClientConnection connection;
+            try {
+                connection = await(future, connectTimeout + leaseTimeout);
+            } catch (ExecutionException e) {
+                getLog().debug("Failed to warm up a connection to " + host + ": " + e.getCause());
+                continue;
+            }
+            if (connection == null) {
+                getLog().debug("Timed out warming up a connection to " + host);
+                continue;
+            }
+
+            // Idle connections have already been validated by the pool when leased.
+            try {
+                if (!connectionManager.isRouteComplete(connection)) {
+                    HttpClientContext context = HttpClientContext.create();
+                    connectionManager.startRoute(connection, route, context);
+                    connectionManager.routeComplete(connection, route, context);
+                    opened++;
+                }
+                leases.add(connection);
+            } catch (IOException e) {
+                getLog().debug("Failed to warm up a connection to " + host + ": " + e);
+                closeQuietly(connection);
+                connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+        for (NHttpClientConnection connection : leases) {
+            connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        getLog().debug("Warmed up " + leases.size() + "/" + connections + " connections to " + host 
+                + " in " + elapsed + "ms");
+        return new WarmUpResult(host, connections, leases.size(), opened, elapsed);
+    }
+
+    /**
+     * Waits for a lease even when interrupted, since an abandoned lease would
+     * never return to the pool. Returns null if the lease was cancelled after
+     * timing out; the pool releases a connection leased by a cancelled request.
+     */
+    private static NHttpClientConnection await(Future<NHttpClientConnection> future, long timeout) 
+            throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get(timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (TimeoutException e) {
+                    if (future.cancel(false)) {
+                        return null;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void closeQuietly(NHttpClientConnection connection) {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            /* The connection is discarded anyway. */
+        }
+    }
+}
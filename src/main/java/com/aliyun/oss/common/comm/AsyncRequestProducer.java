@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedOutputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+
+/**
+ * Produces the request of one asynchronous attempt without reading its
+ * content into memory. A file region is sent by the I/O thread straight from
+ * the file, with {@link FileContentEncoder#transfer} when the connection
+ * allows it. Any other content is written by a writer thread through a
+ * bounded buffer that the I/O thread drains, so a slow stream never stalls
+ * the I/O thread.
+ */
+class AsyncRequestProducer implements HttpAsyncRequestProducer {
+
+    /* Size of the buffer between a writer thread and the I/O thread. */
+    static final int CONTENT_BUFFER_SIZE = 64 * 1024;
+
+    private final HttpRequestBase request;
+    private final HttpHost target;
+
+    AsyncRequestProducer(HttpRequestBase request) {
+        this.request = request;
+        this.target = URIUtils.extractHost(request.getURI());
+    }
+
+    /**
+     * Creates the producer for the request and the entity set on it by the
+     * {@link HttpRequestFactory}. The writer threads of stream content come
+     * from the given executor; the writer of a request starts once its
+     * connection is ready for the content.
+     */
+    static AsyncRequestProducer create(HttpRequestBase request, Executor writerExecutor) {
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest 
+                ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        if (entity == null) {
+            return new AsyncRequestProducer(request);
+        } else if (entity instanceof FileRegionEntity) {
+            return new FileRegionProducer(request, (FileRegionEntity) entity);
+        } else {
+            return new StreamProducer(request, entity, writerExecutor);
+        }
+    }
+
+    @Override
+    public HttpHost getTarget() {
+        return target;
+    }
+
+    @Override
+    public HttpRequest generateRequest() {
+        // The entity is only used for the content headers, the content itself is produced here.
+        return request;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+        encoder.complete();
+    }
+
+    @Override
+    public void requestCompleted(HttpContext context) {
+    }
+
+    @Override
+    public void failed(Exception ex) {
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        // A failed attempt is retried with a new producer.
+        return false;
+    }
+
+    @Override
+    public void resetRequest() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Stops producing the content and waits until nothing reads it any more,
+     * so that the request content can be reset or closed.
+     */
+    void finishContent() {
+    }
+
+    /**
+     * Sends a region of a file from the I/O thread.
+     */
+    private static class FileRegionProducer extends AsyncRequestProducer {
+        private final FileChannel channel;
+        private final long end;
+        private long offset;
+        private ByteBuffer buffer;
+
+        FileRegionProducer(HttpRequestBase request, FileRegionEntity entity) {
+            super(request);
+            this.channel = entity.getChannel();
+            this.offset = entity.getPosition();
+            this.end = entity.getPosition() + entity.getContentLength();
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+            if (encoder instanceof FileContentEncoder) {
+                if (offset < end) {
+                    long n = ((FileContentEncoder) encoder).transfer(channel, offset, end - offset);
+                    if (n < 0 || (n == 0 && offset >= channel.size())) {
+                        throw new EOFException("Unexpected end of file at position " + offset);
+                    }
+                    offset += n;
+                }
+            } else {
+                // Under TLS the bytes are copied through a buffer.
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate((int) Math.min(CONTENT_BUFFER_SIZE, Math.max(end - offset, 1)));
+                    buffer.flip();
+                }
+                if (!buffer.hasRemaining() && offset < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), end - offset));
+                    int n = channel.read(buffer, offset);
+                    if (n < 0) {
+                        throw new EOFException("Unexpected end of file at position " + offset);
+                    }
+                    offset += n;
+                    buffer.flip();
+                }
+                encoder.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+            }
+            if (offset >= end) {
+                encoder.complete();
+            }
+        }
+    }
+
+    /**
+     * Copies the content of an entity, such as a plain or chunked stream, from
+     * a writer thread to the I/O thread.
+     */
+    private static class StreamProducer extends AsyncRequestProducer {
+        private final HttpEntity entity;
+        private final Executor writerExecutor;
+        private final SharedOutputBuffer buffer = new SharedOutputBuffer(CONTENT_BUFFER_SIZE, 
+                HeapByteBufferAllocator.INSTANCE);
+        private final CountDownLatch writerDone = new CountDownLatch(1);
+
+        /* Guarded by this. */
+        private boolean writerStarted = false;
+        private boolean finished = false;
+        private IOControl ioctrl;
+        private IOException writerError;
+
+        StreamProducer(HttpRequestBase request, HttpEntity entity, Executor writerExecutor) {
+            super(request);
+            this.entity = entity;
+            this.writerExecutor = writerExecutor;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+            synchronized (this) {
+                if (writerError != null) {
+                    throw writerError;
+                }
+                if (finished) {
+                    throw new InterruptedIOException("The request content has been aborted");
+                }
+                this.ioctrl = ioctrl;
+                if (!writerStarted) {
+                    writerStarted = true;
+                    startWriter();
+                }
+            }
+            buffer.produceContent(encoder, ioctrl);
+        }
+
+        /* Called with the lock held. */
+        private void startWriter() throws IOException {
+            try {
+                writerExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        write();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                writerDone.countDown();
+                throw new InterruptedIOException("The client has been shut down");
+            }
+        }
+
+        private void write() {
+            try {
+                entity.writeTo(new ContentOutputStream(buffer));
+                buffer.writeCompleted();
+            } catch (IOException e) {
+                writeFailed(e);
+            } catch (RuntimeException e) {
+                // Such as a write to the buffer after the request has ended.
+                writeFailed(new IOException(e));
+            } finally {
+                writerDone.countDown();
+            }
+        }
+
+        /* Lets the I/O thread fail the request, unless the request has already ended. */
+        private void writeFailed(IOException e) {
+            IOControl control;
+            synchronized (this) {
+                writerError = e;
+                control = ioctrl;
+            }
+            control.requestOutput();
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            buffer.shutdown();
+        }
+
+        @Override
+        public void close() {
+            buffer.shutdown();
+        }
+
+        @Override
+        void finishContent() {
+            boolean started;
+            synchronized (this) {
+                finished = true;
+                started = writerStarted;
+            }
+            buffer.shutdown();
+            if (!started) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    writerDone.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+import static com.aliyun.oss.internal.OSSUtils.COMMON_RESOURCE_MANAGER;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.internal.OSSConstants;
+import com.aliyun.oss.model.WarmUpResult;
+
+/**
+ * Implementation of {@link ServiceClient} based on an event-driven HTTP engine.
+ *
+ * <p>Requests are multiplexed over a small number of I/O dispatch threads (one
+ * per processor by default), so the number of in-flight requests is bound by
+ * {@link ClientConfiguration#getMaxConnections()} rather than by the number of
+ * caller threads. {@link #sendRequestAsync} drives the same sign/handle/retry
+ * pipeline as {@link ServiceClient#sendRequest} without parking the caller;
+ * retry pauses are scheduled on a single timer thread.</p>
+ *
+ * <p>The I/O threads only move bytes, and content is never held in memory
+ * as a whole. A file region is sent straight from the file by the I/O thread,
+ * and any other request content is copied by a writer thread through a
+ * bounded buffer. A response is handed to the response handlers, the parsers
+ * and the callbacks, which run on a small pool of callback threads, as soon
+ * as its headers arrive; its content stream reads from a bounded buffer that
+ * the I/O thread fills while the reader keeps up. A slow request stream or a
+ * slow reader therefore never stalls the other requests, but a reader that
+ * pauses for longer than the socket timeout fails the request.</p>
+ */
+public class AsyncServiceClient extends ServiceClient {
+    protected static HttpRequestFactory httpRequestFactory = new HttpRequestFactory();
+
+    protected CloseableHttpAsyncClient httpClient;
+    protected PoolingNHttpClientConnectionManager connectionManager;
+    protected RequestConfig requestConfig;
+    protected ScheduledExecutorService retryScheduler;
+    protected ExecutorService callbackExecutor;
+    protected ExecutorService writerExecutor;
+    protected RetryStrategy defaultRetryStrategy;
+
+    public AsyncServiceClient(ClientConfiguration config) {
+        super(config);
+        this.defaultRetryStrategy = withBackoff(new DefaultServiceClient.DefaultRetryStrategy());
+        this.connectionManager = createConnectionManager();
+        this.requestConfig = createRequestConfig();
+        this.httpClient = HttpAsyncClients.custom().setConnectionManager(this.connectionManager)
+                .setUserAgent(this.config.getUserAgent())
+                .setDefaultRequestConfig(this.requestConfig)
+                .build();
+        this.httpClient.start();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "oss-async-retry");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        int callbackThreads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor callbackExecutor = new ThreadPoolExecutor(callbackThreads, callbackThreads, 
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger(1);
+                    
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "oss-async-callback-" + threadNumber.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        callbackExecutor.allowCoreThreadTimeOut(true);
+        this.callbackExecutor = callbackExecutor;
+        // At most one writer per connection is ever busy copying request content.
+        int writerThreads = config.getMaxConnections();
+        ThreadPoolExecutor writerExecutor = new ThreadPoolExecutor(writerThreads, writerThreads, 
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger threadNumber = new AtomicInteger(1);
+                    
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "oss-async-writer-" + threadNumber.getAndIncrement());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        writerExecutor.allowCoreThreadTimeOut(true);
+        this.writerExecutor = writerExecutor;
+    }
+
+    /**
+     * Send HTTP request with specified context to OSS without blocking the
+     * calling thread. The returned future completes with the response once
+     * the response handlers accept it, or fails with the last error once the
+     * retry strategy gives up. When the concurrency limit is enabled, the
+     * calling thread may wait for a permit of the limiter.
+     */
+    public Future<ResponseMessage> sendRequestAsync(RequestMessage request, ExecutionContext context,
+            FutureCallback<ResponseMessage> callback) throws ClientException {
+        if (request == null || context == null) {
+            throw new IllegalArgumentException("request and context should not be null.");
+        }
+
+        AsyncExecution execution = new AsyncExecution(request, context, callback);
+        execution.start();
+        return execution.future;
+    }
+
+    @Override
+    protected ResponseMessage sendRequestCore(ServiceClient.Request request, ExecutionContext context)
+            throws IOException {
+        HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        HttpClientContext httpContext = HttpClientContext.create();
+        httpContext.setRequestConfig(DefaultServiceClient.createAttemptRequestConfig(this.requestConfig, context));
+
+        AsyncRequestProducer producer = AsyncRequestProducer.create(httpRequest, writerExecutor);
+        StreamingResponseConsumer consumer = new StreamingResponseConsumer(httpRequest, null);
+        HttpResponse httpResponse = null;
+        try {
+            execute(producer, consumer, httpContext);
+            httpResponse = consumer.getResponseFuture().get();
+        } catch (InterruptedException e) {
+            httpRequest.abort();
+            throw new ClientException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            httpRequest.abort();
+            if (e.getCause() instanceof IOException) {
+                throw ExceptionFactory.createNetworkException((IOException) e.getCause());
+            }
+            throw new ClientException(e.getCause());
+        } finally {
+            // The request content may be reset or closed once this returns.
+            producer.finishContent();
+        }
+
+        return DefaultServiceClient.buildResponse(request, httpResponse);
+    }
+
+    @Override
+    protected RetryStrategy getDefaultRetryStrategy() {
+        return defaultRetryStrategy;
+    }
+
+    @Override
+    public WarmUpResult warmUp(URI endpoint, int connections) {
+        return new AsyncConnectionWarmer(this.connectionManager, this.config, this.requestConfig.getProxy())
+                .warmUp(endpoint, connections);
+    }
+
+    @Override
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            logException("Unexpected io exception when trying to close async http client: ", e);
+        }
+        callbackExecutor.shutdown();
+        writerExecutor.shutdown();
+    }
+
+    protected PoolingNHttpClientConnectionManager createConnectionManager() {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(Runtime.getRuntime().availableProcessors())
+                .setConnectTimeout(config.getConnectionTimeout())
+                .setSoTimeout(config.getSocketTimeout())
+                .setTcpNoDelay(true)
+                .build();
+
+        DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+        } catch (IOReactorException e) {
+            throw new ClientException(e.getMessage(), e);
+        }
+
+        Registry<SchemeIOSessionStrategy> sessionStrategyRegistry = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register(Protocol.HTTP.toString(), NoopIOSessionStrategy.INSTANCE)
+                .register(Protocol.HTTPS.toString(), new SSLIOSessionStrategy(
+                        DefaultServiceClient.createSSLContext(), NoopHostnameVerifier.INSTANCE))
+                .build();
+
+        // The reactor connects asynchronously, so only the address spreading of the DNS cache applies here.
+        PoolingNHttpClientConnectionManager connectionManager = config.isDnsCacheEnabled()
+                ? new PoolingNHttpClientConnectionManager(ioReactor, null, sessionStrategyRegistry, 
+                        new CachingDnsResolver(config.getDnsCacheTTL()))
+                : new PoolingNHttpClientConnectionManager(ioReactor, sessionStrategyRegistry);
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
+        connectionManager.setMaxTotal(config.getMaxConnections());
+        return connectionManager;
+    }
+
+    protected RequestConfig createRequestConfig() {
+        RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
+        requestConfigBuilder.setConnectTimeout(config.getConnectionTimeout());
+        requestConfigBuilder.setSocketTimeout(config.getSocketTimeout());
+        requestConfigBuilder.setConnectionRequestTimeout(config.getConnectionRequestTimeout());
+
+        String proxyHost = config.getProxyHost();
+        int proxyPort = config.getProxyPort();
+        if (proxyHost != null && proxyPort > 0) {
+            requestConfigBuilder.setProxy(new HttpHost(proxyHost, proxyPort));
+        }
+        return requestConfigBuilder.build();
+    }
+
+    /**
+     * Executes the exchange of the given producer and consumer. The consumer
+     * learns about the outcome of the exchange, so that a reader of the
+     * response content is released when the exchange fails.
+     */
+    private void execute(AsyncRequestProducer producer, final StreamingResponseConsumer consumer,
+            HttpClientContext httpContext) {
+        httpClient.execute(producer, consumer, httpContext, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse result) {
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                consumer.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                consumer.cancel();
+            }
+        });
+    }
+
+    /**
+     * Runs the handling of an attempt's outcome on a callback thread, or on
+     * the current thread once the client has been shut down.
+     */
+    private void dispatch(Runnable task) {
+        try {
+            callbackExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    /**
+     * State of one asynchronous request across all of its attempts.
+     */
+    private class AsyncExecution {
+        private final RequestMessage request;
+        private final ExecutionContext context;
+        private final RetryStrategy retryStrategy;
+        private final BasicFuture<ResponseMessage> future;
+
+        private volatile HttpRequestBase currentHttpRequest;
+        private volatile AsyncRequestProducer currentProducer;
+        private int retries = 0;
+        private long previousDelay = 0;
+
+        AsyncExecution(RequestMessage request, ExecutionContext context,
+                FutureCallback<ResponseMessage> callback) {
+            this.request = request;
+            this.context = context;
+            this.retryStrategy = context.getRetryStrategy() != null ?
+                    context.getRetryStrategy() : getDefaultRetryStrategy();
+            this.future = new BasicFuture<ResponseMessage>(callback) {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    boolean cancelled = super.cancel(mayInterruptIfRunning);
+                    if (cancelled) {
+                        HttpRequestBase httpRequest = currentHttpRequest;
+                        if (httpRequest != null) {
+                            httpRequest.abort();
+                        }
+                        finishContent();
+                        closeRequest();
+                    }
+                    return cancelled;
+                }
+            };
+        }
+
+        void start() {
+            try {
+                // Sign the request if a signer provided.
+                if (context.getSigner() != null && !request.isUseUrlSignature()) {
+                    context.getSigner().sign(request);
+                }
+
+                InputStream requestContent = request.getContent();
+                if (requestContent != null && requestContent.markSupported()) {
+                    requestContent.mark(OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+                }
+                
+                initDeadline(context);
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            attempt();
+        }
+
+        private void attempt() {
+            if (future.isDone()) {
+                return;
+            }
+
+            final ServiceClient.Request httpMessage;
+            final HttpClientContext httpContext = HttpClientContext.create();
+            try {
+                if (retries > 0) {
+                    InputStream requestContent = request.getContent();
+                    if (requestContent != null && requestContent.markSupported()) {
+                        try {
+                            requestContent.reset();
+                        } catch (IOException ex) {
+                            logException("Failed to reset the request input stream: ", ex);
+                            throw new ClientException("Failed to reset the request input stream: ", ex);
+                        }
+                    }
+                }
+
+                handleRequest(request, context.getResquestHandlers());
+                httpMessage = buildRequest(request, context);
+                currentHttpRequest = httpRequestFactory.createHttpRequest(httpMessage, context);
+                currentProducer = AsyncRequestProducer.create(currentHttpRequest, writerExecutor);
+                httpContext.setRequestConfig(DefaultServiceClient.createAttemptRequestConfig(requestConfig, context));
+            } catch (RuntimeException e) {
+                fail(e);
+                return;
+            }
+
+            // Like a blocking attempt, each attempt holds a circuit breaker and a limiter permit 
+            // until its response headers arrive.
+            final CircuitBreaker.Permit circuitPermit;
+            final ConcurrencyLimiter.Permit limiterPermit;
+            try {
+                circuitPermit = acquireCircuitPermit(request);
+            } catch (ClientException e) {
+                onFailure(e, null);
+                return;
+            }
+            try {
+                limiterPermit = acquireLimiterPermit(request, context);
+            } catch (ClientException e) {
+                releasePermits(circuitPermit, null);
+                onFailure(e, null);
+                return;
+            }
+
+            final long startTime = System.currentTimeMillis();
+            StreamingResponseConsumer consumer = new StreamingResponseConsumer(currentHttpRequest, 
+                    new FutureCallback<HttpResponse>() {
+
+                    @Override
+                    public void completed(final HttpResponse httpResponse) {
+                        int statusCode = httpResponse.getStatusLine().getStatusCode();
+                        releaseLimiterPermit(limiterPermit, statusCode, null);
+                        releaseCircuitPermit(circuitPermit, statusCode, null);
+                        dispatch(new Runnable() {
+                            @Override
+                            public void run() {
+                                onResponse(httpMessage, httpResponse, startTime);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        final Exception error = ex instanceof IOException ? 
+                                ExceptionFactory.createNetworkException((IOException) ex) : ex;
+                        if (error instanceof ClientException) {
+                            releaseLimiterPermit(limiterPermit, 0, (ClientException) error);
+                            releaseCircuitPermit(circuitPermit, 0, (ClientException) error);
+                        } else {
+                            releasePermits(circuitPermit, limiterPermit);
+                        }
+                        dispatch(new Runnable() {
+                            @Override
+                            public void run() {
+                                onFailure(error, null);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        releasePermits(circuitPermit, limiterPermit);
+                        future.cancel(false);
+                    }
+                });
+            try {
+                execute(currentProducer, consumer, httpContext);
+            } catch (RuntimeException e) {
+                // Such as when the client has been shut down.
+                releasePermits(circuitPermit, limiterPermit);
+                fail(e);
+            }
+        }
+
+        /* Releases the permits of an attempt that tells nothing about the endpoint. */
+        private void releasePermits(CircuitBreaker.Permit circuitPermit, ConcurrencyLimiter.Permit limiterPermit) {
+            if (circuitPermit != null) {
+                circuitPermit.release();
+            }
+            if (limiterPermit != null) {
+                limiterPermit.release();
+            }
+        }
+
+        private void onResponse(ServiceClient.Request httpMessage, HttpResponse httpResponse, long startTime) {
+            finishContent();
+            ResponseMessage response = null;
+            try {
+                response = DefaultServiceClient.buildResponse(httpMessage, httpResponse);
+
+                long duration = System.currentTimeMillis() - startTime;
+                if (duration > config.getSlowRequestsThreshold()) {
+                    getLog().warn(formatSlowRequestLog(request, response, duration));
+                }
+
+                handleResponse(response, context.getResponseHandlers());
+            } catch (IOException ex) {
+                onFailure(ExceptionFactory.createNetworkException(ex), response);
+                return;
+            } catch (Exception ex) {
+                onFailure(ex, response);
+                return;
+            }
+
+            closeRequest();
+            onRequestSuccess(retries, retryStrategy);
+            future.completed(response);
+        }
+
+        private void onFailure(Exception ex, ResponseMessage response) {
+            finishContent();
+            closeResponseSilently(response);
+
+            boolean retry = false;
+            if (ex instanceof ServiceException) {
+                logException("[Server]Unable to execute HTTP request: ", ex);
+                retry = shouldRetry(ex, request, response, retries, retryStrategy);
+            } else if (ex instanceof ClientException) {
+                logException("[Client]Unable to execute HTTP request: ", ex);
+                retry = shouldRetry(ex, request, response, retries, retryStrategy);
+            } else {
+                logException("[Unknown]Unable to execute HTTP request: ", ex);
+                ex = new ClientException(COMMON_RESOURCE_MANAGER.getFormattedString(
+                        "ConnectionError", ex.getMessage()), ex);
+            }
+
+            long delay = retry ? retryStrategy.getPauseDelay(retries + 1, previousDelay) : 0;
+            if (!retry || !hasTimeForRetry(context, delay) || !acquireRetryBudget()) {
+                fail(ex);
+                return;
+            }
+
+            retries++;
+            previousDelay = delay;
+            getLog().debug("An retriable error request will be retried after " + delay
+                    + "(ms) with attempt times: " + retries);
+            retryMetrics.recordRetry(delay);
+            try {
+                // The attempt may wait for a limiter permit, so it runs on a callback thread, not the timer.
+                retryScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatch(new Runnable() {
+                            @Override
+                            public void run() {
+                                attempt();
+                            }
+                        });
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(ex);
+            }
+        }
+
+        /* Stops the writer of the current attempt, before the request content is reset or closed. */
+        private void finishContent() {
+            AsyncRequestProducer producer = currentProducer;
+            if (producer != null) {
+                producer.finishContent();
+            }
+        }
+
+        private void fail(Exception ex) {
+            closeRequest();
+            future.failed(ex);
+        }
+
+        private void closeRequest() {
+            try {
+                request.close();
+            } catch (IOException ex) {
+                logException("Unexpected io exception when trying to close http request: ", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.DnsResolver;
+
+/**
+ * DNS resolver that caches all addresses of a host and spreads new
+ * connections across them.
+ *
+ * <p>Each call to {@link #resolve(String)} returns a single address, picked
+ * round-robin among the addresses that have not failed recently, so the
+ * connection pool opens its connections against every A record of the
+ * endpoint. Addresses reported through {@link #markFailed(InetAddress)} are
+ * skipped for the eviction period; if every address of a host has failed,
+ * all of them are used again. The remaining addresses of a host are
+ * available to {@link HappyEyeballsSocketFactory} as fallbacks.</p>
+ *
+ * <p>Entries are cached for the configured TTL, capped by the JVM's
+ * {@code networkaddress.cache.ttl} security property when that is set, since
+ * the record TTL itself is not exposed by {@link InetAddress}.</p>
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+    public static final long DEFAULT_EVICTION_PERIOD = 30 * 1000;
+
+    private final long ttl;
+    private final long evictionPeriod;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+    private final ConcurrentMap<InetAddress, Long> failedAddresses = new ConcurrentHashMap<InetAddress, Long>();
+
+    /**
+     * @param ttl milliseconds the addresses of a host are cached.
+     */
+    public CachingDnsResolver(long ttl) {
+        this(ttl, DEFAULT_EVICTION_PERIOD);
+    }
+
+    /**
+     * @param ttl milliseconds the addresses of a host are cached.
+     * @param evictionPeriod milliseconds an address that failed to connect is skipped.
+     */
+    public CachingDnsResolver(long ttl, long evictionPeriod) {
+        this.ttl = Math.min(ttl, getJvmCacheTtl());
+        this.evictionPeriod = evictionPeriod;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        List<InetAddress> addresses = getAddresses(host, true);
+        return new InetAddress[] { addresses.get(0) };
+    }
+
+    /**
+     * All usable addresses of the host, starting with the next one in
+     * round-robin order and followed by the other healthy addresses. Unlike
+     * {@link #resolve(String)}, this does not move the round-robin on, so
+     * building the fallbacks of a connect does not skip addresses.
+     */
+    public List<InetAddress> getAddresses(String host) throws UnknownHostException {
+        return getAddresses(host, false);
+    }
+
+    private List<InetAddress> getAddresses(String host, boolean advance) throws UnknownHostException {
+        Entry entry = getEntry(host);
+        InetAddress[] all = entry.addresses;
+
+        long now = System.currentTimeMillis();
+        List<InetAddress> healthy = new ArrayList<InetAddress>(all.length);
+        int next = advance ? entry.next.getAndIncrement() : entry.next.get();
+        int start = (next & Integer.MAX_VALUE) % all.length;
+        for (int i = 0; i < all.length; i++) {
+            InetAddress address = all[(start + i) % all.length];
+            Long failedUntil = failedAddresses.get(address);
+            if (failedUntil == null || failedUntil < now) {
+                healthy.add(address);
+            }
+        }
+
+        if (healthy.isEmpty()) {
+            for (int i = 0; i < all.length; i++) {
+                healthy.add(all[(start + i) % all.length]);
+            }
+        }
+        return healthy;
+    }
+
+    /**
+     * Skips the address for the eviction period.
+     */
+    public void markFailed(InetAddress address) {
+        getLog().debug("Evicting address " + address + " after a failed connect");
+        failedAddresses.put(address, System.currentTimeMillis() + evictionPeriod);
+    }
+
+    /**
+     * Makes the address usable again after a successful connect.
+     */
+    public void markSucceeded(InetAddress address) {
+        if (!failedAddresses.isEmpty()) {
+            failedAddresses.remove(address);
+        }
+    }
+
+    private Entry getEntry(String host) throws UnknownHostException {
+        Entry entry = cache.get(host);
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            return entry;
+        }
+
+        InetAddress[] addresses = lookup(host);
+        Entry newEntry = new Entry(addresses, System.currentTimeMillis() + ttl, 
+                entry != null ? entry.next : new AtomicInteger());
+        cache.put(host, newEntry);
+        return newEntry;
+    }
+
+    InetAddress[] lookup(String host) throws UnknownHostException {
+        return InetAddress.getAllByName(host);
+    }
+
+    private static long getJvmCacheTtl() {
+        try {
+            String value = Security.getProperty("networkaddress.cache.ttl");
+            if (value != null) {
+                long seconds = Long.parseLong(value.trim());
+                if (seconds >= 0) {
+                    return seconds * 1000;
+                }
+            }
+        } catch (RuntimeException e) {
+            /* fall through to no cap. */
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static class Entry {
+        final InetAddress[] addresses;
+        final long expiresAt;
+        final AtomicInteger next;
+
+        Entry(InetAddress[] addresses, long expiresAt, AtomicInteger next) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Lets one thread cancel the requests that other threads send on behalf of
+ * the same operation.
+ *
+ * <p>Each request binds itself to the token for the thread that sends it, so
+ * cancelling aborts the requests in flight, including responses still being
+ * read, and the requests sent afterwards fail before they reach the wire. A
+ * token created with a parent is cancelled along with it. A cancelled token
+ * stays cancelled.</p>
+ */
+public class CancellationToken {
+
+    private final CancellationToken parent;
+    private final Runnable parentListener;
+
+    private final List<Runnable> listeners = new LinkedList<Runnable>();
+    /* The last request sent by each thread; a thread sends one at a time. */
+    private final Map<Thread, HttpRequestBase> requests = new WeakHashMap<Thread, HttpRequestBase>();
+
+    private volatile boolean cancelled = false;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    /**
+     * @param parent token whose cancellation also cancels this one, or null.
+     */
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+        this.parentListener = new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        };
+        if (parent != null) {
+            parent.addListener(parentListener);
+        }
+    }
+
+    /**
+     * Cancels the token, aborts the bound requests and runs the listeners.
+     * Does nothing if the token is already cancelled.
+     */
+    public void cancel() {
+        List<HttpRequestBase> toAbort;
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toAbort = new ArrayList<HttpRequestBase>(requests.values());
+            toRun = new ArrayList<Runnable>(listeners);
+            requests.clear();
+            listeners.clear();
+            notifyAll();
+        }
+
+        for (HttpRequestBase request : toAbort) {
+            request.abort();
+        }
+        for (Runnable listener : toRun) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                getLog().warn("An exception was thrown by a cancellation listener.", e);
+            }
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Runs the listener when the token is cancelled, at once if it already is.
+     */
+    public void addListener(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public synchronized void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops following the parent token, so a short-lived token does not stay
+     * reachable from a long-lived parent.
+     */
+    public void detach() {
+        if (parent != null) {
+            parent.removeListener(parentListener);
+        }
+    }
+
+    /**
+     * Waits until the token is cancelled or the timeout elapses.
+     *
+     * @param timeout timeout in milliseconds.
+     * @return true if the token has been cancelled.
+     */
+    public synchronized boolean await(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (!cancelled && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Binds the request sent by the calling thread, replacing the one it sent
+     * before. The request is aborted at once if the token is cancelled.
+     */
+    void bind(HttpRequestBase request) {
+        synchronized (this) {
+            if (!cancelled) {
+                requests.put(Thread.currentThread(), request);
+                return;
+            }
+        }
+        request.abort();
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Plain socket factory whose sockets are backed by a {@link SocketChannel},
+ * which lets {@link DirectWriteRequestExecutor} write file content to them
+ * with sendfile.
+ */
+class ChannelSocketFactory extends PlainConnectionSocketFactory {
+
+    public static final ChannelSocketFactory INSTANCE = new ChannelSocketFactory();
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return SocketChannel.open().socket();
+    }
+}
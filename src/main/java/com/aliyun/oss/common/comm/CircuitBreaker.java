@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+
+/**
+ * Per endpoint host circuit breaker.
+ *
+ * <p>A closed circuit records the outcome of the last {@code windowSize}
+ * requests and opens once at least {@code windowSize} have completed and the
+ * failure rate reaches the threshold. While open, requests fail at once with
+ * {@link ClientErrorCode#CIRCUIT_BREAKER_OPEN}. After {@code openDuration} the
+ * circuit becomes half-open and lets a single probe through: its success
+ * closes the circuit and its failure opens it again.</p>
+ *
+ * <p>Network errors and 5xx responses count as failures.</p>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Notified on every state transition of a circuit. Called on the thread
+     * of the request that caused the transition, so it must not block.
+     */
+    public interface StateListener {
+        void onStateChange(String host, State from, State to);
+    }
+
+    private final int failureRateThreshold;
+    private final int windowSize;
+    private final long openDuration;
+    private final StateListener listener;
+    private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+    /**
+     * @param failureRateThreshold failure rate in percent, between 1 and 100, that opens the circuit.
+     * @param windowSize number of recent requests the failure rate is computed on.
+     * @param openDuration milliseconds the circuit stays open before a probe is let through.
+     * @param listener state listener, can be null.
+     */
+    public CircuitBreaker(int failureRateThreshold, int windowSize, long openDuration, StateListener listener) {
+        if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+            throw new IllegalArgumentException("Failure rate threshold must be in [1, 100]: " + failureRateThreshold);
+        }
+        if (windowSize < 1 || openDuration < 0) {
+            throw new IllegalArgumentException("Invalid window size " + windowSize 
+                    + " or open duration " + openDuration);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.openDuration = openDuration;
+        this.listener = listener;
+    }
+
+    /**
+     * Lets a request to the given host through.
+     * @throws ClientException with {@link ClientErrorCode#CIRCUIT_BREAKER_OPEN} if the circuit is open.
+     */
+    public Permit acquire(String host) throws ClientException {
+        Circuit circuit = getOrCreateCircuit(host);
+        Permit permit = circuit.tryAcquire();
+        if (permit == null) {
+            throw new ClientException("The circuit breaker for " + host + " is open, failing fast.", 
+                    ClientErrorCode.CIRCUIT_BREAKER_OPEN, "Unknown");
+        }
+        return permit;
+    }
+
+    public State getState(String host) {
+        Circuit circuit = circuits.get(host);
+        return circuit != null ? circuit.getState() : State.CLOSED;
+    }
+
+    private Circuit getOrCreateCircuit(String host) {
+        Circuit circuit = circuits.get(host);
+        if (circuit == null) {
+            Circuit newCircuit = new Circuit(host);
+            circuit = circuits.putIfAbsent(host, newCircuit);
+            if (circuit == null) {
+                circuit = newCircuit;
+            }
+        }
+        return circuit;
+    }
+
+    private void fireStateChange(String host, State from, State to) {
+        getLog().warn("Circuit breaker for " + host + " changed from " + from + " to " + to);
+        if (listener != null) {
+            try {
+                listener.onStateChange(host, from, to);
+            } catch (RuntimeException e) {
+                getLog().warn("Circuit breaker state listener threw an exception.", e);
+            }
+        }
+    }
+
+    /**
+     * Permission for one request. Exactly one of {@link #onSuccess()},
+     * {@link #onFailure()} and {@link #release()} should be called, later
+     * calls are ignored.
+     */
+    public static class Permit {
+        private final Circuit circuit;
+        private final boolean probe;
+        private boolean released = false;
+
+        private Permit(Circuit circuit, boolean probe) {
+            this.circuit = circuit;
+            this.probe = probe;
+        }
+
+        public void onSuccess() {
+            if (!released) {
+                released = true;
+                circuit.record(false, probe);
+            }
+        }
+
+        public void onFailure() {
+            if (!released) {
+                released = true;
+                circuit.record(true, probe);
+            }
+        }
+
+        /**
+         * The request ended without telling anything about the endpoint's health.
+         */
+        public void release() {
+            if (!released) {
+                released = true;
+                circuit.releaseProbe(probe);
+            }
+        }
+    }
+
+    private class Circuit {
+        private final String host;
+        private final boolean[] outcomes = new boolean[windowSize];
+
+        private State state = State.CLOSED;
+        private int next = 0;
+        private int count = 0;
+        private int failures = 0;
+        private long openedAt;
+        private boolean probing = false;
+
+        Circuit(String host) {
+            this.host = host;
+        }
+
+        Permit tryAcquire() {
+            State from;
+            synchronized (this) {
+                from = state;
+                if (state == State.OPEN) {
+                    if (System.currentTimeMillis() - openedAt < openDuration) {
+                        return null;
+                    }
+                    state = State.HALF_OPEN;
+                }
+                if (state == State.CLOSED) {
+                    return new Permit(this, false);
+                }
+                if (probing) {
+                    return null;
+                }
+                probing = true;
+            }
+
+            if (from != State.HALF_OPEN) {
+                fireStateChange(host, from, State.HALF_OPEN);
+            }
+            return new Permit(this, true);
+        }
+
+        void record(boolean failure, boolean probe) {
+            State from;
+            State to;
+            synchronized (this) {
+                from = state;
+                if (probe) {
+                    probing = false;
+                    if (state != State.HALF_OPEN) {
+                        return;
+                    }
+                    if (failure) {
+                        open();
+                    } else {
+                        close();
+                    }
+                } else {
+                    if (state != State.CLOSED) {
+                        return;
+                    }
+                    if (count == windowSize && outcomes[next]) {
+                        failures--;
+                    }
+                    outcomes[next] = failure;
+                    next = (next + 1) % windowSize;
+                    count = Math.min(count + 1, windowSize);
+                    if (failure) {
+                        failures++;
+                    }
+                    if (count == windowSize && failures * 100 >= failureRateThreshold * windowSize) {
+                        open();
+                    }
+                }
+                to = state;
+            }
+
+            if (from != to) {
+                fireStateChange(host, from, to);
+            }
+        }
+
+        synchronized void releaseProbe(boolean probe) {
+            if (probe) {
+                probing = false;
+            }
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        private void close() {
+            state = State.CLOSED;
+            next = 0;
+            count = 0;
+            failures = 0;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+
+/**
+ * Adaptive limit on in-flight requests per endpoint host, using additive
+ * increase and multiplicative decrease (AIMD).
+ *
+ * <p>The limit grows by one on each success while at least half of it is in
+ * use, and shrinks by {@link #BACKOFF_RATIO} whenever the service signals
+ * overload (503 or a timeout). While the smoothed round trip time is more than
+ * {@link #RTT_TOLERANCE} times the lowest one seen, successes stop growing the
+ * limit, since the extra latency means requests are already queuing.</p>
+ *
+ * <p>Callers over the limit wait up to the queue timeout for a permit and
+ * then fail with {@link ClientErrorCode#CONCURRENCY_LIMIT_EXCEEDED}.</p>
+ */
+public class ConcurrencyLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int MIN_LIMIT = 1;
+    public static final double BACKOFF_RATIO = 0.9;
+    public static final double RTT_TOLERANCE = 2.0;
+
+    /* Weight of the latest sample in the smoothed round trip time. */
+    private static final double RTT_SMOOTHING = 0.1;
+    /* The lowest round trip time is re-learned after this many samples. */
+    private static final int RTT_RESET_SAMPLES = 1000;
+
+    private final int initialLimit;
+    private final int maxLimit;
+    private final ConcurrentMap<String, Limit> limits = new ConcurrentHashMap<String, Limit>();
+
+    public ConcurrencyLimiter(int maxLimit) {
+        this(Math.min(DEFAULT_INITIAL_LIMIT, maxLimit), maxLimit);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int maxLimit) {
+        if (initialLimit < MIN_LIMIT || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid limits, initial: " + initialLimit + ", max: " + maxLimit);
+        }
+        this.initialLimit = initialLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Waits up to the given time for a permit to send a request to the given key.
+     * @param key endpoint host the request is sent to.
+     * @param timeout milliseconds to wait, 0 to fail at once.
+     * @throws ClientException with {@link ClientErrorCode#CONCURRENCY_LIMIT_EXCEEDED} 
+     *          if no permit is available in time.
+     */
+    public Permit acquire(String key, long timeout) throws ClientException {
+        Limit limit = getOrCreateLimit(key);
+        try {
+            if (!limit.acquire(timeout)) {
+                throw new ClientException("Too many requests in flight to " + key + ", the current limit is " 
+                        + limit.getLimit() + ".", ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED, "Unknown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException(e.getMessage(), e);
+        }
+        return new Permit(limit);
+    }
+
+    /**
+     * Current limit for the given key.
+     */
+    public int getLimit(String key) {
+        return getOrCreateLimit(key).getLimit();
+    }
+
+    /**
+     * Number of requests in flight to the given key.
+     */
+    public int getInflight(String key) {
+        return getOrCreateLimit(key).getInflight();
+    }
+
+    private Limit getOrCreateLimit(String key) {
+        Limit limit = limits.get(key);
+        if (limit == null) {
+            Limit newLimit = new Limit(initialLimit, maxLimit);
+            limit = limits.putIfAbsent(key, newLimit);
+            if (limit == null) {
+                limit = newLimit;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * A permit for one request. Exactly one of {@link #onSuccess()},
+     * {@link #onDropped()} and {@link #release()} should be called, later
+     * calls are ignored.
+     */
+    public static class Permit {
+        private final Limit limit;
+        private final long startTime = System.currentTimeMillis();
+        private boolean released = false;
+
+        private Permit(Limit limit) {
+            this.limit = limit;
+        }
+
+        /**
+         * The request succeeded; its round trip time feeds the limit.
+         */
+        public void onSuccess() {
+            if (!released) {
+                released = true;
+                limit.release(System.currentTimeMillis() - startTime, false);
+            }
+        }
+
+        /**
+         * The service signalled overload; the limit backs off.
+         */
+        public void onDropped() {
+            if (!released) {
+                released = true;
+                limit.release(-1, true);
+            }
+        }
+
+        /**
+         * The request ended without a usable signal.
+         */
+        public void release() {
+            if (!released) {
+                released = true;
+                limit.release(-1, false);
+            }
+        }
+    }
+
+    private static class Limit {
+        private final int maxLimit;
+
+        private double limit;
+        private int inflight = 0;
+
+        private double smoothedRtt = -1;
+        private long minRtt = Long.MAX_VALUE;
+        private int samples = 0;
+
+        Limit(int initialLimit, int maxLimit) {
+            this.limit = initialLimit;
+            this.maxLimit = maxLimit;
+        }
+
+        synchronized boolean acquire(long timeout) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeout;
+            while (inflight >= (int) limit) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            inflight++;
+            return true;
+        }
+
+        synchronized void release(long rtt, boolean dropped) {
+            inflight--;
+
+            if (dropped) {
+                limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+            } else if (rtt >= 0) {
+                sampleRtt(rtt);
+                boolean queuing = smoothedRtt > minRtt * RTT_TOLERANCE;
+                if (!queuing && inflight * 2 >= limit) {
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+            }
+
+            notifyAll();
+        }
+
+        private void sampleRtt(long rtt) {
+            if (++samples >= RTT_RESET_SAMPLES) {
+                samples = 0;
+                minRtt = (long) smoothedRtt;
+            }
+            smoothedRtt = smoothedRtt < 0 ? rtt : smoothedRtt + RTT_SMOOTHING * (rtt - smoothedRtt);
+            minRtt = Math.max(1, Math.min(minRtt, rtt));
+        }
+
+        synchronized int getLimit() {
+            return (int) limit;
+        }
+
+        synchronized int getInflight() {
+            return inflight;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.model.WarmUpResult;
+
+/**
+ * Opens pooled connections ahead of traffic. The connections of one warm-up
+ * are leased in parallel, so each lease yields a distinct connection: idle
+ * connections already in the pool are reused, the rest are
+ * connected (including the TLS handshake), and all of them are then released
+ * back to the pool.
+ */
+class ConnectionWarmer {
+
+    /* Warm-up threads shared by all clients; larger warm-ups queue for them. */
+    static final int MAX_WARM_UP_THREADS = 8;
+
+    private static final ThreadPoolExecutor warmUpExecutor = new ThreadPoolExecutor(MAX_WARM_UP_THREADS, 
+            MAX_WARM_UP_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+                
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "oss-warmup-" + threadNumber.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    static {
+        warmUpExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private final HttpClientConnectionManager connectionManager;
+    private final ClientConfiguration config;
+    private final HttpHost proxy;
+
+    ConnectionWarmer(HttpClientConnectionManager connectionManager, ClientConfiguration config, HttpHost proxy) {
+        this.connectionManager = connectionManager;
+        this.config = config;
+        this.proxy = proxy;
+    }
+
+    WarmUpResult warmUp(URI endpoint, int connections) {
+        long start = System.currentTimeMillis();
+        String host = endpoint.getHost();
+        boolean secure = Protocol.HTTPS.toString().equalsIgnoreCase(endpoint.getScheme());
+        int port = endpoint.getPort() > 0 ? endpoint.getPort() : (secure ? 443 : 80);
+        HttpHost target = new HttpHost(host, port, endpoint.getScheme());
+
+        if (proxy != null && secure) {
+            getLog().warn("Connections to " + host + " go through a tunnel of the proxy and are not warmed up");
+            return new WarmUpResult(host, connections, 0, 0, System.currentTimeMillis() - start);
+        }
+        final HttpRoute route = proxy != null ? new HttpRoute(target, null, proxy, secure) 
+                : new HttpRoute(target, null, secure);
+
+        int count = Math.min(connections, config.getMaxConnections());
+        List<Future<Lease>> futures = new ArrayList<Future<Lease>>(count);
+        for (int i = 0; i < count; i++) {
+            futures.add(warmUpExecutor.submit(new Callable<Lease>() {
+                @Override
+                public Lease call() throws Exception {
+                    return lease(route);
+                }
+            }));
+        }
+
+        // Leases are bounded by the connection timeouts, so wait for all of them
+        // even when interrupted; an abandoned lease would never return to the pool.
+        List<Lease> leases = new ArrayList<Lease>(count);
+        boolean interrupted = false;
+        for (Future<Lease> future : futures) {
+            while (true) {
+                try {
+                    leases.add(future.get());
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    getLog().debug("Failed to warm up a connection to " + host + ": " + e.getCause());
+                    break;
+                }
+            }
+        }
+        for (Lease lease : leases) {
+            connectionManager.releaseConnection(lease.connection, null, 0, TimeUnit.MILLISECONDS);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        int opened = 0;
+        for (Lease lease : leases) {
+            if (lease.opened) {
+                opened++;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        getLog().debug("Warmed up " + leases.size() + "/" + connections + " connections to " + host 
+                + " in " + elapsed + "ms");
+        return new WarmUpResult(host, connections, leases.size(), opened, elapsed);
+    }
+
+    private Lease lease(HttpRoute route) throws Exception {
+        long leaseTimeout = config.getConnectionRequestTimeout() > 0 ? config.getConnectionRequestTimeout()
+                : config.getConnectionTimeout();
+        ConnectionRequest request = connectionManager.requestConnection(route, null);
+        HttpClientConnection connection = request.get(leaseTimeout, TimeUnit.MILLISECONDS);
+
+        // Idle connections have already been validated by the pool when leased.
+        boolean leased = false;
+        try {
+            boolean opened = false;
+            if (!connection.isOpen()) {
+                HttpClientContext context = HttpClientContext.create();
+                connectionManager.connect(connection, route, config.getConnectionTimeout(), context);
+                connectionManager.routeComplete(connection, route, context);
+                opened = true;
+            }
+            leased = true;
+            return new Lease(connection, opened);
+        } finally {
+            if (!leased) {
+                connection.close();
+                connectionManager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static class Lease {
+        final HttpClientConnection connection;
+        final boolean opened;
+
+        Lease(HttpClientConnection connection, boolean opened) {
+            this.connection = connection;
+            this.opened = opened;
+        }
+    }
+}
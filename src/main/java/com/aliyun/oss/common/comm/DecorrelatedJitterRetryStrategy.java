@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.Random;
+
+/**
+ * Retry strategy that delegates the retry decision and uses decorrelated
+ * jitter for pauses: each pause is drawn uniformly from [base, previous * 3]
+ * and capped, so concurrent callers spread their retries instead of
+ * hitting the service in lockstep.
+ */
+public class DecorrelatedJitterRetryStrategy extends RetryStrategy {
+
+    public static final long DEFAULT_BASE_DELAY = 300; // milliseconds.
+    public static final long DEFAULT_MAX_DELAY = 10 * 1000; // milliseconds.
+
+    private static final Random random = new Random();
+
+    private final RetryStrategy delegate;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    public DecorrelatedJitterRetryStrategy(RetryStrategy delegate) {
+        this(delegate, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY);
+    }
+
+    public DecorrelatedJitterRetryStrategy(RetryStrategy delegate, long baseDelay, long maxDelay) {
+        if (baseDelay <= 0 || maxDelay < baseDelay) {
+            throw new IllegalArgumentException("Invalid delays, base: " + baseDelay + ", max: " + maxDelay);
+        }
+        this.delegate = delegate;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public boolean shouldRetry(Exception ex, RequestMessage request, ResponseMessage response, int retries) {
+        return delegate.shouldRetry(ex, request, response, retries);
+    }
+
+    @Override
+    public long getPauseDelay(int retries) {
+        return getPauseDelay(retries, 0);
+    }
+
+    @Override
+    public long getPauseDelay(int retries, long previousDelay) {
+        long upper = Math.min(maxDelay, Math.max(previousDelay, baseDelay) * 3);
+        long delay = baseDelay + (long) (random.nextDouble() * (upper - baseDelay + 1));
+        return Math.min(delay, maxDelay);
+    }
+
+    @Override
+    public void onRequestSuccess(int retries) {
+        delegate.onRequestSuccess(retries);
+    }
+}
@@ -22,6 +22,7 @@ package com.aliyun.oss.common.comm;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
@@ -29,6 +30,7 @@ import javax.net.ssl.SSLContext;
 
 import org.apache.http.Header;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.NTCredentials;
@@ -57,24 +59,35 @@ import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSSErrorCode;
 import com.aliyun.oss.OSSException;
 import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.HashedWheelTimer;
 import com.aliyun.oss.common.utils.HttpHeaders;
 import com.aliyun.oss.common.utils.HttpUtil;
 import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.WarmUpResult;
 
 /**
  * Default implementation of {@link ServiceClient}.
  */
 public class DefaultServiceClient extends ServiceClient {
     protected static HttpRequestFactory httpRequestFactory = new HttpRequestFactory();
+    
+    private static final long TIMER_TICK_DURATION = 10;
+    private static final int TIMER_TICKS_PER_WHEEL = 512;
+    
+    /* Shared by all clients for request deadlines and hedge delays. */
+    protected static final HashedWheelTimer timer = new HashedWheelTimer("oss-request-timer",
+            TIMER_TICK_DURATION, TIMER_TICKS_PER_WHEEL);
 
     protected CloseableHttpClient httpClient;
     protected HttpClientConnectionManager connectionManager;
     protected RequestConfig requestConfig;
     protected CredentialsProvider credentialsProvider;
     protected HttpHost proxyHttpHost;
+    protected RetryStrategy defaultRetryStrategy;
 
     public DefaultServiceClient(ClientConfiguration config) {
         super(config);
+        this.defaultRetryStrategy = withBackoff(new DefaultRetryStrategy());
         this.connectionManager = createHttpClientConnectionManager();
         this.httpClient = createHttpClient(this.connectionManager);
         RequestConfig.Builder requestConfigBuilder = RequestConfig.custom();
@@ -106,11 +119,11 @@ public class DefaultServiceClient extends ServiceClient {
             throws IOException {        
         HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
         HttpClientContext httpContext = HttpClientContext.create();
-        httpContext.setRequestConfig(this.requestConfig);
+        httpContext.setRequestConfig(createAttemptRequestConfig(this.requestConfig, context));
 
         CloseableHttpResponse httpResponse = null;
         try {
-            httpResponse = httpClient.execute(httpRequest, httpContext);
+            httpResponse = executeHttpRequest(request, httpRequest, httpContext, context);
         } catch (IOException ex) {
             httpRequest.abort();
             throw ExceptionFactory.createNetworkException(ex);
@@ -119,14 +132,60 @@ public class DefaultServiceClient extends ServiceClient {
         return buildResponse(request, httpResponse);
     }
     
+    /**
+     * Executes the HTTP request, hedging it when the context carries a
+     * {@link HedgingPolicy} and the request is a GET or HEAD without a body.
+     * The request is bound to the context's {@link CancellationToken}, if any.
+     */
+    protected CloseableHttpResponse executeHttpRequest(ServiceClient.Request request, HttpRequestBase httpRequest,
+            HttpClientContext httpContext, ExecutionContext context) throws IOException {
+        if (context.getCancellationToken() != null) {
+            context.getCancellationToken().bind(httpRequest);
+        }
+        
+        HedgingPolicy hedgingPolicy = context.getHedgingPolicy();
+        if (hedgingPolicy == null || !HedgedRequest.isHedgeable(request)) {
+            return httpClient.execute(httpRequest, httpContext);
+        }
+        
+        return new HedgedRequest(httpClient, httpRequestFactory, request, context, 
+                httpContext.getRequestConfig(), hedgingPolicy).execute(httpRequest, httpContext, timer);
+    }
+    
+    /**
+     * Shrinks the connect, socket and connection request timeouts to the time
+     * left before the context deadline, so one attempt cannot outlive the budget.
+     */
+    static RequestConfig createAttemptRequestConfig(RequestConfig requestConfig, ExecutionContext context)
+            throws ClientException {
+        if (!context.hasDeadline()) {
+            return requestConfig;
+        }
+        
+        checkDeadline(context);
+        int remaining = (int) Math.min(context.getRemainingTime(), Integer.MAX_VALUE);
+        return RequestConfig.copy(requestConfig)
+                .setConnectTimeout(capTimeout(requestConfig.getConnectTimeout(), remaining))
+                .setSocketTimeout(capTimeout(requestConfig.getSocketTimeout(), remaining))
+                .setConnectionRequestTimeout(capTimeout(requestConfig.getConnectionRequestTimeout(), remaining))
+                .build();
+    }
+    
+    private static int capTimeout(int timeout, int remaining) {
+        // Non-positive timeouts mean infinite or system default.
+        return timeout > 0 ? Math.min(timeout, remaining) : remaining;
+    }
+    
     protected static ResponseMessage buildResponse(ServiceClient.Request request, 
-            CloseableHttpResponse httpResponse) throws IOException {
+            HttpResponse httpResponse) throws IOException {
         
         assert(httpResponse != null);
         
         ResponseMessage response = new ResponseMessage(request);
         response.setUrl(request.getUri());
-        response.setHttpResponse(httpResponse);
+        if (httpResponse instanceof CloseableHttpResponse) {
+            response.setHttpResponse((CloseableHttpResponse) httpResponse);
+        }
         
         if (httpResponse.getStatusLine() != null) {
             response.setStatusCode(httpResponse.getStatusLine().getStatusCode());
@@ -159,7 +218,7 @@ public class DefaultServiceClient extends ServiceClient {
         response.setContent(new ByteArrayInputStream(contentBytes));
     }
     
-    private static class DefaultRetryStrategy extends RetryStrategy {
+    static class DefaultRetryStrategy extends RetryStrategy {
         
         @Override
         public boolean shouldRetry(Exception ex, RequestMessage request, ResponseMessage response, int retries) {
@@ -201,21 +260,21 @@ public class DefaultServiceClient extends ServiceClient {
     
     @Override
     protected RetryStrategy getDefaultRetryStrategy() {
-        return new DefaultRetryStrategy();
+        return defaultRetryStrategy;
     }
     
     protected CloseableHttpClient createHttpClient(HttpClientConnectionManager connectionManager) {
         return HttpClients.custom().setConnectionManager(connectionManager)
+                .setRequestExecutor(new DirectWriteRequestExecutor())
                 .setUserAgent(this.config.getUserAgent())
                 .disableContentCompression()
                 .disableAutomaticRetries()
                 .build();
     }
     
-    protected HttpClientConnectionManager createHttpClientConnectionManager() {
-        SSLContext sslContext = null;
+    protected static SSLContext createSSLContext() {
         try {
-            sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() { 
+            return new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() { 
                 
                 @Override
                 public boolean isTrusted(X509Certificate[] chain, String authType)
@@ -224,18 +283,33 @@ public class DefaultServiceClient extends ServiceClient {
                 }
                 
             }).build();
-            
         } catch (Exception e) {
             throw new ClientException(e.getMessage());
         }
-        
+    }
+    
+    protected HttpClientConnectionManager createHttpClientConnectionManager() {
+        SSLContext sslContext = createSSLContext();
         SSLConnectionSocketFactory sslSocketFactory = new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE);
+        ConnectionSocketFactory plainSocketFactory = config.isZeroCopyEnabled() ? ChannelSocketFactory.INSTANCE
+                : PlainConnectionSocketFactory.getSocketFactory();
+        ConnectionSocketFactory secureSocketFactory = sslSocketFactory;
+        CachingDnsResolver dnsResolver = null;
+        if (config.isDnsCacheEnabled()) {
+            dnsResolver = new CachingDnsResolver(config.getDnsCacheTTL());
+            plainSocketFactory = new HappyEyeballsSocketFactory(plainSocketFactory, dnsResolver, 
+                    config.getConnectFallbackDelay());
+            secureSocketFactory = new HappyEyeballsSocketFactory(secureSocketFactory, dnsResolver, 
+                    config.getConnectFallbackDelay());
+        }
         Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
-                .register(Protocol.HTTP.toString(), PlainConnectionSocketFactory.getSocketFactory())
-                .register(Protocol.HTTPS.toString(), sslSocketFactory)
+                .register(Protocol.HTTP.toString(), plainSocketFactory)
+                .register(Protocol.HTTPS.toString(), secureSocketFactory)
                 .build();
         
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        PoolingHttpClientConnectionManager connectionManager = dnsResolver != null
+                ? new PoolingHttpClientConnectionManager(socketFactoryRegistry, dnsResolver)
+                : new PoolingHttpClientConnectionManager(socketFactoryRegistry);
         connectionManager.setDefaultMaxPerRoute(config.getMaxConnections());
         connectionManager.setMaxTotal(config.getMaxConnections());
         connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
@@ -248,6 +322,12 @@ public class DefaultServiceClient extends ServiceClient {
         return connectionManager;
     }
     
+    @Override
+    public WarmUpResult warmUp(URI endpoint, int connections) {
+        return new ConnectionWarmer(this.connectionManager, this.config, this.proxyHttpHost).warmUp(endpoint, 
+                connections);
+    }
+    
     protected HttpClientContext createHttpContext() {
         HttpClientContext httpContext = HttpClientContext.create();
         httpContext.setRequestConfig(this.requestConfig);
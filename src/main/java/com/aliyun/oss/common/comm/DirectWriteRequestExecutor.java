@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+import javax.net.ssl.SSLSocket;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import com.aliyun.oss.common.comm.io.ChunkedInputStreamEntity;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+
+/**
+ * Request executor that writes some request bodies past the session buffer of
+ * the connection:
+ * <ul>
+ * <li>a {@link FileRegionEntity} is sent straight from the file to the socket
+ * channel of a plain connection, so the body is never copied through the heap;</li>
+ * <li>a {@link ChunkedInputStreamEntity} frames its own chunks and writes each
+ * of them to the socket with a single call.</li>
+ * </ul>
+ * Other requests, and file regions on connections without a socket channel
+ * such as TLS ones, are sent as usual.
+ */
+class DirectWriteRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity() : null;
+        if (entity instanceof FileRegionEntity) {
+            SocketChannel channel = getSocketChannel(conn);
+            if (channel != null) {
+                sendRequestHeader(request, conn, context);
+                ((FileRegionEntity) entity).transferTo(channel);
+                context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.TRUE);
+                return null;
+            }
+        } else if (entity instanceof ChunkedInputStreamEntity) {
+            Socket socket = getSocket(conn);
+            if (socket != null) {
+                sendRequestHeader(request, conn, context);
+                OutputStream out = socket.getOutputStream();
+                ((ChunkedInputStreamEntity) entity).writeChunkedTo(out);
+                out.flush();
+                context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.TRUE);
+                return null;
+            }
+        }
+        return super.doSendRequest(request, conn, context);
+    }
+
+    private static void sendRequestHeader(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+        context.setAttribute(HttpCoreContext.HTTP_CONNECTION, conn);
+        context.setAttribute(HttpCoreContext.HTTP_REQ_SENT, Boolean.FALSE);
+
+        conn.sendRequestHeader(request);
+        // The headers must reach the socket before the body bypasses the session buffer.
+        conn.flush();
+    }
+
+    private static Socket getSocket(HttpClientConnection conn) {
+        if (!(conn instanceof ManagedHttpClientConnection)) {
+            return null;
+        }
+        return ((ManagedHttpClientConnection) conn).getSocket();
+    }
+
+    private static SocketChannel getSocketChannel(HttpClientConnection conn) {
+        Socket socket = getSocket(conn);
+        if (socket == null || socket instanceof SSLSocket) {
+            return null;
+        }
+        SocketChannel channel = socket.getChannel();
+        return channel != null && channel.isBlocking() ? channel : null;
+    }
+}
@@ -47,6 +47,15 @@ public class ExecutionContext {
     
     private Credentials credentials;
     
+    /* Absolute time in milliseconds by which all attempts must finish, or -1 if unlimited. */
+    private long deadline = -1;
+    
+    /* Hedging policy for GET and HEAD requests, null if they are not hedged. */
+    private HedgingPolicy hedgingPolicy;
+    
+    /* Token that cancels the request from another thread, null if it cannot be cancelled. */
+    private CancellationToken cancellationToken;
+    
     public RetryStrategy getRetryStrategy() {
         return retryStrategy;
     }
@@ -111,4 +120,43 @@ public class ExecutionContext {
         this.credentials = credentials;
     }
 
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+    
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+    
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+    
+    public boolean isCancelled() {
+        return cancellationToken != null && cancellationToken.isCancelled();
+    }
+    
+    public boolean hasDeadline() {
+        return deadline > 0;
+    }
+    
+    /**
+     * Milliseconds left before the deadline, or {@link Long#MAX_VALUE} if there is none.
+     */
+    public long getRemainingTime() {
+        return hasDeadline() ? deadline - System.currentTimeMillis() : Long.MAX_VALUE;
+    }
+
 }
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Socket factory that races connects to the addresses of a host, in the
+ * spirit of happy eyeballs (RFC 8305): if the connect to the first address
+ * has not completed after the fallback delay, or fails, a connect to the
+ * next address starts while the first one is still pending, and the first
+ * connected socket wins. The race runs on the calling thread with
+ * non-blocking channels.
+ *
+ * <p>Addresses come from the {@link CachingDnsResolver}, which is told about
+ * failed and successful connects. TLS, when the delegate is layered, is
+ * negotiated on the winning socket.</p>
+ */
+public class HappyEyeballsSocketFactory implements LayeredConnectionSocketFactory {
+
+    public static final long DEFAULT_FALLBACK_DELAY = 250;
+
+    private final ConnectionSocketFactory delegate;
+    private final CachingDnsResolver resolver;
+    private final long fallbackDelay;
+
+    public HappyEyeballsSocketFactory(ConnectionSocketFactory delegate, CachingDnsResolver resolver, 
+            long fallbackDelay) {
+        this.delegate = delegate;
+        this.resolver = resolver;
+        this.fallbackDelay = fallbackDelay;
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context)
+            throws IOException {
+        if (!(delegate instanceof LayeredConnectionSocketFactory)) {
+            throw new UnsupportedOperationException("The delegate socket factory is not layered.");
+        }
+        return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(socket, target, port, context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+            InetSocketAddress localAddress, HttpContext context) throws IOException {
+        List<InetSocketAddress> candidates = getCandidates(host, remoteAddress);
+        if (candidates.size() == 1) {
+            try {
+                Socket connected = delegate.connectSocket(connectTimeout, socket, host, remoteAddress, 
+                        localAddress, context);
+                resolver.markSucceeded(remoteAddress.getAddress());
+                return connected;
+            } catch (IOException e) {
+                resolver.markFailed(remoteAddress.getAddress());
+                throw e;
+            }
+        }
+
+        Socket connected = race(candidates, localAddress, connectTimeout);
+        try {
+            connected.setSoTimeout(socket.getSoTimeout());
+            connected.setTcpNoDelay(socket.getTcpNoDelay());
+            connected.setKeepAlive(socket.getKeepAlive());
+            if (socket.getSoLinger() >= 0) {
+                connected.setSoLinger(true, socket.getSoLinger());
+            }
+            socket.close();
+
+            if (delegate instanceof LayeredConnectionSocketFactory) {
+                return createLayeredSocket(connected, host.getHostName(), remoteAddress.getPort(), context);
+            }
+            return connected;
+        } catch (IOException e) {
+            connected.close();
+            throw e;
+        }
+    }
+
+    private List<InetSocketAddress> getCandidates(HttpHost host, InetSocketAddress remoteAddress) {
+        List<InetSocketAddress> candidates = new ArrayList<InetSocketAddress>();
+        candidates.add(remoteAddress);
+        try {
+            for (InetAddress address : resolver.getAddresses(host.getHostName())) {
+                if (!address.equals(remoteAddress.getAddress())) {
+                    candidates.add(new InetSocketAddress(address, remoteAddress.getPort()));
+                }
+            }
+        } catch (UnknownHostException e) {
+            /* Connect to the given address only. */
+        }
+        return candidates;
+    }
+
+    private Socket race(List<InetSocketAddress> candidates, InetSocketAddress localAddress, int connectTimeout)
+            throws IOException {
+        long now = System.currentTimeMillis();
+        long deadline = connectTimeout > 0 ? now + connectTimeout : Long.MAX_VALUE;
+        long nextLaunch = now;
+        int next = 0;
+        int pending = 0;
+        IOException lastError = null;
+
+        Selector selector = Selector.open();
+        SocketChannel winner = null;
+        try {
+            while (winner == null) {
+                now = System.currentTimeMillis();
+                if (next < candidates.size() && (pending == 0 || now >= nextLaunch)) {
+                    InetSocketAddress address = candidates.get(next++);
+                    SocketChannel channel = SocketChannel.open();
+                    try {
+                        channel.configureBlocking(false);
+                        if (localAddress != null) {
+                            channel.socket().bind(localAddress);
+                        }
+                        if (channel.connect(address)) {
+                            winner = channel;
+                            resolver.markSucceeded(address.getAddress());
+                            break;
+                        }
+                        channel.register(selector, SelectionKey.OP_CONNECT, address);
+                        pending++;
+                    } catch (IOException e) {
+                        channel.close();
+                        resolver.markFailed(address.getAddress());
+                        lastError = e;
+                        continue;
+                    }
+                    nextLaunch = now + fallbackDelay;
+                }
+
+                if (pending == 0) {
+                    throw lastError != null ? lastError : new ConnectException("No address to connect to");
+                }
+                if (now >= deadline) {
+                    throw new SocketTimeoutException("connect timed out");
+                }
+
+                long wait = next < candidates.size() ? Math.min(nextLaunch, deadline) : deadline;
+                selector.select(Math.max(1, Math.min(wait - now, Integer.MAX_VALUE)));
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext() && winner == null) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    InetSocketAddress address = (InetSocketAddress) key.attachment();
+                    try {
+                        if (channel.finishConnect()) {
+                            key.cancel();
+                            winner = channel;
+                            resolver.markSucceeded(address.getAddress());
+                        }
+                    } catch (IOException e) {
+                        key.cancel();
+                        channel.close();
+                        pending--;
+                        resolver.markFailed(address.getAddress());
+                        lastError = e;
+                        // Start the next attempt right away.
+                        nextLaunch = 0;
+                    }
+                }
+            }
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.channel() != winner) {
+                    key.channel().close();
+                }
+            }
+            selector.close();
+        }
+
+        winner.configureBlocking(true);
+        return winner.socket();
+    }
+}
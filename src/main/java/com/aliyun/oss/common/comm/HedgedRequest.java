@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.CloseableHttpClient;
+
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.utils.HashedWheelTimer;
+
+/**
+ * One hedged attempt: the original request runs on the caller thread and,
+ * if it has no response headers after the hedge delay, a copy is sent from
+ * a hedge thread. The first response wins and the other request is aborted.
+ * When all hedge threads are busy, no hedge is sent.
+ */
+class HedgedRequest {
+
+    /* Hedge threads shared by all clients; a latency spike must not start a thread per request. */
+    static final int MAX_HEDGE_THREADS = 64;
+
+    private static final ThreadPoolExecutor hedgeExecutor = new ThreadPoolExecutor(0, MAX_HEDGE_THREADS, 
+            60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new ThreadFactory() {
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+                
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "oss-hedge-" + threadNumber.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    private final CloseableHttpClient httpClient;
+    private final HttpRequestFactory httpRequestFactory;
+    private final ServiceClient.Request request;
+    private final ExecutionContext context;
+    private final RequestConfig requestConfig;
+    private final HedgingPolicy policy;
+
+    /* Guarded by this. */
+    private boolean primaryDone = false;
+    private boolean hedgeLaunched = false;
+    private boolean hedgeDone = false;
+    /* Set once the caller has a result, after which a late hedge response is discarded. */
+    private boolean finished = false;
+    private HttpRequestBase hedgeRequest;
+    private CloseableHttpResponse hedgeResponse;
+    private long startTime;
+
+    HedgedRequest(CloseableHttpClient httpClient, HttpRequestFactory httpRequestFactory, 
+            ServiceClient.Request request, ExecutionContext context, RequestConfig requestConfig, 
+            HedgingPolicy policy) {
+        this.httpClient = httpClient;
+        this.httpRequestFactory = httpRequestFactory;
+        this.request = request;
+        this.context = context;
+        this.requestConfig = requestConfig;
+        this.policy = policy;
+    }
+
+    /**
+     * Whether the request can be hedged: only GET and HEAD without a body.
+     */
+    static boolean isHedgeable(ServiceClient.Request request) {
+        return request.getContent() == null && 
+                (request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD);
+    }
+
+    CloseableHttpResponse execute(final HttpRequestBase primary, HttpClientContext httpContext, 
+            HashedWheelTimer timer) throws IOException {
+        policy.onRequest();
+
+        synchronized (this) {
+            startTime = System.currentTimeMillis();
+        }
+        HashedWheelTimer.Timeout hedgeTimeout = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                launchHedge(primary);
+            }
+        }, policy.getHedgeDelay());
+
+        CloseableHttpResponse response = null;
+        IOException primaryError = null;
+        try {
+            response = httpClient.execute(primary, httpContext);
+        } catch (IOException e) {
+            primaryError = e;
+        } finally {
+            hedgeTimeout.cancel();
+        }
+
+        synchronized (this) {
+            primaryDone = true;
+
+            if (hedgeResponse == null && response != null) {
+                finished = true;
+                policy.recordLatency(System.currentTimeMillis() - startTime);
+                if (hedgeRequest != null) {
+                    hedgeRequest.abort();
+                }
+                return response;
+            }
+
+            if (response != null) {
+                // The hedge won while this response was arriving.
+                closeSilently(response);
+            } else if (hedgeResponse == null && primary.isAborted()) {
+                // Aborted from outside, such as by a request timeout.
+                finished = true;
+                if (hedgeRequest != null) {
+                    hedgeRequest.abort();
+                }
+                throw primaryError;
+            }
+
+            while (hedgeLaunched && !hedgeDone) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    finished = true;
+                    hedgeRequest.abort();
+                    throw primaryError != null ? primaryError : new IOException("Interrupted");
+                }
+            }
+
+            finished = true;
+            if (hedgeResponse != null) {
+                return hedgeResponse;
+            }
+            throw primaryError;
+        }
+    }
+
+    private void launchHedge(final HttpRequestBase primary) {
+        synchronized (this) {
+            if (primaryDone || context.getRemainingTime() <= 0 
+                    || hedgeExecutor.getActiveCount() >= MAX_HEDGE_THREADS || !policy.tryHedge()) {
+                return;
+            }
+            hedgeRequest = httpRequestFactory.createHttpRequest(request, context);
+            hedgeLaunched = true;
+        }
+
+        try {
+            hedgeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runHedge(primary);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            getLog().debug("Hedged request skipped, all hedge threads are busy");
+            synchronized (this) {
+                hedgeDone = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private void runHedge(HttpRequestBase primary) {
+        HttpClientContext hedgeContext = HttpClientContext.create();
+        hedgeContext.setRequestConfig(requestConfig);
+        // Like the primary, a winning hedge is aborted while its response is still being read.
+        if (context.getCancellationToken() != null) {
+            context.getCancellationToken().bind(hedgeRequest);
+        }
+
+        CloseableHttpResponse response = null;
+        try {
+            response = httpClient.execute(hedgeRequest, hedgeContext);
+        } catch (IOException e) {
+            getLog().debug("Hedged request failed: " + e.getMessage());
+        }
+
+        synchronized (this) {
+            hedgeDone = true;
+            if (response != null) {
+                if (finished) {
+                    // The caller has already returned or given up.
+                    closeSilently(response);
+                } else {
+                    hedgeResponse = response;
+                    policy.onHedgeWon();
+                    // The hedge delay follows the latency the caller sees, whichever request answers it.
+                    policy.recordLatency(System.currentTimeMillis() - startTime);
+                    primary.abort();
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    private static void closeSilently(CloseableHttpResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            /* silently close the response. */
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging policy for small idempotent reads (GET and HEAD without a body).
+ *
+ * <p>If the first request has not received response headers after the hedge
+ * delay, an identical second request is sent; the first response wins and
+ * the other request is aborted. The delay is either fixed or a percentile of
+ * the header latencies recently observed under this policy.</p>
+ *
+ * <p>Hedges are paid for from a token bucket that refills with every request
+ * sent under the policy, so they never exceed {@link #getMaxHedgePercent()}
+ * percent of those requests beyond a small burst. The budget and latency
+ * history belong to the policy instance: share one instance to share them.</p>
+ */
+public class HedgingPolicy {
+
+    public static final int DEFAULT_MAX_HEDGE_PERCENT = 5;
+
+    /* Percentile delays are only used once this many latencies have been seen. */
+    private static final int MIN_LATENCY_SAMPLES = 100;
+    /* Number of hedges that may be sent back to back. */
+    private static final int HEDGE_BURST = 10;
+
+    private final long delay;
+    private final double percentile;
+    private final int maxHedgePercent;
+
+    private final RetryBudget budget;
+    private final LatencyTracker latencyTracker = new LatencyTracker();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+
+    /**
+     * Hedges after a fixed delay.
+     * @param delay delay in milliseconds.
+     */
+    public HedgingPolicy(long delay) {
+        this(delay, -1, DEFAULT_MAX_HEDGE_PERCENT);
+    }
+
+    /**
+     * Hedges after the given percentile of recent header latencies.
+     * @param percentile percentile in (0, 100), such as 95.
+     * @param initialDelay delay in milliseconds until enough latencies are known.
+     */
+    public HedgingPolicy(double percentile, long initialDelay) {
+        this(initialDelay, percentile, DEFAULT_MAX_HEDGE_PERCENT);
+    }
+
+    /**
+     * @param delay fixed delay, or the initial one when a percentile is given, in milliseconds.
+     * @param percentile percentile in (0, 100), or non-positive for a fixed delay.
+     * @param maxHedgePercent hedges allowed per 100 requests, between 1 and 100.
+     */
+    public HedgingPolicy(long delay, double percentile, int maxHedgePercent) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Hedge delay must be greater than 0: " + delay);
+        }
+        if (percentile >= 100) {
+            throw new IllegalArgumentException("Percentile must be less than 100: " + percentile);
+        }
+        if (maxHedgePercent < 1 || maxHedgePercent > 100) {
+            throw new IllegalArgumentException("Max hedge percent must be in [1, 100]: " + maxHedgePercent);
+        }
+        this.delay = delay;
+        this.percentile = percentile;
+        this.maxHedgePercent = maxHedgePercent;
+
+        int hedgeCost = (100 + maxHedgePercent - 1) / maxHedgePercent;
+        this.budget = new RetryBudget(hedgeCost * HEDGE_BURST, hedgeCost, 1);
+    }
+
+    public int getMaxHedgePercent() {
+        return maxHedgePercent;
+    }
+
+    /**
+     * Delay in milliseconds after which a hedge is sent.
+     */
+    public long getHedgeDelay() {
+        if (percentile <= 0 || latencyTracker.getCount() < MIN_LATENCY_SAMPLES) {
+            return delay;
+        }
+        return Math.max(1, latencyTracker.getPercentile(percentile));
+    }
+
+    /**
+     * Number of hedges sent.
+     */
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * Number of hedges whose response arrived before the original one.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    void onRequest() {
+        budget.release();
+    }
+
+    boolean tryHedge() {
+        if (budget.tryAcquire()) {
+            hedgeCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    void onHedgeWon() {
+        hedgeWinCount.incrementAndGet();
+    }
+
+    void recordLatency(long latency) {
+        latencyTracker.record(latency);
+    }
+
+    long getLatencyCount() {
+        return latencyTracker.getCount();
+    }
+}
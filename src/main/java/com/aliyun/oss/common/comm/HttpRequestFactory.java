@@ -19,6 +19,9 @@
 
 package com.aliyun.oss.common.comm;
 
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+
+import java.io.IOException;
 import java.util.Map.Entry;
 
 import org.apache.http.HttpEntity;
@@ -33,6 +36,7 @@ import org.apache.http.client.methods.HttpRequestBase;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.common.comm.io.ChunkedInputStreamEntity;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
 import com.aliyun.oss.common.utils.HttpHeaders;
 
 class HttpRequestFactory {
@@ -48,7 +52,7 @@ class HttpRequestFactory {
             HttpPost postMethod = new HttpPost(uri);
 
             if (request.getContent() != null) {
-                postMethod.setEntity(new RepeatableInputStreamEntity(request));
+                postMethod.setEntity(buildInputStreamEntity(request));
             }
 
             httpRequest = postMethod;
@@ -59,7 +63,7 @@ class HttpRequestFactory {
                 if (request.isUseChunkEncoding()) {
                     putMethod.setEntity(buildChunkedInputStreamEntity(request));
                 } else {
-                    putMethod.setEntity(new RepeatableInputStreamEntity(request));
+                    putMethod.setEntity(buildInputStreamEntity(request));
                 }
             }
 
@@ -81,6 +85,19 @@ class HttpRequestFactory {
         return httpRequest;
     }
     
+    private HttpEntity buildInputStreamEntity(ServiceClient.Request request) {
+        try {
+            FileRegionEntity entity = FileRegionEntity.forStream(request.getContent(), request.getContentLength());
+            if (entity != null) {
+                entity.setContentType(request.getHeaders().get(HttpHeaders.CONTENT_TYPE));
+                return entity;
+            }
+        } catch (IOException e) {
+            logException("Cannot send the request content as a file region: ", e);
+        }
+        return new RepeatableInputStreamEntity(request);
+    }
+    
     private HttpEntity buildChunkedInputStreamEntity(ServiceClient.Request request) {
         return new ChunkedInputStreamEntity(request);
     }
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate latency histogram with buckets of about 20% width, used to
+ * estimate percentiles without storing samples. Counts are halved every
+ * {@link #DECAY_WINDOW} samples so the estimate follows recent traffic.
+ */
+class LatencyTracker {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 40 * SUB_BUCKETS;
+    private static final int DECAY_WINDOW = 2000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile long count = 0;
+
+    void record(long latency) {
+        counts.incrementAndGet(bucketOf(Math.max(latency, 1)));
+
+        synchronized (this) {
+            if (++count >= DECAY_WINDOW) {
+                long total = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    long halved = counts.get(i) / 2;
+                    counts.set(i, halved);
+                    total += halved;
+                }
+                count = total;
+            }
+        }
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, in milliseconds.
+     */
+    long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    static int bucketOf(long value) {
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        // The two bits after the most significant one select the sub-bucket.
+        int sub = (int) ((msb >= 2 ? value >>> (msb - 2) : value << (2 - msb)) & (SUB_BUCKETS - 1));
+        return Math.min(BUCKETS - 1, msb * SUB_BUCKETS + sub);
+    }
+
+    static long upperBoundOf(int bucket) {
+        int msb = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << msb) / SUB_BUCKETS;
+    }
+}
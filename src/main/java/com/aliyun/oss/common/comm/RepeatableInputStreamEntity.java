@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.BasicHttpEntity;
 
+import com.aliyun.oss.common.utils.BufferPool;
 import com.aliyun.oss.common.utils.HttpHeaders;
 
 public class RepeatableInputStreamEntity extends BasicHttpEntity {
@@ -109,24 +110,28 @@ public class RepeatableInputStreamEntity extends BasicHttpEntity {
             }
             InputStream instream = this.content;
 
-            byte[] buffer = new byte[BUFFER_SIZE];
-            int l;
-            if (this.length < 0) {
-                // consume until EOF
-                while ((l = instream.read(buffer)) != -1) {
-                    outstream.write(buffer, 0, l);
-                }
-            } else {
-                // consume no more than length
-                long remaining = this.length;
-                while (remaining > 0) {
-                    l = instream.read(buffer, 0, (int)Math.min(BUFFER_SIZE, remaining));
-                    if (l == -1) {
-                        break;
+            byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+            try {
+                int l;
+                if (this.length < 0) {
+                    // consume until EOF
+                    while ((l = instream.read(buffer)) != -1) {
+                        outstream.write(buffer, 0, l);
+                    }
+                } else {
+                    // consume no more than length
+                    long remaining = this.length;
+                    while (remaining > 0) {
+                        l = instream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+                        if (l == -1) {
+                            break;
+                        }
+                        outstream.write(buffer, 0, l);
+                        remaining -= l;
                     }
-                    outstream.write(buffer, 0, l);
-                    remaining -= l;
                 }
+            } finally {
+                BufferPool.getDefault().release(buffer);
             }
 
         }
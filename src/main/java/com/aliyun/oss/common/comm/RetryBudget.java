@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that limits retries across all requests of a client. Each
+ * retry takes {@code retryCost} tokens and each successful request puts
+ * {@code successRefill} tokens back, so during an outage retries stop once
+ * the bucket is empty and resume as requests start succeeding again.
+ */
+public class RetryBudget {
+
+    public static final int DEFAULT_RETRY_COST = 5;
+    public static final int DEFAULT_SUCCESS_REFILL = 1;
+
+    private final int capacity;
+    private final int retryCost;
+    private final int successRefill;
+
+    private final AtomicInteger tokens;
+    private final AtomicLong exhaustedCount = new AtomicLong();
+
+    public RetryBudget(int capacity) {
+        this(capacity, DEFAULT_RETRY_COST, DEFAULT_SUCCESS_REFILL);
+    }
+
+    public RetryBudget(int capacity, int retryCost, int successRefill) {
+        if (capacity <= 0 || retryCost <= 0 || successRefill < 0) {
+            throw new IllegalArgumentException("Invalid retry budget, capacity: " + capacity 
+                    + ", retry cost: " + retryCost + ", success refill: " + successRefill);
+        }
+        this.capacity = capacity;
+        this.retryCost = retryCost;
+        this.successRefill = successRefill;
+        this.tokens = new AtomicInteger(capacity);
+    }
+
+    /**
+     * Takes the tokens for one retry.
+     * @return false if the budget is exhausted.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = tokens.get();
+            if (current < retryCost) {
+                exhaustedCount.incrementAndGet();
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - retryCost)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Refills the budget after a successful request.
+     */
+    public void release() {
+        if (successRefill == 0) {
+            return;
+        }
+        while (true) {
+            int current = tokens.get();
+            if (current >= capacity) {
+                return;
+            }
+            if (tokens.compareAndSet(current, Math.min(capacity, current + successRefill))) {
+                return;
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getAvailableTokens() {
+        return tokens.get();
+    }
+
+    /**
+     * Number of retries refused because the budget was exhausted.
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retry counters of a service client, for monitoring.
+ */
+public class RetryMetrics {
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong backoffTime = new AtomicLong();
+    private final RetryBudget retryBudget;
+
+    public RetryMetrics(RetryBudget retryBudget) {
+        this.retryBudget = retryBudget;
+    }
+
+    void recordRetry(long pauseDelay) {
+        retryCount.incrementAndGet();
+        backoffTime.addAndGet(pauseDelay);
+    }
+
+    /**
+     * Total number of retries started.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    /**
+     * Total time in milliseconds spent pausing before retries.
+     */
+    public long getBackoffTime() {
+        return backoffTime.get();
+    }
+
+    /**
+     * Number of retries refused because the retry budget was exhausted.
+     */
+    public long getBudgetExhaustedCount() {
+        return retryBudget != null ? retryBudget.getExhaustedCount() : 0;
+    }
+
+    /**
+     * Tokens left in the retry budget, or -1 if the budget is disabled.
+     */
+    public int getAvailableRetryTokens() {
+        return retryBudget != null ? retryBudget.getAvailableTokens() : -1;
+    }
+}
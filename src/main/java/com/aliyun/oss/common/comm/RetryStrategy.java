@@ -35,4 +35,19 @@ public abstract class RetryStrategy {
         
         return delay;
     }
+    
+    /**
+     * Pause before the given retry when the previous pause is known (0 before
+     * the first retry). Strategies that derive a pause from the previous one
+     * override this.
+     */
+    public long getPauseDelay(int retries, long previousDelay) {
+        return getPauseDelay(retries);
+    }
+    
+    /**
+     * Called once a request succeeds, with the number of retries it took.
+     */
+    public void onRequestSuccess(int retries) {
+    }
 }
@@ -28,32 +28,72 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.URI;
 import java.util.List;
 
 import org.apache.http.HttpMessage;
+import org.apache.http.HttpStatus;
 
 import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.OSSErrorCode;
 import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.utils.ExceptionFactory;
 import com.aliyun.oss.common.utils.HttpUtil;
 import com.aliyun.oss.common.utils.LogUtils;
 import com.aliyun.oss.internal.OSSConstants;
+import com.aliyun.oss.model.WarmUpResult;
 
 /**
  * Abstract service client that provides interfaces to access OSS services.
  */
 public abstract class ServiceClient {
 
+    /* A retry is not started unless at least this much of the deadline budget is left after the pause. */
+    protected static final long MIN_RETRY_BUDGET = 100; // milliseconds.
+    
     protected ClientConfiguration config;
+    
+    /* Retry budget shared by all requests of this client, null if disabled. */
+    protected final RetryBudget retryBudget;
+    protected final RetryMetrics retryMetrics;
+    
+    /* Adaptive limit on in-flight requests per endpoint host, null if disabled. */
+    protected final ConcurrencyLimiter concurrencyLimiter;
+    
+    /* Circuit breaker per endpoint host, null if disabled. */
+    protected final CircuitBreaker circuitBreaker;
 
     protected ServiceClient(ClientConfiguration config) {
         this.config = config;
+        this.retryBudget = config.getRetryBudgetCapacity() > 0 ? 
+                new RetryBudget(config.getRetryBudgetCapacity()) : null;
+        this.retryMetrics = new RetryMetrics(this.retryBudget);
+        this.concurrencyLimiter = config.isConcurrencyLimitEnabled() ? 
+                new ConcurrencyLimiter(config.getMaxConnections()) : null;
+        this.circuitBreaker = config.isCircuitBreakerEnabled() ? 
+                new CircuitBreaker(config.getCircuitBreakerFailureRateThreshold(), 
+                        config.getCircuitBreakerWindowSize(), config.getCircuitBreakerOpenDuration(),
+                        config.getCircuitBreakerListener()) : null;
     }
     
     public ClientConfiguration getClientConfiguration() {
         return this.config;
     }
+    
+    public RetryMetrics getRetryMetrics() {
+        return this.retryMetrics;
+    }
+    
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return this.concurrencyLimiter;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
 
     /**
      * Send HTTP request with specified context to OSS and wait for HTTP response.
@@ -93,13 +133,17 @@ public abstract class ServiceClient {
             requestContent.mark(OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
         }
 
+        initDeadline(context);
+        checkDeadline(context);
+        
         int retries = 0;
+        long pauseDelay = 0;
         ResponseMessage response = null;
 
         while (true) {
             try {
                 if (retries > 0) {
-                    pause(retries, retryStrategy);
+                    pause(pauseDelay, retries, context);
                     if (requestContent != null && requestContent.markSupported()) {
                         try {
                             requestContent.reset();
@@ -109,6 +153,8 @@ public abstract class ServiceClient {
                         }
                     }
                 }
+                checkCancelled(context);
+                response = null;
                 
                 /* The key four steps to send HTTP requests and receive HTTP responses. */
                 
@@ -120,7 +166,7 @@ public abstract class ServiceClient {
                 
                 // Step 3. Send HTTP request to OSS.
                 long startTime = System.currentTimeMillis();
-                response = sendRequestCore(httpRequest, context);
+                response = sendRequestGuarded(httpRequest, request, context);
                 long duration = System.currentTimeMillis() - startTime;
                 if (duration > config.getSlowRequestsThreshold()) {
                     LogUtils.getLog().warn(formatSlowRequestLog(request, response, duration));
@@ -129,6 +175,7 @@ public abstract class ServiceClient {
                 // Step 4. Preprocess HTTP response.
                 handleResponse(response, context.getResponseHandlers());
                 
+                onRequestSuccess(retries, retryStrategy);
                 return response;
             } catch (ServiceException sex) {        
                 logException("[Server]Unable to execute HTTP request: ", sex);
@@ -137,22 +184,35 @@ public abstract class ServiceClient {
                 // finally block because if the request is successful,
                 // the response should be returned to the callers.
                 closeResponseSilently(response);
+                checkCancelled(context);
                 
                 if (!shouldRetry(sex, request, response, retries, retryStrategy)) {
                     throw sex;
                 }
+                
+                pauseDelay = retryStrategy.getPauseDelay(retries + 1, pauseDelay);
+                if (!hasTimeForRetry(context, pauseDelay) || !acquireRetryBudget()) {
+                    throw sex;
+                }
             } catch (ClientException cex) {
                 logException("[Client]Unable to execute HTTP request: ", cex);
                 
                 closeResponseSilently(response);
+                checkCancelled(context);
                 
                 if (!shouldRetry(cex, request, response, retries, retryStrategy)) {
                     throw cex;
-                }                
+                }
+                
+                pauseDelay = retryStrategy.getPauseDelay(retries + 1, pauseDelay);
+                if (!hasTimeForRetry(context, pauseDelay) || !acquireRetryBudget()) {
+                    throw cex;
+                }
             } catch (Exception ex) { 
                 logException("[Unknown]Unable to execute HTTP request: ", ex);
                 
                 closeResponseSilently(response);
+                checkCancelled(context);
                 
                 throw new ClientException(COMMON_RESOURCE_MANAGER.getFormattedString(
                         "ConnectionError", ex.getMessage()), ex);   
@@ -162,18 +222,142 @@ public abstract class ServiceClient {
         }
     }
 
+    /**
+     * Sends one attempt through the circuit breaker and the concurrency
+     * limiter, when enabled. Both are keyed by the endpoint host and hold
+     * their permits until the response headers arrive.
+     */
+    private ResponseMessage sendRequestGuarded(Request httpRequest, RequestMessage request, 
+            ExecutionContext context) throws IOException {
+        if (circuitBreaker == null && concurrencyLimiter == null) {
+            return sendRequestCore(httpRequest, context);
+        }
+        
+        CircuitBreaker.Permit circuitPermit = null;
+        ConcurrencyLimiter.Permit limiterPermit = null;
+        try {
+            circuitPermit = acquireCircuitPermit(request);
+            limiterPermit = acquireLimiterPermit(request, context);
+            
+            ResponseMessage response = sendRequestCore(httpRequest, context);
+            int statusCode = response.getStatusCode();
+            releaseLimiterPermit(limiterPermit, statusCode, null);
+            releaseCircuitPermit(circuitPermit, statusCode, null);
+            return response;
+        } catch (ClientException e) {
+            releaseLimiterPermit(limiterPermit, 0, e);
+            releaseCircuitPermit(circuitPermit, 0, e);
+            throw e;
+        } finally {
+            if (limiterPermit != null) {
+                limiterPermit.release();
+            }
+            if (circuitPermit != null) {
+                circuitPermit.release();
+            }
+        }
+    }
+    
+    /**
+     * Lets one attempt of the request through the circuit breaker. Returns
+     * null if the circuit breaker is disabled.
+     * 
+     * @throws ClientException with {@link ClientErrorCode#CIRCUIT_BREAKER_OPEN} if the circuit is open.
+     */
+    protected CircuitBreaker.Permit acquireCircuitPermit(RequestMessage request) throws ClientException {
+        if (circuitBreaker == null) {
+            return null;
+        }
+        return circuitBreaker.acquire(request.getEndpoint().getHost());
+    }
+    
+    /**
+     * Releases the circuit breaker permit of an attempt with its outcome: a
+     * 5xx response, a timeout or a connection failure counts as a failure of
+     * the endpoint, any other response as a success. Does nothing if the
+     * permit is null.
+     * 
+     * @param statusCode status code of the response, if the attempt got one.
+     * @param error error of the attempt, or null if it got a response.
+     */
+    protected static void releaseCircuitPermit(CircuitBreaker.Permit permit, int statusCode, 
+            ClientException error) {
+        if (permit == null) {
+            return;
+        }
+        if (error != null) {
+            String errorCode = error.getErrorCode();
+            if (isTimeout(errorCode) || ClientErrorCode.CONNECTION_REFUSED.equals(errorCode) || 
+                    ClientErrorCode.UNKNOWN_HOST.equals(errorCode) || 
+                    ClientErrorCode.SOCKET_EXCEPTION.equals(errorCode)) {
+                permit.onFailure();
+            }
+        } else if (statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+            permit.onFailure();
+        } else {
+            permit.onSuccess();
+        }
+        permit.release();
+    }
+    
+    /**
+     * Waits for a permit of the concurrency limiter to send one attempt of the
+     * request, at most the queue timeout or the time left before the deadline.
+     * Returns null if the limiter is disabled.
+     */
+    protected ConcurrencyLimiter.Permit acquireLimiterPermit(RequestMessage request, ExecutionContext context) 
+            throws ClientException {
+        if (concurrencyLimiter == null) {
+            return null;
+        }
+        long queueTimeout = Math.min(config.getConcurrencyLimitQueueTimeout(), context.getRemainingTime());
+        return concurrencyLimiter.acquire(request.getEndpoint().getHost(), Math.max(queueTimeout, 0));
+    }
+    
+    /**
+     * Releases the limiter permit of an attempt with its outcome: a 503 or a
+     * timeout shrinks the limit, any other response feeds its round trip time
+     * to the limit. Does nothing if the permit is null.
+     * 
+     * @param statusCode status code of the response, if the attempt got one.
+     * @param error error of the attempt, or null if it got a response.
+     */
+    protected static void releaseLimiterPermit(ConcurrencyLimiter.Permit permit, int statusCode, 
+            ClientException error) {
+        if (permit == null) {
+            return;
+        }
+        if (error != null) {
+            if (isTimeout(error.getErrorCode())) {
+                permit.onDropped();
+            }
+        } else if (statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            permit.onDropped();
+        } else {
+            permit.onSuccess();
+        }
+        permit.release();
+    }
+    
+    private static boolean isTimeout(String errorCode) {
+        return ClientErrorCode.SOCKET_TIMEOUT.equals(errorCode) || 
+                ClientErrorCode.CONNECTION_TIMEOUT.equals(errorCode) ||
+                OSSErrorCode.REQUEST_TIMEOUT.equals(errorCode);
+    }
+
     /**
      * Implements the core logic to send requests to Aliyun OSS services.
      */
     protected abstract ResponseMessage sendRequestCore(Request request, ExecutionContext context)
             throws IOException;
 
-    private Request buildRequest(RequestMessage requestMessage, ExecutionContext context)
+    protected Request buildRequest(RequestMessage requestMessage, ExecutionContext context)
             throws ClientException {
         
         Request request = new Request();
         request.setMethod(requestMessage.getMethod());
         request.setUseChunkEncoding(requestMessage.isUseChunkEncoding());
+        request.setChunkSize(config.getChunkSize());
         
         if (requestMessage.isUseUrlSignature()) {
             request.setUrl(requestMessage.getAbsoluteUrl().toString());
@@ -242,36 +426,95 @@ public abstract class ServiceClient {
         return request;
     }
 
-    private void handleResponse(ResponseMessage response, List<ResponseHandler> responseHandlers)
+    protected void handleResponse(ResponseMessage response, List<ResponseHandler> responseHandlers)
             throws ServiceException, ClientException {
         for(ResponseHandler h : responseHandlers) {
             h.handle(response);
         }
     }
 
-    private void handleRequest(RequestMessage message, List<RequestHandler> resquestHandlers) 
+    protected void handleRequest(RequestMessage message, List<RequestHandler> resquestHandlers) 
             throws ServiceException, ClientException {
         for(RequestHandler h : resquestHandlers) {
             h.handle(message);
         }
     }
 
-    private void pause(int retries, RetryStrategy retryStrategy) 
-            throws ClientException {
-        
-        long delay = retryStrategy.getPauseDelay(retries);        
-        
+    private void pause(long delay, int retries, ExecutionContext context) throws ClientException {
         getLog().debug("An retriable error request will be retried after " + delay
                 + "(ms) with attempt times: " + retries);
+        retryMetrics.recordRetry(delay);
         
         try {
-            Thread.sleep(delay);
+            CancellationToken token = context.getCancellationToken();
+            if (token != null) {
+                token.await(delay);
+            } else {
+                Thread.sleep(delay);
+            }
         } catch (InterruptedException e) {
             throw new ClientException(e.getMessage(), e);
         }
     }
+    
+    /**
+     * Starts the client-wide deadline budget unless the caller has already set one.
+     */
+    protected void initDeadline(ExecutionContext context) {
+        if (!context.hasDeadline() && config.getRequestDeadline() > 0) {
+            context.setDeadline(System.currentTimeMillis() + config.getRequestDeadline());
+        }
+    }
+    
+    protected static void checkCancelled(ExecutionContext context) throws ClientException {
+        if (context.isCancelled()) {
+            throw ExceptionFactory.createCancelledException();
+        }
+    }
+    
+    protected static void checkDeadline(ExecutionContext context) throws ClientException {
+        if (context.getRemainingTime() <= 0) {
+            throw new ClientException("The request deadline has been exceeded.", 
+                    OSSErrorCode.REQUEST_TIMEOUT, "Unknown");
+        }
+    }
+    
+    protected boolean hasTimeForRetry(ExecutionContext context, long pauseDelay) {
+        if (!context.hasDeadline()) {
+            return true;
+        }
+        
+        long remaining = context.getRemainingTime();
+        if (remaining - pauseDelay < MIN_RETRY_BUDGET) {
+            getLog().debug("Not retrying, the request deadline leaves " + remaining 
+                    + "(ms) against a pause of " + pauseDelay + "(ms)");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the tokens of one retry from the client's retry budget. Called
+     * last, once the retry strategy and the deadline allow the retry, so
+     * that only retries that actually run are charged, whatever the
+     * strategy of the request.
+     */
+    protected boolean acquireRetryBudget() {
+        if (retryBudget == null || retryBudget.tryAcquire()) {
+            return true;
+        }
+        getLog().debug("Not retrying, the retry budget is exhausted");
+        return false;
+    }
+    
+    protected void onRequestSuccess(int retries, RetryStrategy retryStrategy) {
+        if (retryBudget != null) {
+            retryBudget.release();
+        }
+        retryStrategy.onRequestSuccess(retries);
+    }
 
-    private boolean shouldRetry(Exception exception, RequestMessage request, 
+    protected boolean shouldRetry(Exception exception, RequestMessage request, 
             ResponseMessage response, int retries, RetryStrategy retryStrategy) {
 
         if (retries >= config.getMaxErrorRetry()) {
@@ -290,7 +533,7 @@ public abstract class ServiceClient {
         return false;
     }
 
-    private void closeResponseSilently(ResponseMessage response) {
+    protected void closeResponseSilently(ResponseMessage response) {
         if (response != null) {
             try {
                 response.close();
@@ -300,7 +543,7 @@ public abstract class ServiceClient {
         }
     }
     
-    private String formatSlowRequestLog(RequestMessage request, ResponseMessage response, 
+    protected String formatSlowRequestLog(RequestMessage request, ResponseMessage response, 
             long useTimesMs) {
         return String.format("Request cost %d seconds, endpoint %s, resourcePath %s, "
                 + "method %s, statusCode %d, requestId %s.", 
@@ -310,6 +553,25 @@ public abstract class ServiceClient {
     
     protected abstract RetryStrategy getDefaultRetryStrategy();
     
+    /**
+     * Spreads the pauses of the given strategy with decorrelated jitter. Only
+     * the client's default strategy is wrapped; a strategy set on the
+     * request keeps its own pauses. The retry budget applies to the retries
+     * of every strategy, see {@link #acquireRetryBudget()}.
+     */
+    protected RetryStrategy withBackoff(RetryStrategy retryStrategy) {
+        return new DecorrelatedJitterRetryStrategy(retryStrategy);
+    }
+    
+    /**
+     * Opens and validates up to the given number of pooled connections to the
+     * endpoint before traffic arrives. A client without a connection pool
+     * opens none.
+     */
+    public WarmUpResult warmUp(URI endpoint, int connections) {
+        return new WarmUpResult(endpoint.getHost(), connections, 0, 0, 0);
+    }
+    
     public abstract void shutdown();
     
     /**
@@ -321,6 +583,7 @@ public abstract class ServiceClient {
         private HttpMethod method;
         private boolean useUrlSignature = false;
         private boolean useChunkEncoding = false;
+        private int chunkSize = ClientConfiguration.DEFAULT_CHUNK_SIZE;
 
         public String getUri() {
             return this.uri;
@@ -353,5 +616,13 @@ public abstract class ServiceClient {
         public void setUseChunkEncoding(boolean useChunkEncoding) {
             this.useChunkEncoding = useChunkEncoding;
         }
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
     }
 }
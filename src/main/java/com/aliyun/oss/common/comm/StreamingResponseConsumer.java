@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Future;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Consumes the response of one asynchronous attempt without buffering its
+ * content. The response is handed over as soon as its headers arrive, and its
+ * content stream reads from a bounded buffer that the I/O thread fills; input
+ * is suspended while the buffer is full, so a slow reader holds back the
+ * connection instead of filling the heap.
+ *
+ * <p>Closing the content stream reads the rest of the content, so that the
+ * connection can be reused, while closing the response aborts the request.</p>
+ */
+class StreamingResponseConsumer implements HttpAsyncResponseConsumer<HttpResponse> {
+
+    /* Size of the buffer between the I/O thread and the reader. */
+    static final int CONTENT_BUFFER_SIZE = 64 * 1024;
+
+    private final HttpRequestBase request;
+    private final BasicFuture<HttpResponse> responseFuture;
+    private final SharedInputBuffer buffer = new SharedInputBuffer(CONTENT_BUFFER_SIZE, 
+            HeapByteBufferAllocator.INSTANCE);
+
+    private volatile HttpResponse response;
+    private volatile Exception exception;
+    private volatile boolean cancelled = false;
+    private volatile boolean done = false;
+
+    /**
+     * @param request request whose response is consumed, aborted when the
+     *        response is closed.
+     * @param callback notified once, when the response headers arrive or the
+     *        request fails before that.
+     */
+    StreamingResponseConsumer(HttpRequestBase request, FutureCallback<HttpResponse> callback) {
+        this.request = request;
+        this.responseFuture = new BasicFuture<HttpResponse>(callback);
+    }
+
+    /**
+     * The response once its headers have arrived.
+     */
+    Future<HttpResponse> getResponseFuture() {
+        return responseFuture;
+    }
+
+    @Override
+    public void responseReceived(HttpResponse received) {
+        StreamingResponse streamingResponse = new StreamingResponse(received);
+        HttpEntity entity = received.getEntity();
+        if (entity != null) {
+            BasicHttpEntity streamingEntity = new BasicHttpEntity();
+            streamingEntity.setContent(new ContentStream());
+            streamingEntity.setContentLength(entity.getContentLength());
+            streamingEntity.setContentType(entity.getContentType());
+            streamingEntity.setContentEncoding(entity.getContentEncoding());
+            streamingEntity.setChunked(entity.isChunked());
+            streamingResponse.setEntity(streamingEntity);
+        }
+        this.response = streamingResponse;
+        responseFuture.completed(streamingResponse);
+    }
+
+    @Override
+    public void consumeContent(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+        buffer.consumeContent(decoder, ioctrl);
+    }
+
+    @Override
+    public void responseCompleted(HttpContext context) {
+        done = true;
+        // The reader gets the rest of the buffer and then the end of the content.
+        buffer.close();
+    }
+
+    @Override
+    public void failed(Exception ex) {
+        if (done) {
+            return;
+        }
+        exception = ex;
+        done = true;
+        buffer.shutdown();
+        responseFuture.failed(ex);
+    }
+
+    @Override
+    public boolean cancel() {
+        if (done) {
+            return false;
+        }
+        cancelled = true;
+        done = true;
+        buffer.shutdown();
+        responseFuture.cancel();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Closed by the exchange without an outcome, such as when the client shuts down.
+        failed(new ConnectionClosedException("Connection closed"));
+    }
+
+    @Override
+    public Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public HttpResponse getResult() {
+        return response;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    /* The reader got to the end of the buffer: the content is complete unless the exchange failed. */
+    private void checkComplete() throws IOException {
+        if (exception != null) {
+            throw exception instanceof IOException ? (IOException) exception : new IOException(exception);
+        } else if (cancelled) {
+            throw new IOException("The request has been aborted");
+        }
+    }
+
+    private class ContentStream extends InputStream {
+        private boolean closed = false;
+
+        @Override
+        public int read() throws IOException {
+            if (closed) {
+                return -1;
+            }
+            return readChecked(null, 0, 0);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            return readChecked(b, off, len);
+        }
+
+        private int readChecked(byte[] b, int off, int len) throws IOException {
+            int n;
+            try {
+                n = b == null ? buffer.read() : buffer.read(b, off, len);
+            } catch (IOException e) {
+                checkComplete();
+                throw e;
+            }
+            if (n == -1) {
+                checkComplete();
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return closed ? 0 : buffer.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Read the rest, as the blocking client does, so that the connection is reused.
+            byte[] skipped = new byte[4096];
+            try {
+                while (buffer.read(skipped, 0, skipped.length) != -1) {
+                    // discard
+                }
+            } catch (IOException e) {
+                // The exchange has failed, so there is nothing left to read.
+            }
+        }
+    }
+
+    /**
+     * The response as seen by the caller; closing it aborts the request.
+     */
+    private class StreamingResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+        StreamingResponse(HttpResponse received) {
+            super(received.getStatusLine());
+            setHeaders(received.getAllHeaders());
+            setLocale(received.getLocale());
+        }
+
+        @Override
+        public void close() {
+            request.abort();
+            cancel();
+        }
+    }
+}
@@ -19,18 +19,9 @@
 
 package com.aliyun.oss.common.comm;
 
-import static com.aliyun.oss.common.utils.LogUtils.getLog;
 import static com.aliyun.oss.common.utils.LogUtils.logException;
 
 import java.io.IOException;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
@@ -39,96 +30,72 @@ import org.apache.http.client.protocol.HttpClientContext;
 import com.aliyun.oss.ClientConfiguration;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSSErrorCode;
-import com.aliyun.oss.OSSException;
 import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.HashedWheelTimer;
 
 /**
- * Default implementation of {@link ServiceClient}.
+ * {@link DefaultServiceClient} that enforces {@link ClientConfiguration#getRequestTimeout()}.
+ *
+ * <p>The request runs on the caller thread; a timer wheel shared by all clients
+ * aborts it once the deadline expires, so no extra thread is needed per request.</p>
  */
 public class TimeoutServiceClient extends DefaultServiceClient {
-    protected ThreadPoolExecutor executor;
 
     public TimeoutServiceClient(ClientConfiguration config) {
         super(config);
-        
-        int processors = Runtime.getRuntime().availableProcessors(); 
-        executor = new ThreadPoolExecutor(processors * 5, processors * 10, 60L, TimeUnit.SECONDS, 
-                new ArrayBlockingQueue<Runnable>(processors * 100),
-                Executors.defaultThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
-        executor.allowCoreThreadTimeOut(true);
     }
 
     @Override
     public ResponseMessage sendRequestCore(ServiceClient.Request request, ExecutionContext context)
             throws IOException {
-        HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
+        final HttpRequestBase httpRequest = httpRequestFactory.createHttpRequest(request, context);
         HttpClientContext httpContext = HttpClientContext.create();
-        httpContext.setRequestConfig(this.requestConfig);
-        
+        httpContext.setRequestConfig(createAttemptRequestConfig(this.requestConfig, context));
+
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                httpRequest.abort();
+            }
+        }, Math.min(this.config.getRequestTimeout(), context.getRemainingTime()));
+
         CloseableHttpResponse httpResponse = null;
-        HttpRequestTask httpRequestTask = new HttpRequestTask(httpRequest, httpContext);
-        Future<CloseableHttpResponse> future = executor.submit(httpRequestTask);
-        
         try {
-            httpResponse = future.get(this.config.getRequestTimeout(), TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            logException("[ExecutorService]The current thread was interrupted while waiting: ", e);
-            
+            httpResponse = executeHttpRequest(request, httpRequest, httpContext, context);
+        } catch (IOException e) {
             httpRequest.abort();
-            throw new ClientException(e.getMessage(), e);
-        } catch (ExecutionException e) {
-            RuntimeException ex;
-            httpRequest.abort();
-            
-            if (e.getCause() instanceof IOException) {
-                ex = ExceptionFactory.createNetworkException((IOException) e.getCause());
-            } else {
-                ex = new OSSException(e.getMessage(), e);
+            if (!timeout.cancel()) {
+                throw createTimeoutException(e);
             }
-            
-            logException("[ExecutorService]The computation threw an exception: ", ex);
+
+            RuntimeException ex = ExceptionFactory.createNetworkException(e);
+            logException("[TimeoutServiceClient]The request threw an exception: ", ex);
             throw ex;
-        } catch (TimeoutException e) {
-            logException("[ExecutorService]The wait " + this.config.getRequestTimeout() + " timed out: ", e);
-            
+        } catch (RuntimeException e) {
+            timeout.cancel();
             httpRequest.abort();
-            throw new ClientException(e.getMessage(), OSSErrorCode.REQUEST_TIMEOUT, "Unknown", e);
+            throw e;
         }
 
-        return buildResponse(request, httpResponse);
-    }
-    
-    @Override
-    public void shutdown() {
-        executor.shutdown();
-        try {
-            if (!executor.awaitTermination(ClientConfiguration.DEFAULT_THREAD_POOL_WAIT_TIME, TimeUnit.MILLISECONDS)) {
-                executor.shutdownNow();
-                if (!executor.awaitTermination(ClientConfiguration.DEFAULT_THREAD_POOL_WAIT_TIME, TimeUnit.MILLISECONDS)) {
-                    getLog().warn("Pool did not terminate in " + 
-                            ClientConfiguration.DEFAULT_THREAD_POOL_WAIT_TIME / 1000 + " seconds");
-                }
+        if (!timeout.cancel()) {
+            // The deadline expired right after the response arrived.
+            httpRequest.abort();
+            try {
+                httpResponse.close();
+            } catch (IOException e) {
+                logException("Unexpected io exception when trying to close http response: ", e);
             }
-        } catch (InterruptedException ie) {
-            executor.shutdownNow();
-            Thread.currentThread().interrupt();
+            throw createTimeoutException(null);
         }
-        super.shutdown();
+
+        return buildResponse(request, httpResponse);
     }
 
-    class HttpRequestTask implements Callable<CloseableHttpResponse> {
-        private HttpRequestBase httpRequest;
-        private HttpClientContext httpContext;
-        
-        public HttpRequestTask(HttpRequestBase httpRequest, HttpClientContext httpContext) {
-            this.httpRequest = httpRequest;
-            this.httpContext = httpContext;
-        }
-        
-        @Override
-        public CloseableHttpResponse call() throws Exception {
-            return httpClient.execute(httpRequest, httpContext);
-        }
-    };
+    private ClientException createTimeoutException(Exception cause) {
+        String message = "The wait " + this.config.getRequestTimeout() + " timed out";
+        ClientException ex = new ClientException(message, OSSErrorCode.REQUEST_TIMEOUT, "Unknown", cause);
+        logException("[TimeoutServiceClient]", ex);
+        return ex;
+    }
 
 }
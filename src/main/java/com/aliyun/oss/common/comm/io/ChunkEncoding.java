@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+/**
+ * Chunked transfer coding framing written straight into byte arrays, so
+ * framing a chunk allocates nothing.
+ */
+final class ChunkEncoding {
+
+    /* Room for the largest chunk header: eight hex digits and CRLF. */
+    static final int MAX_HEADER_LENGTH = 10;
+
+    static final byte[] CRLF = { '\r', '\n' };
+    static final byte[] LAST_CHUNK = { '0', '\r', '\n', '\r', '\n' };
+
+    /* Framing around one chunk when it is also the last one. */
+    static final int FRAMING_OVERHEAD = MAX_HEADER_LENGTH + CRLF.length + LAST_CHUNK.length;
+
+    private static final byte[] HEX_DIGITS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+        'a', 'b', 'c', 'd', 'e', 'f' };
+
+    private ChunkEncoding() {
+    }
+
+    /**
+     * @return length of the header of a chunk with the given data size.
+     */
+    static int headerLength(int size) {
+        int digits = size == 0 ? 1 : (35 - Integer.numberOfLeadingZeros(size)) / 4;
+        return digits + CRLF.length;
+    }
+
+    /**
+     * Writes the header of a chunk with the given data size.
+     * @return position after the header.
+     */
+    static int putHeader(byte[] buffer, int pos, int size) {
+        int end = pos + headerLength(size);
+        buffer[end - 1] = '\n';
+        buffer[end - 2] = '\r';
+        int i = end - 3;
+        do {
+            buffer[i--] = HEX_DIGITS[size & 0xf];
+            size >>>= 4;
+        } while (size != 0);
+        return end;
+    }
+
+    /**
+     * Copies the given framing bytes.
+     * @return position after the bytes.
+     */
+    static int put(byte[] buffer, int pos, byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, pos, bytes.length);
+        return pos + bytes.length;
+    }
+}
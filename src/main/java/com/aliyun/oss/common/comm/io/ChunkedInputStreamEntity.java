@@ -31,17 +31,27 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.util.Args;
 
 import com.aliyun.oss.common.comm.ServiceClient;
+import com.aliyun.oss.common.utils.BufferPool;
 import com.aliyun.oss.common.utils.HttpHeaders;
 
 /**
  * A repeatable HTTP entity that obtains its content from an non-auto-close 
  * {@link ReleasableInputStreamEntity} and sends its content using chunked encoding.
+ *
+ * <p>{@link #writeChunkedTo(OutputStream)} frames the chunks itself: each chunk
+ * is read from the source straight into a pooled buffer between the room for
+ * its header and its trailer, and is written with a single call. Chunks span
+ * the configured chunk size including their framing.</p>
  */
 public class ChunkedInputStreamEntity extends BasicHttpEntity {
 
+    private static final int MIN_CHUNK_SIZE = 1024;
+
     private boolean firstAttempt = true;
     private ReleasableInputStreamEntity notClosableRequestEntity;
     private InputStream content;
+    private final long length;
+    private final int chunkSize;
 
     public ChunkedInputStreamEntity(ServiceClient.Request request) {
         setChunked(true);
@@ -62,6 +72,8 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
         notClosableRequestEntity.setCloseDisabled(true);
         notClosableRequestEntity.setContentType(contentType);
         content = request.getContent();
+        length = contentLength;
+        chunkSize = Math.max(request.getChunkSize(), MIN_CHUNK_SIZE);
 
         setContent(content);
         setContentType(contentType);
@@ -78,13 +90,103 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
         return content.markSupported() || notClosableRequestEntity.isRepeatable();
     }
 
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Writes the content in chunk sized pieces, leaving the chunk framing to
+     * the chunk coded stream of the connection.
+     */
     @Override
     public void writeTo(OutputStream output) throws IOException {
+        Args.notNull(output, "Output stream");
+        prepareContent();
+
+        byte[] buffer = BufferPool.getDefault().acquire(chunkSize);
+        try {
+            long remaining = length;
+            while (remaining != 0) {
+                int wanted = limit(chunkSize, remaining);
+                int n = fill(buffer, 0, wanted);
+                if (n > 0) {
+                    output.write(buffer, 0, n);
+                }
+                if (n < wanted) {
+                    break;
+                }
+                if (remaining > 0) {
+                    remaining -= n;
+                }
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    /**
+     * Writes the content with chunked transfer coding, including the last
+     * chunk, to an output stream that does no framing of its own such as the
+     * socket stream of the connection.
+     */
+    public void writeChunkedTo(OutputStream output) throws IOException {
+        Args.notNull(output, "Output stream");
+        prepareContent();
+
+        byte[] buffer = BufferPool.getDefault().acquire(chunkSize);
+        try {
+            int capacity = chunkSize - ChunkEncoding.FRAMING_OVERHEAD;
+            long remaining = length;
+            boolean last = false;
+            while (!last) {
+                int wanted = limit(capacity, remaining);
+                int n = fill(buffer, ChunkEncoding.MAX_HEADER_LENGTH, wanted);
+                if (remaining > 0) {
+                    remaining -= n;
+                }
+                last = n < wanted || remaining == 0;
+
+                int start = ChunkEncoding.MAX_HEADER_LENGTH;
+                int end = start + n;
+                if (n > 0) {
+                    start -= ChunkEncoding.headerLength(n);
+                    ChunkEncoding.putHeader(buffer, start, n);
+                    end = ChunkEncoding.put(buffer, end, ChunkEncoding.CRLF);
+                }
+                if (last) {
+                    end = ChunkEncoding.put(buffer, end, ChunkEncoding.LAST_CHUNK);
+                }
+                output.write(buffer, start, end - start);
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    private void prepareContent() throws IOException {
         if (!firstAttempt && isRepeatable()) 
             content.reset();
 
         firstAttempt = false;
-        notClosableRequestEntity.writeTo(output);
+    }
+
+    /**
+     * Reads until the requested bytes are read or the content ends.
+     */
+    private int fill(byte[] buffer, int offset, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int n = content.read(buffer, offset + total, len - total);
+            if (n == -1) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static int limit(int size, long remaining) {
+        return remaining < 0 ? size : (int) Math.min(size, remaining);
     }
     
     /**
@@ -139,8 +241,8 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
         public void writeTo(final OutputStream outstream) throws IOException {
             Args.notNull(outstream, "Output stream");
             final InputStream instream = this.content;
+            final byte[] buffer = BufferPool.getDefault().acquire(OUTPUT_BUFFER_SIZE);
             try {
-                final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
                 int l;
                 if (this.length < 0) {
                     // consume until EOF
@@ -151,7 +253,7 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
                     // consume no more than length
                     long remaining = this.length;
                     while (remaining > 0) {
-                        l = instream.read(buffer, 0, (int)Math.min(OUTPUT_BUFFER_SIZE, remaining));
+                        l = instream.read(buffer, 0, (int)Math.min(buffer.length, remaining));
                         if (l == -1) {
                             break;
                         }
@@ -160,6 +262,7 @@ public class ChunkedInputStreamEntity extends BasicHttpEntity {
                     }
                 }
             } finally {
+                BufferPool.getDefault().release(buffer);
                 close();
             }
         }
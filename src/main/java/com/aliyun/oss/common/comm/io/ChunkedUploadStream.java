@@ -23,16 +23,15 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import com.aliyun.oss.ClientException;
+import com.aliyun.oss.common.utils.BufferPool;
 
 public class ChunkedUploadStream extends InputStream {
 
     private static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
-    private static final String DEFAULT_CHARTSET_NAME = "utf-8";
-    private static final String CLRF = "\r\n";
     
     private InputStream innerStream;
-    private byte[] inputBuffer;
     private byte[] outputBuffer;
+    private final byte[] singleByte = new byte[1];
     private int outputBufferPos = -1;
     private int outputBufferDataLen = -1;
     
@@ -47,16 +46,27 @@ public class ChunkedUploadStream extends InputStream {
         
         this.innerStream = innerStream;
         this.innerStreamBufferSize = innerStreamBufferSize;
-        this.inputBuffer = new byte[DEFAULT_CHUNK_SIZE];
-        this.outputBuffer = new byte[CalculateChunkHeaderLength(DEFAULT_CHUNK_SIZE)];
+        // Chunk data is read in place, between the room for its header and its trailer.
+        this.outputBuffer = BufferPool.getDefault().acquire(
+                ChunkEncoding.MAX_HEADER_LENGTH + DEFAULT_CHUNK_SIZE + ChunkEncoding.CRLF.length);
+    }
+    
+    /**
+     * Returns the chunk buffer to the pool; the inner stream is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        if (outputBuffer != null) {
+            BufferPool.getDefault().release(outputBuffer);
+            outputBuffer = null;
+        }
     }
     
     @Override
     public int read() throws IOException {
-        byte[] tmp = new byte[1];
-        int count = read(tmp);
+        int count = read(singleByte, 0, 1);
         if (count != -1) {
-            return tmp[0];
+            return singleByte[0] & 0xff;
         } else {
             return count;
         }
@@ -73,9 +83,11 @@ public class ChunkedUploadStream extends InputStream {
             throw new NullPointerException();
         } else if (offset < 0 || count < 0 || count > buffer.length - offset) {
             throw new IndexOutOfBoundsException(
-                    String.format("buffer size: %n, offset: %n, count: %n", buffer.length, offset, count));
+                    String.format("buffer size: %d, offset: %d, count: %d", buffer.length, offset, count));
         } else if (count == 0) {
             return 0;
+        } else if (outputBuffer == null) {
+            throw new IOException("Stream closed");
         }
         
         if (outputBufferPos == -1) {
@@ -94,7 +106,7 @@ public class ChunkedUploadStream extends InputStream {
             bytesToRead = outputRemaining;
         }
         
-        System.arraycopy(outputBuffer, outputBufferPos, buffer, 0, bytesToRead);
+        System.arraycopy(outputBuffer, outputBufferPos, buffer, offset, bytesToRead);
         outputBufferPos += bytesToRead;
         if (outputBufferPos >= outputBufferDataLen) {
             outputBufferPos = -1;
@@ -109,15 +121,16 @@ public class ChunkedUploadStream extends InputStream {
         }
         
         int inputBufferPos = 0;
-        while (inputBufferPos < inputBuffer.length && !innerStreamConsumed) {
-            int chunkBufferRemaining = inputBuffer.length - inputBufferPos;
+        while (inputBufferPos < DEFAULT_CHUNK_SIZE && !innerStreamConsumed) {
+            int chunkBufferRemaining = DEFAULT_CHUNK_SIZE - inputBufferPos;
             if (chunkBufferRemaining > innerStreamBufferSize) {
                 chunkBufferRemaining = innerStreamBufferSize;
             }
             
             int bytesRead = 0;
             try {
-                bytesRead = innerStream.read(inputBuffer, inputBufferPos, chunkBufferRemaining);
+                bytesRead = innerStream.read(outputBuffer, ChunkEncoding.MAX_HEADER_LENGTH + inputBufferPos, 
+                        chunkBufferRemaining);
                 if (bytesRead == -1) {
                     innerStreamConsumed = true;
                 } else {
@@ -131,35 +144,13 @@ public class ChunkedUploadStream extends InputStream {
         return inputBufferPos;
     }
     
-    private void constructOutputBufferChunk(int dataLen) {    
-        StringBuilder chunkHeader = new StringBuilder();
-        chunkHeader.append(Integer.toHexString(dataLen));
-        chunkHeader.append(CLRF);
+    private void constructOutputBufferChunk(int dataLen) {
+        // The header is written right before the data, so the chunk is contiguous.
+        int headerPos = ChunkEncoding.MAX_HEADER_LENGTH - ChunkEncoding.headerLength(dataLen);
+        ChunkEncoding.putHeader(outputBuffer, headerPos, dataLen);
+        int end = ChunkEncoding.put(outputBuffer, ChunkEncoding.MAX_HEADER_LENGTH + dataLen, ChunkEncoding.CRLF);
         
-        try {
-            byte[] header = chunkHeader.toString().getBytes(DEFAULT_CHARTSET_NAME);
-            byte[] trailer = CLRF.getBytes(DEFAULT_CHARTSET_NAME);
-
-            int writePos = 0;
-            System.arraycopy(header, 0, outputBuffer, writePos, header.length);
-            writePos += header.length;
-            if (dataLen > 0) {
-                System.arraycopy(inputBuffer, 0, outputBuffer, writePos, dataLen);
-                writePos += dataLen;
-            }
-            System.arraycopy(trailer, 0, outputBuffer, writePos, trailer.length);
-            
-            outputBufferPos = 0;
-            outputBufferDataLen = header.length + dataLen + trailer.length;
-        } catch (Exception e) {
-            throw new ClientException("Unable to sign the chunked data, " + e.getMessage(), e);
-        }
-    }
-
-    private static int CalculateChunkHeaderLength(long chunkDataSize) {
-        return (int) (Long.toHexString(chunkDataSize).length()
-               + CLRF.length()
-               + chunkDataSize
-               + CLRF.length());
+        outputBufferPos = headerPos;
+        outputBufferDataLen = end;
     }
 }
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * A file opened once and written by any number of threads with positional
+ * writes, e.g. the parts of a multipart download.
+ *
+ * <p>Content is read from the source into a large pooled buffer and written
+ * with one positional write per filled buffer. In mapped mode, regions of
+ * known length are copied into memory mapped windows instead, which suits
+ * large sparse files whose parts arrive out of order.</p>
+ */
+public class FileChannelSink implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final boolean mapped;
+
+    /**
+     * Opens the file for writing, creating it if needed. Existing content is
+     * kept.
+     *
+     * @param file file to write.
+     * @param mapped whether regions of known length are written through
+     *        memory mapped windows.
+     */
+    public FileChannelSink(File file, boolean mapped) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.channel = this.file.getChannel();
+        this.mapped = mapped;
+    }
+
+    /**
+     * Writes the content of the stream to the file starting at the given
+     * position.
+     *
+     * @param in source stream, read until its end.
+     * @param position position in the file of the first byte.
+     * @param length expected length of the content, or -1 if unknown.
+     * @param force whether the written bytes are synced to the device before
+     *        returning.
+     * @return number of bytes written.
+     */
+    public long write(InputStream in, long position, long length, boolean force) throws IOException {
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            long written = 0;
+            if (mapped && length > 0) {
+                written = writeMapped(in, buffer, position, length, force);
+                if (written < length) {
+                    return written;
+                }
+            }
+            long tail = writeChannel(in, buffer, position + written);
+            if (force && (tail > 0 || !mapped)) {
+                channel.force(false);
+            }
+            return written + tail;
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    private long writeMapped(InputStream in, byte[] buffer, long position, long length, boolean force) 
+            throws IOException {
+        long written = 0;
+        while (written < length) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE, position + written, 
+                    Math.min(MAP_WINDOW_SIZE, length - written));
+            int n;
+            while (window.hasRemaining() 
+                    && (n = in.read(buffer, 0, Math.min(buffer.length, window.remaining()))) != -1) {
+                window.put(buffer, 0, n);
+            }
+            written += window.position();
+            // Changes made through a mapping are not covered by FileChannel.force.
+            if (force) {
+                window.force();
+            }
+            if (window.hasRemaining()) {
+                break;
+            }
+        }
+        return written;
+    }
+
+    private long writeChannel(InputStream in, byte[] buffer, long position) throws IOException {
+        long written = 0;
+        while (true) {
+            int filled = 0;
+            int n;
+            while (filled < buffer.length && (n = in.read(buffer, filled, buffer.length - filled)) != -1) {
+                filled += n;
+            }
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, filled);
+            while (byteBuffer.hasRemaining()) {
+                written += channel.write(byteBuffer, position + written);
+            }
+            if (filled < buffer.length) {
+                return written;
+            }
+        }
+    }
+
+    /**
+     * Syncs the content written through the channel to the device.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Truncates the file to the given size.
+     */
+    public void truncate(long size) throws IOException {
+        channel.truncate(size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * A repeatable HTTP entity that sends a region of a file. The region is read
+ * with positional reads, so the position of the file channel is never moved
+ * and every attempt sends the same bytes.
+ *
+ * <p>When the connection exposes its socket channel, the region is handed to
+ * the kernel with {@link FileChannel#transferTo} (sendfile) and never enters
+ * the heap; otherwise, e.g. under TLS, it is copied through a large pooled
+ * buffer.</p>
+ */
+public class FileRegionEntity extends AbstractHttpEntity {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+
+    public FileRegionEntity(FileChannel channel, long position, long length) {
+        if (channel == null) {
+            throw new IllegalArgumentException("File channel may not be null");
+        }
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+    }
+
+    /**
+     * Creates an entity for the remaining content of a file-backed stream, or
+     * of a file slice optionally bounded by a {@link BoundedInputStream}, or
+     * returns null if the stream does not read straight from a file.
+     */
+    public static FileRegionEntity forStream(InputStream content, long contentLength) throws IOException {
+        InputStream source = content instanceof BoundedInputStream 
+                ? ((BoundedInputStream) content).getWrappedInputStream() : content;
+        if (source instanceof FileSliceInputStream) {
+            FileSliceInputStream slice = (FileSliceInputStream) source;
+            long length = contentLength >= 0 ? Math.min(contentLength, slice.getRemaining()) : slice.getRemaining();
+            return new FileRegionEntity(slice.getChannel(), slice.getFilePosition(), length);
+        }
+
+        FileChannel channel = null;
+        if (content instanceof RepeatableFileInputStream) {
+            channel = ((RepeatableFileInputStream) content).getChannel();
+        } else if (content instanceof RepeatableBoundedFileInputStream) {
+            channel = ((RepeatableBoundedFileInputStream) content).getChannel();
+        }
+        if (channel == null) {
+            return null;
+        }
+
+        long position = channel.position();
+        long length = contentLength >= 0 ? contentLength : channel.size() - position;
+        return new FileRegionEntity(channel, position, length);
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return new RegionInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+        if (outstream == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+            long offset = position;
+            long end = position + length;
+            while (offset < end) {
+                byteBuffer.clear();
+                byteBuffer.limit((int) Math.min(buffer.length, end - offset));
+                int n = channel.read(byteBuffer, offset);
+                if (n < 0) {
+                    throw new EOFException("Unexpected end of file at position " + offset);
+                }
+                outstream.write(buffer, 0, n);
+                offset += n;
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+    }
+
+    /**
+     * Writes the region straight to the given channel with
+     * {@link FileChannel#transferTo}.
+     */
+    public void transferTo(WritableByteChannel target) throws IOException {
+        long offset = position;
+        long end = position + length;
+        while (offset < end) {
+            long n = channel.transferTo(offset, end - offset, target);
+            if (n <= 0 && offset >= channel.size()) {
+                throw new EOFException("Unexpected end of file at position " + offset);
+            }
+            offset += n;
+        }
+    }
+
+    private class RegionInputStream extends InputStream {
+        private long offset = position;
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long remaining = position + length - offset;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), offset);
+            if (n > 0) {
+                offset += n;
+            }
+            return n;
+        }
+    }
+}
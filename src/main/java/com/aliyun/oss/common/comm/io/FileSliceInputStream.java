@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A repeatable input stream over a region of a file channel. The region is
+ * read with positional reads, so any number of slices can share one channel
+ * concurrently without moving its position, and reset is a field assignment.
+ *
+ * <p>The channel belongs to the caller and is left open when the slice is
+ * closed. A slice is sent as a {@link FileRegionEntity}, so plain connections
+ * can transfer it without copying.</p>
+ */
+public class FileSliceInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private final byte[] singleByte = new byte[1];
+    private long position;
+    private long markPosition;
+
+    /**
+     * @param channel file channel shared by the slices.
+     * @param position start position of the slice in the file.
+     * @param length length of the slice.
+     */
+    public FileSliceInputStream(FileChannel channel, long position, long length) {
+        if (channel == null) {
+            throw new IllegalArgumentException("File channel may not be null");
+        }
+        if (position < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid slice, position: " + position + ", length: " + length);
+        }
+        this.channel = channel;
+        this.position = position;
+        this.markPosition = position;
+        this.end = position + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(singleByte, 0, 1) == -1 ? -1 : singleByte[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        long remaining = end - position;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+        if (n > 0) {
+            position += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        position = markPosition;
+    }
+
+    /**
+     * Leaves the shared channel open.
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return the position in the file of the next byte to read.
+     */
+    public long getFilePosition() {
+        return position;
+    }
+
+    /**
+     * @return number of bytes left in the slice.
+     */
+    public long getRemaining() {
+        return end - position;
+    }
+}
@@ -84,6 +84,10 @@ public class RepeatableBoundedFileInputStream extends InputStream {
     public InputStream getWrappedInputStream() {
         return this.bis;
     }
+
+    public FileChannel getChannel() {
+        return this.fileChannel;
+    }
  
 }
 
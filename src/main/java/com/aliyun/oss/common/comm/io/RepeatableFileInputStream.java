@@ -97,5 +97,9 @@ public class RepeatableFileInputStream extends InputStream {
     public File getFile() {
         return this.file;
     }
+
+    public FileChannel getChannel() {
+        return this.fileChannel;
+    }
 }
 
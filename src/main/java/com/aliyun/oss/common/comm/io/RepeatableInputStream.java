@@ -79,10 +79,8 @@ public class RepeatableInputStream extends InputStream {
     }
 
     public int read(byte[] out, int outOffset, int outLength) throws IOException {
-        byte[] tmp = new byte[outLength];
-
         if (bufferOffset < bytesReadFromMark && buffer != null) {
-            int bytesFromBuffer = tmp.length;
+            int bytesFromBuffer = outLength;
             if (bufferOffset + bytesFromBuffer > bytesReadFromMark) {
                 bytesFromBuffer = (int) bytesReadFromMark - bufferOffset;
             }
@@ -92,14 +90,14 @@ public class RepeatableInputStream extends InputStream {
             return bytesFromBuffer;
         }
 
-        int count = is.read(tmp);
+        int count = is.read(out, outOffset, outLength);
 
         if (count <= 0) {
             return count;
         }
 
         if (bytesReadFromMark + count <= bufferSize) {
-            System.arraycopy(tmp, 0, buffer, (int) bytesReadFromMark, count);
+            System.arraycopy(out, outOffset, buffer, (int) bytesReadFromMark, count);
             bufferOffset += count;
         } else if (buffer != null) {
             getLog().debug("Buffer size " + bufferSize + " has been exceeded and the input stream "
@@ -107,7 +105,6 @@ public class RepeatableInputStream extends InputStream {
             buffer = null;
         }
 
-        System.arraycopy(tmp, 0, out, outOffset, count);
         bytesReadFromMark += count;
 
         return count;
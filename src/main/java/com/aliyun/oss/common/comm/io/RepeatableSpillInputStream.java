@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * A repeatable stream over a source that can only be read once. Everything
+ * read from the source is kept, so the stream can be reset to its mark no
+ * matter how much has been read since: the first bytes are kept in memory,
+ * taken from the {@link BufferPool} in small chunks up to the memory limit, and the remainder is
+ * spilled to a temporary file that is deleted when the stream is closed.
+ */
+public class RepeatableSpillInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final InputStream source;
+    private final int memoryLimit;
+    private final File spillDirectory;
+
+    private final List<byte[]> chunks = new ArrayList<byte[]>();
+    private long memoryBytes = 0;
+
+    private File spillFile = null;
+    private RandomAccessFile spill = null;
+    private FileChannel spillChannel = null;
+    private long spillBytes = 0;
+
+    private long position = 0;
+    private long markPosition = 0;
+    private boolean closed = false;
+
+    /**
+     * @param source stream to read from.
+     * @param memoryLimit maximum bytes kept in memory before spilling to disk.
+     */
+    public RepeatableSpillInputStream(InputStream source, int memoryLimit) {
+        this(source, memoryLimit, null);
+    }
+
+    /**
+     * @param source stream to read from.
+     * @param memoryLimit maximum bytes kept in memory before spilling to disk.
+     * @param spillDirectory directory of the spill file, null for the default temporary directory.
+     */
+    public RepeatableSpillInputStream(InputStream source, int memoryLimit, File spillDirectory) {
+        if (source == null) {
+            throw new IllegalArgumentException("source should not be null");
+        }
+        this.source = source;
+        this.memoryLimit = Math.max(memoryLimit, 0);
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        markPosition = position;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        position = markPosition;
+        getLog().trace("Reset to position " + markPosition);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int count = read(b, 0, 1);
+        return count == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        }
+
+        long buffered = memoryBytes + spillBytes;
+        if (position < buffered) {
+            int count = replay(b, off, (int) Math.min(len, buffered - position));
+            position += count;
+            return count;
+        }
+
+        int count = source.read(b, off, len);
+        if (count > 0) {
+            append(b, off, count);
+            position += count;
+        }
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        long buffered = memoryBytes + spillBytes - position;
+        return (int) Math.min(Integer.MAX_VALUE, buffered + source.available());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (byte[] chunk : chunks) {
+            BufferPool.getDefault().release(chunk);
+        }
+        chunks.clear();
+        try {
+            source.close();
+        } finally {
+            if (spill != null) {
+                spill.close();
+                if (!spillFile.delete()) {
+                    getLog().warn("Failed to delete spill file " + spillFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of bytes that have been spilled to disk.
+     */
+    public long getSpilledBytes() {
+        return spillBytes;
+    }
+
+    private int replay(byte[] b, int off, int len) throws IOException {
+        if (position < memoryBytes) {
+            int chunk = (int) (position / CHUNK_SIZE);
+            int chunkOffset = (int) (position % CHUNK_SIZE);
+            int count = (int) Math.min(len, Math.min(CHUNK_SIZE - chunkOffset, memoryBytes - position));
+            System.arraycopy(chunks.get(chunk), chunkOffset, b, off, count);
+            return count;
+        }
+
+        int count = spillChannel.read(ByteBuffer.wrap(b, off, len), position - memoryBytes);
+        if (count < 0) {
+            throw new EOFException("Spill file " + spillFile + " is shorter than expected");
+        }
+        return count;
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        while (len > 0 && spill == null && memoryBytes < memoryLimit) {
+            int chunkOffset = (int) (memoryBytes % CHUNK_SIZE);
+            if (chunkOffset == 0) {
+                chunks.add(BufferPool.getDefault().acquire(CHUNK_SIZE));
+            }
+            int count = (int) Math.min(len, Math.min(CHUNK_SIZE - chunkOffset, memoryLimit - memoryBytes));
+            System.arraycopy(b, off, chunks.get(chunks.size() - 1), chunkOffset, count);
+            memoryBytes += count;
+            off += count;
+            len -= count;
+        }
+
+        if (len > 0) {
+            if (spill == null) {
+                openSpillFile();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                spillChannel.write(buffer, spillBytes + (len - buffer.remaining()));
+            }
+            spillBytes += len;
+        }
+    }
+
+    private void openSpillFile() throws IOException {
+        spillFile = File.createTempFile("oss-spill-", ".tmp", spillDirectory);
+        try {
+            spill = new RandomAccessFile(spillFile, "rw");
+        } catch (IOException e) {
+            spillFile.delete();
+            throw e;
+        }
+        spillChannel = spill.getChannel();
+        getLog().debug("Spilling request content beyond " + memoryBytes + " bytes to " + spillFile);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-classed pool of heap and direct buffers shared by the stream paths
+ * of the SDK.
+ *
+ * <p>Requests are rounded up to a power of two between {@link #MIN_BUFFER_SIZE}
+ * and {@link #MAX_BUFFER_SIZE}; larger requests are allocated and never
+ * pooled. Each thread keeps at most one small buffer per size class in a
+ * thread-local cache, and the rest are shared through lock-free queues whose
+ * total size is capped. A buffer must not be used after it is released.</p>
+ */
+public class BufferPool {
+
+    public static final int MIN_BUFFER_SIZE = 4 * 1024;
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+    public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+    /* Only size classes up to this size are cached per thread. */
+    private static final int MAX_THREAD_CACHED_SIZE = 64 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_BUFFER_SIZE) - MIN_SHIFT + 1;
+
+    private static final BufferPool defaultPool = new BufferPool(DEFAULT_CAPACITY);
+
+    private volatile long capacity;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong drops = new AtomicLong();
+
+    private final Arena<byte[]> heapArena = new Arena<byte[]>() {
+        @Override
+        byte[] allocate(int size) {
+            return new byte[size];
+        }
+
+        @Override
+        int capacityOf(byte[] buffer) {
+            return buffer.length;
+        }
+    };
+
+    private final Arena<ByteBuffer> directArena = new Arena<ByteBuffer>() {
+        @Override
+        ByteBuffer allocate(int size) {
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        @Override
+        int capacityOf(ByteBuffer buffer) {
+            return buffer.capacity();
+        }
+    };
+
+    /**
+     * @param capacity maximum bytes held by the shared queues.
+     */
+    public BufferPool(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the pool used by the SDK.
+     */
+    public static BufferPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Returns a heap buffer of at least the given size; its length may be larger.
+     */
+    public byte[] acquire(int size) {
+        return heapArena.acquire(size);
+    }
+
+    /**
+     * Returns a heap buffer to the pool.
+     */
+    public void release(byte[] buffer) {
+        if (buffer != null) {
+            heapArena.release(buffer);
+        }
+    }
+
+    /**
+     * Returns a cleared direct buffer whose capacity is at least the given size.
+     */
+    public ByteBuffer acquireDirect(int size) {
+        ByteBuffer buffer = directArena.acquire(size);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a direct buffer to the pool.
+     */
+    public void releaseDirect(ByteBuffer buffer) {
+        if (buffer != null && buffer.isDirect()) {
+            directArena.release(buffer);
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum bytes held by the shared queues. Buffers already pooled
+     * are kept until they are acquired.
+     */
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return bytes held by the shared queues, excluding the thread-local caches.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    /**
+     * @return number of requests served with a pooled buffer.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests that allocated a new buffer.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of released buffers dropped because the pool was full.
+     */
+    public long getDropCount() {
+        return drops.get();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static int sizeClass(int size) {
+        if (size > MAX_BUFFER_SIZE) {
+            return -1;
+        }
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, MIN_BUFFER_SIZE) - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    private boolean reserve(int size) {
+        while (true) {
+            long current = pooledBytes.get();
+            if (current + size > capacity) {
+                return false;
+            }
+            if (pooledBytes.compareAndSet(current, current + size)) {
+                return true;
+            }
+        }
+    }
+
+    private abstract class Arena<T> {
+        private final ConcurrentLinkedQueue<T>[] queues;
+        private final ThreadLocal<Object[]> threadCaches = new ThreadLocal<Object[]>() {
+            @Override
+            protected Object[] initialValue() {
+                return new Object[SIZE_CLASSES];
+            }
+        };
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Arena() {
+            queues = new ConcurrentLinkedQueue[SIZE_CLASSES];
+            for (int i = 0; i < SIZE_CLASSES; i++) {
+                queues[i] = new ConcurrentLinkedQueue<T>();
+            }
+        }
+
+        abstract T allocate(int size);
+
+        abstract int capacityOf(T buffer);
+
+        @SuppressWarnings("unchecked")
+        T acquire(int size) {
+            int index = sizeClass(size);
+            if (index < 0) {
+                misses.incrementAndGet();
+                return allocate(size);
+            }
+
+            Object[] cache = threadCaches.get();
+            T buffer = (T) cache[index];
+            if (buffer != null) {
+                cache[index] = null;
+                hits.incrementAndGet();
+                return buffer;
+            }
+
+            buffer = queues[index].poll();
+            if (buffer != null) {
+                pooledBytes.addAndGet(-capacityOf(buffer));
+                hits.incrementAndGet();
+                return buffer;
+            }
+
+            misses.incrementAndGet();
+            return allocate(MIN_BUFFER_SIZE << index);
+        }
+
+        void release(T buffer) {
+            int size = capacityOf(buffer);
+            int index = sizeClass(size);
+            if (index < 0 || (MIN_BUFFER_SIZE << index) != size) {
+                return;
+            }
+
+            if (size <= MAX_THREAD_CACHED_SIZE) {
+                Object[] cache = threadCaches.get();
+                if (cache[index] == null) {
+                    cache[index] = buffer;
+                    return;
+                }
+            }
+
+            if (reserve(size)) {
+                queues[index].offer(buffer);
+            } else {
+                drops.incrementAndGet();
+            }
+        }
+    }
+}
@@ -83,15 +83,30 @@ public class DateUtil {
         }
     }
 
+    // ISO 8601 dates are parsed for every entry of a listing, so their formats are kept per thread.
+    private static final ThreadLocal<DateFormat> iso8601DateFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            SimpleDateFormat df = new SimpleDateFormat(ISO8601_DATE_FORMAT, Locale.US);
+            df.setTimeZone(new SimpleTimeZone(0, "GMT"));
+            return df;
+        }
+    };
+
+    private static final ThreadLocal<DateFormat> alternativeIso8601DateFormat = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            SimpleDateFormat df = new SimpleDateFormat(ALTERNATIVE_ISO8601_DATE_FORMAT, Locale.US);
+            df.setTimeZone(new SimpleTimeZone(0, "GMT"));
+            return df;
+        }
+    };
+
     private static DateFormat getIso8601DateFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ISO8601_DATE_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
+        return iso8601DateFormat.get();
     }
 
     private static DateFormat getAlternativeIso8601DateFormat() {
-        SimpleDateFormat df = new SimpleDateFormat(ALTERNATIVE_ISO8601_DATE_FORMAT, Locale.US);
-        df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-        return df;
+        return alternativeIso8601DateFormat.get();
     }
 }
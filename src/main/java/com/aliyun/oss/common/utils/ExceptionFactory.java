@@ -71,6 +71,15 @@ public class ExceptionFactory {
         return new ClientException(ex.getMessage(), errorCode, requestId, ex);
     }
     
+    public static ClientException createCancelledException() {
+        return new ClientException("The request has been cancelled.", ClientErrorCode.REQUEST_CANCELLED, "Unknown");
+    }
+    
+    public static boolean isCancelledException(Throwable ex) {
+        return ex instanceof ClientException 
+                && ClientErrorCode.REQUEST_CANCELLED.equals(((ClientException) ex).getErrorCode());
+    }
+    
     public static OSSException createInvalidResponseException(String requestId, Throwable cause) {
         return createInvalidResponseException(requestId, COMMON_RESOURCE_MANAGER.getFormattedString(
                 "FailedToParseResponse", cause.getMessage()));
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hashed timing wheel for large numbers of short-lived timeouts that are
+ * usually cancelled before they expire, such as per-request deadlines.
+ *
+ * <p>Scheduling and cancelling are O(1) and lock-free for the caller; a single
+ * daemon worker thread advances the wheel once per tick and runs expired
+ * tasks, so tasks must be short and must not block. Expiration is accurate to
+ * one tick.</p>
+ */
+public class HashedWheelTimer {
+
+    private final long tickDuration;
+    private final LinkedList<Timeout>[] wheel;
+    private final int mask;
+    private final String threadName;
+
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private volatile Thread workerThread;
+    private volatile boolean stopped = false;
+    private volatile long startTime;
+
+    /**
+     * @param threadName name of the worker thread.
+     * @param tickDuration tick duration in milliseconds.
+     * @param ticksPerWheel number of buckets, rounded up to a power of two.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedWheelTimer(String threadName, long tickDuration, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel out of range: " + ticksPerWheel);
+        }
+
+        int normalized = 1;
+        while (normalized < ticksPerWheel) {
+            normalized <<= 1;
+        }
+
+        this.threadName = threadName;
+        this.tickDuration = tickDuration;
+        this.wheel = new LinkedList[normalized];
+        for (int i = 0; i < normalized; i++) {
+            this.wheel[i] = new LinkedList<Timeout>();
+        }
+        this.mask = normalized - 1;
+    }
+
+    /**
+     * Schedules the task to run once after the given delay. The worker thread
+     * is started on first use.
+     *
+     * @param task task to run on the timer thread.
+     * @param delay delay in milliseconds.
+     * @return a handle that can be used to cancel the task.
+     */
+    public Timeout newTimeout(Runnable task, long delay) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped.");
+        }
+
+        start();
+
+        Timeout timeout = new Timeout(task, System.currentTimeMillis() - startTime + Math.max(delay, 0));
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. Timeouts that have not expired yet are dropped.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (workerThread != null) {
+            workerThread.interrupt();
+            workerThread = null;
+        }
+    }
+
+    private void start() {
+        if (workerThread != null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (workerThread == null && !stopped) {
+                startTime = System.currentTimeMillis();
+                Thread t = new Thread(new Worker(), threadName);
+                t.setDaemon(true);
+                t.start();
+                workerThread = t;
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        private long tick = 0;
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                long deadline = waitForNextTick();
+                if (deadline < 0) {
+                    break;
+                }
+
+                transferPendingTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)], deadline);
+                tick++;
+            }
+
+            getLog().debug("Shutting down timer thread " + threadName);
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            while (true) {
+                long current = System.currentTimeMillis() - startTime;
+                long sleepTime = deadline - current;
+                if (sleepTime <= 0) {
+                    return current;
+                }
+
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void transferPendingTimeouts() {
+            Timeout timeout;
+            while ((timeout = pendingTimeouts.poll()) != null) {
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+
+                long calculated = timeout.deadline / tickDuration;
+                long ticks = Math.max(calculated, tick);
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void expireTimeouts(LinkedList<Timeout> bucket, long deadline) {
+            Iterator<Timeout> it = bucket.iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.isCancelled()) {
+                    it.remove();
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    it.remove();
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle of a task scheduled with {@link HashedWheelTimer#newTimeout}.
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        /* Accessed by the worker thread only. */
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task.
+         * @return false if the task has already expired or been cancelled.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(ST_INIT, ST_CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                getLog().warn("An exception was thrown by a timer task.", t);
+            }
+        }
+    }
+}
@@ -19,9 +19,9 @@
 
 package com.aliyun.oss.common.utils;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -35,6 +35,7 @@ import java.io.Writer;
 import com.aliyun.oss.common.comm.io.BoundedInputStream;
 import com.aliyun.oss.common.comm.io.RepeatableBoundedFileInputStream;
 import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
+import com.aliyun.oss.common.comm.io.RepeatableSpillInputStream;
 import com.aliyun.oss.internal.OSSConstants;
 
 public class IOUtils {
@@ -80,10 +81,14 @@ public class IOUtils {
         }
         
         ByteArrayOutputStream output = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int len = -1;
-        while ((len = in.read(buffer)) != -1) {
-            output.write(buffer, 0, len);
+        byte[] buffer = BufferPool.getDefault().acquire(BufferPool.MIN_BUFFER_SIZE);
+        try {
+            int len = -1;
+            while ((len = in.read(buffer)) != -1) {
+                output.write(buffer, 0, len);
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
         }
         output.flush();
         return output.toByteArray();
@@ -104,6 +109,14 @@ public class IOUtils {
             } catch (IOException e) {}
         }
     }
+
+    public static void safeClose(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {}
+        }
+    }
     
     public static boolean checkFile(File file) {
         if (file == null) {
@@ -126,12 +139,22 @@ public class IOUtils {
     }
     
     public static InputStream newRepeatableInputStream(final InputStream original) throws IOException {
+        return newRepeatableInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+    }
+    
+    /**
+     * Wraps the stream so that it can be reset for retries. Streams that do not
+     * support mark/reset keep at most memoryLimit bytes in memory and spill the
+     * rest to a temporary file.
+     */
+    public static InputStream newRepeatableInputStream(final InputStream original, int memoryLimit) 
+            throws IOException {
         InputStream repeatable = null;
         if (!original.markSupported()) {
             if (original instanceof FileInputStream) {
                 repeatable = new RepeatableFileInputStream((FileInputStream)original);
             } else {
-                repeatable = new BufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);                
+                repeatable = new RepeatableSpillInputStream(original, memoryLimit);
             }
         } else {
             repeatable = original;
@@ -140,12 +163,17 @@ public class IOUtils {
     }
     
     public static InputStream newRepeatableInputStream(final BoundedInputStream original) throws IOException {
+        return newRepeatableInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+    }
+    
+    public static InputStream newRepeatableInputStream(final BoundedInputStream original, int memoryLimit) 
+            throws IOException {
         InputStream repeatable = null;
         if (!original.markSupported()) {
             if (original.getWrappedInputStream() instanceof FileInputStream) {
                 repeatable = new RepeatableBoundedFileInputStream(original);
             } else {
-                repeatable = new BufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+                repeatable = new RepeatableSpillInputStream(original, memoryLimit);
             }
         } else {
             repeatable = original;
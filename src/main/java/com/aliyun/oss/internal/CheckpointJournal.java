@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * A checkpoint file made of a snapshot followed by an append-only log of
+ * records, so recording a finished part costs one small write instead of
+ * rewriting the whole checkpoint.
+ *
+ * <p>The file holds the magic and version, the snapshot block, then any
+ * number of record blocks; every block is its length, its bytes and their
+ * CRC32. Loading stops at the first torn or corrupt record, so a crash while
+ * appending loses that record only. Appends are synced to the device in
+ * batches of {@link #FORCE_BATCH} records or every {@link #FORCE_INTERVAL}
+ * milliseconds, and when the journal is closed.</p>
+ */
+class CheckpointJournal {
+
+    /**
+     * A checkpoint that can be saved as a snapshot and rebuilt from one and
+     * the records appended after it.
+     */
+    interface Journaled {
+
+        void writeSnapshot(DataOutputStream out) throws IOException;
+
+        void readSnapshot(DataInputStream in) throws IOException;
+
+        void replay(DataInputStream record) throws IOException;
+    }
+
+    static final int MAGIC = 0x4F53534A;
+    static final int VERSION = 1;
+
+    static final int FORCE_BATCH = 64;
+    static final long FORCE_INTERVAL = 1000;
+
+    private static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private int unforced = 0;
+    private long lastForce = System.currentTimeMillis();
+
+    private CheckpointJournal(RandomAccessFile file) {
+        this.file = file;
+        this.channel = file.getChannel();
+    }
+
+    /**
+     * @return whether the file starts like a checkpoint journal.
+     */
+    static boolean isJournal(String path) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(path));
+        try {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the checkpoint into a new journal that replaces
+     * the given file, and opens the journal for appending.
+     */
+    static CheckpointJournal create(String path, Journaled checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        checkpoint.writeSnapshot(out);
+        out.flush();
+        byte[] snapshot = bytes.toByteArray();
+
+        File dest = new File(path);
+        File temp = new File(path + ".tmp");
+        RandomAccessFile tempFile = new RandomAccessFile(temp, "rw");
+        try {
+            tempFile.setLength(0);
+            ByteBuffer buffer = ByteBuffer.allocate(8 + blockLength(snapshot));
+            buffer.putInt(MAGIC).putInt(VERSION);
+            putBlock(buffer, snapshot);
+            buffer.flip();
+            writeFully(tempFile.getChannel(), buffer);
+            tempFile.getChannel().force(true);
+        } finally {
+            tempFile.close();
+        }
+        if (!temp.renameTo(dest)) {
+            dest.delete();
+            if (!temp.renameTo(dest)) {
+                throw new IOException("Cannot replace checkpoint file " + path);
+            }
+        }
+
+        RandomAccessFile journalFile = new RandomAccessFile(dest, "rw");
+        journalFile.seek(journalFile.length());
+        return new CheckpointJournal(journalFile);
+    }
+
+    /**
+     * Restores the checkpoint from its snapshot and replays the intact
+     * records that follow it.
+     */
+    static void load(String path, Journaled checkpoint) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unsupported checkpoint file " + path);
+            }
+            byte[] snapshot = readBlock(in);
+            if (snapshot == null) {
+                throw new IOException("Corrupted checkpoint snapshot in " + path);
+            }
+            checkpoint.readSnapshot(new DataInputStream(new ByteArrayInputStream(snapshot)));
+
+            byte[] record;
+            while ((record = readBlock(in)) != null) {
+                checkpoint.replay(new DataInputStream(new ByteArrayInputStream(record)));
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Appends a record to the journal.
+     */
+    synchronized void append(byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(blockLength(record));
+        putBlock(buffer, record);
+        buffer.flip();
+        writeFully(channel, buffer);
+
+        unforced++;
+        long now = System.currentTimeMillis();
+        if (unforced >= FORCE_BATCH || now - lastForce >= FORCE_INTERVAL) {
+            channel.force(false);
+            unforced = 0;
+            lastForce = now;
+        }
+    }
+
+    synchronized void close() throws IOException {
+        try {
+            if (unforced > 0) {
+                channel.force(false);
+                unforced = 0;
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static int blockLength(byte[] block) {
+        return 4 + block.length + 4;
+    }
+
+    private static void putBlock(ByteBuffer buffer, byte[] block) {
+        buffer.putInt(block.length).put(block).putInt(crc(block));
+    }
+
+    /**
+     * @return the block, or null at the end of the file or at a torn or
+     *         corrupt block.
+     */
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 0 || length > MAX_BLOCK_SIZE) {
+                return null;
+            }
+            byte[] block = new byte[length];
+            in.readFully(block);
+            return in.readInt() == crc(block) ? block : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static int crc(byte[] block) {
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, block.length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -21,17 +21,17 @@ package com.aliyun.oss.internal;
 
 import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
 import static com.aliyun.oss.common.utils.LogUtils.logException;
-import static com.aliyun.oss.internal.OSSConstants.DEFAULT_BUFFER_SIZE;
 import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
 import static com.aliyun.oss.internal.OSSUtils.ensureObjectKeyValid;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -41,13 +41,15 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
+import com.aliyun.oss.common.comm.CancellationToken;
+import com.aliyun.oss.common.comm.io.FileChannelSink;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.IOUtils;
 import com.aliyun.oss.model.DownloadFileRequest;
 import com.aliyun.oss.model.DownloadFileResult;
+import com.aliyun.oss.model.FileSyncPolicy;
 import com.aliyun.oss.model.GenericRequest;
 import com.aliyun.oss.model.GetObjectRequest;
 import com.aliyun.oss.model.OSSObject;
@@ -60,15 +62,21 @@ import com.aliyun.oss.model.SimplifiedObjectMeta;
  */
 public class OSSDownloadOperation {
     
-    static class DownloadCheckPoint implements Serializable {
+    static class DownloadCheckPoint implements Serializable, CheckpointJournal.Journaled {
 
         private static final long serialVersionUID = 4682293344365787077L;
         private static final String DOWNLOAD_MAGIC = "92611BED-89E2-46B6-89E5-72F273D4B0A3";
         
         /**
-         * 从checkpoint文件中加载checkpoint数据
+         * 从checkpoint文件中加载checkpoint数据，兼容旧版本的序列化格式
          */
         public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
+            if (CheckpointJournal.isJournal(cpFile)) {
+                CheckpointJournal.load(cpFile, this);
+                this.md5 = hashCode();
+                return;
+            }
+            
             FileInputStream fileIn =new FileInputStream(cpFile);
             ObjectInputStream in = new ObjectInputStream(fileIn);
             DownloadCheckPoint dcp = (DownloadCheckPoint) in.readObject();
@@ -78,15 +86,97 @@ public class OSSDownloadOperation {
         }
         
         /**
-         * 把checkpoint数据写到checkpoint文件
+         * 把checkpoint数据完整写到checkpoint文件，之后完成的分片追加到该文件末尾
          */
         public synchronized void dump(String cpFile) throws IOException {
             this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+            close();
+            journal = CheckpointJournal.create(cpFile, this);
+        }
+        
+        /**
+         * 把完成的分片追加到checkpoint文件，首次调用时写入完整的checkpoint数据
+         */
+        public void append(String cpFile, int index) throws IOException {
+            CheckpointJournal current;
+            synchronized (this) {
+                if (journal == null) {
+                    dump(cpFile);
+                    return;
+                }
+                current = journal;
+            }
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeInt(index);
+            record.flush();
+            current.append(bytes.toByteArray());
+        }
+        
+        /**
+         * 关闭checkpoint文件
+         */
+        public synchronized void close() throws IOException {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } finally {
+                    journal = null;
+                }
+            }
+        }
+        
+        @Override
+        public void writeSnapshot(DataOutputStream out) throws IOException {
+            CheckpointJournal.writeString(out, magic);
+            CheckpointJournal.writeString(out, downloadFile);
+            CheckpointJournal.writeString(out, bucketName);
+            CheckpointJournal.writeString(out, objectKey);
+            out.writeLong(objectStat.size);
+            out.writeBoolean(objectStat.lastModified != null);
+            if (objectStat.lastModified != null) {
+                out.writeLong(objectStat.lastModified.getTime());
+            }
+            CheckpointJournal.writeString(out, objectStat.digest);
+            out.writeInt(downloadParts.size());
+            for (DownloadPart part : downloadParts) {
+                out.writeInt(part.index);
+                out.writeLong(part.start);
+                out.writeLong(part.end);
+                out.writeBoolean(part.isCompleted);
+            }
+        }
+        
+        @Override
+        public void readSnapshot(DataInputStream in) throws IOException {
+            magic = CheckpointJournal.readString(in);
+            downloadFile = CheckpointJournal.readString(in);
+            bucketName = CheckpointJournal.readString(in);
+            objectKey = CheckpointJournal.readString(in);
+            objectStat = new ObjectStat();
+            objectStat.size = in.readLong();
+            objectStat.lastModified = in.readBoolean() ? new Date(in.readLong()) : null;
+            objectStat.digest = CheckpointJournal.readString(in);
+            int partCount = in.readInt();
+            downloadParts = new ArrayList<DownloadPart>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                DownloadPart part = new DownloadPart();
+                part.index = in.readInt();
+                part.start = in.readLong();
+                part.end = in.readLong();
+                part.isCompleted = in.readBoolean();
+                downloadParts.add(part);
+            }
+        }
+        
+        @Override
+        public void replay(DataInputStream record) throws IOException {
+            int index = record.readInt();
+            if (index < 0 || index >= downloadParts.size()) {
+                throw new IOException("Invalid part index in checkpoint: " + index);
+            }
+            update(index, true);
         }
         
         /**
@@ -151,6 +241,8 @@ public class OSSDownloadOperation {
         public String objectKey;  // object key
         public ObjectStat objectStat;  // object state
         public ArrayList<DownloadPart> downloadParts;  // 分片
+        
+        private transient CheckpointJournal journal;  // 追加写入的checkpoint文件
 
     }
     
@@ -278,10 +370,20 @@ public class OSSDownloadOperation {
 
         private List<PartResult> partResults;
         private ObjectMetadata objectMetadata;
+        private FileChannelSink sink;
     }
     
     public OSSDownloadOperation(OSSObjectOperation objectOperation) {
+        this(objectOperation, null);
+    }
+    
+    /**
+     * @param transferScheduler scheduler that runs the parts, or null to run
+     *        the parts of each call on threads of its own.
+     */
+    public OSSDownloadOperation(OSSObjectOperation objectOperation, TransferScheduler transferScheduler) {
         this.objectOperation = objectOperation;
+        this.transferScheduler = transferScheduler;
     }
     
     public DownloadFileResult downloadFile(DownloadFileRequest downloadFileRequest) throws Throwable {
@@ -310,7 +412,31 @@ public class OSSDownloadOperation {
         return downloadFileWithCheckpoint(downloadFileRequest);
     }
     
+    /**
+     * 放弃断点续传的下载：删除checkpoint文件及未下载完成的本地文件。用于取消已暂停或已失败的下载。
+     */
+    public void discardDownloadFile(DownloadFileRequest downloadFileRequest) {
+        assertParameterNotNull(downloadFileRequest, "downloadFileRequest");
+        if (downloadFileRequest.isEnableCheckpoint() && downloadFileRequest.getCheckpointFile() != null) {
+            remove(downloadFileRequest.getCheckpointFile());
+        }
+        if (downloadFileRequest.getDownloadFile() != null) {
+            remove(downloadFileRequest.getDownloadFile());
+        }
+    }
+    
     private DownloadFileResult downloadFileWithCheckpoint(DownloadFileRequest downloadFileRequest) throws Throwable {
+        // 本次下载的令牌，随请求的令牌一起取消，某一分片最终失败时也会取消
+        CancellationToken token = new CancellationToken(downloadFileRequest.getCancellationToken());
+        try {
+            return downloadFileWithCheckpoint(downloadFileRequest, token);
+        } finally {
+            token.detach();
+        }
+    }
+    
+    private DownloadFileResult downloadFileWithCheckpoint(DownloadFileRequest downloadFileRequest, 
+            CancellationToken token) throws Throwable {
         DownloadFileResult downloadFileResult = new DownloadFileResult();
         DownloadCheckPoint downloadCheckPoint = new DownloadCheckPoint();
         
@@ -333,19 +459,44 @@ public class OSSDownloadOperation {
             prepare(downloadCheckPoint, downloadFileRequest);
         }
         
-        // 并发下载分片
-        DownloadResult downloadResult = download(downloadCheckPoint, downloadFileRequest);
+        // 并发下载分片，结束后把checkpoint文件压缩为完整的checkpoint数据
+        DownloadResult downloadResult = null;
+        long pendingBytes = 0;
+        for (DownloadPart downloadPart : downloadCheckPoint.downloadParts) {
+            pendingBytes += downloadPart.isCompleted ? 0 : downloadPart.end - downloadPart.start + 1;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            downloadResult = download(downloadCheckPoint, downloadFileRequest, downloadFileResult, token);
+        } finally {
+            if (downloadFileRequest.isEnableCheckpoint()) {
+                compact(downloadCheckPoint, downloadFileRequest.getCheckpointFile());
+            }
+        }
+        
+        // 抛出最先失败的分片的异常，其余分片因此被取消
         for (PartResult partResult : downloadResult.getPartResults()) {
-            if (partResult.isFailed()) {
+            if (partResult.isFailed() && !ExceptionFactory.isCancelledException(partResult.getException())) {
                 throw partResult.getException();
             }
         }
+        if (token.isCancelled()) {
+            throw ExceptionFactory.createCancelledException();
+        }
         
         // 开启了断点下载，成功上传后删除checkpoint文件
         if (downloadFileRequest.isEnableCheckpoint()) {
             remove(downloadFileRequest.getCheckpointFile());
         }
         
+        // 记录实际使用的分片大小及吞吐量
+        long elapsed = System.currentTimeMillis() - startTime;
+        downloadFileResult.setThroughput(pendingBytes * 1000 / Math.max(elapsed, 1));
+        if (!downloadCheckPoint.downloadParts.isEmpty()) {
+            DownloadPart firstPart = downloadCheckPoint.downloadParts.get(0);
+            downloadFileResult.setPartSize(firstPart.end - firstPart.start + 1);
+        }
+        
         downloadFileResult.setObjectMetadata(downloadResult.getObjectMetadata());
         return downloadFileResult;
     }
@@ -357,8 +508,10 @@ public class OSSDownloadOperation {
         downloadCheckPoint.objectKey = downloadFileRequest.getKey();
         downloadCheckPoint.objectStat = ObjectStat.getFileStat(objectOperation, 
                 downloadCheckPoint.bucketName, downloadCheckPoint.objectKey);
-        downloadCheckPoint.downloadParts = splitFile(downloadCheckPoint.objectStat.size, 
-                downloadFileRequest.getPartSize());
+        long partSize = downloadFileRequest.isAutoTuning() 
+                ? TransferTuner.choosePartSize(downloadCheckPoint.objectStat.size, downloadFileRequest.getTargetPartCount())
+                : downloadFileRequest.getPartSize();
+        downloadCheckPoint.downloadParts = splitFile(downloadCheckPoint.objectStat.size, partSize);
         
         createFixedFile(downloadFileRequest.getDownloadFile(), downloadCheckPoint.objectStat.size);
     }
@@ -377,29 +530,61 @@ public class OSSDownloadOperation {
         }
     } 
     
-    private DownloadResult download(DownloadCheckPoint downloadCheckPoint, DownloadFileRequest downloadFileRequest) 
-            throws Throwable {
+    private DownloadResult download(DownloadCheckPoint downloadCheckPoint, DownloadFileRequest downloadFileRequest, 
+            DownloadFileResult downloadFileResult, CancellationToken token) throws Throwable {
         DownloadResult downloadResult = new DownloadResult();
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(downloadFileRequest.getTaskNum());
+        int taskNum = downloadFileRequest.isAutoTuning() 
+                ? TransferTuner.maxConcurrency(downloadFileRequest.getTaskNum()) : downloadFileRequest.getTaskNum();
+        TransferScheduler scheduler = transferScheduler != null ? transferScheduler 
+                : new TransferScheduler(taskNum, null);
+        final TransferScheduler.Transfer transfer = scheduler.newTransfer(taskNum, downloadFileRequest.getPriority());
+        TransferTuner tuner = downloadFileRequest.isAutoTuning() ? new TransferTuner(transfer, taskNum) : null;
         ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
         List<Task> tasks = new ArrayList<Task>();
-                
-        for (int i = 0; i < downloadCheckPoint.downloadParts.size(); i++) {
-            if (!downloadCheckPoint.downloadParts.get(i).isCompleted) {
-                Task task = new Task(i, "download-" + i, downloadCheckPoint, i, downloadFileRequest, objectOperation);
-                futures.add(service.submit(task));
-                tasks.add(task);
-            } else {
-                taskResults.add(new PartResult(i + 1, downloadCheckPoint.downloadParts.get(i).start,
-                        downloadCheckPoint.downloadParts.get(i).end));
+        PartRetryPolicy retryPolicy = new PartRetryPolicy(downloadFileRequest.getPartRetryCount(), 
+                downloadFileRequest.getPartRetryDelay());
+        
+        // 取消时丢弃尚未开始的分片，正在下载的分片由令牌中止
+        token.addListener(new Runnable() {
+            @Override
+            public void run() {
+                transfer.cancel();
             }
-        }
-        service.shutdown();
+        });
         
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        // All parts write the file through one channel with positional writes.
+        FileChannelSink sink = new FileChannelSink(new File(downloadFileRequest.getDownloadFile()), 
+                downloadFileRequest.isUseMappedFile());
+        try {
+            for (int i = 0; i < downloadCheckPoint.downloadParts.size(); i++) {
+                if (!downloadCheckPoint.downloadParts.get(i).isCompleted) {
+                    Task task = new Task(i, "download-" + i, downloadCheckPoint, i, downloadFileRequest, 
+                            objectOperation, sink, retryPolicy, tuner, token);
+                    futures.add(transfer.submit(task));
+                    tasks.add(task);
+                } else {
+                    taskResults.add(new PartResult(i + 1, downloadCheckPoint.downloadParts.get(i).start,
+                            downloadCheckPoint.downloadParts.get(i).end));
+                }
+            }
+            transfer.awaitCompletion();
+            downloadFileResult.setTaskNum(transfer.getMaxConcurrency());
+            
+            if (downloadFileRequest.getSyncPolicy() == FileSyncPolicy.OnComplete) {
+                sink.force();
+            }
+        } finally {
+            sink.close();
+            if (scheduler != transferScheduler) {
+                scheduler.shutdown();
+            }
+        }
         
         for (Future<PartResult> future : futures) {
+            if (future.isCancelled()) {
+                continue;
+            }
             try {
                 PartResult tr = future.get();
                 taskResults.add(tr);
@@ -416,8 +601,11 @@ public class OSSDownloadOperation {
         });
         
         downloadResult.setPartResults(taskResults);
-        if (tasks.size() > 0) {
-            downloadResult.setObjectMetadata(tasks.get(0).GetobjectMetadata());
+        for (Task task : tasks) {
+            if (task.GetobjectMetadata() != null) {
+                downloadResult.setObjectMetadata(task.GetobjectMetadata());
+                break;
+            }
         }
 
         return downloadResult;
@@ -426,28 +614,64 @@ public class OSSDownloadOperation {
     static class Task implements Callable<PartResult> {
         
         public Task(int id, String name, DownloadCheckPoint downloadCheckPoint, int partIndex,
-                DownloadFileRequest downloadFileRequest, OSSObjectOperation objectOperation) {
+                DownloadFileRequest downloadFileRequest, OSSObjectOperation objectOperation, FileChannelSink sink,
+                PartRetryPolicy retryPolicy, TransferTuner tuner, CancellationToken token) {
             this.id = id;
             this.name = name;
             this.downloadCheckPoint = downloadCheckPoint;
             this.partIndex = partIndex;
             this.downloadFileRequest = downloadFileRequest;
             this.objectOperation = objectOperation;
+            this.sink = sink;
+            this.retryPolicy = retryPolicy;
+            this.tuner = tuner;
+            this.token = token;
         }
         
         @Override
         public PartResult call() throws Exception {
-            PartResult tr = null;
-            RandomAccessFile output = null;
-            InputStream content = null;
+            DownloadPart downloadPart = downloadCheckPoint.downloadParts.get(partIndex);
+            PartResult tr = new PartResult(partIndex + 1, downloadPart.start, downloadPart.end);
             
+            for (int retries = 0; ; retries++) {
+                try {
+                    long startTime = System.currentTimeMillis();
+                    downloadPart(downloadPart);
+                    if (tuner != null) {
+                        tuner.onPartCompleted(downloadPart.end - downloadPart.start + 1, 
+                                System.currentTimeMillis() - startTime);
+                    }
+                    return tr;
+                } catch (Exception e) {
+                    if (!token.isCancelled() && retryPolicy.shouldRetry(e, retries)) {
+                        logException(String.format("Task %d:%s download part %d failed, retry %d: ", 
+                                id, name, partIndex, retries + 1), e);
+                        if (retryPolicy.pause(retries, token)) {
+                            continue;
+                        }
+                    }
+                    
+                    tr.setFailed(true);
+                    if (token.isCancelled()) {
+                        tr.setException(ExceptionFactory.createCancelledException());
+                    } else {
+                        // 分片最终失败，取消其余分片
+                        tr.setException(e);
+                        logException(String.format("Task %d:%s download part %d failed: ", id, name, partIndex), e);
+                        token.cancel();
+                    }
+                    return tr;
+                }
+            }
+        }
+        
+        private void downloadPart(DownloadPart downloadPart) throws IOException {
+            if (token.isCancelled()) {
+                throw ExceptionFactory.createCancelledException();
+            }
+            
+            InputStream content = null;
             try {
-                DownloadPart downloadPart = downloadCheckPoint.downloadParts.get(partIndex);
-                tr = new PartResult(partIndex + 1, downloadPart.start, downloadPart.end);
-                
-                output = new RandomAccessFile(downloadFileRequest.getDownloadFile(), "rw");  
-                output.seek(downloadPart.start);
-
                 GetObjectRequest getObjectRequest = new GetObjectRequest(downloadFileRequest.getBucketName(),
                         downloadFileRequest.getKey());
                 getObjectRequest.setMatchingETagConstraints(downloadFileRequest.getMatchingETagConstraints());
@@ -456,36 +680,26 @@ public class OSSDownloadOperation {
                 getObjectRequest.setUnmodifiedSinceConstraint(downloadFileRequest.getUnmodifiedSinceConstraint());
                 getObjectRequest.setResponseHeaders(downloadFileRequest.getResponseHeaders());
                 getObjectRequest.setRange(downloadPart.start, downloadPart.end);
+                getObjectRequest.setCancellationToken(token);
                 
                 OSSObject ossObj = objectOperation.getObject(getObjectRequest);
                 objectMetadata = ossObj.getObjectMetadata();
                 content = ossObj.getObjectContent();
                 
-                byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-                int bytesRead = 0;
-                while ((bytesRead = content.read(buffer)) != -1) {
-                    output.write(buffer, 0, bytesRead);
-                }
+                // Mapped windows are forced as they complete, so they are forced for either policy.
+                FileSyncPolicy syncPolicy = downloadFileRequest.getSyncPolicy();
+                boolean force = syncPolicy == FileSyncPolicy.PerPart 
+                        || (syncPolicy == FileSyncPolicy.OnComplete && downloadFileRequest.isUseMappedFile());
+                sink.write(content, downloadPart.start, downloadPart.end - downloadPart.start + 1, force);
                 
                 downloadCheckPoint.update(partIndex, true);
                 if (downloadFileRequest.isEnableCheckpoint()) {
-                   downloadCheckPoint.dump(downloadFileRequest.getCheckpointFile()); 
+                   downloadCheckPoint.append(downloadFileRequest.getCheckpointFile(), partIndex); 
                 }
-            } catch (Exception e) {
-                tr.setFailed(true);
-                tr.setException(e);
-                logException(String.format("Task %d:%s upload part %d failed: ", id, name, partIndex), e);
             } finally {
-                if (output != null) {
-                    output.close();
-                }
-                
-                if (content != null) {
-                    content.close();
-                }
+                // Closing the stream of an aborted request may fail, which must not hide the result.
+                IOUtils.safeClose(content);
             }
-                                    
-            return tr;
         }
         
         public ObjectMetadata GetobjectMetadata () {
@@ -499,6 +713,10 @@ public class OSSDownloadOperation {
         private DownloadFileRequest downloadFileRequest;
         private OSSObjectOperation objectOperation;
         private ObjectMetadata objectMetadata;
+        private FileChannelSink sink;
+        private PartRetryPolicy retryPolicy;
+        private TransferTuner tuner;
+        private CancellationToken token;
     }
     
     private ArrayList<DownloadPart> splitFile(long objectSize, long partSize) {
@@ -528,6 +746,15 @@ public class OSSDownloadOperation {
         return begin + per - 1;
     }
     
+    private static void compact(DownloadCheckPoint downloadCheckPoint, String cpFile) {
+        try {
+            downloadCheckPoint.dump(cpFile);
+            downloadCheckPoint.close();
+        } catch (IOException e) {
+            logException("Cannot compact checkpoint file " + cpFile + ": ", e);
+        }
+    }
+    
     private boolean remove(String filePath) {
         boolean flag = false;  
         File file = new File(filePath);  
@@ -540,4 +767,5 @@ public class OSSDownloadOperation {
     }
     
     private OSSObjectOperation objectOperation;
+    private TransferScheduler transferScheduler;
 }
@@ -307,7 +307,8 @@ public class OSSMultipartOperation extends OSSOperation {
         
         InputStream repeatableInputStream = null;
         try {
-            repeatableInputStream = newRepeatableInputStream(uploadPartRequest.buildPartialStream());
+            repeatableInputStream = newRepeatableInputStream(uploadPartRequest.buildPartialStream(), 
+                    getInnerClient().getClientConfiguration().getRepeatableStreamMemoryLimit());
         } catch (IOException ex) {
             logException("Cannot wrap to repeatable input stream: ", ex);
             throw new ClientException("Cannot wrap to repeatable input stream: ", ex);
@@ -28,7 +28,6 @@ import static com.aliyun.oss.common.utils.IOUtils.safeClose;
 import static com.aliyun.oss.common.utils.LogUtils.getLog;
 import static com.aliyun.oss.common.utils.LogUtils.logException;
 import static com.aliyun.oss.event.ProgressPublisher.publishProgress;
-import static com.aliyun.oss.internal.OSSConstants.DEFAULT_BUFFER_SIZE;
 import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
 import static com.aliyun.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
 import static com.aliyun.oss.internal.OSSUtils.addDateHeader;
@@ -57,33 +56,36 @@ import static com.aliyun.oss.internal.ResponseParsers.putObjectReponseParser;
 import static com.aliyun.oss.internal.ResponseParsers.putObjectCallbackReponseParser;
 import static com.aliyun.oss.internal.ResponseParsers.getSimplifiedObjectMetaResponseParser;
 
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import org.apache.http.HttpStatus;
 
+import com.aliyun.oss.AsyncHandler;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.OSSErrorCode;
 import com.aliyun.oss.OSSException;
 import com.aliyun.oss.ServiceException;
 import com.aliyun.oss.common.auth.CredentialsProvider;
+import com.aliyun.oss.common.comm.ExecutionContext;
+import com.aliyun.oss.common.comm.HedgingPolicy;
 import com.aliyun.oss.common.comm.RequestMessage;
 import com.aliyun.oss.common.comm.ResponseHandler;
 import com.aliyun.oss.common.comm.ResponseMessage;
 import com.aliyun.oss.common.comm.ServiceClient;
+import com.aliyun.oss.common.comm.io.FileChannelSink;
 import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
+import com.aliyun.oss.common.parser.ResponseParseException;
 import com.aliyun.oss.common.parser.ResponseParser;
 import com.aliyun.oss.common.utils.BinaryUtil;
 import com.aliyun.oss.common.utils.DateUtil;
@@ -135,6 +137,30 @@ public class OSSObjectOperation extends OSSOperation {
         }
     }
     
+    /**
+     * Upload input stream or file to oss without blocking the calling thread.
+     */
+    public Future<PutObjectResult> putObjectAsync(PutObjectRequest putObjectRequest, 
+            AsyncHandler<PutObjectResult> handler) throws ClientException {
+        
+        assertParameterNotNull(putObjectRequest, "putObjectRequest");
+        
+        RequestMessage httpRequest = buildWriteObjectRequest(WriteMode.OVERWRITE, putObjectRequest);
+        
+        List<ResponseHandler> reponseHandlers = null;
+        ResponseParser<PutObjectResult> parser = putObjectReponseParser;
+        if (putObjectRequest.getCallback() != null) {
+            reponseHandlers = new ArrayList<ResponseHandler>();
+            reponseHandlers.add(new OSSCallbackErrorResponseHandler());
+            parser = putObjectCallbackReponseParser;
+        }
+        
+        final ProgressListener listener = putObjectRequest.getProgressListener();
+        publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        return doOperationAsync(httpRequest, parser, putObjectRequest.getBucketName(), putObjectRequest.getKey(), 
+                true, null, reponseHandlers, new ProgressAsyncHandler<PutObjectResult>(listener, handler, true));
+    }
+    
     /**
      * Upload input stream to oss by using url signature.
      */
@@ -177,15 +203,61 @@ public class OSSObjectOperation extends OSSOperation {
         
         assertParameterNotNull(getObjectRequest, "getObjectRequest");
         
-        String bucketName = null;
-        String key = null;
+        String bucketName = getObjectRequest.isUseUrlSignature() ? null : getObjectRequest.getBucketName();
+        String key = getObjectRequest.isUseUrlSignature() ? null : getObjectRequest.getKey();
+        RequestMessage request = buildGetObjectRequest(getObjectRequest);
+        
+        final ProgressListener listener = getObjectRequest.getProgressListener();
+        OSSObject ossObject = null;
+        try {
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            ExecutionContext context = createContext(request, bucketName, key, null, null);
+            context.setHedgingPolicy(getObjectRequest.getHedgingPolicy() != null ? 
+                    getObjectRequest.getHedgingPolicy() : getDefaultHedgingPolicy());
+            ossObject = doOperation(request, new GetObjectResponseParser(bucketName, key), context, true);
+            wrapObjectContent(ossObject, listener);
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        }
+
+        return ossObject;
+    }
+    
+    /**
+     * Pull an object from oss without blocking the calling thread.
+     */
+    public Future<OSSObject> getObjectAsync(GetObjectRequest getObjectRequest, AsyncHandler<OSSObject> handler)
+            throws ClientException {
+        
+        assertParameterNotNull(getObjectRequest, "getObjectRequest");
+        
+        String bucketName = getObjectRequest.isUseUrlSignature() ? null : getObjectRequest.getBucketName();
+        String key = getObjectRequest.isUseUrlSignature() ? null : getObjectRequest.getKey();
+        RequestMessage request = buildGetObjectRequest(getObjectRequest);
+        
+        final ProgressListener listener = getObjectRequest.getProgressListener();
+        final GetObjectResponseParser parser = new GetObjectResponseParser(bucketName, key);
+        publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        return doOperationAsync(request, new ResponseParser<OSSObject>() {
+            
+            @Override
+            public OSSObject parse(ResponseMessage response) throws ResponseParseException {
+                OSSObject ossObject = parser.parse(response);
+                wrapObjectContent(ossObject, listener);
+                return ossObject;
+            }
+            
+        }, bucketName, key, true, new ProgressAsyncHandler<OSSObject>(listener, handler, false));
+    }
+    
+    private RequestMessage buildGetObjectRequest(GetObjectRequest getObjectRequest) {
+        
         RequestMessage request = null;
         
         if (!getObjectRequest.isUseUrlSignature()) {
-            assertParameterNotNull(getObjectRequest, "getObjectRequest");
-
-            bucketName = getObjectRequest.getBucketName();
-            key = getObjectRequest.getKey();
+            String bucketName = getObjectRequest.getBucketName();
+            String key = getObjectRequest.getKey();
             
             assertParameterNotNull(bucketName, "bucketName");
             assertParameterNotNull(key, "key");
@@ -215,26 +287,18 @@ public class OSSObjectOperation extends OSSOperation {
             request.setHeaders(getObjectRequest.getHeaders());
         }
         
-        final ProgressListener listener = getObjectRequest.getProgressListener();
-        OSSObject ossObject = null;
-        try {
-            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            ossObject = doOperation(request, new GetObjectResponseParser(bucketName, key), 
-                    bucketName, key, true);
-            InputStream instream = ossObject.getObjectContent();
-            ProgressInputStream progressInputStream = new ProgressInputStream(instream, listener) {
-                @Override
-                protected void onEOF() {
-                    publishProgress(getListener(), ProgressEventType.TRANSFER_COMPLETED_EVENT);
-                };
+        return request;
+    }
+    
+    private static void wrapObjectContent(OSSObject ossObject, ProgressListener listener) {
+        InputStream instream = ossObject.getObjectContent();
+        ProgressInputStream progressInputStream = new ProgressInputStream(instream, listener) {
+            @Override
+            protected void onEOF() {
+                publishProgress(getListener(), ProgressEventType.TRANSFER_COMPLETED_EVENT);
             };
-            ossObject.setObjectContent(progressInputStream);
-        } catch (RuntimeException e) {
-            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            throw e;
-        }
-
-        return ossObject;
+        };
+        ossObject.setObjectContent(progressInputStream);
     }
 
     /**
@@ -247,21 +311,18 @@ public class OSSObjectOperation extends OSSOperation {
 
         OSSObject ossObject = getObject(getObjectRequest);
 
-        OutputStream outputStream = null;
+        FileChannelSink sink = null;
         try {
-            outputStream = new BufferedOutputStream(new FileOutputStream(file));
-            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-            int bytesRead;
-            while ((bytesRead = ossObject.getObjectContent().read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
+            sink = new FileChannelSink(file, false);
+            sink.truncate(0);
+            sink.write(ossObject.getObjectContent(), 0, -1, false);
             
             return ossObject.getObjectMetadata();
         } catch (IOException ex) {
             logException("Cannot read object content stream: ", ex);
             throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), ex);
         } finally {
-            safeClose(outputStream);
+            safeClose(sink);
             safeClose(ossObject.getObjectContent());
         }
     }
@@ -304,6 +365,34 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(genericRequest, "genericRequest");
         
+        RequestMessage request = buildGetObjectMetadataRequest(genericRequest);
+        
+        ExecutionContext context = createContext(request, genericRequest.getBucketName(), 
+                genericRequest.getKey(), null, createNoSuchKeyResponseHandlers());
+        context.setHedgingPolicy(getDefaultHedgingPolicy());
+        return doOperation(request, getObjectMetadataResponseParser, context, true);
+    }
+    
+    private HedgingPolicy getDefaultHedgingPolicy() {
+        return getInnerClient().getClientConfiguration().getHedgingPolicy();
+    }
+    
+    /**
+     * Get object matadata without blocking the calling thread.
+     */
+    public Future<ObjectMetadata> getObjectMetadataAsync(GenericRequest genericRequest, 
+            AsyncHandler<ObjectMetadata> handler) throws ClientException {
+
+        assertParameterNotNull(genericRequest, "genericRequest");
+        
+        RequestMessage request = buildGetObjectMetadataRequest(genericRequest);
+        
+        return doOperationAsync(request, getObjectMetadataResponseParser, genericRequest.getBucketName(), 
+                genericRequest.getKey(), true, null, createNoSuchKeyResponseHandlers(), handler);
+    }
+    
+    private RequestMessage buildGetObjectMetadataRequest(GenericRequest genericRequest) {
+        
         String bucketName = genericRequest.getBucketName();
         String key = genericRequest.getKey();
         
@@ -312,14 +401,16 @@ public class OSSObjectOperation extends OSSOperation {
         ensureBucketNameValid(bucketName);
         ensureObjectKeyValid(key);
         
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient())
+        return new OSSRequestMessageBuilder(getInnerClient())
                 .setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.HEAD)
                 .setBucket(bucketName)
                 .setKey(key)
                 .setOriginalRequest(genericRequest)
                 .build();
-        
+    }
+    
+    private static List<ResponseHandler> createNoSuchKeyResponseHandlers() {
         List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
         reponseHandlers.add(new ResponseHandler() {
             
@@ -336,9 +427,7 @@ public class OSSObjectOperation extends OSSOperation {
             }
             
         });
-        
-        return doOperation(request, getObjectMetadataResponseParser, 
-                bucketName, key, true, null, reponseHandlers);
+        return reponseHandlers;
     }
 
     /**
@@ -374,6 +463,27 @@ public class OSSObjectOperation extends OSSOperation {
 
         assertParameterNotNull(genericRequest, "genericRequest");
         
+        RequestMessage request = buildDeleteObjectRequest(genericRequest);
+        
+        doOperation(request, emptyResponseParser, genericRequest.getBucketName(), genericRequest.getKey());
+    }
+    
+    /**
+     * Delete an object without blocking the calling thread.
+     */
+    public Future<ResponseMessage> deleteObjectAsync(GenericRequest genericRequest, 
+            AsyncHandler<ResponseMessage> handler) throws ClientException {
+
+        assertParameterNotNull(genericRequest, "genericRequest");
+        
+        RequestMessage request = buildDeleteObjectRequest(genericRequest);
+        
+        return doOperationAsync(request, emptyResponseParser, genericRequest.getBucketName(), 
+                genericRequest.getKey(), false, handler);
+    }
+    
+    private RequestMessage buildDeleteObjectRequest(GenericRequest genericRequest) {
+        
         String bucketName = genericRequest.getBucketName();
         String key = genericRequest.getKey();
         
@@ -382,15 +492,13 @@ public class OSSObjectOperation extends OSSOperation {
         assertParameterNotNull(key, "key");
         ensureObjectKeyValid(key);
         
-        RequestMessage request = new OSSRequestMessageBuilder(getInnerClient())
+        return new OSSRequestMessageBuilder(getInnerClient())
                 .setEndpoint(getEndpoint())
                 .setMethod(HttpMethod.DELETE)
                 .setBucket(bucketName)
                 .setKey(key)
                 .setOriginalRequest(genericRequest)
                 .build();
-        
-        doOperation(request, emptyResponseParser, bucketName, key);
     }
     
     /**
@@ -587,6 +695,32 @@ public class OSSObjectOperation extends OSSOperation {
         ResponseType writeObjectInternal(WriteMode mode, RequestType originalRequest, 
                 ResponseParser<ResponseType> responseParser) {
         
+        final String bucketName = originalRequest.getBucketName();
+        final String key = originalRequest.getKey();
+        RequestMessage httpRequest = buildWriteObjectRequest(mode, originalRequest);
+        
+        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
+        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
+        
+        final ProgressListener listener = originalRequest.getProgressListener();
+        ResponseType result = null;
+        try {
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            if (originalRequest.getCallback() == null) {
+                result = doOperation(httpRequest, responseParser, bucketName, key, true);
+            } else {
+                result = doOperation(httpRequest, responseParser, bucketName, key, true, null, reponseHandlers);
+            }
+            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        } catch (RuntimeException e) {
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        }
+        return result;
+    }
+    
+    private RequestMessage buildWriteObjectRequest(WriteMode mode, PutObjectRequest originalRequest) {
+        
         final String bucketName = originalRequest.getBucketName();
         final String key = originalRequest.getKey();
         InputStream originalInputStream = originalRequest.getInputStream();
@@ -629,7 +763,8 @@ public class OSSObjectOperation extends OSSOperation {
             }
             
             try {
-                repeatableInputStream = newRepeatableInputStream(originalInputStream);
+                repeatableInputStream = newRepeatableInputStream(originalInputStream, 
+                        getInnerClient().getClientConfiguration().getRepeatableStreamMemoryLimit());
             } catch (IOException ex) {
                 logException("Cannot wrap to repeatable input stream: ", ex);
                 throw new ClientException("Cannot wrap to repeatable input stream: ", ex);
@@ -654,24 +789,43 @@ public class OSSObjectOperation extends OSSOperation {
                 .setOriginalRequest(originalRequest)
                 .build();
         
-        List<ResponseHandler> reponseHandlers = new ArrayList<ResponseHandler>();
-        reponseHandlers.add(new OSSCallbackErrorResponseHandler());
+        return httpRequest;
+    }
+    
+    /**
+     * Publishes the completion or failure progress event of an asynchronous
+     * transfer before handing the outcome to the caller's handler.
+     */
+    private static class ProgressAsyncHandler<T> implements AsyncHandler<T> {
         
-        final ProgressListener listener = originalRequest.getProgressListener();
-        ResponseType result = null;
-        try {
-            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            if (originalRequest.getCallback() == null) {
-                result = doOperation(httpRequest, responseParser, bucketName, key, true);
-            } else {
-                result = doOperation(httpRequest, responseParser, bucketName, key, true, null, reponseHandlers);
+        private final ProgressListener listener;
+        private final AsyncHandler<T> handler;
+        private final boolean publishCompleted;
+        
+        public ProgressAsyncHandler(ProgressListener listener, AsyncHandler<T> handler, 
+                boolean publishCompleted) {
+            this.listener = listener;
+            this.handler = handler;
+            this.publishCompleted = publishCompleted;
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            if (publishCompleted) {
+                publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
             }
-            publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
-        } catch (RuntimeException e) {
+            if (handler != null) {
+                handler.onSuccess(result);
+            }
+        }
+
+        @Override
+        public void onError(Exception exception) {
             publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
-            throw e;
+            if (handler != null) {
+                handler.onError(exception);
+            }
         }
-        return result;
     }
 
     private static void populateCopyObjectHeaders(CopyObjectRequest copyObjectRequest,
@@ -25,7 +25,13 @@ import static com.aliyun.oss.internal.OSSUtils.safeCloseResponse;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.aliyun.oss.AsyncHandler;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.OSSException;
@@ -33,6 +39,7 @@ import com.aliyun.oss.ServiceException;
 import com.aliyun.oss.common.auth.Credentials;
 import com.aliyun.oss.common.auth.CredentialsProvider;
 import com.aliyun.oss.common.auth.RequestSigner;
+import com.aliyun.oss.common.comm.AsyncServiceClient;
 import com.aliyun.oss.common.comm.ExecutionContext;
 import com.aliyun.oss.common.comm.NoRetryStrategy;
 import com.aliyun.oss.common.comm.RequestHandler;
@@ -115,12 +122,122 @@ public abstract class OSSOperation {
             String key, boolean keepResponseOpen, List<RequestHandler> requestHandlers, List<ResponseHandler> reponseHandlers) 
                     throws OSSException, ClientException {
         
+        ExecutionContext context = createContext(request, bucketName, key, requestHandlers, reponseHandlers);
+        
+        return doOperation(request, parser, context, keepResponseOpen);
+    }
+    
+    protected <T> T doOperation(RequestMessage request, ResponseParser<T> parser, ExecutionContext context, 
+            boolean keepResponseOpen) throws OSSException, ClientException {
+        
+        ResponseMessage response = send(request, context, keepResponseOpen);
+        
+        return parseResponse(response, parser);
+    }
+    
+    protected <T> Future<T> doOperationAsync(RequestMessage request, ResponseParser<T> parser, String bucketName, 
+            String key, boolean keepResponseOpen, AsyncHandler<T> handler) throws ClientException {
+        return doOperationAsync(request, parser, bucketName, key, keepResponseOpen, null, null, handler);
+    }
+    
+    /**
+     * Send the request through the non-blocking transport. The parser and the
+     * handler run on a callback thread of the transport, not on an I/O thread,
+     * once the response handlers accept the response.
+     */
+    protected <T> Future<T> doOperationAsync(RequestMessage request, final ResponseParser<T> parser, 
+            String bucketName, String key, final boolean keepResponseOpen, List<RequestHandler> requestHandlers, 
+            List<ResponseHandler> reponseHandlers, final AsyncHandler<T> handler) throws ClientException {
+        
+        if (!(client instanceof AsyncServiceClient)) {
+            throw new ClientException("Asynchronous operations require an " 
+                    + AsyncServiceClient.class.getSimpleName());
+        }
+        
+        ExecutionContext context = createContext(request, bucketName, key, requestHandlers, reponseHandlers);
+        
+        final AtomicReference<Future<ResponseMessage>> responseFuture = 
+                new AtomicReference<Future<ResponseMessage>>();
+        final BasicFuture<T> resultFuture = new BasicFuture<T>(new FutureCallback<T>() {
+            
+            @Override
+            public void completed(T result) {
+                if (handler != null) {
+                    handler.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                if (handler != null) {
+                    handler.onError(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                if (handler != null) {
+                    handler.onError(new ClientException("The request was cancelled."));
+                }
+            }
+        }) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                // Cancel this future first: cancelling the response future calls back into this method.
+                boolean cancelled = super.cancel(mayInterruptIfRunning);
+                if (cancelled) {
+                    Future<ResponseMessage> f = responseFuture.get();
+                    if (f != null) {
+                        f.cancel(mayInterruptIfRunning);
+                    }
+                }
+                return cancelled;
+            }
+        };
+        
+        responseFuture.set(((AsyncServiceClient) client).sendRequestAsync(request, context, 
+                new FutureCallback<ResponseMessage>() {
+            
+            @Override
+            public void completed(ResponseMessage response) {
+                try {
+                    resultFuture.completed(parseResponse(response, parser));
+                } catch (Exception ex) {
+                    resultFuture.failed(ex);
+                } finally {
+                    if (!keepResponseOpen) {
+                        safeCloseResponse(response);
+                    }
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                resultFuture.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                resultFuture.cancel(false);
+            }
+        }));
+        
+        return resultFuture;
+    }
+    
+    protected ExecutionContext createContext(RequestMessage request, String bucketName, String key, 
+            List<RequestHandler> requestHandlers, List<ResponseHandler> reponseHandlers) {
+        
         final WebServiceRequest originalRequest = request.getOriginalRequest();
         request.getHeaders().putAll(client.getClientConfiguration().getDefaultHeaders());
         request.getHeaders().putAll(originalRequest.getHeaders());
         request.getParameters().putAll(originalRequest.getParameters());
         
         ExecutionContext context = createDefaultContext(request.getMethod(), bucketName, key);
+        if (originalRequest.getRequestDeadline() > 0) {
+            context.setDeadline(System.currentTimeMillis() + originalRequest.getRequestDeadline());
+        }
+        context.setCancellationToken(originalRequest.getCancellationToken());
         
         if (context.getCredentials().useSecurityToken() && !request.isUseUrlSignature()) {
             request.addHeader(OSSHeaders.OSS_SECURITY_TOKEN, context.getCredentials().getSecurityToken());
@@ -138,8 +255,10 @@ public abstract class OSSOperation {
                 context.addResponseHandler(handler);
         }
         
-        ResponseMessage response = send(request, context, keepResponseOpen);
-        
+        return context;
+    }
+    
+    private static <T> T parseResponse(ResponseMessage response, ResponseParser<T> parser) {
         try {
             return parser.parse(response);
         } catch (ResponseParseException rpe) {
@@ -162,12 +281,14 @@ public abstract class OSSOperation {
     protected ExecutionContext createDefaultContext(HttpMethod method, String bucketName, String key) {
         ExecutionContext context = new ExecutionContext();
         context.setCharset(DEFAULT_CHARSET_NAME);
-        context.setSigner(createSigner(method, bucketName, key, credsProvider.getCredentials()));
+        // Sign with the same credentials whose security token is sent.
+        Credentials creds = credsProvider.getCredentials();
+        context.setSigner(createSigner(method, bucketName, key, creds));
         context.addResponseHandler(errorResponseHandler);
         if (method == HttpMethod.POST) {
             context.setRetryStrategy(noRetryStrategy);
         }
-        context.setCredentials(credsProvider.getCredentials());
+        context.setCredentials(creds);
         return context;
     }
     
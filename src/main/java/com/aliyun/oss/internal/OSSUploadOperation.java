@@ -24,25 +24,28 @@ import static com.aliyun.oss.common.utils.LogUtils.logException;
 import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
 import static com.aliyun.oss.internal.OSSUtils.ensureObjectKeyValid;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
+import com.aliyun.oss.common.comm.CancellationToken;
+import com.aliyun.oss.common.comm.io.FileSliceInputStream;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
 import com.aliyun.oss.model.CompleteMultipartUploadRequest;
 import com.aliyun.oss.model.CompleteMultipartUploadResult;
 import com.aliyun.oss.model.InitiateMultipartUploadRequest;
@@ -59,16 +62,22 @@ import com.aliyun.oss.model.UploadPartResult;
  */
 public class OSSUploadOperation {
     
-    static class UploadCheckPoint implements Serializable {
+    static class UploadCheckPoint implements Serializable, CheckpointJournal.Journaled {
 
         private static final long serialVersionUID = 5424904565837227164L;
         
         private static final String UPLOAD_MAGIC = "FE8BB4EA-B593-4FAC-AD7A-2459A36E2E62";
         
         /**
-         * 从checkpoint文件中加载checkpoint数据
+         * 从checkpoint文件中加载checkpoint数据，兼容旧版本的序列化格式
          */
         public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
+            if (CheckpointJournal.isJournal(cpFile)) {
+                CheckpointJournal.load(cpFile, this);
+                this.md5 = hashCode();
+                return;
+            }
+            
             FileInputStream fileIn =new FileInputStream(cpFile);
             ObjectInputStream in = new ObjectInputStream(fileIn);
             UploadCheckPoint ucp = (UploadCheckPoint) in.readObject();
@@ -78,15 +87,109 @@ public class OSSUploadOperation {
         }
         
         /**
-         * 把checkpoint数据写到checkpoint文件
+         * 把checkpoint数据完整写到checkpoint文件，之后完成的分片追加到该文件末尾
          */
         public synchronized void dump(String cpFile) throws IOException {
             this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+            close();
+            journal = CheckpointJournal.create(cpFile, this);
+        }
+        
+        /**
+         * 把完成的分片追加到checkpoint文件，首次调用时写入完整的checkpoint数据
+         */
+        public void append(String cpFile, int partIndex, PartETag partETag) throws IOException {
+            CheckpointJournal current;
+            synchronized (this) {
+                if (journal == null) {
+                    dump(cpFile);
+                    return;
+                }
+                current = journal;
+            }
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(bytes);
+            record.writeInt(partIndex);
+            record.writeInt(partETag.getPartNumber());
+            CheckpointJournal.writeString(record, partETag.getETag());
+            record.flush();
+            current.append(bytes.toByteArray());
+        }
+        
+        /**
+         * 关闭checkpoint文件
+         */
+        public synchronized void close() throws IOException {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } finally {
+                    journal = null;
+                }
+            }
+        }
+        
+        @Override
+        public void writeSnapshot(DataOutputStream out) throws IOException {
+            CheckpointJournal.writeString(out, magic);
+            CheckpointJournal.writeString(out, uploadFile);
+            out.writeLong(uploadFileStat.size);
+            out.writeLong(uploadFileStat.lastModified);
+            CheckpointJournal.writeString(out, uploadFileStat.digest);
+            CheckpointJournal.writeString(out, key);
+            CheckpointJournal.writeString(out, uploadID);
+            out.writeInt(uploadParts.size());
+            for (UploadPart part : uploadParts) {
+                out.writeInt(part.number);
+                out.writeLong(part.offset);
+                out.writeLong(part.size);
+                out.writeBoolean(part.isCompleted);
+            }
+            out.writeInt(partETags.size());
+            for (PartETag partETag : partETags) {
+                out.writeInt(partETag.getPartNumber());
+                CheckpointJournal.writeString(out, partETag.getETag());
+            }
+        }
+        
+        @Override
+        public void readSnapshot(DataInputStream in) throws IOException {
+            magic = CheckpointJournal.readString(in);
+            uploadFile = CheckpointJournal.readString(in);
+            uploadFileStat = new FileStat();
+            uploadFileStat.size = in.readLong();
+            uploadFileStat.lastModified = in.readLong();
+            uploadFileStat.digest = CheckpointJournal.readString(in);
+            key = CheckpointJournal.readString(in);
+            uploadID = CheckpointJournal.readString(in);
+            int partCount = in.readInt();
+            uploadParts = new ArrayList<UploadPart>(partCount);
+            for (int i = 0; i < partCount; i++) {
+                UploadPart part = new UploadPart();
+                part.number = in.readInt();
+                part.offset = in.readLong();
+                part.size = in.readLong();
+                part.isCompleted = in.readBoolean();
+                uploadParts.add(part);
+            }
+            int partETagCount = in.readInt();
+            partETags = new ArrayList<PartETag>(partETagCount);
+            for (int i = 0; i < partETagCount; i++) {
+                partETags.add(new PartETag(in.readInt(), CheckpointJournal.readString(in)));
+            }
+        }
+        
+        @Override
+        public void replay(DataInputStream record) throws IOException {
+            int partIndex = record.readInt();
+            PartETag partETag = new PartETag(record.readInt(), CheckpointJournal.readString(record));
+            if (partIndex < 0 || partIndex >= uploadParts.size()) {
+                throw new IOException("Invalid part index in checkpoint: " + partIndex);
+            }
+            if (!uploadParts.get(partIndex).isCompleted) {
+                update(partIndex, partETag, true);
+            }
         }
         
         /**
@@ -158,6 +261,8 @@ public class OSSUploadOperation {
         public String uploadID;
         public ArrayList<UploadPart> uploadParts;
         public ArrayList<PartETag> partETags;
+        
+        private transient CheckpointJournal journal;
 
     }
     
@@ -263,7 +368,16 @@ public class OSSUploadOperation {
     }
     
     public OSSUploadOperation(OSSMultipartOperation multipartOperation) {
+        this(multipartOperation, null);
+    }
+    
+    /**
+     * @param transferScheduler scheduler that runs the parts, or null to run
+     *        the parts of each call on threads of its own.
+     */
+    public OSSUploadOperation(OSSMultipartOperation multipartOperation, TransferScheduler transferScheduler) {
         this.multipartOperation = multipartOperation;
+        this.transferScheduler = transferScheduler;
     }
     
     public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable {
@@ -290,6 +404,17 @@ public class OSSUploadOperation {
     }
     
     private UploadFileResult uploadFileWithCheckpoint(UploadFileRequest uploadFileRequest) throws Throwable {
+        // 本次上传的令牌，随请求的令牌一起取消，某一分片最终失败时也会取消
+        CancellationToken token = new CancellationToken(uploadFileRequest.getCancellationToken());
+        try {
+            return uploadFileWithCheckpoint(uploadFileRequest, token);
+        } finally {
+            token.detach();
+        }
+    }
+    
+    private UploadFileResult uploadFileWithCheckpoint(UploadFileRequest uploadFileRequest, 
+            CancellationToken token) throws Throwable {
         UploadFileResult uploadFileResult = new UploadFileResult();
         UploadCheckPoint uploadCheckPoint = new UploadCheckPoint();
         
@@ -304,24 +429,53 @@ public class OSSUploadOperation {
             
             // 上传的文件修改了，从新上传
             if (!uploadCheckPoint.isValid(uploadFileRequest.getUploadFile())) {
-                prepare(uploadCheckPoint, uploadFileRequest);
+                prepare(uploadCheckPoint, uploadFileRequest, token);
                 remove(uploadFileRequest.getCheckpointFile());
             }
         } else {
             // 没有开启断点上传功能，从新上传
-            prepare(uploadCheckPoint, uploadFileRequest);
+            prepare(uploadCheckPoint, uploadFileRequest, token);
         }
         
-        // 并发上传分片
-        List<PartResult> partResults = upload(uploadCheckPoint, uploadFileRequest);
+        // 并发上传分片，结束后把checkpoint文件压缩为完整的checkpoint数据
+        List<PartResult> partResults = null;
+        long pendingBytes = 0;
+        for (UploadPart uploadPart : uploadCheckPoint.uploadParts) {
+            pendingBytes += uploadPart.isCompleted ? 0 : uploadPart.size;
+        }
+        long startTime = System.currentTimeMillis();
+        try {
+            partResults = upload(uploadCheckPoint, uploadFileRequest, uploadFileResult, token);
+        } finally {
+            if (uploadFileRequest.isEnableCheckpoint()) {
+                compact(uploadCheckPoint, uploadFileRequest.getCheckpointFile());
+            }
+        }
+        
+        // 抛出最先失败的分片的异常，其余分片因此被取消
         for (PartResult partResult : partResults) {
-            if (partResult.isFailed()) {
+            if (partResult.isFailed() && !ExceptionFactory.isCancelledException(partResult.getException())) {
                 throw partResult.getException();
             }
         }
         
+        // 上传被取消，没有开启断点续传时无法继续上传，中止分片上传
+        if (token.isCancelled()) {
+            if (!uploadFileRequest.isEnableCheckpoint()) {
+                abort(uploadCheckPoint, uploadFileRequest);
+            }
+            throw ExceptionFactory.createCancelledException();
+        }
+        
+        // 记录实际使用的分片大小及吞吐量
+        long elapsed = System.currentTimeMillis() - startTime;
+        uploadFileResult.setThroughput(pendingBytes * 1000 / Math.max(elapsed, 1));
+        if (!uploadCheckPoint.uploadParts.isEmpty()) {
+            uploadFileResult.setPartSize(uploadCheckPoint.uploadParts.get(0).size);
+        }
+        
         // 提交上传任务
-        CompleteMultipartUploadResult multipartUploadResult = complete(uploadCheckPoint, uploadFileRequest);
+        CompleteMultipartUploadResult multipartUploadResult = complete(uploadCheckPoint, uploadFileRequest, token);
         uploadFileResult.setMultipartUploadResult(multipartUploadResult);
         
         // 开启了断点上传，成功上传后删除checkpoint文件
@@ -332,43 +486,104 @@ public class OSSUploadOperation {
         return uploadFileResult;
     }
     
-    private void prepare(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest) {
+    /**
+     * 放弃断点续传的上传：中止checkpoint文件记录的分片上传，并删除checkpoint文件。
+     * 用于取消已暂停或已失败的上传。
+     */
+    public void discardUploadFile(UploadFileRequest uploadFileRequest) {
+        assertParameterNotNull(uploadFileRequest, "uploadFileRequest");
+        String cpFile = uploadFileRequest.getCheckpointFile();
+        if (!uploadFileRequest.isEnableCheckpoint() || cpFile == null || !new File(cpFile).isFile()) {
+            return;
+        }
+        
+        UploadCheckPoint uploadCheckPoint = new UploadCheckPoint();
+        try {
+            uploadCheckPoint.load(cpFile);
+            abort(uploadCheckPoint, uploadFileRequest);
+        } catch (Exception e) {
+            logException("Cannot load checkpoint file " + cpFile + ": ", e);
+        }
+        remove(cpFile);
+    }
+    
+    private void abort(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest) {
+        try {
+            multipartOperation.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    uploadFileRequest.getBucketName(), uploadFileRequest.getKey(), uploadCheckPoint.uploadID));
+        } catch (Exception e) {
+            logException("Cannot abort multipart upload " + uploadCheckPoint.uploadID + ": ", e);
+        }
+    }
+    
+    private void prepare(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest, 
+            CancellationToken token) {
         uploadCheckPoint.magic = UploadCheckPoint.UPLOAD_MAGIC;
         uploadCheckPoint.uploadFile = uploadFileRequest.getUploadFile();
         uploadCheckPoint.key = uploadFileRequest.getKey();
         uploadCheckPoint.uploadFileStat = FileStat.getFileStat(uploadCheckPoint.uploadFile);
-        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, 
-                uploadFileRequest.getPartSize());
+        long partSize = uploadFileRequest.isAutoTuning() 
+                ? TransferTuner.choosePartSize(uploadCheckPoint.uploadFileStat.size, uploadFileRequest.getTargetPartCount())
+                : uploadFileRequest.getPartSize();
+        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, partSize);
         uploadCheckPoint.partETags = new ArrayList<PartETag>();
 
         InitiateMultipartUploadRequest initiateUploadRequest = new InitiateMultipartUploadRequest(
                 uploadFileRequest.getBucketName(), uploadFileRequest.getKey(), 
                 uploadFileRequest.getObjectMetadata());
+        initiateUploadRequest.setCancellationToken(token);
         InitiateMultipartUploadResult initiateUploadResult = 
                 multipartOperation.initiateMultipartUpload(initiateUploadRequest);
         uploadCheckPoint.uploadID = initiateUploadResult.getUploadId();
     }
     
-    private ArrayList<PartResult> upload(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest) 
-            throws Throwable {
+    private ArrayList<PartResult> upload(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest, 
+            UploadFileResult uploadFileResult, CancellationToken token) throws Throwable {
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(uploadFileRequest.getTaskNum());
+        int taskNum = uploadFileRequest.isAutoTuning() ? TransferTuner.maxConcurrency(uploadFileRequest.getTaskNum()) 
+                : uploadFileRequest.getTaskNum();
+        TransferScheduler scheduler = transferScheduler != null ? transferScheduler 
+                : new TransferScheduler(taskNum, null);
+        final TransferScheduler.Transfer transfer = scheduler.newTransfer(taskNum, uploadFileRequest.getPriority());
+        TransferTuner tuner = uploadFileRequest.isAutoTuning() ? new TransferTuner(transfer, taskNum) : null;
         ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
-                
-        for (int i = 0; i < uploadCheckPoint.uploadParts.size(); i++) {
-            if (!uploadCheckPoint.uploadParts.get(i).isCompleted) {
-                futures.add(service.submit(new Task(i, "upload-" + i, uploadCheckPoint, i, 
-                        uploadFileRequest, multipartOperation)));
-            } else {
-                taskResults.add(new PartResult(i + 1, uploadCheckPoint.uploadParts.get(i).offset,
-                        uploadCheckPoint.uploadParts.get(i).size));
+        PartRetryPolicy retryPolicy = new PartRetryPolicy(uploadFileRequest.getPartRetryCount(), 
+                uploadFileRequest.getPartRetryDelay());
+        
+        // 取消时丢弃尚未开始的分片，正在上传的分片由令牌中止
+        token.addListener(new Runnable() {
+            @Override
+            public void run() {
+                transfer.cancel();
             }
-        }
-        service.shutdown();
+        });
         
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        // All parts read the file through one channel with positional reads.
+        FileInputStream fileIn = new FileInputStream(uploadCheckPoint.uploadFile);
+        try {
+            FileChannel channel = fileIn.getChannel();
+            for (int i = 0; i < uploadCheckPoint.uploadParts.size(); i++) {
+                if (!uploadCheckPoint.uploadParts.get(i).isCompleted) {
+                    futures.add(transfer.submit(new Task(i, "upload-" + i, uploadCheckPoint, i, 
+                            uploadFileRequest, multipartOperation, channel, retryPolicy, tuner, token)));
+                } else {
+                    taskResults.add(new PartResult(i + 1, uploadCheckPoint.uploadParts.get(i).offset,
+                            uploadCheckPoint.uploadParts.get(i).size));
+                }
+            }
+            transfer.awaitCompletion();
+            uploadFileResult.setTaskNum(transfer.getMaxConcurrency());
+        } finally {
+            fileIn.close();
+            if (scheduler != transferScheduler) {
+                scheduler.shutdown();
+            }
+        }
         
         for (Future<PartResult> future : futures) {
+            if (future.isCancelled()) {
+                continue;
+            }
             try {
                 PartResult tr = future.get();
                 taskResults.add(tr);
@@ -390,27 +605,63 @@ public class OSSUploadOperation {
     static class Task implements Callable<PartResult> {
         
         public Task(int id, String name, UploadCheckPoint uploadCheckPoint, int partIndex,
-                UploadFileRequest uploadFileRequest, OSSMultipartOperation multipartOperation) {
+                UploadFileRequest uploadFileRequest, OSSMultipartOperation multipartOperation, 
+                FileChannel channel, PartRetryPolicy retryPolicy, TransferTuner tuner, CancellationToken token) {
             this.id = id;
             this.name = name;
             this.uploadCheckPoint = uploadCheckPoint;
             this.partIndex = partIndex;
             this.uploadFileRequest = uploadFileRequest;
             this.multipartOperation = multipartOperation;
+            this.channel = channel;
+            this.retryPolicy = retryPolicy;
+            this.tuner = tuner;
+            this.token = token;
         }
         
         @Override
         public PartResult call() throws Exception {
-            PartResult tr = null;
-            InputStream instream = null;
-
+            UploadPart uploadPart = uploadCheckPoint.uploadParts.get(partIndex);
+            PartResult tr = new PartResult(partIndex + 1, uploadPart.offset, uploadPart.size);
+            
+            for (int retries = 0; ; retries++) {
+                try {
+                    long startTime = System.currentTimeMillis();
+                    uploadPart(uploadPart);
+                    if (tuner != null) {
+                        tuner.onPartCompleted(uploadPart.size, System.currentTimeMillis() - startTime);
+                    }
+                    return tr;
+                } catch (Exception e) {
+                    if (!token.isCancelled() && retryPolicy.shouldRetry(e, retries)) {
+                        logException(String.format("Task %d:%s upload part %d failed, retry %d: ", 
+                                id, name, partIndex + 1, retries + 1), e);
+                        if (retryPolicy.pause(retries, token)) {
+                            continue;
+                        }
+                    }
+                    
+                    tr.setFailed(true);
+                    if (token.isCancelled()) {
+                        tr.setException(ExceptionFactory.createCancelledException());
+                    } else {
+                        // 分片最终失败，取消其余分片
+                        tr.setException(e);
+                        logException(String.format("Task %d:%s upload part %d failed: ", id, name, partIndex + 1), e);
+                        token.cancel();
+                    }
+                    return tr;
+                }
+            }
+        }
+        
+        private void uploadPart(UploadPart uploadPart) throws IOException {
+            if (token.isCancelled()) {
+                throw ExceptionFactory.createCancelledException();
+            }
+            
+            InputStream instream = new FileSliceInputStream(channel, uploadPart.offset, uploadPart.size);
             try {
-                UploadPart uploadPart = uploadCheckPoint.uploadParts.get(partIndex);
-                tr = new PartResult(partIndex + 1, uploadPart.offset, uploadPart.size);
-                
-                instream = new FileInputStream(uploadCheckPoint.uploadFile);
-                instream.skip(uploadPart.offset);
-
                 UploadPartRequest uploadPartRequest = new UploadPartRequest();
                 uploadPartRequest.setBucketName(uploadFileRequest.getBucketName());
                 uploadPartRequest.setKey(uploadFileRequest.getKey());
@@ -418,25 +669,18 @@ public class OSSUploadOperation {
                 uploadPartRequest.setPartNumber(uploadPart.number);
                 uploadPartRequest.setInputStream(instream);
                 uploadPartRequest.setPartSize(uploadPart.size);
+                uploadPartRequest.setCancellationToken(token);
                 
                 UploadPartResult uploadPartResult = multipartOperation.uploadPart(uploadPartRequest);
                 
                 PartETag partETag = new PartETag(uploadPartResult.getPartNumber(), uploadPartResult.getETag());
                 uploadCheckPoint.update(partIndex, partETag, true);
                 if (uploadFileRequest.isEnableCheckpoint()) {
-                   uploadCheckPoint.dump(uploadFileRequest.getCheckpointFile()); 
+                   uploadCheckPoint.append(uploadFileRequest.getCheckpointFile(), partIndex, partETag); 
                 }
-            } catch (Exception e) {
-                tr.setFailed(true);
-                tr.setException(e);
-                logException(String.format("Task %d:%s upload part %d failed: ", id, name, partIndex + 1), e);
             } finally {
-                if (instream != null) {
-                    instream.close();
-                }
+                instream.close();
             }
-                                    
-            return tr;
         }
 
         private int id;
@@ -445,9 +689,14 @@ public class OSSUploadOperation {
         private int partIndex;
         private UploadFileRequest uploadFileRequest;
         private OSSMultipartOperation multipartOperation;
+        private FileChannel channel;
+        private PartRetryPolicy retryPolicy;
+        private TransferTuner tuner;
+        private CancellationToken token;
     }
     
-    private CompleteMultipartUploadResult complete(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest) {
+    private CompleteMultipartUploadResult complete(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest, 
+            CancellationToken token) {
         Collections.sort(uploadCheckPoint.partETags, new Comparator<PartETag>() {
             @Override
             public int compare(PartETag p1, PartETag p2) {
@@ -458,6 +707,7 @@ public class OSSUploadOperation {
                 uploadFileRequest.getBucketName(), uploadFileRequest.getKey(), 
                 uploadCheckPoint.uploadID, uploadCheckPoint.partETags);
         completeUploadRequest.setCallback(uploadFileRequest.getCallback());
+        completeUploadRequest.setCancellationToken(token);
         return multipartOperation.completeMultipartUpload(completeUploadRequest);
     }
     
@@ -491,6 +741,15 @@ public class OSSUploadOperation {
         return parts;
     }
     
+    private static void compact(UploadCheckPoint uploadCheckPoint, String cpFile) {
+        try {
+            uploadCheckPoint.dump(cpFile);
+            uploadCheckPoint.close();
+        } catch (IOException e) {
+            logException("Cannot compact checkpoint file " + cpFile + ": ", e);
+        }
+    }
+    
     private boolean remove(String filePath) {
         boolean flag = false;  
         File file = new File(filePath);  
@@ -503,4 +762,5 @@ public class OSSUploadOperation {
     }
     
     private OSSMultipartOperation multipartOperation;
+    private TransferScheduler transferScheduler;
 }
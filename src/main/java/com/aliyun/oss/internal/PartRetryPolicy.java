@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.io.IOException;
+import java.util.Random;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.comm.CancellationToken;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+
+/**
+ * Decides whether a failed part of a resumable transfer is tried again and
+ * waits before the retry. Pauses double from the base delay with jitter, up
+ * to {@link #MAX_DELAY}, and end early when the transfer is cancelled.
+ */
+class PartRetryPolicy {
+
+    static final long MAX_DELAY = 10 * 1000; // milliseconds.
+
+    private static final Random random = new Random();
+
+    private final int maxRetries;
+    private final long baseDelay;
+
+    PartRetryPolicy(int maxRetries, long baseDelay) {
+        this.maxRetries = maxRetries;
+        this.baseDelay = Math.max(baseDelay, 1);
+    }
+
+    boolean shouldRetry(Exception ex, int retries) {
+        return retries < maxRetries && isRetryable(ex);
+    }
+
+    /**
+     * Waits before the given retry.
+     *
+     * @return false if the transfer has been cancelled or the thread
+     *         interrupted meanwhile.
+     */
+    boolean pause(int retries, CancellationToken token) {
+        long delay = Math.min(MAX_DELAY, baseDelay << Math.min(retries, 20));
+        delay = delay / 2 + (long) (random.nextDouble() * (delay / 2 + 1));
+        try {
+            return !token.await(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Network errors and server side errors may go away on retry; the other
+     * service errors, such as a missing upload or a failed precondition, do not.
+     */
+    static boolean isRetryable(Exception ex) {
+        if (ex instanceof ClientException) {
+            return !ExceptionFactory.isCancelledException(ex);
+        }
+        if (ex instanceof ServiceException) {
+            String errorCode = ((ServiceException) ex).getErrorCode();
+            return OSSErrorCode.INTERNAL_ERROR.equals(errorCode) || OSSErrorCode.REQUEST_TIMEOUT.equals(errorCode);
+        }
+        return ex instanceof IOException;
+    }
+}
@@ -99,6 +99,14 @@ import com.aliyun.oss.model.UserQos;
  */
 public final class ResponseParsers {
     
+    /**
+     * System property that, when "true", parses the listing responses into a
+     * JDOM document as before instead of with {@link StaxResponseParsers}.
+     */
+    public static final String USE_DOM_PARSERS_PROPERTY = "com.aliyun.oss.useDomParsers";
+    
+    private static final boolean useDomParsers = Boolean.getBoolean(USE_DOM_PARSERS_PROPERTY);
+    
     public static final ListBucketResponseParser listBucketResponseParser = new ListBucketResponseParser();
     public static final ListImageStyleResponseParser listImageStyleResponseParser = new ListImageStyleResponseParser();
     public static final GetBucketRefererResponseParser getBucketRefererResponseParser = new GetBucketRefererResponseParser();
@@ -754,9 +762,18 @@ public final class ResponseParsers {
     /**
      * Unmarshall list objects response body to object listing.
      */
-    @SuppressWarnings("unchecked")
     public static ObjectListing parseListObjects(InputStream responseBody) 
             throws ResponseParseException {
+        return useDomParsers ? parseListObjectsWithDom(responseBody) 
+                : StaxResponseParsers.parseListObjects(responseBody);
+    }
+
+    /**
+     * Unmarshall list objects response body to object listing through a JDOM document.
+     */
+    @SuppressWarnings("unchecked")
+    public static ObjectListing parseListObjectsWithDom(InputStream responseBody) 
+            throws ResponseParseException {
         
         try {
             Element root = getXmlRootElement(responseBody);
@@ -1134,9 +1151,18 @@ public final class ResponseParsers {
     /**
      * Unmarshall list multipart uploads response body to multipart upload listing.
      */
-    @SuppressWarnings("unchecked")
     public static MultipartUploadListing parseListMultipartUploads(InputStream responseBody) 
             throws ResponseParseException {
+        return useDomParsers ? parseListMultipartUploadsWithDom(responseBody) 
+                : StaxResponseParsers.parseListMultipartUploads(responseBody);
+    }
+
+    /**
+     * Unmarshall list multipart uploads response body to multipart upload listing through a JDOM document.
+     */
+    @SuppressWarnings("unchecked")
+    public static MultipartUploadListing parseListMultipartUploadsWithDom(InputStream responseBody) 
+            throws ResponseParseException {
 
         try {
             Element root = getXmlRootElement(responseBody);
@@ -1220,9 +1246,18 @@ public final class ResponseParsers {
     /**
      * Unmarshall list parts response body to part listing.
      */
-    @SuppressWarnings("unchecked")
     public static PartListing parseListParts(InputStream responseBody) 
             throws ResponseParseException {
+        return useDomParsers ? parseListPartsWithDom(responseBody) 
+                : StaxResponseParsers.parseListParts(responseBody);
+    }
+
+    /**
+     * Unmarshall list parts response body to part listing through a JDOM document.
+     */
+    @SuppressWarnings("unchecked")
+    public static PartListing parseListPartsWithDom(InputStream responseBody) 
+            throws ResponseParseException {
         
         try {
             Element root = getXmlRootElement(responseBody);
@@ -1832,9 +1867,18 @@ public final class ResponseParsers {
     /**
      * Unmarshall list live channels response body to live channel listing.
      */
-    @SuppressWarnings("unchecked")
     public static LiveChannelListing parseListLiveChannels(InputStream responseBody) 
             throws ResponseParseException {
+        return useDomParsers ? parseListLiveChannelsWithDom(responseBody) 
+                : StaxResponseParsers.parseListLiveChannels(responseBody);
+    }
+
+    /**
+     * Unmarshall list live channels response body to live channel listing through a JDOM document.
+     */
+    @SuppressWarnings("unchecked")
+    public static LiveChannelListing parseListLiveChannelsWithDom(InputStream responseBody) 
+            throws ResponseParseException {
         
         try {
             Element root = getXmlRootElement(responseBody);
@@ -59,9 +59,11 @@ import static com.aliyun.oss.model.ResponseHeaderOverrides.RESPONSE_HEADER_CONTE
 import static com.aliyun.oss.model.ResponseHeaderOverrides.RESPONSE_HEADER_EXPIRES;
 
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 
 import com.aliyun.oss.common.comm.RequestMessage;
@@ -71,7 +73,7 @@ public class SignUtils {
     
     private static final String NEW_LINE = "\n";
 
-    private static final List<String> SIGNED_PARAMTERS = Arrays.asList(new String[] {
+    private static final Set<String> SIGNED_PARAMTERS = new HashSet<String>(Arrays.asList(new String[] {
             SUBRESOURCE_ACL, SUBRESOURCE_UPLOADS, SUBRESOURCE_LOCATION, 
             SUBRESOURCE_CORS, SUBRESOURCE_LOGGING, SUBRESOURCE_WEBSITE, 
             SUBRESOURCE_REFERER, SUBRESOURCE_LIFECYCLE, SUBRESOURCE_DELETE, 
@@ -85,67 +87,106 @@ public class SignUtils {
             SUBRESOURCE_BUCKET_INFO, SUBRESOURCE_COMP, SUBRESOURCE_QOS,
             SUBRESOURCE_LIVE, SUBRESOURCE_STATUS, SUBRESOURCE_VOD, 
             SUBRESOURCE_START_TIME, SUBRESOURCE_END_TIME,
-    });
+    }));
+    
+    private static final String CONTENT_TYPE = HttpHeaders.CONTENT_TYPE.toLowerCase();
+    private static final String CONTENT_MD5 = HttpHeaders.CONTENT_MD5.toLowerCase();
+    private static final String DATE = HttpHeaders.DATE.toLowerCase();
+    
+    /* Lowercase names of the headers the SDK sets, so they need not be lowercased per request. */
+    private static final Map<String, String> LOWERCASE_HEADERS = new HashMap<String, String>();
+    
+    static {
+        for (String header : new String[] { HttpHeaders.AUTHORIZATION, HttpHeaders.CACHE_CONTROL, 
+                HttpHeaders.CONTENT_DISPOSITION, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LENGTH, 
+                HttpHeaders.CONTENT_MD5, HttpHeaders.CONTENT_TYPE, HttpHeaders.TRANSFER_ENCODING, 
+                HttpHeaders.DATE, HttpHeaders.ETAG, HttpHeaders.EXPIRES, HttpHeaders.HOST, 
+                HttpHeaders.LAST_MODIFIED, HttpHeaders.RANGE, HttpHeaders.LOCATION, HttpHeaders.CONNECTION, 
+                "User-Agent" }) {
+            LOWERCASE_HEADERS.put(header, header.toLowerCase());
+        }
+    }
+    
+    /* Reused by the canonical strings built on the same thread. */
+    private static final ThreadLocal<StringBuilder> canonicalBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(512);
+        }
+    };
+    
+    /* Buffers that grew beyond this are not kept for the next request. */
+    private static final int MAX_BUFFER_SIZE = 16 * 1024;
     
     public static String buildCanonicalString(String method, String resourcePath,
             RequestMessage request, String expires) {
         
-        StringBuilder canonicalString = new StringBuilder();
-        canonicalString.append(method + NEW_LINE);
+        String contentType = "";
+        String contentMd5 = "";
+        String date = null;
+        // Only the "x-oss-" headers need to be sorted, the others go first in a fixed order.
+        TreeMap<String, String> ossHeadersToSign = null;
         
         Map<String, String> headers = request.getHeaders();
-        TreeMap<String, String> headersToSign = new TreeMap<String, String>();
-        
         if (headers != null) {
             for(Entry<String, String> header : headers.entrySet()) {
                 if (header.getKey() == null) {
                     continue;
                 }
                 
-                String lowerKey = header.getKey().toLowerCase();
-                if (lowerKey.equals(HttpHeaders.CONTENT_TYPE.toLowerCase()) || 
-                        lowerKey.equals(HttpHeaders.CONTENT_MD5.toLowerCase()) || 
-                        lowerKey.equals(HttpHeaders.DATE.toLowerCase()) || 
-                        lowerKey.startsWith(OSSHeaders.OSS_PREFIX)) {
-                    headersToSign.put(lowerKey, header.getValue().trim());
+                String lowerKey = toLowerCase(header.getKey());
+                if (lowerKey.startsWith(OSSHeaders.OSS_PREFIX)) {
+                    if (ossHeadersToSign == null) {
+                        ossHeadersToSign = new TreeMap<String, String>();
+                    }
+                    ossHeadersToSign.put(lowerKey, header.getValue().trim());
+                } else if (lowerKey.equals(CONTENT_TYPE)) {
+                    contentType = header.getValue().trim();
+                } else if (lowerKey.equals(CONTENT_MD5)) {
+                    contentMd5 = header.getValue().trim();
+                } else if (lowerKey.equals(DATE)) {
+                    date = header.getValue().trim();
                 }
             }
         }
         
-        if (!headersToSign.containsKey(HttpHeaders.CONTENT_TYPE.toLowerCase())) {
-            headersToSign.put(HttpHeaders.CONTENT_TYPE.toLowerCase(), "");
-        }
-        if (!headersToSign.containsKey(HttpHeaders.CONTENT_MD5.toLowerCase())) {
-            headersToSign.put(HttpHeaders.CONTENT_MD5.toLowerCase(), "");
-        }
-        
         // Add all parameters that prefixed with "x-oss-" into headers to sign
         if (request.getParameters() != null) {
             for(Map.Entry<String, String> p : request.getParameters().entrySet()) {
                 if (p.getKey().startsWith(OSSHeaders.OSS_PREFIX)) {
-                    headersToSign.put(p.getKey(), p.getValue());
+                    if (ossHeadersToSign == null) {
+                        ossHeadersToSign = new TreeMap<String, String>();
+                    }
+                    ossHeadersToSign.put(p.getKey(), p.getValue());
                 }
             }
         }
         
-        // Append all headers to sign to canonical string
-        for(Map.Entry<String, String> entry : headersToSign.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            
-            if (key.startsWith(OSSHeaders.OSS_PREFIX)) {
-                canonicalString.append(key).append(':').append(value);
-            } else {
-                canonicalString.append(value);
+        StringBuilder canonicalString = canonicalBuffer.get();
+        canonicalString.setLength(0);
+        canonicalString.append(method).append(NEW_LINE);
+        
+        // Append all headers to sign to canonical string, in the order of their lowercase names
+        canonicalString.append(contentMd5).append(NEW_LINE);
+        canonicalString.append(contentType).append(NEW_LINE);
+        if (date != null) {
+            canonicalString.append(date).append(NEW_LINE);
+        }
+        if (ossHeadersToSign != null) {
+            for(Map.Entry<String, String> entry : ossHeadersToSign.entrySet()) {
+                canonicalString.append(entry.getKey()).append(':').append(entry.getValue());
+                canonicalString.append(NEW_LINE);
             }
-            
-            canonicalString.append(NEW_LINE);
         }
         
         // Append canonical resource to canonical string
-        canonicalString.append(buildCanonicalizedResource(resourcePath, request.getParameters()));
+        appendCanonicalizedResource(canonicalString, resourcePath, request.getParameters());
         
-        return canonicalString.toString();
+        String result = canonicalString.toString();
+        if (canonicalString.capacity() > MAX_BUFFER_SIZE) {
+            canonicalBuffer.remove();
+        }
+        return result;
     }
     
     public static String buildRtmpCanonicalString(String canonicalizedResource, RequestMessage request, 
@@ -170,24 +211,26 @@ public class SignUtils {
         return canonicalString.toString();
     }
 
-    private static String buildCanonicalizedResource(String resourcePath, Map<String, String> parameters) {
+    private static void appendCanonicalizedResource(StringBuilder builder, String resourcePath, 
+            Map<String, String> parameters) {
         
         assertTrue(resourcePath.startsWith("/"), "Resource path should start with slash character");
 
-        StringBuilder builder = new StringBuilder();
         builder.append(resourcePath);
 
-        if (parameters != null) {
-            String[] parameterNames = parameters.keySet().toArray(
-                    new String[parameters.size()]);
-            Arrays.sort(parameterNames);
+        if (parameters != null && !parameters.isEmpty()) {
+            String[] parameterNames = new String[parameters.size()];
+            int count = 0;
+            for (String paramName : parameters.keySet()) {
+                if (SIGNED_PARAMTERS.contains(paramName)) {
+                    parameterNames[count++] = paramName;
+                }
+            }
+            Arrays.sort(parameterNames, 0, count);
             
             char separater = '?';
-            for(String paramName : parameterNames) {
-                if (!SIGNED_PARAMTERS.contains(paramName)) {
-                    continue;
-                }
-
+            for (int i = 0; i < count; i++) {
+                String paramName = parameterNames[i];
                 builder.append(separater);
                 builder.append(paramName);
                 String paramValue = parameters.get(paramName);
@@ -198,7 +241,10 @@ public class SignUtils {
                 separater = '&';
             }
         }
-        
-        return builder.toString();
+    }
+    
+    private static String toLowerCase(String header) {
+        String lowerCase = LOWERCASE_HEADERS.get(header);
+        return lowerCase != null ? lowerCase : header.toLowerCase();
     }
 }
@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.CodingUtils.isNullOrEmpty;
+import static com.aliyun.oss.internal.OSSUtils.trimQuotes;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.aliyun.oss.common.parser.ResponseParseException;
+import com.aliyun.oss.common.utils.DateUtil;
+import com.aliyun.oss.model.LiveChannel;
+import com.aliyun.oss.model.LiveChannelListing;
+import com.aliyun.oss.model.LiveChannelStatus;
+import com.aliyun.oss.model.MultipartUpload;
+import com.aliyun.oss.model.MultipartUploadListing;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import com.aliyun.oss.model.Owner;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartSummary;
+
+/**
+ * Streaming parsers of the listing responses, which fill the model objects
+ * straight from a StAX reader instead of building a JDOM document of the
+ * whole page first. They produce the same results as the DOM parsers of
+ * {@link ResponseParsers}, which are used instead when the
+ * {@link ResponseParsers#USE_DOM_PARSERS_PROPERTY} system property is true.
+ */
+public final class StaxResponseParsers {
+
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    private StaxResponseParsers() {
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return factory;
+    }
+
+    /**
+     * Unmarshall list objects response body to object listing.
+     */
+    public static ObjectListing parseListObjects(InputStream responseBody) throws ResponseParseException {
+        XMLStreamReader reader = null;
+        try {
+            reader = openRootElement(responseBody);
+            
+            ObjectListing objectListing = new ObjectListing();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("Contents")) {
+                    OSSObjectSummary ossObjectSummary = parseObjectSummary(reader);
+                    objectListing.addObjectSummary(ossObjectSummary);
+                } else if (name.equals("CommonPrefixes")) {
+                    String prefix = parseCommonPrefix(reader);
+                    if (!isNullOrEmpty(prefix)) {
+                        objectListing.addCommonPrefix(prefix);
+                    }
+                } else if (name.equals("Name")) {
+                    objectListing.setBucketName(reader.getElementText());
+                } else if (name.equals("MaxKeys")) {
+                    objectListing.setMaxKeys(Integer.valueOf(reader.getElementText()));
+                } else if (name.equals("IsTruncated")) {
+                    objectListing.setTruncated(Boolean.valueOf(reader.getElementText()));
+                } else if (name.equals("Prefix")) {
+                    objectListing.setPrefix(emptyToNull(reader.getElementText()));
+                } else if (name.equals("Marker")) {
+                    objectListing.setMarker(emptyToNull(reader.getElementText()));
+                } else if (name.equals("Delimiter")) {
+                    objectListing.setDelimiter(emptyToNull(reader.getElementText()));
+                } else if (name.equals("NextMarker")) {
+                    objectListing.setNextMarker(emptyToNull(reader.getElementText()));
+                } else if (name.equals("EncodingType")) {
+                    objectListing.setEncodingType(emptyToNull(reader.getElementText()));
+                } else {
+                    skipElement(reader);
+                }
+            }
+            
+            for (OSSObjectSummary ossObjectSummary : objectListing.getObjectSummaries()) {
+                ossObjectSummary.setBucketName(objectListing.getBucketName());
+            }
+            return objectListing;
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        } finally {
+            safeClose(reader);
+        }
+    }
+
+    private static OSSObjectSummary parseObjectSummary(XMLStreamReader reader) 
+            throws Exception {
+        OSSObjectSummary ossObjectSummary = new OSSObjectSummary();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("Key")) {
+                ossObjectSummary.setKey(reader.getElementText());
+            } else if (name.equals("ETag")) {
+                ossObjectSummary.setETag(trimQuotes(reader.getElementText()));
+            } else if (name.equals("LastModified")) {
+                ossObjectSummary.setLastModified(DateUtil.parseIso8601Date(reader.getElementText()));
+            } else if (name.equals("Size")) {
+                ossObjectSummary.setSize(Long.valueOf(reader.getElementText()));
+            } else if (name.equals("StorageClass")) {
+                ossObjectSummary.setStorageClass(reader.getElementText());
+            } else if (name.equals("Owner")) {
+                ossObjectSummary.setOwner(parseOwner(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return ossObjectSummary;
+    }
+
+    private static Owner parseOwner(XMLStreamReader reader) throws XMLStreamException {
+        String id = null;
+        String displayName = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("ID")) {
+                id = reader.getElementText();
+            } else if (name.equals("DisplayName")) {
+                displayName = reader.getElementText();
+            } else {
+                skipElement(reader);
+            }
+        }
+        return new Owner(id, displayName);
+    }
+
+    /**
+     * Unmarshall list multipart uploads response body to multipart upload listing.
+     */
+    public static MultipartUploadListing parseListMultipartUploads(InputStream responseBody) 
+            throws ResponseParseException {
+        XMLStreamReader reader = null;
+        try {
+            reader = openRootElement(responseBody);
+            
+            MultipartUploadListing multipartUploadListing = new MultipartUploadListing();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("Upload")) {
+                    MultipartUpload mu = parseMultipartUpload(reader);
+                    // Skip the uploads that could not be fully listed.
+                    if (mu.getInitiated() != null) {
+                        multipartUploadListing.addMultipartUpload(mu);
+                    }
+                } else if (name.equals("CommonPrefixes")) {
+                    String prefix = parseCommonPrefix(reader);
+                    if (!isNullOrEmpty(prefix)) {
+                        multipartUploadListing.addCommonPrefix(prefix);
+                    }
+                } else if (name.equals("Bucket")) {
+                    multipartUploadListing.setBucketName(reader.getElementText());
+                } else if (name.equals("MaxUploads")) {
+                    multipartUploadListing.setMaxUploads(Integer.valueOf(reader.getElementText()));
+                } else if (name.equals("IsTruncated")) {
+                    multipartUploadListing.setTruncated(Boolean.valueOf(reader.getElementText()));
+                } else if (name.equals("Delimiter")) {
+                    multipartUploadListing.setDelimiter(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getDelimiter()));
+                } else if (name.equals("Prefix")) {
+                    multipartUploadListing.setPrefix(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getPrefix()));
+                } else if (name.equals("KeyMarker")) {
+                    multipartUploadListing.setKeyMarker(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getKeyMarker()));
+                } else if (name.equals("UploadIdMarker")) {
+                    multipartUploadListing.setUploadIdMarker(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getUploadIdMarker()));
+                } else if (name.equals("NextKeyMarker")) {
+                    multipartUploadListing.setNextKeyMarker(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getNextKeyMarker()));
+                } else if (name.equals("NextUploadIdMarker")) {
+                    multipartUploadListing.setNextUploadIdMarker(nonEmpty(reader.getElementText(), 
+                            multipartUploadListing.getNextUploadIdMarker()));
+                } else {
+                    skipElement(reader);
+                }
+            }
+            return multipartUploadListing;
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        } finally {
+            safeClose(reader);
+        }
+    }
+
+    private static MultipartUpload parseMultipartUpload(XMLStreamReader reader) throws Exception {
+        MultipartUpload mu = new MultipartUpload();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("Key")) {
+                mu.setKey(reader.getElementText());
+            } else if (name.equals("UploadId")) {
+                mu.setUploadId(reader.getElementText());
+            } else if (name.equals("StorageClass")) {
+                mu.setStorageClass(reader.getElementText());
+            } else if (name.equals("Initiated")) {
+                mu.setInitiated(DateUtil.parseIso8601Date(reader.getElementText()));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return mu;
+    }
+
+    /**
+     * Unmarshall list parts response body to part listing.
+     */
+    public static PartListing parseListParts(InputStream responseBody) throws ResponseParseException {
+        XMLStreamReader reader = null;
+        try {
+            reader = openRootElement(responseBody);
+            
+            PartListing partListing = new PartListing();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("Part")) {
+                    partListing.addPart(parsePartSummary(reader));
+                } else if (name.equals("Bucket")) {
+                    partListing.setBucketName(reader.getElementText());
+                } else if (name.equals("Key")) {
+                    partListing.setKey(reader.getElementText());
+                } else if (name.equals("UploadId")) {
+                    partListing.setUploadId(reader.getElementText());
+                } else if (name.equals("StorageClass")) {
+                    partListing.setStorageClass(reader.getElementText());
+                } else if (name.equals("MaxParts")) {
+                    partListing.setMaxParts(Integer.valueOf(reader.getElementText()));
+                } else if (name.equals("IsTruncated")) {
+                    partListing.setTruncated(Boolean.valueOf(reader.getElementText()));
+                } else if (name.equals("PartNumberMarker")) {
+                    String partNumberMarker = reader.getElementText();
+                    if (!isNullOrEmpty(partNumberMarker)) {
+                        partListing.setPartNumberMarker(Integer.valueOf(partNumberMarker));
+                    }
+                } else if (name.equals("NextPartNumberMarker")) {
+                    String nextPartNumberMarker = reader.getElementText();
+                    if (!isNullOrEmpty(nextPartNumberMarker)) {
+                        partListing.setNextPartNumberMarker(Integer.valueOf(nextPartNumberMarker));
+                    }
+                } else {
+                    skipElement(reader);
+                }
+            }
+            return partListing;
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        } finally {
+            safeClose(reader);
+        }
+    }
+
+    private static PartSummary parsePartSummary(XMLStreamReader reader) throws Exception {
+        PartSummary ps = new PartSummary();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("PartNumber")) {
+                ps.setPartNumber(Integer.valueOf(reader.getElementText()));
+            } else if (name.equals("LastModified")) {
+                ps.setLastModified(DateUtil.parseIso8601Date(reader.getElementText()));
+            } else if (name.equals("ETag")) {
+                ps.setETag(trimQuotes(reader.getElementText()));
+            } else if (name.equals("Size")) {
+                ps.setSize(Integer.valueOf(reader.getElementText()));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return ps;
+    }
+
+    /**
+     * Unmarshall list live channels response body to live channel listing.
+     */
+    public static LiveChannelListing parseListLiveChannels(InputStream responseBody) 
+            throws ResponseParseException {
+        XMLStreamReader reader = null;
+        try {
+            reader = openRootElement(responseBody);
+            
+            LiveChannelListing liveChannelListing = new LiveChannelListing();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                String name = reader.getLocalName();
+                if (name.equals("LiveChannel")) {
+                    liveChannelListing.addLiveChannel(parseLiveChannel(reader));
+                } else if (name.equals("IsTruncated")) {
+                    liveChannelListing.setTruncated(Boolean.valueOf(reader.getElementText()));
+                } else if (name.equals("Prefix")) {
+                    liveChannelListing.setPrefix(emptyToNull(reader.getElementText()));
+                } else if (name.equals("Marker")) {
+                    liveChannelListing.setMarker(emptyToNull(reader.getElementText()));
+                } else if (name.equals("MaxKeys")) {
+                    liveChannelListing.setMaxKeys(Integer.valueOf(reader.getElementText()));
+                } else if (name.equals("NextMarker")) {
+                    liveChannelListing.setNextMarker(emptyToNull(reader.getElementText()));
+                } else {
+                    skipElement(reader);
+                }
+            }
+            return liveChannelListing;
+        } catch (Exception e) {
+            throw new ResponseParseException(e.getMessage(), e);
+        } finally {
+            safeClose(reader);
+        }
+    }
+
+    private static LiveChannel parseLiveChannel(XMLStreamReader reader) throws Exception {
+        LiveChannel liveChannel = new LiveChannel();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            if (name.equals("Id")) {
+                liveChannel.setName(reader.getElementText());
+            } else if (name.equals("Description")) {
+                liveChannel.setDescription(reader.getElementText());
+            } else if (name.equals("Status")) {
+                liveChannel.setStatus(LiveChannelStatus.parse(reader.getElementText()));
+            } else if (name.equals("LastModified")) {
+                liveChannel.setLastModified(DateUtil.parseIso8601Date(reader.getElementText()));
+            } else if (name.equals("PublishUrls")) {
+                liveChannel.setPublishUrls(parseUrls(reader));
+            } else if (name.equals("PlayUrls")) {
+                liveChannel.setPlayUrls(parseUrls(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return liveChannel;
+    }
+
+    private static List<String> parseUrls(XMLStreamReader reader) throws XMLStreamException {
+        List<String> urls = new ArrayList<String>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("Url")) {
+                urls.add(reader.getElementText());
+            } else {
+                skipElement(reader);
+            }
+        }
+        return urls;
+    }
+
+    private static String parseCommonPrefix(XMLStreamReader reader) throws XMLStreamException {
+        String prefix = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("Prefix")) {
+                prefix = reader.getElementText();
+            } else {
+                skipElement(reader);
+            }
+        }
+        return prefix;
+    }
+
+    /* Returns a reader positioned on the start of the root element. */
+    private static XMLStreamReader openRootElement(InputStream responseBody) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(responseBody);
+        try {
+            reader.nextTag();
+            return reader;
+        } catch (XMLStreamException e) {
+            safeClose(reader);
+            throw e;
+        }
+    }
+
+    /* Skips the element the reader is on, leaving it on its end. */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return isNullOrEmpty(value) ? null : value;
+    }
+
+    /* The value if it is not empty, otherwise the current one. */
+    private static String nonEmpty(String value, String current) {
+        return isNullOrEmpty(value) ? current : value;
+    }
+
+    private static void safeClose(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+            }
+        }
+    }
+}
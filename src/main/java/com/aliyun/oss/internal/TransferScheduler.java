@@ -0,0 +1,405 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs the parts of resumable transfers on a bounded set of worker threads
+ * shared by all transfers of a client.
+ *
+ * <p>Each transfer queues its own parts and may run at most its own number
+ * of them at once. Free workers take the next part from the transfers of the
+ * highest priority that have one ready, round-robin, so a large transfer
+ * cannot starve the others of the same priority. Workers are started on
+ * demand up to the concurrency limit and stop after being idle for
+ * {@link #KEEP_ALIVE_TIME} milliseconds.</p>
+ */
+public class TransferScheduler {
+
+    public static final long KEEP_ALIVE_TIME = 60 * 1000;
+
+    private final int maxConcurrency;
+    private final ThreadFactory threadFactory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition transferIdle = lock.newCondition();
+
+    /* Transfers with a part ready to run, by descending priority. */
+    private final TreeMap<Integer, LinkedList<Transfer>> readyTransfers = 
+            new TreeMap<Integer, LinkedList<Transfer>>(Collections.reverseOrder());
+
+    /* Transfers with parts queued, whether ready or at their own limit. */
+    private final Set<Transfer> queuedTransfers = new HashSet<Transfer>();
+
+    private int workerCount = 0;
+    private int idleWorkerCount = 0;
+    private boolean shutdown = false;
+
+    /**
+     * @param maxConcurrency maximum number of parts running at once across
+     *        all transfers.
+     * @param threadFactory factory of the worker threads, or null for daemon
+     *        threads named oss-transfer-N.
+     */
+    public TransferScheduler(int maxConcurrency, ThreadFactory threadFactory) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be greater than 0: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.threadFactory = threadFactory != null ? threadFactory : new DaemonThreadFactory();
+    }
+
+    /**
+     * Starts a transfer whose parts are run by this scheduler.
+     *
+     * @param maxConcurrency maximum number of parts of the transfer running
+     *        at once.
+     * @param priority transfers of higher priority run their parts first.
+     */
+    public Transfer newTransfer(int maxConcurrency, int priority) {
+        return new Transfer(Math.max(maxConcurrency, 1), priority);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return number of worker threads currently alive.
+     */
+    public int getWorkerCount() {
+        lock.lock();
+        try {
+            return workerCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the workers once their current parts end. Parts that have not
+     * started are cancelled.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Transfer transfer : queuedTransfers) {
+                transfer.ready = false;
+                for (FutureTask<?> task : transfer.queue) {
+                    task.cancel(false);
+                }
+                transfer.queue.clear();
+            }
+            queuedTransfers.clear();
+            readyTransfers.clear();
+            workAvailable.signalAll();
+            transferIdle.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a factory of virtual threads when the runtime supports them,
+     * or null otherwise.
+     */
+    public static ThreadFactory newVirtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Method name = builderClass.getMethod("name", String.class, long.class);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(name.invoke(builder, "oss-transfer-", 0L));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /* Called with the lock held. */
+    private void markReady(Transfer transfer) {
+        if (transfer.ready || !transfer.canRun()) {
+            return;
+        }
+        LinkedList<Transfer> transfers = readyTransfers.get(transfer.priority);
+        if (transfers == null) {
+            transfers = new LinkedList<Transfer>();
+            readyTransfers.put(transfer.priority, transfers);
+        }
+        transfers.addLast(transfer);
+        transfer.ready = true;
+        workAvailable.signal();
+        
+        if (idleWorkerCount == 0 && workerCount < maxConcurrency) {
+            Thread thread = threadFactory.newThread(new Worker());
+            thread.start();
+            workerCount++;
+        }
+    }
+
+    /* Called with the lock held. */
+    private Transfer nextReady() {
+        Iterator<Map.Entry<Integer, LinkedList<Transfer>>> entries = readyTransfers.entrySet().iterator();
+        while (entries.hasNext()) {
+            LinkedList<Transfer> transfers = entries.next().getValue();
+            Transfer transfer;
+            while ((transfer = transfers.pollFirst()) != null) {
+                transfer.ready = false;
+                // Its limit may have been lowered since it became ready.
+                if (transfer.canRun()) {
+                    break;
+                }
+            }
+            if (transfers.isEmpty()) {
+                entries.remove();
+            }
+            if (transfer != null) {
+                return transfer;
+            }
+        }
+        return null;
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (runNext()) {
+                    // keep going
+                }
+            } finally {
+                lock.lock();
+                try {
+                    workerCount--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private boolean runNext() {
+            Transfer transfer;
+            FutureTask<?> task;
+            lock.lock();
+            try {
+                long nanos = TimeUnit.MILLISECONDS.toNanos(KEEP_ALIVE_TIME);
+                while ((transfer = nextReady()) == null) {
+                    if (shutdown || nanos <= 0) {
+                        return false;
+                    }
+                    idleWorkerCount++;
+                    try {
+                        nanos = workAvailable.awaitNanos(nanos);
+                    } catch (InterruptedException e) {
+                        return false;
+                    } finally {
+                        idleWorkerCount--;
+                    }
+                }
+                task = transfer.queue.removeFirst();
+                if (transfer.queue.isEmpty()) {
+                    queuedTransfers.remove(transfer);
+                }
+                transfer.running++;
+                // Back to the end of the line, behind the other transfers.
+                markReady(transfer);
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.run();
+            } finally {
+                lock.lock();
+                try {
+                    transfer.running--;
+                    markReady(transfer);
+                    if (transfer.isIdle()) {
+                        transferIdle.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The parts of one transfer.
+     */
+    public class Transfer {
+
+        private int maxConcurrency;
+        private final int priority;
+        private final LinkedList<FutureTask<?>> queue = new LinkedList<FutureTask<?>>();
+        private int running = 0;
+        private boolean ready = false;
+        private boolean cancelled = false;
+
+        private Transfer(int maxConcurrency, int priority) {
+            this.maxConcurrency = maxConcurrency;
+            this.priority = priority;
+        }
+
+        /**
+         * Queues a part of the transfer. The part is cancelled at once if the
+         * transfer has been cancelled.
+         */
+        public <T> Future<T> submit(Callable<T> part) {
+            FutureTask<T> task = new FutureTask<T>(part);
+            lock.lock();
+            try {
+                if (shutdown) {
+                    throw new IllegalStateException("Transfer scheduler has been shut down.");
+                }
+                if (cancelled) {
+                    task.cancel(false);
+                    return task;
+                }
+                queue.addLast(task);
+                queuedTransfers.add(this);
+                markReady(this);
+            } finally {
+                lock.unlock();
+            }
+            return task;
+        }
+
+        /**
+         * Waits until every part submitted so far has ended.
+         */
+        public void awaitCompletion() throws InterruptedException {
+            lock.lock();
+            try {
+                while (!isIdle()) {
+                    transferIdle.await();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Cancels the parts that have not started. Running parts are left to
+         * end on their own.
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                for (FutureTask<?> task : queue) {
+                    task.cancel(false);
+                }
+                queue.clear();
+                queuedTransfers.remove(this);
+                if (ready) {
+                    LinkedList<Transfer> transfers = readyTransfers.get(priority);
+                    transfers.remove(this);
+                    if (transfers.isEmpty()) {
+                        readyTransfers.remove(priority);
+                    }
+                    ready = false;
+                }
+                if (isIdle()) {
+                    transferIdle.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        /**
+         * Changes how many parts of the transfer may run at once. Lowering it
+         * lets the running parts end; it does not stop them.
+         */
+        public void setMaxConcurrency(int maxConcurrency) {
+            lock.lock();
+            try {
+                this.maxConcurrency = Math.max(maxConcurrency, 1);
+                markReady(this);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getMaxConcurrency() {
+            lock.lock();
+            try {
+                return maxConcurrency;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /* Called with the lock held. */
+        private boolean canRun() {
+            return !queue.isEmpty() && running < maxConcurrency;
+        }
+
+        /* Called with the lock held. */
+        private boolean isIdle() {
+            return queue.isEmpty() && running == 0;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "oss-transfer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
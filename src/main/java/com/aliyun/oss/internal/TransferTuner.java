@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+/**
+ * Picks the part size of a resumable transfer and tunes how many of its parts
+ * run at once from the measured throughput.
+ *
+ * <p>The transfer starts with {@link #INITIAL_CONCURRENCY} parts at once and
+ * measures the throughput over windows of completed parts. While a window is
+ * at least {@link #IMPROVEMENT} faster than the best one so far, the
+ * concurrency doubles. When it stops improving, the tuner falls back to the
+ * best concurrency and from then on probes one more part every
+ * {@link #PROBE_INTERVAL} windows, keeping the probe only if it pays off. A
+ * window that is clearly slower than the best one, or whose latency has grown
+ * well beyond the lowest seen without more throughput, backs off by one part,
+ * so a congested link is not flooded.</p>
+ */
+class TransferTuner {
+
+    static final int INITIAL_CONCURRENCY = 2;
+    static final int DEFAULT_MAX_CONCURRENCY = 16;
+    static final int DEFAULT_TARGET_PART_COUNT = 1000;
+    static final long MIN_PART_SIZE = 1024 * 1024;
+    static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+    static final long PART_SIZE_ALIGNMENT = 64 * 1024;
+    static final int MAX_PART_COUNT = 10000;
+
+    static final double IMPROVEMENT = 0.1;
+    static final double LATENCY_BACKOFF_FACTOR = 2.0;
+    static final int PROBE_INTERVAL = 4;
+
+    private final TransferScheduler.Transfer transfer;
+    private final int maxConcurrency;
+
+    private int concurrency;
+    private boolean slowStart = true;
+    private int probeFrom = 0; // concurrency before the probe in progress, 0 if none.
+    private int windowsSinceProbe = 0;
+
+    private double bestThroughput = 0;
+    private int bestConcurrency;
+    private double minLatency = Double.MAX_VALUE;
+
+    private long windowStart;
+    private long windowBytes = 0;
+    private long windowLatency = 0;
+    private int windowParts = 0;
+
+    /**
+     * @param maxConcurrency upper bound of the parts of the transfer running at once.
+     */
+    TransferTuner(TransferScheduler.Transfer transfer, int maxConcurrency) {
+        this.transfer = transfer;
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+        this.concurrency = Math.min(INITIAL_CONCURRENCY, this.maxConcurrency);
+        this.bestConcurrency = concurrency;
+        this.windowStart = System.currentTimeMillis();
+        transfer.setMaxConcurrency(concurrency);
+    }
+
+    /**
+     * Part size that splits the content into about the target number of
+     * parts, aligned and kept within the limits of multipart uploads.
+     */
+    static long choosePartSize(long contentLength, int targetPartCount) {
+        long partSize = contentLength / Math.max(targetPartCount, 1) + 1;
+        partSize = Math.max(partSize, contentLength / MAX_PART_COUNT + 1);
+        partSize = (partSize + PART_SIZE_ALIGNMENT - 1) / PART_SIZE_ALIGNMENT * PART_SIZE_ALIGNMENT;
+        return Math.min(Math.max(partSize, MIN_PART_SIZE), MAX_PART_SIZE);
+    }
+
+    /**
+     * Maximum number of parts running at once: the task number, or
+     * {@link #DEFAULT_MAX_CONCURRENCY} if it has been left at 1.
+     */
+    static int maxConcurrency(int taskNum) {
+        return taskNum > 1 ? taskNum : DEFAULT_MAX_CONCURRENCY;
+    }
+
+    /**
+     * Records a part that has completed.
+     *
+     * @param bytes size of the part.
+     * @param latency time the part took, in milliseconds.
+     */
+    synchronized void onPartCompleted(long bytes, long latency) {
+        windowBytes += bytes;
+        windowLatency += latency;
+        windowParts++;
+        if (windowParts < Math.max(concurrency, INITIAL_CONCURRENCY)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        double throughput = windowBytes * 1000.0 / Math.max(now - windowStart, 1);
+        double latencyPerByte = (double) windowLatency / Math.max(windowBytes, 1);
+        minLatency = Math.min(minLatency, latencyPerByte);
+        adjust(throughput, latencyPerByte);
+
+        windowStart = now;
+        windowBytes = 0;
+        windowLatency = 0;
+        windowParts = 0;
+    }
+
+    private void adjust(double throughput, double latencyPerByte) {
+        boolean improved = throughput > bestThroughput * (1 + IMPROVEMENT);
+        if (improved) {
+            bestThroughput = throughput;
+            bestConcurrency = concurrency;
+        }
+
+        if (slowStart) {
+            if (improved && concurrency < maxConcurrency) {
+                setConcurrency(Math.min(concurrency * 2, maxConcurrency));
+            } else {
+                slowStart = false;
+                setConcurrency(bestConcurrency);
+            }
+            return;
+        }
+
+        if (probeFrom > 0) {
+            // Keep the extra part only if it paid off.
+            if (!improved) {
+                setConcurrency(probeFrom);
+            }
+            probeFrom = 0;
+            return;
+        }
+
+        boolean slower = throughput < bestThroughput * (1 - IMPROVEMENT);
+        boolean congested = !improved && latencyPerByte > minLatency * LATENCY_BACKOFF_FACTOR;
+        if ((slower || congested) && concurrency > 1) {
+            setConcurrency(concurrency - 1);
+            // The link has changed; measure the best throughput again.
+            bestThroughput = throughput;
+            bestConcurrency = concurrency;
+            windowsSinceProbe = 0;
+        } else if (++windowsSinceProbe >= PROBE_INTERVAL && concurrency < maxConcurrency) {
+            probeFrom = concurrency;
+            windowsSinceProbe = 0;
+            setConcurrency(concurrency + 1);
+        }
+    }
+
+    private void setConcurrency(int concurrency) {
+        if (this.concurrency != concurrency) {
+            this.concurrency = concurrency;
+            transfer.setMaxConcurrency(concurrency);
+        }
+    }
+
+    synchronized int getConcurrency() {
+        return concurrency;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * 下载到本地文件时，将数据同步到磁盘（fsync）的策略。
+ */
+public enum FileSyncPolicy {
+
+    /**
+     * 不主动同步，由操作系统决定写回磁盘的时机。
+     */
+    None,
+
+    /**
+     * 每个分片写完后同步，断点续传记录中已完成的分片在掉电后依然有效。
+     */
+    PerPart,
+
+    /**
+     * 所有分片写完后同步一次。
+     */
+    OnComplete
+}
@@ -24,6 +24,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
+import com.aliyun.oss.common.comm.HedgingPolicy;
+
 /**
  * 指定从OSS下载Object的请求参数。
  */
@@ -43,6 +45,8 @@ public class GetObjectRequest extends GenericRequest {
      */
     private URL absoluteUrl;
     private boolean useUrlSignature = false;
+    
+    private HedgingPolicy hedgingPolicy;
 
     /**
      * 构造函数。
@@ -248,4 +252,25 @@ public class GetObjectRequest extends GenericRequest {
         this.useUrlSignature = useUrlSignature;
     }
     
+    
+    /**
+     * 获取请求的对冲策略，为null时使用{@link com.aliyun.oss.ClientConfiguration#getHedgingPolicy()}。
+     * @return 对冲策略
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * 设置请求的对冲策略，覆盖客户端的默认对冲策略。
+     * @param hedgingPolicy 对冲策略
+     */
+    public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+    }
+    
+    public GetObjectRequest withHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        setHedgingPolicy(hedgingPolicy);
+        return this;
+    }
 }
@@ -123,6 +123,96 @@ public class UploadFileRequest extends GenericRequest {
         this.callback = callback;
     }
 
+    /**
+     * 返回分片任务的优先级，默认0。
+     * @return 优先级。
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * 设置分片任务的优先级（可选）。同一OSSClient的断点续传任务共享分片线程，优先级高的任务的
+     * 分片先执行，优先级相同的任务轮流执行。
+     * @param priority
+     *          优先级。
+     */
+    public void setPriority(int priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * 返回单个分片失败后的重试次数，默认2。
+     * @return 分片重试次数。
+     */
+    public int getPartRetryCount() {
+        return partRetryCount;
+    }
+
+    /**
+     * 设置单个分片失败后的重试次数（可选），0表示不重试。分片的每次尝试本身仍按
+     * {@link com.aliyun.oss.ClientConfiguration#getMaxErrorRetry()}重试请求；分片重试用尽后，
+     * 其余未开始的分片被取消，正在上传的分片被中止，并抛出该分片的异常。
+     * @param partRetryCount
+     *          分片重试次数。
+     */
+    public void setPartRetryCount(int partRetryCount) {
+        this.partRetryCount = partRetryCount;
+    }
+
+    /**
+     * 返回分片重试的初始等待时间，单位毫秒，默认200。
+     * @return 分片重试的初始等待时间。
+     */
+    public long getPartRetryDelay() {
+        return partRetryDelay;
+    }
+
+    /**
+     * 设置分片重试的初始等待时间（可选），单位毫秒。每次重试的等待时间加倍并随机抖动，最长10秒。
+     * @param partRetryDelay
+     *          分片重试的初始等待时间。
+     */
+    public void setPartRetryDelay(long partRetryDelay) {
+        this.partRetryDelay = partRetryDelay;
+    }
+
+    /**
+     * 返回是否自动调整分片大小及并发分片数，默认不开启。
+     * @return 是否自动调整。
+     */
+    public boolean isAutoTuning() {
+        return autoTuning;
+    }
+
+    /**
+     * 设置是否自动调整分片大小及并发分片数（可选）。开启后，新的上传的分片大小由文件大小及目标分片数决定，
+     * partSize被忽略；并发分片数从2开始，根据实测的吞吐量及延迟在1到taskNum之间调整，taskNum为1（默认值）时上限为16。
+     * 实际使用的分片大小及并发分片数记录在结果中。
+     * @param autoTuning
+     *          是否自动调整。
+     */
+    public void setAutoTuning(boolean autoTuning) {
+        this.autoTuning = autoTuning;
+    }
+
+    /**
+     * 返回自动调整时的目标分片数，默认1000。
+     * @return 目标分片数。
+     */
+    public int getTargetPartCount() {
+        return targetPartCount;
+    }
+
+    /**
+     * 设置自动调整时的目标分片数（可选）。分片大小最小1MB，最大5GB，分片数不超过10000。
+     * @param targetPartCount
+     *          目标分片数。
+     */
+    public void setTargetPartCount(int targetPartCount) {
+        this.targetPartCount = targetPartCount;
+    }
+
     // 分片大小，单位字节，默认100KB
     private long partSize = 1024 * 100;
     // 分片上传线程数，默认1
@@ -137,4 +227,14 @@ public class UploadFileRequest extends GenericRequest {
     private ObjectMetadata objectMetadata;
     // 回调
     private Callback callback;
+    // 分片任务的优先级
+    private int priority = 0;
+    // 单个分片失败后的重试次数
+    private int partRetryCount = 2;
+    // 分片重试的初始等待时间，单位毫秒
+    private long partRetryDelay = 200;
+    // 是否自动调整分片大小及并发分片数
+    private boolean autoTuning = false;
+    // 自动调整时的目标分片数
+    private int targetPartCount = 1000;
 }
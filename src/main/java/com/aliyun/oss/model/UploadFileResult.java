@@ -34,6 +34,45 @@ public class UploadFileResult {
         this.multipartUploadResult = multipartUploadResult;
     }
     
+    /**
+     * 获取实际使用的分片大小，单位字节。
+     * @return 分片大小。
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * 获取结束时的并发分片数；开启自动调整时为调整后的值。
+     * @return 并发分片数。
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        this.taskNum = taskNum;
+    }
+
+    /**
+     * 获取本次调用传输分片的平均吞吐量，单位字节/秒。
+     * @return 平均吞吐量。
+     */
+    public long getThroughput() {
+        return throughput;
+    }
+
+    public void setThroughput(long throughput) {
+        this.throughput = throughput;
+    }
+    
     private CompleteMultipartUploadResult multipartUploadResult;
+    private long partSize;
+    private int taskNum;
+    private long throughput;
     
 }
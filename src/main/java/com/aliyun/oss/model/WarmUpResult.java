@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * 连接预热的结果，包括预热的域名、要求的连接数、成功建立或验证的连接数、新建的连接数以及用时。
+ */
+public class WarmUpResult {
+
+    private String host;
+    private int requestedConnections;
+    private int succeededConnections;
+    private int openedConnections;
+    private long elapsedTime;
+
+    public WarmUpResult(String host, int requestedConnections, int succeededConnections, 
+            int openedConnections, long elapsedTime) {
+        this.host = host;
+        this.requestedConnections = requestedConnections;
+        this.succeededConnections = succeededConnections;
+        this.openedConnections = openedConnections;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * 获取预热的服务端域名。
+     * @return 域名
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * 获取要求预热的连接数。
+     * @return 连接数
+     */
+    public int getRequestedConnections() {
+        return requestedConnections;
+    }
+
+    /**
+     * 获取预热后连接池中该域名可用的连接数，包括新建的连接和已有的空闲连接。
+     * @return 连接数
+     */
+    public int getSucceededConnections() {
+        return succeededConnections;
+    }
+
+    /**
+     * 获取本次预热新建的连接数。
+     * @return 连接数
+     */
+    public int getOpenedConnections() {
+        return openedConnections;
+    }
+
+    /**
+     * 获取预热用时，单位毫秒。
+     * @return 用时
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpResult [Host=" + this.host
+                + ", RequestedConnections=" + this.requestedConnections
+                + ", SucceededConnections=" + this.succeededConnections
+                + ", OpenedConnections=" + this.openedConnections
+                + ", ElapsedTime=" + this.elapsedTime + "]";
+    }
+}
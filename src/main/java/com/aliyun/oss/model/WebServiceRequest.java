@@ -22,6 +22,7 @@ package com.aliyun.oss.model;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.aliyun.oss.common.comm.CancellationToken;
 import com.aliyun.oss.event.ProgressListener;
 
 public abstract class WebServiceRequest {
@@ -33,6 +34,10 @@ public abstract class WebServiceRequest {
     private Map<String, String> parameters = new LinkedHashMap<String, String>();
     private Map<String, String> headers = new LinkedHashMap<String, String>();
     
+    private long requestDeadline = -1;
+    
+    private CancellationToken cancellationToken;
+    
     public void setProgressListener(ProgressListener progressListener) {
         this.progressListener = (progressListener == null) ? 
                 ProgressListener.NOOP : progressListener;
@@ -72,4 +77,44 @@ public abstract class WebServiceRequest {
     public void addHeader(String key, String value) {
         this.headers.put(key, value);
     }
+    
+    /**
+     * 获取请求的总耗时上限（包括所有重试及重试间隔），单位毫秒。
+     * 小于等于0表示使用{@link com.aliyun.oss.ClientConfiguration#getRequestDeadline()}。
+     */
+    public long getRequestDeadline() {
+        return requestDeadline;
+    }
+
+    /**
+     * 设置请求的总耗时上限（包括所有重试及重试间隔），单位毫秒。
+     * 小于等于0表示使用{@link com.aliyun.oss.ClientConfiguration#getRequestDeadline()}。
+     * @param requestDeadline 请求的总耗时上限
+     */
+    public void setRequestDeadline(long requestDeadline) {
+        this.requestDeadline = requestDeadline;
+    }
+    
+    public <T extends WebServiceRequest> T withRequestDeadline(long requestDeadline) {
+        setRequestDeadline(requestDeadline);
+        @SuppressWarnings("unchecked") 
+        T t = (T)this;
+        return t;
+    }
+    
+    /**
+     * 获取用于取消请求的{@link CancellationToken}，为null时请求不可取消。
+     */
+    public CancellationToken getCancellationToken() {
+        return cancellationToken;
+    }
+
+    /**
+     * 设置用于取消请求的{@link CancellationToken}。在其他线程调用{@link CancellationToken#cancel()}
+     * 会中止正在进行的请求，之后的请求及重试均以{@link com.aliyun.oss.ClientErrorCode#REQUEST_CANCELLED}失败。
+     * @param cancellationToken 用于取消请求的令牌，为null时请求不可取消
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
 }
@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class OSSAsyncClientTest {
+
+    private TestHttpServer server;
+    private OSSAsyncClient client;
+    private volatile long responseDelay = 0;
+    private final CountDownLatch releaseContent = new CountDownLatch(1);
+    private final CountDownLatch contentArrived = new CountDownLatch(1);
+    private volatile byte[] uploadedContent;
+
+    private static final int CHUNK = 256 * 1024;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("127.0.0.1");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    Thread.sleep(responseDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        // Sends half of the content, then holds the rest until released.
+        server.handle("/bucket/stream", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(200, 2 * CHUNK);
+                OutputStream out = exchange.getResponseBody();
+                out.write(new byte[CHUNK]);
+                out.flush();
+                try {
+                    releaseContent.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                out.write(new byte[CHUNK]);
+                exchange.close();
+            }
+        });
+        // Records the uploaded content, signalling the arrival of its first bytes.
+        server.handle("/bucket/upload", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    content.write(buffer, 0, n);
+                    contentArrived.countDown();
+                }
+                uploadedContent = content.toByteArray();
+                exchange.getResponseHeaders().add("ETag", "\"etag\"");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        ClientConfiguration config = new ClientConfiguration();
+        config.setSLDEnabled(true);
+        client = new OSSAsyncClient(server.getEndpoint().toString(), 
+                new DefaultCredentialProvider("id", "secret"), config);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testHandlerRunsOffIoThreads() throws Exception {
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Future<ObjectMetadata> future = client.getObjectMetadataAsync(new GenericRequest("bucket", "key"), 
+                new AsyncHandler<ObjectMetadata>() {
+            @Override
+            public void onSuccess(ObjectMetadata result) {
+                threadName.set(Thread.currentThread().getName());
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                done.countDown();
+            }
+        });
+        assertNotNull(future.get());
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(threadName.get(), threadName.get().startsWith("oss-async-callback-"));
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        responseDelay = 2000;
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Future<ObjectMetadata> future = client.getObjectMetadataAsync(new GenericRequest("bucket", "key"), 
+                new AsyncHandler<ObjectMetadata>() {
+            @Override
+            public void onSuccess(ObjectMetadata result) {
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                error.set(exception);
+            }
+        });
+        Thread.sleep(100);
+        assertTrue(future.cancel(true));
+        assertTrue(future.isCancelled());
+        assertFalse(future.cancel(true));
+        assertTrue(error.get() instanceof ClientException);
+    }
+
+    @Test
+    public void testResponseContentIsStreamed() throws Exception {
+        // The response is handed over while the server still holds half of the content.
+        OSSObject object = client.getObjectAsync(new GetObjectRequest("bucket", "stream"))
+                .get(5, TimeUnit.SECONDS);
+        InputStream content = object.getObjectContent();
+        byte[] buffer = new byte[4096];
+        long total = 0;
+        while (total < CHUNK) {
+            total += content.read(buffer, 0, (int) Math.min(buffer.length, CHUNK - total));
+        }
+        releaseContent.countDown();
+        int n;
+        while ((n = content.read(buffer)) != -1) {
+            total += n;
+        }
+        content.close();
+        assertEquals(2 * CHUNK, total);
+    }
+
+    @Test
+    public void testRequestContentIsStreamed() throws Exception {
+        // The second half is only available once the server has got the first half.
+        InputStream content = new InputStream() {
+            private int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0];
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position == 2 * CHUNK) {
+                    return -1;
+                }
+                if (position == CHUNK) {
+                    try {
+                        if (!contentArrived.await(5, TimeUnit.SECONDS)) {
+                            throw new IOException("The content has not been sent while it was read");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                int end = position < CHUNK ? CHUNK : 2 * CHUNK;
+                int n = Math.min(len, end - position);
+                for (int i = 0; i < n; i++) {
+                    b[off + i] = (byte) (position + i);
+                }
+                position += n;
+                return n;
+            }
+        };
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(2 * CHUNK);
+        client.putObjectAsync(new PutObjectRequest("bucket", "upload", content, metadata))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(2 * CHUNK, uploadedContent.length);
+        for (int i = 0; i < uploadedContent.length; i++) {
+            assertEquals((byte) i, uploadedContent[i]);
+        }
+    }
+
+    @Test
+    public void testPutFile() throws Exception {
+        byte[] bytes = new byte[3 * CHUNK + 17];
+        new Random().nextBytes(bytes);
+        File file = File.createTempFile("oss-async", ".dat");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(bytes);
+            } finally {
+                out.close();
+            }
+            client.putObjectAsync(new PutObjectRequest("bucket", "upload", file)).get(10, TimeUnit.SECONDS);
+            assertArrayEquals(bytes, uploadedContent);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSyncAndAsyncMethods() throws Exception {
+        assertNotNull(client.getObjectMetadata(new GenericRequest("bucket", "key")));
+        assertNotNull(client.getObjectMetadataAsync(new GenericRequest("bucket", "key")).get());
+    }
+}
@@ -676,6 +676,38 @@ public class OSSClientRequestTest {
         }
     }
 
+    @Test
+    public void testBatchPresigner() throws Exception {
+        Date expiration = new Date(new Date().getTime() + 1000 * 60 * 10);
+        List<String> keys = new ArrayList<String>();
+        keys.add("object");
+        keys.add("dir/sub dir/中文+key~*.txt");
+
+        OSS ossClient = new OSSClient("http://localhost/", "test", "test");
+        BatchPresigner presigner = ossClient.createBatchPresigner(bucketName, expiration);
+        List<String> urls = presigner.presign(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(ossClient.generatePresignedUrl(bucketName, keys.get(i), expiration).toString(), urls.get(i));
+        }
+
+        // Security token
+        ossClient = new OSSClient("https://localhost:8080", "test", "test", "token/with+chars");
+        presigner = ossClient.createBatchPresigner(bucketName, expiration);
+        StringBuilder buffer = new StringBuilder("url: ");
+        presigner.presign(keys.get(1), buffer);
+        assertEquals("url: " + ossClient.generatePresignedUrl(bucketName, keys.get(1), expiration), 
+                buffer.toString());
+
+        // Cached URLs are the same as new ones.
+        presigner.enableCache(1);
+        String url = presigner.presign(keys.get(0));
+        assertTrue(url == presigner.presign(keys.get(0)));
+        assertEquals(ossClient.generatePresignedUrl(bucketName, keys.get(0), expiration).toString(), url);
+        presigner.presign(keys.get(1));
+        assertTrue(url != presigner.presign(keys.get(0)));
+        assertEquals(url, presigner.presign(keys.get(0)));
+    }
+
     @Test
     public void testListPartsRequest(){
         String uploadId = "upload123";
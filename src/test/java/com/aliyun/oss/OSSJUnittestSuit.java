@@ -22,35 +22,83 @@ package com.aliyun.oss;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import com.aliyun.oss.common.auth.CredentialsSourceTest;
+import com.aliyun.oss.common.auth.RefreshingCredentialsProviderTest;
 import com.aliyun.oss.common.auth.ServiceSignatureTest;
+import com.aliyun.oss.common.comm.AsyncServiceClientTest;
+import com.aliyun.oss.common.comm.CachingDnsResolverTest;
+import com.aliyun.oss.common.comm.CancellationTokenTest;
+import com.aliyun.oss.common.comm.ChunkedInputStreamEntityTest;
+import com.aliyun.oss.common.comm.CircuitBreakerTest;
+import com.aliyun.oss.common.comm.ConcurrencyLimiterTest;
+import com.aliyun.oss.common.comm.ConnectionWarmerTest;
+import com.aliyun.oss.common.comm.FileChannelSinkTest;
+import com.aliyun.oss.common.comm.FileRegionEntityTest;
+import com.aliyun.oss.common.comm.HedgingPolicyTest;
 import com.aliyun.oss.common.comm.HttpFactoryTest;
+import com.aliyun.oss.common.comm.RetryStrategyTest;
 import com.aliyun.oss.common.comm.ServiceClientTest;
+import com.aliyun.oss.common.comm.TimeoutServiceClientTest;
 import com.aliyun.oss.common.utils.BinaryUtilTest;
+import com.aliyun.oss.common.utils.BufferPoolTest;
 import com.aliyun.oss.common.utils.DateUtilTest;
 import com.aliyun.oss.common.utils.ExceptionFactoryTest;
+import com.aliyun.oss.common.utils.HashedWheelTimerTest;
 import com.aliyun.oss.common.utils.IOUtilTest;
 import com.aliyun.oss.common.utils.ResourceManagerTest;
+import com.aliyun.oss.internal.CheckpointJournalTest;
+import com.aliyun.oss.internal.SignUtilsTest;
+import com.aliyun.oss.internal.StaxResponseParsersTest;
+import com.aliyun.oss.internal.TransferSchedulerTest;
+import com.aliyun.oss.internal.TransferTunerTest;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
     // package com.aliyun.oss
+    OSSAsyncClientTest.class,
     OSSClientArgCheckTest.class,
     OSSClientRequestTest.class,
     OSSResponseParserTest.class,
+    ObjectListingIterableTest.class,
+    SharedTransportTest.class,
+    TransferHandleTest.class,
     
     // package com.aliyun.oss.common.auth
+    CredentialsSourceTest.class,
+    RefreshingCredentialsProviderTest.class,
     ServiceSignatureTest.class,
     
     // package com.aliyun.oss.common.comm
+    AsyncServiceClientTest.class,
+    CachingDnsResolverTest.class,
+    CancellationTokenTest.class,
+    ChunkedInputStreamEntityTest.class,
+    CircuitBreakerTest.class,
+    ConcurrencyLimiterTest.class,
+    ConnectionWarmerTest.class,
+    FileChannelSinkTest.class,
+    FileRegionEntityTest.class,
+    HedgingPolicyTest.class,
     HttpFactoryTest.class,
+    RetryStrategyTest.class,
     ServiceClientTest.class,
+    TimeoutServiceClientTest.class,
     
     // package com.aliyun.oss.common.utils
     BinaryUtilTest.class,
+    BufferPoolTest.class,
     DateUtilTest.class,
     ExceptionFactoryTest.class,
+    HashedWheelTimerTest.class,
     IOUtilTest.class,
-    ResourceManagerTest.class
+    ResourceManagerTest.class,
+    
+    // package com.aliyun.oss.internal
+    CheckpointJournalTest.class,
+    SignUtilsTest.class,
+    StaxResponseParsersTest.class,
+    TransferSchedulerTest.class,
+    TransferTunerTest.class
 })
 
 public class OSSJUnittestSuit {
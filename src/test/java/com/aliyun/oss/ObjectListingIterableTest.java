@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.aliyun.oss.internal.TransferScheduler;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+
+public class ObjectListingIterableTest {
+
+    private static final int KEY_COUNT = 25;
+    private static final int PAGE_SIZE = 10;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int failingRequest = -1;
+    private volatile Error failingError;
+    private final List<ListObjectsRequest> receivedRequests = 
+            Collections.synchronizedList(new ArrayList<ListObjectsRequest>());
+
+    /**
+     * Serves the keys "key-00" to "key-24" and, with the "/" delimiter, a
+     * common prefix per key instead, from memory.
+     */
+    private final OSSClient client = new OSSClient("http://localhost", "id", "secret") {
+        @Override
+        public ObjectListing listObjects(ListObjectsRequest request) {
+            receivedRequests.add(request);
+            if (requests.incrementAndGet() == failingRequest) {
+                if (failingError != null) {
+                    throw failingError;
+                }
+                throw new ClientException("Listing failed.");
+            }
+            
+            int start = 0;
+            if (request.getMarker() != null) {
+                start = Integer.parseInt(request.getMarker().substring("key-".length())) + 1;
+            }
+            int end = Math.min(start + request.getMaxKeys(), KEY_COUNT);
+            
+            ObjectListing listing = new ObjectListing();
+            listing.setBucketName(request.getBucketName());
+            for (int i = start; i < end; i++) {
+                String key = String.format("key-%02d", i);
+                if (request.getDelimiter() != null) {
+                    listing.addCommonPrefix(key + "/");
+                } else {
+                    OSSObjectSummary summary = new OSSObjectSummary();
+                    summary.setKey(key);
+                    listing.addObjectSummary(summary);
+                }
+                listing.setNextMarker(key);
+            }
+            listing.setTruncated(end < KEY_COUNT);
+            return listing;
+        }
+    };
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    private static ListObjectsRequest request() {
+        return new ListObjectsRequest("bucket", null, null, null, PAGE_SIZE);
+    }
+
+    private static List<String> keys(Iterable<OSSObjectSummary> summaries) {
+        List<String> keys = new ArrayList<String>();
+        for (OSSObjectSummary summary : summaries) {
+            keys.add(summary.getKey());
+        }
+        return keys;
+    }
+
+    private void waitForRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (requests.get() < count) {
+            assertTrue("Page was not prefetched.", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testIterateAllObjects() {
+        for (int depth : new int[] { 0, 1, 3 }) {
+            requests.set(0);
+            List<String> keys = keys(client.iterateObjects(request(), depth));
+            assertEquals(KEY_COUNT, keys.size());
+            for (int i = 0; i < KEY_COUNT; i++) {
+                assertEquals(String.format("key-%02d", i), keys.get(i));
+            }
+            assertEquals(3, requests.get());
+        }
+        
+        // From the marker of the request.
+        List<String> keys = keys(client.iterateObjects(request().withMarker("key-19")));
+        assertEquals(5, keys.size());
+        assertEquals("key-20", keys.get(0));
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        Iterator<ObjectListing> pages = client.iterateObjects(request(), 2).pages().iterator();
+        // The following pages are fetched while the first one is processed.
+        pages.next();
+        waitForRequests(3);
+        assertEquals(10, pages.next().getObjectSummaries().size());
+        assertEquals(5, pages.next().getObjectSummaries().size());
+        assertFalse(pages.hasNext());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testPrefetchDepth() throws Exception {
+        Iterator<ObjectListing> pages = client.iterateObjects(new ListObjectsRequest("bucket", null, null, null, 1), 
+                2).pages().iterator();
+        pages.next();
+        waitForRequests(3);
+        Thread.sleep(100);
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    public void testQueuedPrefetchIsTakenOver() throws Exception {
+        // The only transfer thread is busy with another transfer, so the prefetch stays queued.
+        TransferScheduler scheduler = new TransferScheduler(1, null);
+        final CountDownLatch release = new CountDownLatch(1);
+        scheduler.newTransfer(1, 0).submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                release.await();
+                return null;
+            }
+        });
+        try {
+            List<String> keys = keys(new ObjectListingIterable(client, request(), 2, scheduler));
+            assertEquals(KEY_COUNT, keys.size());
+            assertEquals(3, requests.get());
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testCommonPrefixes() {
+        List<String> prefixes = new ArrayList<String>();
+        for (String prefix : client.iterateObjects(request().withDelimiter("/")).commonPrefixes()) {
+            prefixes.add(prefix);
+        }
+        assertEquals(KEY_COUNT, prefixes.size());
+        assertEquals("key-00/", prefixes.get(0));
+        assertEquals("key-24/", prefixes.get(KEY_COUNT - 1));
+    }
+
+    @Test
+    public void testFailedPage() {
+        failingRequest = 2;
+        Iterator<OSSObjectSummary> summaries = client.iterateObjects(request(), 1).iterator();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            summaries.next();
+        }
+        try {
+            summaries.hasNext();
+            fail("The failure of the second page should be thrown.");
+        } catch (ClientException e) {
+            assertEquals("Listing failed.", e.getErrorMessage());
+        }
+        
+        // The page is requested again.
+        int remaining = 0;
+        while (summaries.hasNext()) {
+            summaries.next();
+            remaining++;
+        }
+        assertEquals(KEY_COUNT - PAGE_SIZE, remaining);
+    }
+
+    @Test
+    public void testPrefetchFailsWithError() {
+        failingRequest = 2;
+        failingError = new NoClassDefFoundError("Listing failed.");
+        Iterator<OSSObjectSummary> summaries = client.iterateObjects(request(), 1).iterator();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            summaries.next();
+        }
+        try {
+            summaries.hasNext();
+            fail("The error of the second page should be thrown.");
+        } catch (NoClassDefFoundError e) {
+            assertEquals(failingError, e);
+        }
+        
+        // The page is requested again instead of waiting for the failed fetch.
+        int remaining = 0;
+        while (summaries.hasNext()) {
+            summaries.next();
+            remaining++;
+        }
+        assertEquals(KEY_COUNT - PAGE_SIZE, remaining);
+    }
+
+    @Test
+    public void testPagesKeepRequestSettings() {
+        ListObjectsRequest request = request().withEncodingType("url").withRequestDeadline(60 * 1000);
+        request.addHeader("x-oss-test", "header");
+        request.addParameter("test", "parameter");
+        assertEquals(KEY_COUNT, keys(client.iterateObjects(request, 1)).size());
+        
+        assertEquals(3, receivedRequests.size());
+        for (ListObjectsRequest pageRequest : receivedRequests) {
+            assertEquals("url", pageRequest.getEncodingType());
+            assertEquals(60 * 1000, pageRequest.getRequestDeadline());
+            assertEquals("header", pageRequest.getHeaders().get("x-oss-test"));
+            assertEquals("parameter", pageRequest.getParameters().get("test"));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class SharedTransportTest {
+
+    private TestHttpServer server;
+    private String endpoint;
+    private final List<String> authorizations = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("127.0.0.1");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+        endpoint = server.getEndpoint().toString();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void testClientsUseTheirOwnCredentials() {
+        SharedTransport transport = new SharedTransport();
+        OSSClient tenant1 = new OSSClient(transport, endpoint, new DefaultCredentialProvider("tenant1", "secret1"));
+        OSSClient tenant2 = new OSSClient(transport, endpoint, new DefaultCredentialProvider("tenant2", "secret2"));
+        assertEquals(2, transport.getClientCount());
+        assertTrue(tenant1.getClientConfiguration() == tenant2.getClientConfiguration());
+        assertTrue(tenant1.getRetryMetrics() == tenant2.getRetryMetrics());
+
+        tenant1.getObjectMetadata("bucket", "key");
+        tenant2.getObjectMetadata("bucket", "key");
+        assertEquals(2, authorizations.size());
+        assertTrue(authorizations.get(0).startsWith("OSS tenant1:"));
+        assertTrue(authorizations.get(1).startsWith("OSS tenant2:"));
+
+        tenant1.shutdown();
+        transport.shutdown();
+        tenant2.getObjectMetadata("bucket", "key");
+        assertEquals(3, authorizations.size());
+
+        tenant2.shutdown();
+        assertEquals(0, transport.getClientCount());
+        try {
+            tenant2.getObjectMetadata("bucket", "key");
+            fail("Transport has not been shut down.");
+        } catch (RuntimeException e) {
+            // Expected exception.
+        }
+    }
+
+    @Test
+    public void testShutdownIsIdempotent() {
+        SharedTransport transport = new SharedTransport();
+        OSSClient tenant1 = new OSSClient(transport, endpoint, new DefaultCredentialProvider("tenant1", "secret1"));
+        OSSClient tenant2 = new OSSClient(transport, endpoint, new DefaultCredentialProvider("tenant2", "secret2"));
+        tenant1.shutdown();
+        tenant1.shutdown();
+        assertEquals(1, transport.getClientCount());
+        tenant2.getObjectMetadata("bucket", "key");
+        tenant2.shutdown();
+        transport.shutdown();
+
+        try {
+            new OSSClient(transport, endpoint, new DefaultCredentialProvider("tenant3", "secret3"));
+            fail("IllegalStateException has not been thrown.");
+        } catch (IllegalStateException e) {
+            // Expected exception.
+        }
+    }
+}
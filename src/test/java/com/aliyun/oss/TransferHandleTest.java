@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.common.comm.CancellationToken;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.internal.OSSMultipartOperation;
+import com.aliyun.oss.internal.OSSUploadOperation;
+import com.aliyun.oss.internal.TransferScheduler;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.TransferState;
+import com.aliyun.oss.model.UploadFileRequest;
+import com.aliyun.oss.model.UploadFileResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+
+public class TransferHandleTest {
+
+    private static final int PART_SIZE = 100 * 1024;
+    private static final int PART_COUNT = 10;
+
+    private TransferScheduler scheduler;
+    private OSSUploadOperation uploadOperation;
+    private File uploadFile;
+
+    private final AtomicInteger partRequests = new AtomicInteger();
+    private final AtomicInteger failingPartRequests = new AtomicInteger();
+    private final Set<Integer> uploadedParts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final AtomicInteger aborts = new AtomicInteger();
+    private volatile int failingPart = -1;
+    private volatile String failingCode = OSSErrorCode.INTERNAL_ERROR;
+    private volatile int failuresLeft = Integer.MAX_VALUE;
+    private volatile long partDelay = 0;
+    private volatile long abortDelay = 0;
+
+    /**
+     * Stands in for the service. A part takes partDelay milliseconds unless
+     * its request is cancelled, as an aborted HTTP request would be.
+     */
+    private class StubMultipartOperation extends OSSMultipartOperation {
+
+        public StubMultipartOperation() {
+            super(null, null);
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-id");
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            partRequests.incrementAndGet();
+            int partNumber = request.getPartNumber();
+            if (partNumber == failingPart && failingPartRequests.incrementAndGet() <= failuresLeft) {
+                throw new OSSException("failed", failingCode, "id", "host", null, null, null);
+            }
+            
+            CancellationToken token = request.getCancellationToken();
+            try {
+                if (token.await(partDelay)) {
+                    throw ExceptionFactory.createCancelledException();
+                }
+            } catch (InterruptedException e) {
+                throw new ClientException(e);
+            }
+            uploadedParts.add(partNumber);
+            
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(partNumber);
+            result.setETag("etag-" + partNumber);
+            return result;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            assertEquals(PART_COUNT, request.getPartETags().size());
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+            try {
+                Thread.sleep(abortDelay);
+            } catch (InterruptedException e) {
+                throw new ClientException(e);
+            }
+            aborts.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        scheduler = new TransferScheduler(4, null);
+        uploadOperation = new OSSUploadOperation(new StubMultipartOperation(), scheduler);
+
+        uploadFile = File.createTempFile("transfer-handle", ".dat");
+        OutputStream out = new FileOutputStream(uploadFile);
+        try {
+            out.write(new byte[PART_SIZE * PART_COUNT]);
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        uploadFile.delete();
+        checkpointFile().delete();
+    }
+
+    private File checkpointFile() {
+        return new File(uploadFile.getPath() + ".ucp");
+    }
+
+    private UploadFileRequest createRequest(int taskNum, boolean enableCheckpoint) {
+        UploadFileRequest request = new UploadFileRequest("bucket", "key", uploadFile.getPath(), 
+                PART_SIZE, taskNum, enableCheckpoint);
+        request.setPartRetryDelay(10);
+        return request;
+    }
+
+    private TransferHandle<UploadFileResult> startUpload(final UploadFileRequest request) {
+        TransferHandle<UploadFileResult> handle = new TransferHandle<UploadFileResult>(request) {
+            @Override
+            protected UploadFileResult transfer() throws Throwable {
+                return uploadOperation.uploadFile(request);
+            }
+
+            @Override
+            protected void discard() {
+                uploadOperation.discardUploadFile(request);
+            }
+        };
+        handle.start();
+        return handle;
+    }
+
+    @Test
+    public void testPartRetrySucceeds() throws Throwable {
+        failingPart = 3;
+        failuresLeft = 2;
+        uploadOperation.uploadFile(createRequest(2, false));
+        assertEquals(3, failingPartRequests.get());
+        assertEquals(PART_COUNT, uploadedParts.size());
+    }
+
+    @Test
+    public void testFailedPartCancelsOtherParts() throws Throwable {
+        failingPart = 2;
+        partDelay = 100;
+        UploadFileRequest request = createRequest(2, false);
+        request.setPartRetryCount(1);
+        try {
+            uploadOperation.uploadFile(request);
+            fail("OSSException has not been thrown.");
+        } catch (OSSException e) {
+            assertEquals(OSSErrorCode.INTERNAL_ERROR, e.getErrorCode());
+        }
+        assertEquals(2, failingPartRequests.get());
+        assertTrue(partRequests.get() < PART_COUNT / 2);
+    }
+
+    @Test
+    public void testNonRetryableErrorIsNotRetried() throws Throwable {
+        failingPart = 1;
+        failingCode = OSSErrorCode.NO_SUCH_UPLOAD;
+        UploadFileRequest request = createRequest(1, false);
+        request.setPartRetryCount(5);
+        try {
+            uploadOperation.uploadFile(request);
+            fail("OSSException has not been thrown.");
+        } catch (OSSException e) {
+            assertEquals(OSSErrorCode.NO_SUCH_UPLOAD, e.getErrorCode());
+        }
+        assertEquals(1, failingPartRequests.get());
+    }
+
+    @Test
+    public void testPauseAndResume() throws Throwable {
+        partDelay = 150;
+        TransferHandle<UploadFileResult> handle = startUpload(createRequest(1, true));
+        Thread.sleep(400);
+        handle.pause();
+        try {
+            handle.waitForCompletion();
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+        }
+        assertEquals(TransferState.Paused, handle.getState());
+        assertTrue(uploadedParts.size() < PART_COUNT);
+        assertTrue(checkpointFile().exists());
+        assertEquals(0, aborts.get());
+
+        int requestsBeforeResume = partRequests.get();
+        int uploadedBeforeResume = uploadedParts.size();
+        handle.resume();
+        handle.waitForCompletion();
+        assertEquals(TransferState.Completed, handle.getState());
+        assertEquals(PART_COUNT, uploadedParts.size());
+        // Only the parts missing from the checkpoint are sent again.
+        assertEquals(PART_COUNT - uploadedBeforeResume, partRequests.get() - requestsBeforeResume);
+        assertFalse(checkpointFile().exists());
+    }
+
+    @Test
+    public void testCancel() throws Throwable {
+        partDelay = 150;
+        TransferHandle<UploadFileResult> handle = startUpload(createRequest(2, true));
+        Thread.sleep(400);
+        long start = System.currentTimeMillis();
+        handle.cancel();
+        try {
+            handle.waitForCompletion();
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertEquals(TransferState.Cancelled, handle.getState());
+        assertEquals(1, aborts.get());
+        assertFalse(checkpointFile().exists());
+        assertTrue(uploadedParts.size() < PART_COUNT);
+    }
+
+    @Test
+    public void testSlowDiscardDoesNotBlockHandle() throws Throwable {
+        partDelay = 150;
+        abortDelay = 1000;
+        TransferHandle<UploadFileResult> handle = startUpload(createRequest(2, true));
+        Thread.sleep(200);
+        handle.cancel();
+        Thread.sleep(200);
+        
+        // The multipart upload is being aborted, without holding the handle.
+        long start = System.currentTimeMillis();
+        assertEquals(TransferState.Running, handle.getState());
+        handle.pause();
+        assertTrue(System.currentTimeMillis() - start < 100);
+        assertEquals(0, aborts.get());
+        
+        try {
+            handle.waitForCompletion();
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+        }
+        assertEquals(TransferState.Cancelled, handle.getState());
+        assertEquals(1, aborts.get());
+        assertFalse(checkpointFile().exists());
+    }
+}
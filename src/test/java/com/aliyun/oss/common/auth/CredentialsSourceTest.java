@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.aliyun.oss.common.utils.DateUtil;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+public class CredentialsSourceTest {
+
+    @Test
+    public void testEnvironmentVariableSource() throws Exception {
+        Map<String, String> env = new HashMap<String, String>();
+        env.put(EnvironmentVariableCredentialsSource.ACCESS_KEY_ID, "id");
+        env.put(EnvironmentVariableCredentialsSource.ACCESS_KEY_SECRET, "secret");
+        ExpiringCredentials creds = new EnvironmentVariableCredentialsSource(env).fetchCredentials();
+        assertEquals("id", creds.getAccessKeyId());
+        assertEquals("secret", creds.getSecretAccessKey());
+        assertFalse(creds.useSecurityToken());
+        assertNull(creds.getExpiration());
+
+        env.remove(EnvironmentVariableCredentialsSource.ACCESS_KEY_SECRET);
+        try {
+            new EnvironmentVariableCredentialsSource(env).fetchCredentials();
+            fail("Missing secret should be rejected.");
+        } catch (InvalidCredentialsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFileSource() throws Exception {
+        File file = File.createTempFile("credentials", ".properties");
+        try {
+            OutputStream out = new FileOutputStream(file);
+            out.write(("accessKeyId = id\naccessKeySecret = secret\nsecurityToken = token\n" 
+                    + "expiration = 2017-11-01T09:00:00Z\n").getBytes("UTF-8"));
+            out.close();
+
+            ExpiringCredentials creds = new FileCredentialsSource(file).fetchCredentials();
+            assertEquals("id", creds.getAccessKeyId());
+            assertEquals("secret", creds.getSecretAccessKey());
+            assertEquals("token", creds.getSecurityToken());
+            assertEquals(DateUtil.parseIso8601Date("2017-11-01T09:00:00Z"), creds.getExpiration());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testHttpSource() throws Exception {
+        final String[] response = new String[] { "{\"Code\": \"Success\", \"AccessKeyId\": \"id\", " 
+                + "\"AccessKeySecret\": \"secret\", \"SecurityToken\": \"token\", " 
+                + "\"Expiration\": \"2017-11-01T09:00:00Z\"}" };
+        TestHttpServer server = new TestHttpServer("127.0.0.1");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = response[0].getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            URL url = new URL(server.getEndpoint() + "/credentials");
+            ExpiringCredentials creds = new HttpCredentialsSource(url).fetchCredentials();
+            assertEquals("id", creds.getAccessKeyId());
+            assertEquals("secret", creds.getSecretAccessKey());
+            assertEquals("token", creds.getSecurityToken());
+            assertEquals(DateUtil.parseIso8601Date("2017-11-01T09:00:00Z"), creds.getExpiration());
+
+            // AssumeRole response
+            response[0] = "{\"RequestId\": \"r\", \"Credentials\": {\"AccessKeyId\": \"id2\", " 
+                    + "\"AccessKeySecret\": \"secret2\", \"SecurityToken\": \"token2\"}}";
+            creds = new HttpCredentialsSource(url).fetchCredentials();
+            assertEquals("id2", creds.getAccessKeyId());
+            assertNull(creds.getExpiration());
+
+            response[0] = "{\"Code\": \"Failed\"}";
+            try {
+                new HttpCredentialsSource(url).fetchCredentials();
+                fail("Failed response should be rejected.");
+            } catch (InvalidCredentialsException e) {
+                // expected
+            }
+        } finally {
+            server.stop();
+        }
+    }
+}
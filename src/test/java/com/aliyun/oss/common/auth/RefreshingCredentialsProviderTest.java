@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.auth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class RefreshingCredentialsProviderTest {
+
+    /* Issues credentials "id1", "id2", ... valid for the given time, or fails when told to. */
+    private static class StubSource implements CredentialsSource {
+        private final AtomicInteger count = new AtomicInteger();
+        private final long validity;
+        private volatile boolean failing = false;
+        private volatile Error error;
+        private volatile CountDownLatch release;
+
+        StubSource(long validity) {
+            this.validity = validity;
+        }
+
+        @Override
+        public ExpiringCredentials fetchCredentials() throws Exception {
+            CountDownLatch latch = release;
+            if (latch != null) {
+                latch.await();
+            }
+            if (failing) {
+                throw new Exception("Source unavailable.");
+            }
+            Error e = error;
+            if (e != null) {
+                error = null;
+                throw e;
+            }
+            Date expiration = validity > 0 ? new Date(System.currentTimeMillis() + validity) : null;
+            return new ExpiringCredentials("id" + count.incrementAndGet(), "secret", "token", expiration);
+        }
+    }
+
+    private static void waitForAccessKeyId(CredentialsProvider provider, String accessKeyId) 
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!accessKeyId.equals(provider.getCredentials().getAccessKeyId())) {
+            assertTrue("Credentials were not refreshed.", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testRefreshBeforeExpiration() throws Exception {
+        StubSource source = new StubSource(600);
+        RefreshingCredentialsProvider provider = new RefreshingCredentialsProvider(source, 300, 60000);
+        try {
+            assertEquals("id1", provider.getCredentials().getAccessKeyId());
+            
+            // Request threads keep the current credentials while a refresh is blocked.
+            source.release = new CountDownLatch(1);
+            long start = System.currentTimeMillis();
+            while (System.currentTimeMillis() - start < 400) {
+                assertEquals("id1", provider.getCredentials().getAccessKeyId());
+                Thread.sleep(10);
+            }
+            source.release.countDown();
+            waitForAccessKeyId(provider, "id2");
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshWithoutExpiration() throws Exception {
+        StubSource source = new StubSource(0);
+        RefreshingCredentialsProvider provider = new RefreshingCredentialsProvider(source, 0, 200);
+        try {
+            assertEquals("id1", provider.getCredentials().getAccessKeyId());
+            waitForAccessKeyId(provider, "id2");
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    public void testExpiredCredentials() throws Exception {
+        StubSource source = new StubSource(300);
+        RefreshingCredentialsProvider provider = new RefreshingCredentialsProvider(source, 0, 60000);
+        try {
+            source.failing = true;
+            Thread.sleep(400);
+            try {
+                provider.getCredentials();
+                fail("Expired credentials should not be returned.");
+            } catch (InvalidCredentialsException e) {
+                // expected
+            }
+            
+            provider.setUseExpiredCredentials(true);
+            assertEquals("id1", provider.getCredentials().getAccessKeyId());
+            
+            // The failed refresh is retried.
+            source.failing = false;
+            waitForAccessKeyId(provider, "id2");
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefreshContinuesAfterError() throws Exception {
+        StubSource source = new StubSource(200);
+        RefreshingCredentialsProvider provider = new RefreshingCredentialsProvider(source, 100, 60000);
+        try {
+            provider.setUseExpiredCredentials(true);
+            source.error = new NoClassDefFoundError("Source unavailable.");
+            // The failed refresh is retried after the minimum retry delay.
+            waitForAccessKeyId(provider, "id2");
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    @Test
+    public void testInitialFailure() {
+        StubSource source = new StubSource(0);
+        source.failing = true;
+        try {
+            new RefreshingCredentialsProvider(source);
+            fail("The first credentials should be loaded at once.");
+        } catch (InvalidCredentialsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSetCredentials() throws Exception {
+        RefreshingCredentialsProvider provider = new RefreshingCredentialsProvider(new StubSource(0));
+        try {
+            provider.setCredentials(new DefaultCredentials("manual", "secret"));
+            assertEquals("manual", provider.getCredentials().getAccessKeyId());
+            assertTrue(!provider.getCredentials().useSecurityToken());
+        } finally {
+            provider.shutdown();
+        }
+    }
+}
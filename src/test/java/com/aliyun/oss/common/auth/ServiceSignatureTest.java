@@ -27,9 +27,13 @@ import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
 import org.junit.Test;
 
 import com.aliyun.oss.common.auth.ServiceSignature;
+import com.aliyun.oss.common.utils.BinaryUtil;
 import com.aliyun.oss.common.utils.DateUtil;
 import com.aliyun.oss.common.utils.HttpUtil;
 import com.aliyun.oss.internal.OSSConstants;
@@ -69,4 +73,23 @@ public class ServiceSignatureTest {
         signature = sign.computeSignature("csdev", data);
         assertEquals(expected, signature);
     }
+
+    @Test
+    public void testComputeSignatureWithChangingKeys() throws Exception {
+        ServiceSignature sign = ServiceSignature.create();
+        String data = "PUT\n\napplication/octet-stream\nMon, 28 Nov 2011 14:02:46 GMT\n/bucket/object";
+        
+        // The Mac of the thread must be set up again whenever the key changes.
+        String[] keys = new String[] { "csdev", "another-key", "another-key", "csdev" };
+        for (String key : keys) {
+            assertEquals(referenceSignature(key, data), sign.computeSignature(key, data));
+        }
+        assertEquals(referenceSignature("csdev", data), ServiceSignature.create().computeSignature("csdev", data));
+    }
+    
+    private static String referenceSignature(String key, String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA1");
+        mac.init(new SecretKeySpec(key.getBytes("UTF-8"), "HmacSHA1"));
+        return BinaryUtil.toBase64String(mac.doFinal(data.getBytes("UTF-8")));
+    }
 }
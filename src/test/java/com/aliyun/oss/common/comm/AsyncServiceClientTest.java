@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.internal.OSSConstants;
+import com.aliyun.oss.model.WarmUpResult;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class AsyncServiceClientTest {
+    
+    private TestHttpServer server;
+    private AsyncServiceClient client;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final List<String> receivedBodies = Collections.synchronizedList(new ArrayList<String>());
+    private volatile int failuresBeforeSuccess = 0;
+    
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = IOUtils.readStreamAsByteArray(exchange.getRequestBody());
+                receivedBodies.add(new String(body, OSSConstants.DEFAULT_CHARSET_NAME));
+                int status = attempts.incrementAndGet() <= failuresBeforeSuccess ? 503 : 200;
+                byte[] response = ("attempt-" + attempts.get()).getBytes(OSSConstants.DEFAULT_CHARSET_NAME);
+                exchange.sendResponseHeaders(status, response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                out.close();
+            }
+        });
+        server.start();
+        
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(3);
+        client = new AsyncServiceClient(config);
+    }
+    
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+    
+    private RequestMessage createRequest(HttpMethod method, String content) throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(server.getEndpoint());
+        request.setResourcePath("bucket/key");
+        request.setMethod(method);
+        if (content != null) {
+            byte[] bytes = content.getBytes(OSSConstants.DEFAULT_CHARSET_NAME);
+            request.setContent(new ByteArrayInputStream(bytes));
+            request.setContentLength(bytes.length);
+        }
+        return request;
+    }
+    
+    private static ExecutionContext createContext() {
+        ExecutionContext context = new ExecutionContext();
+        context.addResponseHandler(new ResponseHandler() {
+            @Override
+            public void handle(ResponseMessage response) throws ServiceException {
+                if (!response.isSuccessful()) {
+                    throw new ServiceException("status " + response.getStatusCode());
+                }
+            }
+        });
+        return context;
+    }
+    
+    @Test
+    public void testSendRequestAsync() throws Exception {
+        Future<ResponseMessage> future = client.sendRequestAsync(createRequest(HttpMethod.GET, null), 
+                createContext(), null);
+        ResponseMessage response = future.get();
+        assertEquals(200, response.getStatusCode());
+        assertEquals("attempt-1", IOUtils.readStreamAsString(response.getContent(), "utf-8"));
+    }
+    
+    @Test
+    public void testWarmUp() throws Exception {
+        URI endpoint = server.getEndpoint();
+        WarmUpResult result = client.warmUp(endpoint, 4);
+        assertEquals(4, result.getSucceededConnections());
+        assertEquals(4, result.getOpenedConnections());
+
+        // The pooled connections are reused by the next warm-up and by requests.
+        result = client.warmUp(endpoint, 6);
+        assertEquals(6, result.getSucceededConnections());
+        assertEquals(2, result.getOpenedConnections());
+
+        ResponseMessage response = client.sendRequestAsync(createRequest(HttpMethod.GET, null), 
+                createContext(), null).get();
+        assertEquals(200, response.getStatusCode());
+    }
+    
+    @Test
+    public void testRetryResendsContent() throws Exception {
+        failuresBeforeSuccess = 2;
+        Future<ResponseMessage> future = client.sendRequestAsync(createRequest(HttpMethod.PUT, "hello"), 
+                createContext(), null);
+        ResponseMessage response = future.get();
+        assertEquals(200, response.getStatusCode());
+        assertEquals(3, attempts.get());
+        assertEquals(3, receivedBodies.size());
+        for (String body : receivedBodies) {
+            assertEquals("hello", body);
+        }
+    }
+    
+    @Test
+    public void testRetryGivesUp() throws Exception {
+        failuresBeforeSuccess = 10;
+        Future<ResponseMessage> future = client.sendRequestAsync(createRequest(HttpMethod.HEAD, null), 
+                createContext(), null);
+        try {
+            future.get();
+            fail("ServiceException has not been thrown.");
+        } catch (ExecutionException e) {
+            assertEquals(ServiceException.class, e.getCause().getClass());
+            assertEquals(4, attempts.get());
+        }
+    }
+    
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(3);
+        config.setConcurrencyLimitEnabled(true);
+        AsyncServiceClient limitedClient = new AsyncServiceClient(config);
+        try {
+            ConcurrencyLimiter limiter = limitedClient.getConcurrencyLimiter();
+            int initialLimit = limiter.getLimit("localhost");
+            
+            // Each 503 shrinks the limit, and every permit is released.
+            failuresBeforeSuccess = 2;
+            ResponseMessage response = limitedClient.sendRequestAsync(createRequest(HttpMethod.GET, null), 
+                    createContext(), null).get();
+            assertEquals(200, response.getStatusCode());
+            assertTrue(limiter.getLimit("localhost") < initialLimit);
+            assertEquals(0, limiter.getInflight("localhost"));
+        } finally {
+            limitedClient.shutdown();
+        }
+    }
+    
+    @Test
+    public void testCircuitBreaker() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(3);
+        config.setCircuitBreakerEnabled(true);
+        config.setCircuitBreakerWindowSize(4);
+        AsyncServiceClient breakerClient = new AsyncServiceClient(config);
+        try {
+            // The four failed attempts open the circuit, so the next request fails fast.
+            failuresBeforeSuccess = 10;
+            try {
+                breakerClient.sendRequestAsync(createRequest(HttpMethod.GET, null), createContext(), null).get();
+                fail("ServiceException has not been thrown.");
+            } catch (ExecutionException e) {
+                assertEquals(ServiceException.class, e.getCause().getClass());
+            }
+            assertEquals(CircuitBreaker.State.OPEN, breakerClient.getCircuitBreaker().getState("localhost"));
+            
+            try {
+                breakerClient.sendRequestAsync(createRequest(HttpMethod.GET, null), createContext(), null).get();
+                fail("ClientException has not been thrown.");
+            } catch (ExecutionException e) {
+                assertEquals(ClientErrorCode.CIRCUIT_BREAKER_OPEN, ((ClientException) e.getCause()).getErrorCode());
+            }
+            assertEquals(4, attempts.get());
+        } finally {
+            breakerClient.shutdown();
+        }
+    }
+    
+    @Test
+    public void testSynchronousSend() throws Exception {
+        ResponseMessage response = client.sendRequest(createRequest(HttpMethod.GET, null), createContext());
+        assertEquals(200, response.getStatusCode());
+    }
+}
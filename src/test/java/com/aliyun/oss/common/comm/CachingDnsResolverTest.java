@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.junit.Test;
+
+public class CachingDnsResolverTest {
+
+    private static final String HOST = "bucket.oss-cn-hangzhou.aliyuncs.com";
+
+    private static class StaticDnsResolver extends CachingDnsResolver {
+        private final InetAddress[] addresses;
+        private int lookups = 0;
+
+        StaticDnsResolver(long ttl, String... addresses) throws UnknownHostException {
+            super(ttl);
+            this.addresses = new InetAddress[addresses.length];
+            for (int i = 0; i < addresses.length; i++) {
+                this.addresses[i] = InetAddress.getByName(addresses[i]);
+            }
+        }
+
+        @Override
+        InetAddress[] lookup(String host) {
+            lookups++;
+            return addresses;
+        }
+    }
+
+    @Test
+    public void testSpreadsAcrossAddresses() throws Exception {
+        StaticDnsResolver resolver = new StaticDnsResolver(60 * 1000, "127.0.0.1", "127.0.0.2", "127.0.0.3");
+        Set<InetAddress> resolved = new HashSet<InetAddress>();
+        for (int i = 0; i < 3; i++) {
+            InetAddress[] result = resolver.resolve(HOST);
+            assertEquals(1, result.length);
+            resolved.add(result[0]);
+        }
+        assertEquals(3, resolved.size());
+        assertEquals(1, resolver.lookups);
+    }
+
+    @Test
+    public void testEvictsFailedAddress() throws Exception {
+        StaticDnsResolver resolver = new StaticDnsResolver(60 * 1000, "127.0.0.1", "127.0.0.2");
+        InetAddress failed = InetAddress.getByName("127.0.0.2");
+        resolver.markFailed(failed);
+        for (int i = 0; i < 4; i++) {
+            List<InetAddress> addresses = resolver.getAddresses(HOST);
+            assertEquals(1, addresses.size());
+            assertEquals(InetAddress.getByName("127.0.0.1"), addresses.get(0));
+        }
+
+        resolver.markSucceeded(failed);
+        assertEquals(2, resolver.getAddresses(HOST).size());
+
+        // All addresses are used again once every one of them has failed.
+        resolver.markFailed(failed);
+        resolver.markFailed(InetAddress.getByName("127.0.0.1"));
+        assertEquals(2, resolver.getAddresses(HOST).size());
+    }
+
+    @Test
+    public void testExpiresEntries() throws Exception {
+        StaticDnsResolver resolver = new StaticDnsResolver(0, "127.0.0.1");
+        resolver.resolve(HOST);
+        Thread.sleep(5);
+        resolver.resolve(HOST);
+        assertEquals(2, resolver.lookups);
+    }
+
+    @Test
+    public void testConnectSpreadsAcrossAddresses() throws Exception {
+        ServerSocket first = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        ServerSocket second = null;
+        try {
+            int port = first.getLocalPort();
+            second = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.2"));
+            StaticDnsResolver resolver = new StaticDnsResolver(60 * 1000, "127.0.0.1", "127.0.0.2");
+            HappyEyeballsSocketFactory socketFactory = new HappyEyeballsSocketFactory(
+                    PlainConnectionSocketFactory.getSocketFactory(), resolver, 5 * 1000);
+
+            Set<InetAddress> connected = new HashSet<InetAddress>();
+            for (int i = 0; i < 10; i++) {
+                InetAddress address = resolver.resolve(HOST)[0];
+                Socket socket = socketFactory.connectSocket(10 * 1000, new Socket(), new HttpHost(HOST, port), 
+                        new InetSocketAddress(address, port), null, null);
+                try {
+                    connected.add(socket.getInetAddress());
+                } finally {
+                    socket.close();
+                }
+            }
+            assertEquals(2, connected.size());
+        } finally {
+            first.close();
+            if (second != null) {
+                second.close();
+            }
+        }
+    }
+
+    @Test
+    public void testConnectFallsBackToNextAddress() throws Exception {
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        try {
+            int port = server.getLocalPort();
+            StaticDnsResolver resolver = new StaticDnsResolver(60 * 1000, "127.0.0.2", "127.0.0.1");
+            HappyEyeballsSocketFactory socketFactory = new HappyEyeballsSocketFactory(
+                    PlainConnectionSocketFactory.getSocketFactory(), resolver, 5 * 1000);
+
+            InetAddress unreachable = InetAddress.getByName("127.0.0.2");
+            long start = System.currentTimeMillis();
+            Socket socket = socketFactory.connectSocket(10 * 1000, new Socket(), new HttpHost(HOST, port), 
+                    new InetSocketAddress(unreachable, port), null, null);
+            try {
+                assertTrue(socket.isConnected());
+                assertEquals(InetAddress.getByName("127.0.0.1"), socket.getInetAddress());
+                // The refused connect starts the next attempt without waiting for the fallback delay.
+                assertTrue(System.currentTimeMillis() - start < 5 * 1000);
+            } finally {
+                socket.close();
+            }
+
+            List<InetAddress> addresses = resolver.getAddresses(HOST);
+            assertEquals(1, addresses.size());
+            assertEquals(InetAddress.getByName("127.0.0.1"), addresses.get(0));
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class CancellationTokenTest {
+
+    private TestHttpServer server;
+    private DefaultServiceClient client;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                try {
+                    Thread.sleep(3000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.close();
+            }
+        });
+        server.start();
+
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(3);
+        client = new DefaultServiceClient(config);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    private RequestMessage createRequest() throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(server.getEndpoint());
+        request.setResourcePath("bucket/key");
+        request.setMethod(HttpMethod.GET);
+        return request;
+    }
+
+    private static void cancelLater(final CancellationToken token, final long delay) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                token.cancel();
+            }
+        }).start();
+    }
+
+    @Test
+    public void testCancelAbortsRequestInFlight() throws Exception {
+        CancellationToken token = new CancellationToken();
+        ExecutionContext context = new ExecutionContext();
+        context.setCancellationToken(token);
+        cancelLater(token, 200);
+
+        long start = System.currentTimeMillis();
+        try {
+            client.sendRequest(createRequest(), context);
+            fail("Request should be cancelled.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testCancelledRequestIsNotSent() throws Exception {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ExecutionContext context = new ExecutionContext();
+        context.setCancellationToken(token);
+        try {
+            client.sendRequest(createRequest(), context);
+            fail("Request should be cancelled.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.REQUEST_CANCELLED, e.getErrorCode());
+        }
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testParentAndListeners() throws Exception {
+        CancellationToken parent = new CancellationToken();
+        CancellationToken child = new CancellationToken(parent);
+        CancellationToken detached = new CancellationToken(parent);
+        detached.detach();
+        final AtomicInteger notified = new AtomicInteger();
+        Runnable listener = new Runnable() {
+            @Override
+            public void run() {
+                notified.incrementAndGet();
+            }
+        };
+        child.addListener(listener);
+
+        assertFalse(child.await(10));
+        parent.cancel();
+        assertTrue(child.isCancelled());
+        assertTrue(child.await(1000));
+        assertFalse(detached.isCancelled());
+        assertEquals(1, notified.get());
+
+        child.cancel();
+        child.addListener(listener);
+        assertEquals(2, notified.get());
+    }
+}
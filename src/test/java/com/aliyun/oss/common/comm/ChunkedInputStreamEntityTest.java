@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.comm.io.ChunkedInputStreamEntity;
+import com.aliyun.oss.common.comm.io.ChunkedUploadStream;
+import com.aliyun.oss.common.utils.HttpHeaders;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.internal.OSSConstants;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class ChunkedInputStreamEntityTest {
+
+    private static final int CHUNK_SIZE = 1024;
+    /* Payload of a chunk: the chunk size less its header, trailer and the last chunk. */
+    private static final int CHUNK_PAYLOAD = CHUNK_SIZE - 17;
+
+    private TestHttpServer server;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final List<byte[]> receivedBodies = Collections.synchronizedList(new ArrayList<byte[]>());
+    private final List<String> receivedEncodings = Collections.synchronizedList(new ArrayList<String>());
+    private volatile int failuresBeforeSuccess = 0;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedEncodings.add(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+                receivedBodies.add(IOUtils.readStreamAsByteArray(exchange.getRequestBody()));
+                int status = attempts.incrementAndGet() <= failuresBeforeSuccess ? 503 : 200;
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static ChunkedInputStreamEntity createEntity(byte[] content, boolean knownLength) {
+        ServiceClient.Request request = new ServiceClient.Request();
+        Map<String, String> headers = new HashMap<String, String>();
+        if (knownLength) {
+            headers.put(HttpHeaders.CONTENT_LENGTH, String.valueOf(content.length));
+        }
+        request.setHeaders(headers);
+        request.setContent(new ByteArrayInputStream(content));
+        request.setChunkSize(CHUNK_SIZE);
+        return new ChunkedInputStreamEntity(request);
+    }
+
+    private static byte[] expectedChunks(byte[] content, int payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int pos = 0; pos < content.length; pos += payload) {
+            int size = Math.min(payload, content.length - pos);
+            out.write((Integer.toHexString(size) + "\r\n").getBytes(OSSConstants.DEFAULT_CHARSET_NAME));
+            out.write(content, pos, size);
+            out.write('\r');
+            out.write('\n');
+        }
+        out.write("0\r\n\r\n".getBytes(OSSConstants.DEFAULT_CHARSET_NAME));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testFramingWithKnownLength() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK_PAYLOAD);
+        ChunkedInputStreamEntity entity = createEntity(content, true);
+        for (int i = 0; i < 2; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeChunkedTo(out);
+            assertArrayEquals(expectedChunks(content, CHUNK_PAYLOAD), out.toByteArray());
+        }
+    }
+
+    @Test
+    public void testFramingWithUnknownLength() throws Exception {
+        byte[] content = randomBytes(2 * CHUNK_PAYLOAD + 486);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createEntity(content, false).writeChunkedTo(out);
+        assertArrayEquals(expectedChunks(content, CHUNK_PAYLOAD), out.toByteArray());
+    }
+
+    @Test
+    public void testFramingOfEmptyContent() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createEntity(new byte[0], true).writeChunkedTo(out);
+        assertEquals("0\r\n\r\n", out.toString(OSSConstants.DEFAULT_CHARSET_NAME));
+    }
+
+    @Test
+    public void testWriteToWritesPayloadOnly() throws Exception {
+        byte[] content = randomBytes(3 * CHUNK_SIZE + 5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createEntity(content, true).writeTo(out);
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    public void testChunkedUploadStream() throws Exception {
+        byte[] content = randomBytes(300);
+        InputStream in = new ChunkedUploadStream(new ByteArrayInputStream(content), 64);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[128];
+            int n;
+            while ((n = in.read(buffer, 3, buffer.length - 3)) != -1) {
+                out.write(buffer, 3, n);
+            }
+        } finally {
+            in.close();
+        }
+        assertArrayEquals(expectedChunks(content, 300), out.toByteArray());
+    }
+
+    @Test
+    public void testSendChunkedWithRetries() throws Exception {
+        failuresBeforeSuccess = 2;
+        byte[] content = randomBytes(5 * CHUNK_SIZE + 3);
+        ClientConfiguration config = new ClientConfiguration();
+        config.setChunkSize(CHUNK_SIZE);
+        DefaultServiceClient client = new DefaultServiceClient(config);
+        try {
+            RequestMessage request = new RequestMessage();
+            request.setEndpoint(server.getEndpoint());
+            request.setResourcePath("bucket/key");
+            request.setMethod(HttpMethod.PUT);
+            request.setContent(new ByteArrayInputStream(content));
+            request.setContentLength(content.length);
+            request.setUseChunkEncoding(true);
+
+            ExecutionContext context = new ExecutionContext();
+            context.setRetryStrategy(new DefaultServiceClient.DefaultRetryStrategy());
+            context.addResponseHandler(new ResponseHandler() {
+                @Override
+                public void handle(ResponseMessage response) throws ServiceException {
+                    if (!response.isSuccessful()) {
+                        throw new ServiceException("status " + response.getStatusCode());
+                    }
+                }
+            });
+            ResponseMessage response = client.sendRequest(request, context);
+            assertEquals(200, response.getStatusCode());
+            assertEquals(3, receivedBodies.size());
+            for (int i = 0; i < receivedBodies.size(); i++) {
+                assertTrue("chunked".equalsIgnoreCase(receivedEncodings.get(i)));
+                assertArrayEquals(content, receivedBodies.get(i));
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+}
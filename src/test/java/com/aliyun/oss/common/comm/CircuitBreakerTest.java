@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.common.comm.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+    private static final String HOST = "bucket.oss-cn-hangzhou.aliyuncs.com";
+
+    private final List<String> transitions = new ArrayList<String>();
+
+    private CircuitBreaker createCircuitBreaker(long openDuration) {
+        return new CircuitBreaker(50, 4, openDuration, new CircuitBreaker.StateListener() {
+            @Override
+            public void onStateChange(String host, State from, State to) {
+                transitions.add(from + "->" + to);
+            }
+        });
+    }
+
+    private static void assertOpen(CircuitBreaker circuitBreaker) {
+        try {
+            circuitBreaker.acquire(HOST);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.CIRCUIT_BREAKER_OPEN, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void testOpensAtFailureRate() {
+        CircuitBreaker circuitBreaker = createCircuitBreaker(60 * 1000);
+        circuitBreaker.acquire(HOST).onSuccess();
+        circuitBreaker.acquire(HOST).onFailure();
+        circuitBreaker.acquire(HOST).onSuccess();
+        assertEquals(State.CLOSED, circuitBreaker.getState(HOST));
+
+        // The 4th outcome fills the window with a 50% failure rate.
+        circuitBreaker.acquire(HOST).onFailure();
+        assertEquals(State.OPEN, circuitBreaker.getState(HOST));
+        assertOpen(circuitBreaker);
+
+        // Other hosts are not affected.
+        circuitBreaker.acquire("other." + HOST).onSuccess();
+        assertEquals(1, transitions.size());
+        assertEquals("CLOSED->OPEN", transitions.get(0));
+    }
+
+    @Test
+    public void testReleaseDoesNotCount() {
+        CircuitBreaker circuitBreaker = createCircuitBreaker(60 * 1000);
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.acquire(HOST).release();
+        }
+        assertEquals(State.CLOSED, circuitBreaker.getState(HOST));
+    }
+
+    @Test
+    public void testHalfOpenProbe() throws Exception {
+        CircuitBreaker circuitBreaker = createCircuitBreaker(50);
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.acquire(HOST).onFailure();
+        }
+        assertOpen(circuitBreaker);
+
+        Thread.sleep(100);
+        CircuitBreaker.Permit probe = circuitBreaker.acquire(HOST);
+        assertEquals(State.HALF_OPEN, circuitBreaker.getState(HOST));
+        // Only one probe at a time.
+        assertOpen(circuitBreaker);
+        probe.onFailure();
+        assertEquals(State.OPEN, circuitBreaker.getState(HOST));
+
+        Thread.sleep(100);
+        circuitBreaker.acquire(HOST).onSuccess();
+        assertEquals(State.CLOSED, circuitBreaker.getState(HOST));
+        circuitBreaker.acquire(HOST).onSuccess();
+
+        assertEquals("[CLOSED->OPEN, OPEN->HALF_OPEN, HALF_OPEN->OPEN, OPEN->HALF_OPEN, HALF_OPEN->CLOSED]", 
+                transitions.toString());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+
+public class ConcurrencyLimiterTest {
+
+    private static final String HOST = "bucket.oss-cn-hangzhou.aliyuncs.com";
+
+    @Test
+    public void testLimitGrowsOnSuccess() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 10);
+        for (int i = 0; i < 20; i++) {
+            ConcurrencyLimiter.Permit[] permits = new ConcurrencyLimiter.Permit[limiter.getLimit(HOST)];
+            for (int j = 0; j < permits.length; j++) {
+                permits[j] = limiter.acquire(HOST, 0);
+            }
+            for (ConcurrencyLimiter.Permit permit : permits) {
+                permit.onSuccess();
+            }
+        }
+        assertEquals(10, limiter.getLimit(HOST));
+        assertEquals(0, limiter.getInflight(HOST));
+    }
+
+    @Test
+    public void testLimitBacksOffOnDrop() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 10);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(HOST, 0).onDropped();
+        }
+        assertEquals(ConcurrencyLimiter.MIN_LIMIT, limiter.getLimit(HOST));
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire(HOST, 0);
+        permit.onDropped();
+        permit.release();
+        assertEquals(0, limiter.getInflight(HOST));
+    }
+
+    @Test
+    public void testFailFastWhenLimitReached() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        limiter.acquire(HOST, 0);
+        try {
+            limiter.acquire(HOST, 0);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(ClientErrorCode.CONCURRENCY_LIMIT_EXCEEDED, e.getErrorCode());
+        }
+
+        // Other hosts have their own limit.
+        limiter.acquire("other." + HOST, 0).release();
+    }
+
+    @Test
+    public void testQueuedRequestGetsReleasedPermit() throws Exception {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1);
+        ConcurrencyLimiter.Permit permit = limiter.acquire(HOST, 0);
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                limiter.acquire(HOST, 5000).onSuccess();
+                acquired.countDown();
+            }
+        });
+        waiter.start();
+
+        Thread.sleep(100);
+        assertEquals(1, acquired.getCount());
+        permit.onSuccess();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+}
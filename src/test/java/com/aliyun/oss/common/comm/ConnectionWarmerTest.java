@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.security.KeyStore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.model.WarmUpResult;
+import com.aliyun.oss.utils.ResourceUtils;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsParameters;
+
+@SuppressWarnings("restriction")
+public class ConnectionWarmerTest {
+
+    private static final HttpHandler OK_HANDLER = new HttpHandler() {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        }
+    };
+
+    private TestHttpServer server;
+    private DefaultServiceClient client;
+    private URI endpoint;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new TestHttpServer("localhost");
+        server.handle("/", OK_HANDLER);
+        server.start();
+
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxConnections(8);
+        client = new DefaultServiceClient(config);
+        endpoint = server.getEndpoint();
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    @Test
+    public void testWarmUpOpensConnections() throws Exception {
+        WarmUpResult result = client.warmUp(endpoint, 4);
+        assertEquals("localhost", result.getHost());
+        assertEquals(4, result.getRequestedConnections());
+        assertEquals(4, result.getSucceededConnections());
+        assertEquals(4, result.getOpenedConnections());
+
+        // The pooled connections are reused by the next warm-up and by requests.
+        result = client.warmUp(endpoint, 6);
+        assertEquals(6, result.getSucceededConnections());
+        assertEquals(2, result.getOpenedConnections());
+
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(endpoint);
+        request.setMethod(HttpMethod.GET);
+        ResponseMessage response = client.sendRequest(request, new ExecutionContext());
+        assertEquals(200, response.getStatusCode());
+        response.close();
+    }
+
+    @Test
+    public void testWarmUpHttpsConnectionsAreReused() throws Exception {
+        final AtomicInteger handshakes = new AtomicInteger();
+        TestHttpServer httpsServer = new TestHttpServer("localhost", 
+                new HttpsConfigurator(createServerSSLContext()) {
+            @Override
+            public void configure(HttpsParameters params) {
+                handshakes.incrementAndGet();
+                super.configure(params);
+            }
+        });
+        httpsServer.handle("/", OK_HANDLER).start();
+        try {
+            URI httpsEndpoint = httpsServer.getEndpoint();
+            WarmUpResult result = client.warmUp(httpsEndpoint, 1);
+            assertEquals(1, result.getSucceededConnections());
+            assertEquals(1, result.getOpenedConnections());
+
+            // The request is routed to the warmed connection instead of opening a new one.
+            RequestMessage request = new RequestMessage();
+            request.setEndpoint(httpsEndpoint);
+            request.setMethod(HttpMethod.GET);
+            ResponseMessage response = client.sendRequest(request, new ExecutionContext());
+            assertEquals(200, response.getStatusCode());
+            response.close();
+            assertEquals(1, handshakes.get());
+        } finally {
+            httpsServer.stop();
+        }
+    }
+
+    @Test
+    public void testWarmUpIsCappedByMaxConnections() throws Exception {
+        WarmUpResult result = client.warmUp(endpoint, 20);
+        assertEquals(20, result.getRequestedConnections());
+        assertEquals(8, result.getSucceededConnections());
+    }
+
+    @Test
+    public void testWarmUpUnreachableHost() throws Exception {
+        server.stop();
+        WarmUpResult result = client.warmUp(endpoint, 2);
+        assertEquals(0, result.getSucceededConnections());
+        assertEquals(0, result.getOpenedConnections());
+    }
+
+    private static SSLContext createServerSSLContext() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = new FileInputStream(ResourceUtils.getTestFilename("oss/localhost.jks"));
+        try {
+            keyStore.load(in, "osstest".toCharArray());
+        } finally {
+            in.close();
+        }
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, "osstest".toCharArray());
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return sslContext;
+    }
+}
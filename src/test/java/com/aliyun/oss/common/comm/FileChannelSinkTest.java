@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.common.comm.io.FileChannelSink;
+import com.aliyun.oss.common.utils.IOUtils;
+
+public class FileChannelSinkTest {
+
+    private static final int PART_SIZE = 100 * 1024 + 3;
+    private static final int PART_COUNT = 7;
+
+    private File file;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[PART_SIZE * PART_COUNT - 11];
+        new Random(3).nextBytes(content);
+        file = File.createTempFile("file-channel-sink", ".dat");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private byte[] readFile() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.readStreamAsByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writePartsConcurrently(final boolean mapped, final boolean force) throws Exception {
+        final FileChannelSink sink = new FileChannelSink(file, mapped);
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[PART_COUNT];
+            // Parts are submitted last to first so they land out of order.
+            for (int i = PART_COUNT - 1; i >= 0; i--) {
+                final int start = i * PART_SIZE;
+                final int end = Math.min(start + PART_SIZE, content.length);
+                futures[i] = service.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        return sink.write(new ByteArrayInputStream(content, start, end - start), 
+                                start, end - start, force);
+                    }
+                });
+            }
+            for (int i = 0; i < PART_COUNT; i++) {
+                assertEquals((long) Math.min(PART_SIZE, content.length - i * PART_SIZE), futures[i].get());
+            }
+            sink.force();
+        } finally {
+            service.shutdown();
+            sink.close();
+        }
+    }
+
+    @Test
+    public void testPositionalWrites() throws Exception {
+        writePartsConcurrently(false, false);
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testPositionalWritesWithForce() throws Exception {
+        writePartsConcurrently(false, true);
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testMappedWrites() throws Exception {
+        writePartsConcurrently(true, true);
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testShortAndUnknownLengthContent() throws Exception {
+        FileChannelSink sink = new FileChannelSink(file, true);
+        try {
+            // The stream ends before the expected length.
+            assertEquals(1000, sink.write(new ByteArrayInputStream(content, 0, 1000), 0, 5000, false));
+            // Unknown length falls back to positional writes in mapped mode.
+            assertEquals(content.length - 1000, 
+                    sink.write(new ByteArrayInputStream(content, 1000, content.length - 1000), 1000, -1, false));
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(content, readFile());
+    }
+
+    @Test
+    public void testTruncate() throws Exception {
+        FileChannelSink sink = new FileChannelSink(file, false);
+        try {
+            sink.write(new ByteArrayInputStream(content), 0, -1, false);
+            sink.truncate(0);
+            sink.write(new ByteArrayInputStream(content, 0, 10), 0, -1, false);
+        } finally {
+            sink.close();
+        }
+        assertArrayEquals(Arrays.copyOf(content, 10), readFile());
+    }
+}
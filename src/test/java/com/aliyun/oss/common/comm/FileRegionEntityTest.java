@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.comm.io.BoundedInputStream;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+import com.aliyun.oss.common.comm.io.FileSliceInputStream;
+import com.aliyun.oss.common.comm.io.RepeatableBoundedFileInputStream;
+import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class FileRegionEntityTest {
+
+    private static final int FILE_SIZE = 300 * 1024 + 17;
+
+    private TestHttpServer server;
+    private File file;
+    private byte[] fileContent;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final List<byte[]> receivedBodies = Collections.synchronizedList(new ArrayList<byte[]>());
+    private volatile int failuresBeforeSuccess = 0;
+
+    @Before
+    public void setUp() throws IOException {
+        fileContent = new byte[FILE_SIZE];
+        new Random(7).nextBytes(fileContent);
+        file = File.createTempFile("file-region", ".dat");
+        OutputStream out = new FileOutputStream(file);
+        out.write(fileContent);
+        out.close();
+
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedBodies.add(IOUtils.readStreamAsByteArray(exchange.getRequestBody()));
+                int status = attempts.incrementAndGet() <= failuresBeforeSuccess ? 503 : 200;
+                exchange.sendResponseHeaders(status, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        file.delete();
+    }
+
+    private RequestMessage createRequest(java.io.InputStream content, long length) throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(server.getEndpoint());
+        request.setResourcePath("bucket/key");
+        request.setMethod(HttpMethod.PUT);
+        request.setContent(content);
+        request.setContentLength(length);
+        return request;
+    }
+
+    @Test
+    public void testWriteToStream() throws Exception {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileRegionEntity entity = new FileRegionEntity(fis.getChannel(), 100, FILE_SIZE - 200);
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                entity.writeTo(out);
+                assertArrayEquals(Arrays.copyOfRange(fileContent, 100, FILE_SIZE - 100), out.toByteArray());
+            }
+            assertEquals(0, fis.getChannel().position());
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 100, FILE_SIZE - 100), 
+                    IOUtils.readStreamAsByteArray(entity.getContent()));
+        } finally {
+            fis.close();
+        }
+    }
+
+    @Test
+    public void testFileBackedRequestUsesFileRegion() throws Exception {
+        RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+        try {
+            ServiceClient.Request request = new ServiceClient.Request();
+            request.setMethod(HttpMethod.PUT);
+            request.setUrl("http://localhost/bucket/key");
+            request.setContent(content);
+            request.setContentLength(FILE_SIZE);
+            HttpRequestBase httpRequest = new HttpRequestFactory().createHttpRequest(request, new ExecutionContext());
+            assertTrue(((HttpEntityEnclosingRequest) httpRequest).getEntity() instanceof FileRegionEntity);
+        } finally {
+            content.close();
+        }
+    }
+
+    @Test
+    public void testSliceStream() throws Exception {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileSliceInputStream first = new FileSliceInputStream(fis.getChannel(), 0, 1000);
+            FileSliceInputStream second = new FileSliceInputStream(fis.getChannel(), 1000, FILE_SIZE - 1000);
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 1000, FILE_SIZE), 
+                    IOUtils.readStreamAsByteArray(second));
+            assertEquals(fileContent[0] & 0xff, first.read());
+            first.mark(0);
+            assertEquals(99, first.skip(99));
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 100, 1000), IOUtils.readStreamAsByteArray(first));
+            assertEquals(-1, first.read());
+            first.reset();
+            assertEquals(999, first.available());
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 1, 1000), IOUtils.readStreamAsByteArray(first));
+            assertEquals(0, fis.getChannel().position());
+        } finally {
+            fis.close();
+        }
+    }
+
+    @Test
+    public void testBoundedSliceUsesFileRegion() throws Exception {
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileSliceInputStream slice = new FileSliceInputStream(fis.getChannel(), 500, 2000);
+            ServiceClient.Request request = new ServiceClient.Request();
+            request.setMethod(HttpMethod.PUT);
+            request.setUrl("http://localhost/bucket/key");
+            request.setContent(new BoundedInputStream(slice, 1500));
+            request.setContentLength(1500);
+            HttpRequestBase httpRequest = new HttpRequestFactory().createHttpRequest(request, new ExecutionContext());
+            HttpEntity entity = ((HttpEntityEnclosingRequest) httpRequest).getEntity();
+            assertTrue(entity instanceof FileRegionEntity);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            entity.writeTo(out);
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 500, 2000), out.toByteArray());
+        } finally {
+            fis.close();
+        }
+    }
+
+    @Test
+    public void testSendSlicesWithRetries() throws Exception {
+        failuresBeforeSuccess = 1;
+        DefaultServiceClient client = new DefaultServiceClient(new ClientConfiguration());
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            ExecutionContext context = new ExecutionContext();
+            context.setRetryStrategy(new DefaultServiceClient.DefaultRetryStrategy());
+            context.addResponseHandler(new ResponseHandler() {
+                @Override
+                public void handle(ResponseMessage response) throws ServiceException {
+                    if (!response.isSuccessful()) {
+                        throw new ServiceException("status " + response.getStatusCode());
+                    }
+                }
+            });
+            int partSize = 100 * 1024;
+            for (int offset = 0; offset < FILE_SIZE; offset += partSize) {
+                int size = Math.min(partSize, FILE_SIZE - offset);
+                FileSliceInputStream slice = new FileSliceInputStream(fis.getChannel(), offset, size);
+                ResponseMessage response = client.sendRequest(createRequest(slice, size), context);
+                assertEquals(200, response.getStatusCode());
+                assertArrayEquals(Arrays.copyOfRange(fileContent, offset, offset + size), 
+                        receivedBodies.get(receivedBodies.size() - 1));
+            }
+            assertEquals(5, receivedBodies.size());
+            assertArrayEquals(receivedBodies.get(0), receivedBodies.get(1));
+        } finally {
+            fis.close();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testSendFileWithRetries() throws Exception {
+        failuresBeforeSuccess = 2;
+        ClientConfiguration config = new ClientConfiguration();
+        DefaultServiceClient client = new DefaultServiceClient(config);
+        RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+        try {
+            ExecutionContext context = new ExecutionContext();
+            context.setRetryStrategy(new DefaultServiceClient.DefaultRetryStrategy());
+            context.addResponseHandler(new ResponseHandler() {
+                @Override
+                public void handle(ResponseMessage response) throws ServiceException {
+                    if (!response.isSuccessful()) {
+                        throw new ServiceException("status " + response.getStatusCode());
+                    }
+                }
+            });
+            ResponseMessage response = client.sendRequest(createRequest(content, FILE_SIZE), context);
+            assertEquals(200, response.getStatusCode());
+            assertEquals(3, receivedBodies.size());
+            for (byte[] body : receivedBodies) {
+                assertArrayEquals(fileContent, body);
+            }
+        } finally {
+            content.close();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void testSendFilePart() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setZeroCopyEnabled(false);
+        DefaultServiceClient client = new DefaultServiceClient(config);
+        FileInputStream fis = new FileInputStream(file);
+        fis.skip(1000);
+        RepeatableBoundedFileInputStream content = new RepeatableBoundedFileInputStream(
+                new BoundedInputStream(fis, 100 * 1024));
+        try {
+            ResponseMessage response = client.sendRequest(createRequest(content, 100 * 1024), 
+                    new ExecutionContext());
+            assertEquals(200, response.getStatusCode());
+            assertArrayEquals(Arrays.copyOfRange(fileContent, 1000, 1000 + 100 * 1024), receivedBodies.get(0));
+        } finally {
+            content.close();
+            client.shutdown();
+        }
+    }
+}
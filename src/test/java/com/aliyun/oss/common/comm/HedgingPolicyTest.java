@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class HedgingPolicyTest {
+
+    private TestHttpServer server;
+    private DefaultServiceClient client;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile boolean stallBody = false;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                int attempt = attempts.incrementAndGet();
+                if (attempt == 1) {
+                    try {
+                        Thread.sleep(3000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                byte[] response = ("attempt-" + attempt).getBytes("utf-8");
+                exchange.sendResponseHeaders(200, stallBody ? response.length + 1 : response.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(response);
+                if (stallBody) {
+                    out.flush();
+                    try {
+                        Thread.sleep(3000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                out.close();
+            }
+        });
+        server.start();
+
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(0);
+        client = new DefaultServiceClient(config);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    private RequestMessage createRequest() throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(server.getEndpoint());
+        request.setResourcePath("bucket/key");
+        request.setMethod(HttpMethod.GET);
+        return request;
+    }
+
+    @Test
+    public void testHedgeWinsOverSlowRequest() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(100);
+        ExecutionContext context = new ExecutionContext();
+        context.setHedgingPolicy(policy);
+
+        long start = System.currentTimeMillis();
+        ResponseMessage response = client.sendRequest(createRequest(), context);
+        assertEquals(200, response.getStatusCode());
+        assertEquals("attempt-2", IOUtils.readStreamAsString(response.getContent(), "utf-8"));
+        response.close();
+
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, policy.getHedgeCount());
+        assertEquals(1, policy.getHedgeWinCount());
+        // The latency of the winning hedge is recorded too.
+        assertEquals(1, policy.getLatencyCount());
+    }
+
+    @Test
+    public void testCancelAbortsWinningHedge() throws Exception {
+        stallBody = true;
+        HedgingPolicy policy = new HedgingPolicy(100);
+        final CancellationToken token = new CancellationToken();
+        ExecutionContext context = new ExecutionContext();
+        context.setHedgingPolicy(policy);
+        context.setCancellationToken(token);
+
+        ResponseMessage response = client.sendRequest(createRequest(), context);
+        assertEquals(1, policy.getHedgeWinCount());
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                token.cancel();
+            }
+        }).start();
+
+        long start = System.currentTimeMillis();
+        try {
+            IOUtils.readStreamAsString(response.getContent(), "utf-8");
+            fail("The body read should be aborted");
+        } catch (IOException e) {
+            assertTrue(System.currentTimeMillis() - start < 2000);
+        } finally {
+            response.abort();
+        }
+    }
+
+    @Test
+    public void testNoHedgeForFastRequest() throws Exception {
+        attempts.set(1);
+        HedgingPolicy policy = new HedgingPolicy(1000);
+        ExecutionContext context = new ExecutionContext();
+        context.setHedgingPolicy(policy);
+
+        ResponseMessage response = client.sendRequest(createRequest(), context);
+        assertEquals("attempt-2", IOUtils.readStreamAsString(response.getContent(), "utf-8"));
+        response.close();
+        assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    public void testHedgeBudget() {
+        HedgingPolicy policy = new HedgingPolicy(100, -1, 5);
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            policy.onRequest();
+            if (policy.tryHedge()) {
+                hedges++;
+            }
+        }
+        // 5% of the requests plus the initial burst.
+        assertTrue(hedges <= 50 + 10);
+        assertTrue(hedges >= 45);
+    }
+
+    @Test
+    public void testPercentileDelay() {
+        HedgingPolicy policy = new HedgingPolicy(95, 500);
+        assertEquals(500, policy.getHedgeDelay());
+
+        for (int i = 1; i <= 100; i++) {
+            policy.recordLatency(i);
+        }
+        long delay = policy.getHedgeDelay();
+        assertTrue("delay " + delay, delay >= 95 && delay <= 120);
+    }
+}
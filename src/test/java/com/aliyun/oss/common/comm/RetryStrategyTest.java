@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.HttpMethod;
+
+public class RetryStrategyTest {
+
+    @Test
+    public void testDecorrelatedJitterBounds() {
+        RetryStrategy strategy = new DecorrelatedJitterRetryStrategy(new NoRetryStrategy(), 100, 1000);
+        long previous = 0;
+        for (int i = 1; i <= 100; i++) {
+            long delay = strategy.getPauseDelay(i, previous);
+            assertTrue(delay >= 100);
+            assertTrue(delay <= Math.min(1000, Math.max(previous, 100) * 3));
+            previous = delay;
+        }
+    }
+
+    @Test
+    public void testRetryBudget() {
+        RetryBudget budget = new RetryBudget(10, 5, 1);
+        assertTrue(budget.tryAcquire());
+        assertTrue(budget.tryAcquire());
+        assertFalse(budget.tryAcquire());
+        assertEquals(0, budget.getAvailableTokens());
+        assertEquals(1, budget.getExhaustedCount());
+
+        for (int i = 0; i < 4; i++) {
+            budget.release();
+        }
+        assertFalse(budget.tryAcquire());
+        budget.release();
+        assertTrue(budget.tryAcquire());
+
+        for (int i = 0; i < 100; i++) {
+            budget.release();
+        }
+        assertEquals(10, budget.getAvailableTokens());
+    }
+
+    @Test
+    public void testRetriesStopWhenBudgetExhausted() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(10);
+        config.setRetryBudgetCapacity(10);
+
+        final ClientException exceptionToThrow = 
+                new ClientException(null, ClientErrorCode.CONNECTION_TIMEOUT, "requestid", null);
+        final int[] attempts = new int[1];
+        DefaultServiceClient client = new DefaultServiceClient(config) {
+            @Override
+            public ResponseMessage sendRequestCore(Request request, ExecutionContext context) {
+                attempts[0]++;
+                throw exceptionToThrow;
+            }
+        };
+        client.defaultRetryStrategy = new DecorrelatedJitterRetryStrategy(
+                new DefaultServiceClient.DefaultRetryStrategy(), 1, 5);
+
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(new URI("http://localhost"));
+        request.setMethod(HttpMethod.GET);
+
+        try {
+            client.sendRequest(request, new ExecutionContext());
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(exceptionToThrow, e);
+        }
+
+        // The budget of 10 tokens pays for two retries at 5 tokens each.
+        assertEquals(3, attempts[0]);
+        RetryMetrics metrics = client.getRetryMetrics();
+        assertEquals(2, metrics.getRetryCount());
+        assertEquals(1, metrics.getBudgetExhaustedCount());
+        assertEquals(0, metrics.getAvailableRetryTokens());
+        assertTrue(metrics.getBackoffTime() >= 2);
+        client.shutdown();
+    }
+
+    @Test
+    public void testBudgetChargesOnlyRetriesThatRun() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(10);
+        config.setRetryBudgetCapacity(10);
+
+        final ClientException exceptionToThrow = 
+                new ClientException(null, ClientErrorCode.CONNECTION_TIMEOUT, "requestid", null);
+        final int[] attempts = new int[1];
+        DefaultServiceClient client = new DefaultServiceClient(config) {
+            @Override
+            public ResponseMessage sendRequestCore(Request request, ExecutionContext context) {
+                attempts[0]++;
+                throw exceptionToThrow;
+            }
+        };
+
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(new URI("http://localhost"));
+        request.setMethod(HttpMethod.GET);
+
+        // The deadline leaves no time for a retry, so no token is taken.
+        ExecutionContext context = new ExecutionContext();
+        context.setDeadline(System.currentTimeMillis() + 50);
+        try {
+            client.sendRequest(request, context);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(exceptionToThrow, e);
+        }
+        assertEquals(1, attempts[0]);
+        assertEquals(10, client.getRetryMetrics().getAvailableRetryTokens());
+
+        // A strategy set on the request is charged to the same budget.
+        context = new ExecutionContext();
+        context.setRetryStrategy(new RetryStrategy() {
+            @Override
+            public boolean shouldRetry(Exception ex, RequestMessage request, ResponseMessage response, 
+                    int retries) {
+                return true;
+            }
+
+            @Override
+            public long getPauseDelay(int retries) {
+                return 1;
+            }
+        });
+        attempts[0] = 0;
+        try {
+            client.sendRequest(request, context);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals(exceptionToThrow, e);
+        }
+        assertEquals(3, attempts[0]);
+        assertEquals(0, client.getRetryMetrics().getAvailableRetryTokens());
+        client.shutdown();
+    }
+}
@@ -32,6 +32,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 
+import org.apache.http.client.config.RequestConfig;
 import org.junit.Test;
 
 import com.aliyun.oss.ClientConfiguration;
@@ -245,4 +246,67 @@ public class ServiceClientTest {
             assertEquals(1, client.getRequestAttempts());
         }
     }
+
+    @Test
+    public void testDeadlineStopsRetries() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(10);
+        config.setRequestDeadline(1000);
+
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(new URI("http://localhost"));
+        request.setMethod(HttpMethod.GET);
+
+        ClientException exceptionToThrown = createRetryableException();
+        ServiceClientImpl client = new ServiceClientImpl(config, 10, exceptionToThrown, 200, null);
+
+        ExecutionContext context = new ExecutionContext();
+        context.setRetryStrategy(new DefaultServiceClient.DefaultRetryStrategy());
+
+        long start = System.currentTimeMillis();
+        try {
+            client.sendRequest(request, context);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            // The 600ms pause fits in the budget, the following 1200ms one does not.
+            assertEquals(exceptionToThrown, e);
+            assertEquals(2, client.getRequestAttempts());
+            assertTrue(System.currentTimeMillis() - start < 1000);
+        }
+    }
+
+    @Test
+    public void testExpiredDeadline() throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(new URI("http://localhost"));
+        request.setMethod(HttpMethod.GET);
+
+        ExecutionContext context = new ExecutionContext();
+        context.setDeadline(System.currentTimeMillis() - 1);
+
+        ServiceClientImpl client = new ServiceClientImpl(new ClientConfiguration(), 0, null, 200, null);
+        try {
+            client.sendRequest(request, context);
+            fail("ClientException has not been thrown.");
+        } catch (ClientException e) {
+            assertEquals("RequestTimeout", e.getErrorCode());
+            assertEquals(0, client.getRequestAttempts());
+        }
+    }
+
+    @Test
+    public void testAttemptTimeoutsShrinkToDeadline() throws Exception {
+        RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(50000)
+                .setSocketTimeout(50000).setConnectionRequestTimeout(-1).build();
+
+        ExecutionContext context = new ExecutionContext();
+        assertTrue(requestConfig == DefaultServiceClient.createAttemptRequestConfig(requestConfig, context));
+
+        context.setDeadline(System.currentTimeMillis() + 2000);
+        RequestConfig attemptConfig = DefaultServiceClient.createAttemptRequestConfig(requestConfig, context);
+        assertTrue(attemptConfig.getConnectTimeout() > 0 && attemptConfig.getConnectTimeout() <= 2000);
+        assertTrue(attemptConfig.getSocketTimeout() > 0 && attemptConfig.getSocketTimeout() <= 2000);
+        assertTrue(attemptConfig.getConnectionRequestTimeout() > 0 
+                && attemptConfig.getConnectionRequestTimeout() <= 2000);
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.utils.TestHttpServer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+@SuppressWarnings("restriction")
+public class TimeoutServiceClientTest {
+
+    private TestHttpServer server;
+    private TimeoutServiceClient client;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new TestHttpServer("localhost");
+        server.handle("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (exchange.getRequestURI().getPath().contains("slow")) {
+                    try {
+                        Thread.sleep(3000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.sendResponseHeaders(200, 0);
+                OutputStream out = exchange.getResponseBody();
+                out.close();
+            }
+        });
+        server.start();
+
+        ClientConfiguration config = new ClientConfiguration();
+        config.setMaxErrorRetry(0);
+        config.setRequestTimeoutEnabled(true);
+        config.setRequestTimeout(300);
+        client = new TimeoutServiceClient(config);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        server.stop();
+    }
+
+    private RequestMessage createRequest(String key) throws Exception {
+        RequestMessage request = new RequestMessage();
+        request.setEndpoint(server.getEndpoint());
+        request.setResourcePath("bucket/" + key);
+        request.setMethod(HttpMethod.GET);
+        return request;
+    }
+
+    @Test
+    public void testRequestWithinDeadline() throws Exception {
+        ResponseMessage response = client.sendRequest(createRequest("fast"), new ExecutionContext());
+        assertEquals(200, response.getStatusCode());
+        response.close();
+    }
+
+    @Test
+    public void testRequestAbortedAtDeadline() throws Exception {
+        long start = System.currentTimeMillis();
+        try {
+            client.sendRequest(createRequest("slow"), new ExecutionContext());
+            fail("Request should time out.");
+        } catch (ClientException e) {
+            assertEquals("RequestTimeout", e.getErrorCode());
+        }
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+}
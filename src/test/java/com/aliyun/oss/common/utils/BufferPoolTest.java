@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(1).length);
+        assertEquals(4 * 1024, pool.acquire(4 * 1024).length);
+        assertEquals(8 * 1024, pool.acquire(4 * 1024 + 1).length);
+        assertEquals(BufferPool.MAX_BUFFER_SIZE, pool.acquire(BufferPool.MAX_BUFFER_SIZE).length);
+        assertEquals(BufferPool.MAX_BUFFER_SIZE + 1, pool.acquire(BufferPool.MAX_BUFFER_SIZE + 1).length);
+        assertEquals(5, pool.getMissCount());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        byte[] small = pool.acquire(8 * 1024);
+        pool.release(small);
+        assertSame(small, pool.acquire(8 * 1024));
+        // Thread-cached buffers do not count against the capacity.
+        assertEquals(0, pool.getPooledBytes());
+
+        byte[] large = pool.acquire(256 * 1024);
+        pool.release(large);
+        assertEquals(256 * 1024, pool.getPooledBytes());
+        assertSame(large, pool.acquire(200 * 1024));
+        assertEquals(0, pool.getPooledBytes());
+
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0.5, pool.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testCapacity() {
+        BufferPool pool = new BufferPool(512 * 1024);
+        byte[] first = pool.acquire(256 * 1024);
+        byte[] second = pool.acquire(256 * 1024);
+        byte[] third = pool.acquire(256 * 1024);
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        assertEquals(512 * 1024, pool.getPooledBytes());
+        assertEquals(1, pool.getDropCount());
+
+        // Buffers of other sizes are not pooled.
+        pool.release(new byte[100]);
+        pool.release(new byte[BufferPool.MAX_BUFFER_SIZE * 2]);
+        assertEquals(512 * 1024, pool.getPooledBytes());
+    }
+
+    @Test
+    public void testDirectBuffers() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        ByteBuffer buffer = pool.acquireDirect(100 * 1024);
+        assertTrue(buffer.isDirect());
+        assertEquals(128 * 1024, buffer.capacity());
+        buffer.put((byte) 1);
+        pool.releaseDirect(buffer);
+
+        ByteBuffer reused = pool.acquireDirect(128 * 1024);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertNotSame(buffer, pool.acquireDirect(128 * 1024));
+    }
+
+    @Test
+    public void testThreadCacheIsPerThread() throws Exception {
+        final BufferPool pool = new BufferPool(1024 * 1024);
+        final byte[] buffer = pool.acquire(16 * 1024);
+        pool.release(buffer);
+
+        final byte[][] acquired = new byte[1][];
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acquired[0] = pool.acquire(16 * 1024);
+            }
+        });
+        t.start();
+        t.join();
+        assertNotSame(buffer, acquired[0]);
+        assertSame(buffer, pool.acquire(16 * 1024));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void testExpire() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 8);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 50);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        timer.stop();
+    }
+
+    @Test
+    public void testExpireAfterSeveralRounds() throws Exception {
+        // 4 buckets of 10ms, so a 150ms delay wraps the wheel several times.
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 4);
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 150);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 150);
+        timer.stop();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 8);
+        final AtomicInteger fired = new AtomicInteger();
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                fired.incrementAndGet();
+            }
+        };
+
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(task, 30);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 100);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+        assertFalse(cancelled.isExpired());
+        timer.stop();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewTimeoutAfterStop() {
+        HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, 8);
+        timer.stop();
+        timer.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 10);
+    }
+}
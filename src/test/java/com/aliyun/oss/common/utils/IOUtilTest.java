@@ -23,10 +23,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.FilterInputStream;
 import java.io.OutputStream;
+import java.util.Random;
 
 import org.junit.Test;
-import static org.junit.Assert.assertArrayEquals;;
+
+import com.aliyun.oss.common.comm.io.RepeatableSpillInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class IOUtilTest {
     @Test
@@ -47,4 +54,68 @@ public class IOUtilTest {
         OutputStream outStream = new ByteArrayOutputStream();
         IOUtils.safeClose(outStream);
     }
+    
+    private static class OneShotInputStream extends FilterInputStream {
+        int closeCount = 0;
+        
+        OneShotInputStream(byte[] data) {
+            super(new ByteArrayInputStream(data));
+        }
+        
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            closeCount++;
+            super.close();
+        }
+    }
+    
+    @Test
+    public void testRepeatableStreamSpillsToDisk() throws IOException {
+        byte[] data = new byte[200 * 1024 + 3];
+        new Random(1).nextBytes(data);
+        OneShotInputStream source = new OneShotInputStream(data);
+        
+        InputStream repeatable = IOUtils.newRepeatableInputStream(source, 64 * 1024);
+        assertTrue(repeatable instanceof RepeatableSpillInputStream);
+        assertTrue(repeatable.markSupported());
+        
+        repeatable.mark(0);
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(data, IOUtils.readStreamAsByteArray(repeatable));
+            repeatable.reset();
+        }
+        assertEquals(data.length - 64 * 1024, ((RepeatableSpillInputStream) repeatable).getSpilledBytes());
+        
+        repeatable.close();
+        assertEquals(1, source.closeCount);
+    }
+    
+    @Test
+    public void testRepeatableStreamResetMidway() throws IOException {
+        byte[] data = new byte[50 * 1024];
+        new Random(2).nextBytes(data);
+        InputStream repeatable = new RepeatableSpillInputStream(new OneShotInputStream(data), 10 * 1024);
+        
+        byte[] head = new byte[30 * 1024];
+        int offset = 0;
+        while (offset < head.length) {
+            offset += repeatable.read(head, offset, head.length - offset);
+        }
+        repeatable.reset();
+        assertEquals(data[0] & 0xff, repeatable.read());
+        repeatable.mark(0);
+        repeatable.skip(25 * 1024);
+        repeatable.reset();
+        
+        byte[] rest = IOUtils.readStreamAsByteArray(repeatable);
+        assertEquals(data.length - 1, rest.length);
+        assertEquals(data[1], rest[0]);
+        assertEquals(data[data.length - 1], rest[rest.length - 1]);
+        repeatable.close();
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aliyun.oss.internal.OSSDownloadOperation.DownloadCheckPoint;
+import com.aliyun.oss.internal.OSSDownloadOperation.DownloadPart;
+import com.aliyun.oss.internal.OSSDownloadOperation.ObjectStat;
+import com.aliyun.oss.internal.OSSUploadOperation.FileStat;
+import com.aliyun.oss.internal.OSSUploadOperation.UploadCheckPoint;
+import com.aliyun.oss.internal.OSSUploadOperation.UploadPart;
+import com.aliyun.oss.model.PartETag;
+
+public class CheckpointJournalTest {
+
+    private static final int PART_COUNT = 100;
+
+    private File uploadFile;
+    private String cpFile;
+
+    @Before
+    public void setUp() throws IOException {
+        uploadFile = File.createTempFile("checkpoint-journal", ".dat");
+        FileOutputStream out = new FileOutputStream(uploadFile);
+        out.write(new byte[PART_COUNT * 10]);
+        out.close();
+        cpFile = uploadFile.getPath() + ".ucp";
+    }
+
+    @After
+    public void tearDown() {
+        uploadFile.delete();
+        new File(cpFile).delete();
+    }
+
+    private UploadCheckPoint newUploadCheckPoint() {
+        UploadCheckPoint ucp = new UploadCheckPoint();
+        ucp.magic = "FE8BB4EA-B593-4FAC-AD7A-2459A36E2E62";
+        ucp.uploadFile = uploadFile.getPath();
+        ucp.uploadFileStat = FileStat.getFileStat(ucp.uploadFile);
+        ucp.key = "key";
+        ucp.uploadID = "upload-id";
+        ucp.uploadParts = new ArrayList<UploadPart>();
+        for (int i = 0; i < PART_COUNT; i++) {
+            UploadPart part = new UploadPart();
+            part.number = i + 1;
+            part.offset = i * 10;
+            part.size = 10;
+            ucp.uploadParts.add(part);
+        }
+        ucp.partETags = new ArrayList<PartETag>();
+        return ucp;
+    }
+
+    private static void completePart(UploadCheckPoint ucp, String cpFile, int index) throws IOException {
+        PartETag partETag = new PartETag(index + 1, "etag-" + index);
+        ucp.update(index, partETag, true);
+        ucp.append(cpFile, index, partETag);
+    }
+
+    @Test
+    public void testResumeFromJournal() throws Exception {
+        UploadCheckPoint ucp = newUploadCheckPoint();
+        for (int i = 0; i < PART_COUNT; i += 2) {
+            completePart(ucp, cpFile, i);
+        }
+        ucp.close();
+        assertTrue(CheckpointJournal.isJournal(cpFile));
+
+        UploadCheckPoint loaded = new UploadCheckPoint();
+        loaded.load(cpFile);
+        assertTrue(loaded.isValid(uploadFile.getPath()));
+        assertEquals("upload-id", loaded.uploadID);
+        assertEquals(PART_COUNT / 2, loaded.partETags.size());
+        for (int i = 0; i < PART_COUNT; i++) {
+            assertEquals(i % 2 == 0, loaded.uploadParts.get(i).isCompleted);
+        }
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws Exception {
+        UploadCheckPoint ucp = newUploadCheckPoint();
+        for (int i = 0; i < 10; i++) {
+            completePart(ucp, cpFile, i);
+        }
+        ucp.close();
+
+        RandomAccessFile file = new RandomAccessFile(cpFile, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        UploadCheckPoint loaded = new UploadCheckPoint();
+        loaded.load(cpFile);
+        assertTrue(loaded.isValid(uploadFile.getPath()));
+        assertEquals(9, loaded.partETags.size());
+        assertTrue(loaded.uploadParts.get(8).isCompleted);
+        assertFalse(loaded.uploadParts.get(9).isCompleted);
+
+        // Resuming rewrites the journal, so records appended later follow an intact log.
+        completePart(loaded, cpFile, 9);
+        completePart(loaded, cpFile, 10);
+        loaded.close();
+        UploadCheckPoint resumed = new UploadCheckPoint();
+        resumed.load(cpFile);
+        assertEquals(11, resumed.partETags.size());
+    }
+
+    @Test
+    public void testCorruptedSnapshotIsRejected() throws Exception {
+        UploadCheckPoint ucp = newUploadCheckPoint();
+        ucp.dump(cpFile);
+        ucp.close();
+
+        RandomAccessFile file = new RandomAccessFile(cpFile, "rw");
+        try {
+            file.seek(20);
+            file.write(file.read() ^ 0xff);
+        } finally {
+            file.close();
+        }
+
+        try {
+            new UploadCheckPoint().load(cpFile);
+            fail("IOException has not been thrown.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        UploadCheckPoint ucp = newUploadCheckPoint();
+        for (int i = 0; i < PART_COUNT; i++) {
+            completePart(ucp, cpFile, i);
+        }
+        long journalLength = new File(cpFile).length();
+        ucp.dump(cpFile);
+        ucp.close();
+        assertTrue(new File(cpFile).length() < journalLength);
+
+        UploadCheckPoint loaded = new UploadCheckPoint();
+        loaded.load(cpFile);
+        assertTrue(loaded.isValid(uploadFile.getPath()));
+        assertEquals(PART_COUNT, loaded.partETags.size());
+    }
+
+    @Test
+    public void testLoadSerializedCheckpoint() throws Exception {
+        UploadCheckPoint ucp = newUploadCheckPoint();
+        ucp.update(3, new PartETag(4, "etag-3"), true);
+        ucp.md5 = ucp.hashCode();
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(cpFile));
+        out.writeObject(ucp);
+        out.close();
+
+        UploadCheckPoint loaded = new UploadCheckPoint();
+        loaded.load(cpFile);
+        assertTrue(loaded.isValid(uploadFile.getPath()));
+        assertTrue(loaded.uploadParts.get(3).isCompleted);
+    }
+
+    @Test
+    public void testDownloadCheckPoint() throws Exception {
+        DownloadCheckPoint dcp = new DownloadCheckPoint();
+        dcp.magic = "92611BED-89E2-46B6-89E5-72F273D4B0A3";
+        dcp.downloadFile = uploadFile.getPath();
+        dcp.bucketName = "bucket";
+        dcp.objectKey = "key";
+        dcp.objectStat = new ObjectStat();
+        dcp.objectStat.size = PART_COUNT * 10;
+        dcp.objectStat.lastModified = new Date(1000);
+        dcp.objectStat.digest = "etag";
+        dcp.downloadParts = new ArrayList<DownloadPart>();
+        for (int i = 0; i < PART_COUNT; i++) {
+            DownloadPart part = new DownloadPart();
+            part.index = i;
+            part.start = i * 10;
+            part.end = i * 10 + 9;
+            dcp.downloadParts.add(part);
+        }
+        for (int i = 0; i < PART_COUNT; i += 3) {
+            dcp.update(i, true);
+            dcp.append(cpFile, i);
+        }
+        dcp.close();
+
+        DownloadCheckPoint loaded = new DownloadCheckPoint();
+        loaded.load(cpFile);
+        assertEquals(dcp.hashCode(), loaded.hashCode());
+        assertEquals(loaded.hashCode(), loaded.md5);
+        assertEquals(new Date(1000), loaded.objectStat.lastModified);
+        for (int i = 0; i < PART_COUNT; i++) {
+            assertEquals(i % 3 == 0, loaded.downloadParts.get(i).isCompleted);
+        }
+    }
+}
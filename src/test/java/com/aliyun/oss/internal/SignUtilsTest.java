@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.aliyun.oss.common.comm.RequestMessage;
+
+public class SignUtilsTest {
+
+    @Test
+    public void testBuildCanonicalString() {
+        RequestMessage request = new RequestMessage();
+        request.addHeader("Content-Type", "text/plain ");
+        request.addHeader("Date", "Thu, 17 Nov 2005 18:49:58 GMT");
+        request.addHeader("Content-Length", "10");
+        request.addHeader("X-OSS-Meta-Author", " foo@bar.com");
+        request.addHeader("x-oss-magic", "abracadabra");
+        request.addParameter("x-oss-process", "image/resize");
+        request.addParameter("uploadId", "0004B9895DBBB6EC98E36");
+        request.addParameter("partNumber", "3");
+        request.addParameter("unsigned", "value");
+        request.addParameter("acl", null);
+
+        String expected = "PUT\n"
+                + "\n"
+                + "text/plain\n"
+                + "Thu, 17 Nov 2005 18:49:58 GMT\n"
+                + "x-oss-magic:abracadabra\n"
+                + "x-oss-meta-author:foo@bar.com\n"
+                + "x-oss-process:image/resize\n"
+                + "/bucket/object?acl&partNumber=3&uploadId=0004B9895DBBB6EC98E36";
+        assertEquals(expected, SignUtils.buildCanonicalString("PUT", "/bucket/object", request, null));
+    }
+
+    @Test
+    public void testBuildCanonicalStringWithoutHeaders() {
+        RequestMessage request = new RequestMessage();
+        request.addHeader("Content-MD5", "eB5eJF1ptWaXm4bijSPyxw==");
+
+        assertEquals("GET\neB5eJF1ptWaXm4bijSPyxw==\n\n/bucket/", 
+                SignUtils.buildCanonicalString("GET", "/bucket/", request, null));
+
+        // The reused buffer must not leak the previous canonical string.
+        assertEquals("HEAD\n\n\n/", 
+                SignUtils.buildCanonicalString("HEAD", "/", new RequestMessage(), null));
+    }
+}
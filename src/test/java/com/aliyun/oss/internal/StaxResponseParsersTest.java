@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.aliyun.oss.common.parser.ResponseParseException;
+import com.aliyun.oss.model.LiveChannel;
+import com.aliyun.oss.model.LiveChannelListing;
+import com.aliyun.oss.model.MultipartUpload;
+import com.aliyun.oss.model.MultipartUploadListing;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectListing;
+import com.aliyun.oss.model.Owner;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartSummary;
+
+/**
+ * Checks that the streaming parsers give the same results as the DOM ones.
+ */
+public class StaxResponseParsersTest {
+
+    private static final String LIST_OBJECTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListBucketResult>\n"
+            + "  <Name>bucket</Name>\n"
+            + "  <Prefix>dir/</Prefix>\n"
+            + "  <Marker></Marker>\n"
+            + "  <MaxKeys>2</MaxKeys>\n"
+            + "  <Delimiter>/</Delimiter>\n"
+            + "  <EncodingType>url</EncodingType>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <NextMarker>dir/b%26c.txt</NextMarker>\n"
+            + "  <Contents>\n"
+            + "    <Key>dir/a.txt</Key>\n"
+            + "    <LastModified>2012-02-09T01:49:38.000Z</LastModified>\n"
+            + "    <ETag>\"9BF156C2C16BB90B9EC81C96FE37EF1B\"</ETag>\n"
+            + "    <Type>Normal</Type>\n"
+            + "    <Size>10</Size>\n"
+            + "    <StorageClass>Standard</StorageClass>\n"
+            + "    <Owner><ID>51744</ID><DisplayName>51744</DisplayName></Owner>\n"
+            + "  </Contents>\n"
+            + "  <Contents>\n"
+            + "    <Key>dir/b&amp;c.txt</Key>\n"
+            + "    <LastModified>2012-02-09T01:49:39.000Z</LastModified>\n"
+            + "    <ETag>\"5B3C1A2E053D763E1B002CC607C5A0FE\"</ETag>\n"
+            + "    <Size>344606</Size>\n"
+            + "    <StorageClass>IA</StorageClass>\n"
+            + "    <Owner><ID>51744</ID><DisplayName>51744</DisplayName></Owner>\n"
+            + "    <Extension><Nested>ignored</Nested></Extension>\n"
+            + "  </Contents>\n"
+            + "  <CommonPrefixes><Prefix>dir/sub/</Prefix></CommonPrefixes>\n"
+            + "  <CommonPrefixes><Prefix><![CDATA[dir/cdata/]]></Prefix></CommonPrefixes>\n"
+            + "</ListBucketResult>";
+
+    private static final String LIST_MULTIPART_UPLOADS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListMultipartUploadsResult>\n"
+            + "  <Bucket>bucket</Bucket>\n"
+            + "  <KeyMarker></KeyMarker>\n"
+            + "  <UploadIdMarker></UploadIdMarker>\n"
+            + "  <NextKeyMarker>b.rar</NextKeyMarker>\n"
+            + "  <NextUploadIdMarker>0004B984CE74CF65B555A38F98CCFF96</NextUploadIdMarker>\n"
+            + "  <Delimiter>/</Delimiter>\n"
+            + "  <Prefix></Prefix>\n"
+            + "  <MaxUploads>1000</MaxUploads>\n"
+            + "  <IsTruncated>false</IsTruncated>\n"
+            + "  <Upload>\n"
+            + "    <Key>a.rar</Key>\n"
+            + "    <UploadId>0004B9846579745A77D988FFFDDEAFC3</UploadId>\n"
+            + "    <StorageClass>Standard</StorageClass>\n"
+            + "    <Initiated>2012-02-22T02:36:36.000Z</Initiated>\n"
+            + "  </Upload>\n"
+            + "  <Upload>\n"
+            + "    <Key>b.rar</Key>\n"
+            + "    <UploadId>0004B984CE74CF65B555A38F98CCFF96</UploadId>\n"
+            + "  </Upload>\n"
+            + "  <CommonPrefixes><Prefix>dir/</Prefix></CommonPrefixes>\n"
+            + "</ListMultipartUploadsResult>";
+
+    private static final String LIST_PARTS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListPartsResult>\n"
+            + "  <Bucket>bucket</Bucket>\n"
+            + "  <Key>test.rar</Key>\n"
+            + "  <UploadId>0004B98692BB2A28C897B642CFAC1DCE</UploadId>\n"
+            + "  <StorageClass>Standard</StorageClass>\n"
+            + "  <PartNumberMarker>1</PartNumberMarker>\n"
+            + "  <NextPartNumberMarker>3</NextPartNumberMarker>\n"
+            + "  <MaxParts>2</MaxParts>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <Part>\n"
+            + "    <PartNumber>2</PartNumber>\n"
+            + "    <LastModified>2012-02-22T05:12:29.000Z</LastModified>\n"
+            + "    <ETag>\"4B4BEAF5BC622FC89D29BF0E3B70B730\"</ETag>\n"
+            + "    <Size>3996796</Size>\n"
+            + "  </Part>\n"
+            + "  <Part>\n"
+            + "    <PartNumber>3</PartNumber>\n"
+            + "    <LastModified>2012-02-22T05:12:30.000Z</LastModified>\n"
+            + "    <ETag>\"3349DC700140D7F86A078484278075A9\"</ETag>\n"
+            + "    <Size>1024</Size>\n"
+            + "  </Part>\n"
+            + "</ListPartsResult>";
+
+    private static final String LIST_LIVE_CHANNELS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ListLiveChannelResult>\n"
+            + "  <Prefix></Prefix>\n"
+            + "  <Marker>channel-0</Marker>\n"
+            + "  <MaxKeys>1</MaxKeys>\n"
+            + "  <IsTruncated>true</IsTruncated>\n"
+            + "  <NextMarker>channel-1</NextMarker>\n"
+            + "  <LiveChannel>\n"
+            + "    <Id>channel-1</Id>\n"
+            + "    <Description>test</Description>\n"
+            + "    <Status>enabled</Status>\n"
+            + "    <LastModified>2016-07-30T01:54:21.000Z</LastModified>\n"
+            + "    <PublishUrls><Url>rtmp://bucket.oss-cn-hangzhou.aliyuncs.com/live/channel-1</Url></PublishUrls>\n"
+            + "    <PlayUrls><Url>http://bucket.oss-cn-hangzhou.aliyuncs.com/channel-1/playlist.m3u8</Url></PlayUrls>\n"
+            + "  </LiveChannel>\n"
+            + "</ListLiveChannelResult>";
+
+    private static InputStream stream(String xml) throws Exception {
+        return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+    }
+
+    @Test
+    public void testParseListObjects() throws Exception {
+        ObjectListing expected = ResponseParsers.parseListObjectsWithDom(stream(LIST_OBJECTS));
+        ObjectListing actual = StaxResponseParsers.parseListObjects(stream(LIST_OBJECTS));
+
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertNull(actual.getMarker());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertEquals(expected.getDelimiter(), actual.getDelimiter());
+        assertEquals(expected.getEncodingType(), actual.getEncodingType());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getNextMarker(), actual.getNextMarker());
+        assertEquals(expected.getCommonPrefixes(), actual.getCommonPrefixes());
+
+        assertEquals(2, actual.getObjectSummaries().size());
+        for (int i = 0; i < 2; i++) {
+            OSSObjectSummary e = expected.getObjectSummaries().get(i);
+            OSSObjectSummary a = actual.getObjectSummaries().get(i);
+            assertEquals(e.getBucketName(), a.getBucketName());
+            assertEquals(e.getKey(), a.getKey());
+            assertEquals(e.getETag(), a.getETag());
+            assertEquals(e.getLastModified(), a.getLastModified());
+            assertEquals(e.getSize(), a.getSize());
+            assertEquals(e.getStorageClass(), a.getStorageClass());
+            assertEquals(e.getOwner().getId(), a.getOwner().getId());
+            assertEquals(e.getOwner().getDisplayName(), a.getOwner().getDisplayName());
+        }
+        // Each summary has its own Owner, so changing one leaves the others alone.
+        Owner first = actual.getObjectSummaries().get(0).getOwner();
+        Owner second = actual.getObjectSummaries().get(1).getOwner();
+        assertNotSame(first, second);
+        first.setDisplayName("changed");
+        assertEquals("51744", second.getDisplayName());
+    }
+
+    @Test
+    public void testParseListMultipartUploads() throws Exception {
+        MultipartUploadListing expected = ResponseParsers.parseListMultipartUploadsWithDom(
+                stream(LIST_MULTIPART_UPLOADS));
+        MultipartUploadListing actual = StaxResponseParsers.parseListMultipartUploads(stream(LIST_MULTIPART_UPLOADS));
+
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getKeyMarker(), actual.getKeyMarker());
+        assertEquals(expected.getUploadIdMarker(), actual.getUploadIdMarker());
+        assertEquals(expected.getNextKeyMarker(), actual.getNextKeyMarker());
+        assertEquals(expected.getNextUploadIdMarker(), actual.getNextUploadIdMarker());
+        assertEquals(expected.getDelimiter(), actual.getDelimiter());
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertEquals(expected.getMaxUploads(), actual.getMaxUploads());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getCommonPrefixes(), actual.getCommonPrefixes());
+
+        // The upload without an initiation time is left out.
+        assertEquals(1, actual.getMultipartUploads().size());
+        MultipartUpload e = expected.getMultipartUploads().get(0);
+        MultipartUpload a = actual.getMultipartUploads().get(0);
+        assertEquals(e.getKey(), a.getKey());
+        assertEquals(e.getUploadId(), a.getUploadId());
+        assertEquals(e.getStorageClass(), a.getStorageClass());
+        assertEquals(e.getInitiated(), a.getInitiated());
+    }
+
+    @Test
+    public void testParseListParts() throws Exception {
+        PartListing expected = ResponseParsers.parseListPartsWithDom(stream(LIST_PARTS));
+        PartListing actual = StaxResponseParsers.parseListParts(stream(LIST_PARTS));
+
+        assertEquals(expected.getBucketName(), actual.getBucketName());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getUploadId(), actual.getUploadId());
+        assertEquals(expected.getStorageClass(), actual.getStorageClass());
+        assertEquals(expected.getPartNumberMarker(), actual.getPartNumberMarker());
+        assertEquals(expected.getNextPartNumberMarker(), actual.getNextPartNumberMarker());
+        assertEquals(expected.getMaxParts(), actual.getMaxParts());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+
+        assertEquals(2, actual.getParts().size());
+        for (int i = 0; i < 2; i++) {
+            PartSummary e = expected.getParts().get(i);
+            PartSummary a = actual.getParts().get(i);
+            assertEquals(e.getPartNumber(), a.getPartNumber());
+            assertEquals(e.getLastModified(), a.getLastModified());
+            assertEquals(e.getETag(), a.getETag());
+            assertEquals(e.getSize(), a.getSize());
+        }
+    }
+
+    @Test
+    public void testParseListLiveChannels() throws Exception {
+        LiveChannelListing expected = ResponseParsers.parseListLiveChannelsWithDom(stream(LIST_LIVE_CHANNELS));
+        LiveChannelListing actual = StaxResponseParsers.parseListLiveChannels(stream(LIST_LIVE_CHANNELS));
+
+        assertEquals(expected.getPrefix(), actual.getPrefix());
+        assertEquals(expected.getMarker(), actual.getMarker());
+        assertEquals(expected.getMaxKeys(), actual.getMaxKeys());
+        assertEquals(expected.isTruncated(), actual.isTruncated());
+        assertEquals(expected.getNextMarker(), actual.getNextMarker());
+
+        assertEquals(1, actual.getLiveChannels().size());
+        LiveChannel e = expected.getLiveChannels().get(0);
+        LiveChannel a = actual.getLiveChannels().get(0);
+        assertEquals(e.getName(), a.getName());
+        assertEquals(e.getDescription(), a.getDescription());
+        assertEquals(e.getStatus(), a.getStatus());
+        assertEquals(e.getLastModified(), a.getLastModified());
+        assertEquals(e.getPublishUrls(), a.getPublishUrls());
+        assertEquals(e.getPlayUrls(), a.getPlayUrls());
+    }
+
+    @Test
+    public void testMalformedResponse() throws Exception {
+        try {
+            StaxResponseParsers.parseListObjects(stream("<ListBucketResult><Name>bucket</ListBucketResult>"));
+            fail("Malformed response should be rejected.");
+        } catch (ResponseParseException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TransferSchedulerTest {
+
+    private static Callable<Void> sleepingPart(final AtomicInteger running, final AtomicInteger maxRunning, 
+            final AtomicInteger totalRunning, final AtomicInteger maxTotalRunning) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                updateMax(maxRunning, running.incrementAndGet());
+                updateMax(maxTotalRunning, totalRunning.incrementAndGet());
+                Thread.sleep(10);
+                totalRunning.decrementAndGet();
+                running.decrementAndGet();
+                return null;
+            }
+        };
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        synchronized (max) {
+            max.set(Math.max(max.get(), value));
+        }
+    }
+
+    private static Callable<Void> recordingPart(final List<String> order, final String name) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                order.add(name);
+                return null;
+            }
+        };
+    }
+
+    private static Callable<Void> blockingPart(final CountDownLatch started, final CountDownLatch release) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                release.await();
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testConcurrencyLimits() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(3, null);
+        try {
+            AtomicInteger totalRunning = new AtomicInteger();
+            AtomicInteger maxTotalRunning = new AtomicInteger();
+            AtomicInteger firstRunning = new AtomicInteger();
+            AtomicInteger firstMaxRunning = new AtomicInteger();
+            AtomicInteger secondRunning = new AtomicInteger();
+            AtomicInteger secondMaxRunning = new AtomicInteger();
+            TransferScheduler.Transfer first = scheduler.newTransfer(2, 0);
+            TransferScheduler.Transfer second = scheduler.newTransfer(10, 0);
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(first.submit(sleepingPart(firstRunning, firstMaxRunning, 
+                        totalRunning, maxTotalRunning)));
+                futures.add(second.submit(sleepingPart(secondRunning, secondMaxRunning, 
+                        totalRunning, maxTotalRunning)));
+            }
+            first.awaitCompletion();
+            second.awaitCompletion();
+            for (Future<Void> future : futures) {
+                assertTrue(future.isDone());
+                future.get();
+            }
+            assertTrue(firstMaxRunning.get() <= 2);
+            assertEquals(3, maxTotalRunning.get());
+            assertTrue(scheduler.getWorkerCount() <= 3);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testRoundRobinAndPriority() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(1, null);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            TransferScheduler.Transfer blocker = scheduler.newTransfer(1, 0);
+            blocker.submit(blockingPart(started, release));
+            started.await();
+
+            List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            TransferScheduler.Transfer a = scheduler.newTransfer(4, 0);
+            TransferScheduler.Transfer b = scheduler.newTransfer(4, 0);
+            TransferScheduler.Transfer urgent = scheduler.newTransfer(4, 1);
+            for (int i = 1; i <= 3; i++) {
+                a.submit(recordingPart(order, "a" + i));
+                b.submit(recordingPart(order, "b" + i));
+            }
+            urgent.submit(recordingPart(order, "u1"));
+            urgent.submit(recordingPart(order, "u2"));
+            release.countDown();
+
+            a.awaitCompletion();
+            b.awaitCompletion();
+            urgent.awaitCompletion();
+            assertEquals(Arrays.asList("u1", "u2", "a1", "b1", "a2", "b2", "a3", "b3"), order);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testShutdownCancelsQueuedParts() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(1, null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        TransferScheduler.Transfer transfer = scheduler.newTransfer(1, 0);
+        Future<Void> running = transfer.submit(blockingPart(started, release));
+        Future<Void> queued = transfer.submit(recordingPart(new ArrayList<String>(), "queued"));
+        started.await();
+
+        scheduler.shutdown();
+        assertTrue(queued.isCancelled());
+        release.countDown();
+        transfer.awaitCompletion();
+        running.get();
+        try {
+            transfer.submit(recordingPart(new ArrayList<String>(), "late"));
+        } catch (IllegalStateException e) {
+            return;
+        }
+        throw new AssertionError("IllegalStateException has not been thrown.");
+    }
+
+    @Test
+    public void testCancelTransfer() throws Exception {
+        TransferScheduler scheduler = new TransferScheduler(2, null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        TransferScheduler.Transfer cancelled = scheduler.newTransfer(1, 0);
+        TransferScheduler.Transfer other = scheduler.newTransfer(1, 0);
+        Future<Void> running = cancelled.submit(blockingPart(started, release));
+        Future<Void> queued = cancelled.submit(recordingPart(order, "queued"));
+        started.await();
+
+        cancelled.cancel();
+        assertTrue(cancelled.isCancelled());
+        assertTrue(queued.isCancelled());
+        assertTrue(cancelled.submit(recordingPart(order, "late")).isCancelled());
+        other.submit(recordingPart(order, "other"));
+        other.awaitCompletion();
+
+        release.countDown();
+        cancelled.awaitCompletion();
+        running.get();
+        assertEquals(Arrays.asList("other"), order);
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void testThreadFactory() throws Exception {
+        final AtomicInteger created = new AtomicInteger();
+        ThreadFactory delegate = TransferScheduler.newVirtualThreadFactory();
+        if (delegate == null) {
+            delegate = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r);
+                }
+            };
+        }
+        final ThreadFactory threads = delegate;
+        TransferScheduler scheduler = new TransferScheduler(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                created.incrementAndGet();
+                return threads.newThread(r);
+            }
+        });
+        try {
+            List<String> order = Collections.synchronizedList(new ArrayList<String>());
+            TransferScheduler.Transfer transfer = scheduler.newTransfer(2, 0);
+            for (int i = 0; i < 10; i++) {
+                transfer.submit(recordingPart(order, "p" + i));
+            }
+            transfer.awaitCompletion();
+            assertEquals(10, order.size());
+            assertTrue(created.get() >= 1 && created.get() <= 2);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TransferTunerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void testChoosePartSize() {
+        // Small files never go below the minimum part size.
+        assertEquals(TransferTuner.MIN_PART_SIZE, TransferTuner.choosePartSize(10 * MB, 1000));
+        assertEquals(TransferTuner.MIN_PART_SIZE, TransferTuner.choosePartSize(0, 1000));
+
+        long partSize = TransferTuner.choosePartSize(10000 * MB, 1000);
+        assertEquals(0, partSize % TransferTuner.PART_SIZE_ALIGNMENT);
+        assertTrue(partSize >= 10 * MB && partSize < 11 * MB);
+
+        // The part count stays within the multipart upload limit.
+        long contentLength = 100000 * MB;
+        partSize = TransferTuner.choosePartSize(contentLength, 100000);
+        assertTrue((contentLength + partSize - 1) / partSize <= TransferTuner.MAX_PART_COUNT);
+
+        assertEquals(TransferTuner.MAX_PART_SIZE, TransferTuner.choosePartSize(Long.MAX_VALUE / 2, 1));
+    }
+
+    @Test
+    public void testMaxConcurrency() {
+        assertEquals(TransferTuner.DEFAULT_MAX_CONCURRENCY, TransferTuner.maxConcurrency(1));
+        assertEquals(5, TransferTuner.maxConcurrency(5));
+    }
+
+    @Test
+    public void testSlowStartAndBackOff() {
+        TransferScheduler scheduler = new TransferScheduler(1, null);
+        TransferScheduler.Transfer transfer = scheduler.newTransfer(8, 0);
+        TransferTuner tuner = new TransferTuner(transfer, 8);
+        assertEquals(TransferTuner.INITIAL_CONCURRENCY, tuner.getConcurrency());
+        assertEquals(TransferTuner.INITIAL_CONCURRENCY, transfer.getMaxConcurrency());
+
+        // Each window far faster than the last: the concurrency doubles up to the bound.
+        long bytes = MB;
+        for (int expected : new int[] { 4, 8, 8 }) {
+            completeWindow(tuner, bytes, 1);
+            bytes *= 100;
+            assertEquals(expected, tuner.getConcurrency());
+        }
+        assertEquals(8, transfer.getMaxConcurrency());
+
+        // Far slower windows back off one part at a time.
+        completeWindow(tuner, 1, 1);
+        assertEquals(7, tuner.getConcurrency());
+        assertEquals(7, transfer.getMaxConcurrency());
+        scheduler.shutdown();
+    }
+
+    private static void completeWindow(TransferTuner tuner, long partSize, long latency) {
+        int parts = Math.max(tuner.getConcurrency(), TransferTuner.INITIAL_CONCURRENCY);
+        for (int i = 0; i < parts; i++) {
+            tuner.onPartCompleted(partSize, latency);
+        }
+    }
+}
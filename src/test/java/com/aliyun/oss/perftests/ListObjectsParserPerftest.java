@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.aliyun.oss.internal.ResponseParsers;
+import com.aliyun.oss.internal.StaxResponseParsers;
+import com.aliyun.oss.model.ObjectListing;
+
+/**
+ * Compares the time and memory allocated to parse a ListObjects page with the
+ * DOM and the streaming parsers.
+ *
+ * <p>Usage: ListObjectsParserPerftest [keys per page] [iterations]. The
+ * allocation is measured with the HotSpot thread allocation counter and is
+ * not printed on runtimes without it.</p>
+ */
+public class ListObjectsParserPerftest {
+
+    private static volatile ObjectListing sink;
+
+    private static byte[] createPage(int keys) throws Exception {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<ListBucketResult>\n");
+        xml.append("  <Name>perftest-bucket</Name>\n  <Prefix>logs/</Prefix>\n  <Marker></Marker>\n");
+        xml.append("  <MaxKeys>").append(keys).append("</MaxKeys>\n  <Delimiter></Delimiter>\n");
+        xml.append("  <IsTruncated>true</IsTruncated>\n  <NextMarker>logs/").append(keys).append("</NextMarker>\n");
+        for (int i = 0; i < keys; i++) {
+            xml.append("  <Contents>\n");
+            xml.append("    <Key>logs/2017/11/01/access-").append(i).append(".log.gz</Key>\n");
+            xml.append("    <LastModified>2017-11-01T09:00:00.000Z</LastModified>\n");
+            xml.append("    <ETag>\"5B3C1A2E053D763E1B002CC607C5A0FE\"</ETag>\n");
+            xml.append("    <Type>Normal</Type>\n");
+            xml.append("    <Size>").append(1024 + i).append("</Size>\n");
+            xml.append("    <StorageClass>Standard</StorageClass>\n");
+            xml.append("    <Owner>\n      <ID>1305433xxx</ID>\n      <DisplayName>1305433xxx</DisplayName>\n    </Owner>\n");
+            xml.append("  </Contents>\n");
+        }
+        xml.append("</ListBucketResult>\n");
+        return xml.toString().getBytes("UTF-8");
+    }
+
+    private static void parse(byte[] page, boolean dom, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            ByteArrayInputStream in = new ByteArrayInputStream(page);
+            sink = dom ? ResponseParsers.parseListObjectsWithDom(in) : StaxResponseParsers.parseListObjects(in);
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void run(String name, byte[] page, boolean dom, int iterations) throws Exception {
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        parse(page, dom, iterations);
+        long elapsed = System.nanoTime() - start;
+        allocated = allocated >= 0 ? allocatedBytes() - allocated : -1;
+
+        System.out.print(name + ": " + (elapsed / iterations / 1000) + " us/page");
+        if (allocated >= 0) {
+            System.out.print(", " + (allocated / iterations / 1024) + " KB allocated/page");
+        }
+        System.out.println();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int keys = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        byte[] page = createPage(keys);
+        System.out.println("page: " + keys + " keys, " + page.length / 1024 + " KB");
+
+        // Warm up both parsers before measuring.
+        parse(page, true, iterations);
+        parse(page, false, iterations);
+
+        run("dom", page, true, iterations);
+        run("stax", page, false, iterations);
+    }
+}
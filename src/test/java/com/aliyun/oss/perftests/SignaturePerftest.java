@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.aliyun.oss.common.auth.ServiceSignature;
+import com.aliyun.oss.common.comm.RequestMessage;
+import com.aliyun.oss.common.utils.DateUtil;
+import com.aliyun.oss.common.utils.HttpHeaders;
+import com.aliyun.oss.internal.OSSHeaders;
+import com.aliyun.oss.internal.RequestParameters;
+import com.aliyun.oss.internal.SignUtils;
+
+/**
+ * Measures the per-request cost of building the canonical string and signing
+ * it, the work done by OSSRequestSigner for every request.
+ *
+ * <p>Usage: SignaturePerftest [threads] [seconds]. Each thread signs an upload
+ * part request with a few user metadata headers in a loop; the average cost
+ * per request and the overall rate are printed once the run ends.</p>
+ */
+public class SignaturePerftest {
+
+    private static final String ACCESS_KEY = "OtxrzxIsfpFjA7SwPzILwy8Bw21TLhquhboDYROV";
+    private static final String RESOURCE_PATH = "/oss-example/perftest/object-name.dat";
+    private static final int WARMUP_ITERATIONS = 200000;
+
+    private static volatile boolean stopped = false;
+    private static volatile String sink;
+
+    private static RequestMessage createRequest() {
+        RequestMessage request = new RequestMessage();
+        request.addHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream");
+        request.addHeader(HttpHeaders.CONTENT_MD5, "eB5eJF1ptWaXm4bijSPyxw==");
+        request.addHeader(HttpHeaders.DATE, DateUtil.formatRfc822Date(new java.util.Date()));
+        request.addHeader(HttpHeaders.CONTENT_LENGTH, "1048576");
+        request.addHeader("User-Agent", "aliyun-sdk-java");
+        request.addHeader(OSSHeaders.OSS_USER_METADATA_PREFIX + "author", "perftest");
+        request.addHeader(OSSHeaders.OSS_USER_METADATA_PREFIX + "project", "signing");
+        request.addHeader(OSSHeaders.OSS_SECURITY_TOKEN, "CAES+wMIARKAAZhjH0EUOIhJMQBMjRywXq7MQ/cjLYg80Aho1ek0Jm63XMhr9Oc5s");
+        request.addParameter(RequestParameters.UPLOAD_ID, "0004B9895DBBB6EC98E36");
+        request.addParameter(RequestParameters.PART_NUMBER, "17");
+        return request;
+    }
+
+    private static long sign(RequestMessage request, ServiceSignature signature, long iterations) {
+        long count = 0;
+        while (count < iterations && !stopped) {
+            String canonicalString = SignUtils.buildCanonicalString("PUT", RESOURCE_PATH, request, null);
+            sink = signature.computeSignature(ACCESS_KEY, canonicalString);
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        final RequestMessage request = createRequest();
+        sign(request, ServiceSignature.create(), WARMUP_ITERATIONS);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final long[] counts = new long[threads];
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    // A signature per request, as OSSRequestSigner does.
+                    long count = 0;
+                    while (!stopped) {
+                        count += sign(request, ServiceSignature.create(), 1);
+                    }
+                    counts[index] = count;
+                }
+            });
+            t.start();
+            workers.add(t);
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        stopped = true;
+        for (Thread t : workers) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        System.out.println("threads: " + threads + ", requests: " + total);
+        System.out.println("ns/request per thread: " + (elapsed * threads / Math.max(total, 1)));
+        System.out.println("requests/s: " + (total * 1000000000L / elapsed));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.utils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+/**
+ * A local HTTP(S) server for tests. Exchanges are handled on a thread pool
+ * owned by the server, which is shut down, interrupting any handler still
+ * running, when the server is stopped.
+ */
+@SuppressWarnings("restriction")
+public class TestHttpServer {
+
+    private final HttpServer server;
+    private final String hostname;
+    private final String scheme;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "test-http-server");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    public TestHttpServer(String hostname) throws IOException {
+        this(HttpServer.create(new InetSocketAddress(hostname, 0), 0), hostname, "http");
+    }
+
+    public TestHttpServer(String hostname, HttpsConfigurator configurator) throws IOException {
+        this(createHttpsServer(hostname, configurator), hostname, "https");
+    }
+
+    private TestHttpServer(HttpServer server, String hostname, String scheme) {
+        this.server = server;
+        this.hostname = hostname;
+        this.scheme = scheme;
+        server.setExecutor(executor);
+    }
+
+    private static HttpsServer createHttpsServer(String hostname, HttpsConfigurator configurator) 
+            throws IOException {
+        HttpsServer server = HttpsServer.create(new InetSocketAddress(hostname, 0), 0);
+        server.setHttpsConfigurator(configurator);
+        return server;
+    }
+
+    public TestHttpServer handle(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+        return this;
+    }
+
+    public TestHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public URI getEndpoint() {
+        return URI.create(scheme + "://" + hostname + ":" + getPort());
+    }
+}